@@ -29,12 +29,23 @@ public class Constants {
 
   public static final String NULL_TOKEN = "\\N";
 
+  // table data format, declared by "format" in __schema__; default csv
+  public static final String TABLE_FORMAT_CSV = "csv";
+  public static final String TABLE_FORMAT_BINARY = "binary";
+  public static final String BINARY_DATA_FILE_SUFFIX = ".bin";
+  // progress of an unfinished download, the table is incomplete while it exists
+  public static final String DOWNLOAD_MANIFEST_FILE = "__download__";
+
   // LocalConf
   public static final String JOB_NAME = "odps.mapred.job.name";
   public static final String LOCAL_TEMP_DIR = "odps.mapred.local.temp.dir";
   public static final String LOCAL_TEMP_RETAIN = "odps.mapred.local.temp.retain";
   public static final String LOCAL_RECORD_LIMIT = "odps.mapred.local.record.download.limit";
   public static final String LOCAL_DOWNLOAD_MODE = "odps.mapred.local.download.mode"; //always|auto|never; default auto
+  public static final String LOCAL_WORKER_NUM = "odps.mapred.local.worker.num"; // concurrent tasks; default 1
+  public static final String LOCAL_SORT_BUFFER_RECORDS = "odps.mapred.local.sort.buffer.records";
+  public static final int DEFAULT_SORT_BUFFER_RECORDS = 500000;
+  public static final String LOCAL_GRAPH_MESSAGE_DUMP = "odps.graph.local.message.dump"; // dump superstep messages for debugging; default false
   public static final String
       LOCAL_INPUT_COLUMN_SEPERATOR =
       "odps.mapred.local.input.column.seperator";
@@ -43,6 +54,14 @@ public class Constants {
       "odps.mapred.local.output.column.seperator";
   public static final int LIMIT_DOWNLOAD_RECORD = 10000;
   public static final int DEFAULT_DOWNLOAD_RECORD = 100;
+  public static final String LOCAL_DOWNLOAD_THREADS = "odps.local.download.threads"; // concurrent tunnel downloads; default 4
+  public static final int DEFAULT_DOWNLOAD_THREADS = 4;
+  public static final String LOCAL_DOWNLOAD_CHUNK_RECORDS = "odps.local.download.chunk.records"; // records per data file
+  public static final int DEFAULT_DOWNLOAD_CHUNK_RECORDS = 2000;
+  public static final String LOCAL_TABLE_FORMAT = "odps.local.table.format"; // csv|binary, format of downloaded tables; default csv
+  public static final String LOCAL_RESOURCE_CACHE_DIR = "odps.local.resource.cache.dir"; // shared disk cache of downloaded resources; default none
+  public static final String LOCAL_RESOURCE_CACHE_SIZE = "odps.local.resource.cache.size"; // in MB
+  public static final long DEFAULT_RESOURCE_CACHE_SIZE = 2048;
   public static final String TUNNEL_ENDPOINT = "odps.tunnel.end.point";
 
   public static final String DATE_FORMAT_1 = "yyyyMMddHHmmss_SSS";
@@ -47,6 +47,11 @@ public class JobDirecotry {
     return f;
   }
 
+  public File getSpillDir() {
+    File f = new File(getJobDir(), "spill");
+    return f;
+  }
+
   public File getInputDir(String relativePath) {
     File f = new File(getJobDir(), "input" + File.separator + relativePath);
     if (!f.exists()) {
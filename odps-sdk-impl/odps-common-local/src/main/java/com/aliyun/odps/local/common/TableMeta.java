@@ -37,6 +37,9 @@ public class TableMeta {
 
   private Column[] partitions;
 
+  // 数据文件格式, null 表示默认的 csv
+  private String format;
+
   public TableMeta(String projName, String tableName, Column[] cols) {
     this.projName = projName;
     this.tableName = tableName;
@@ -84,6 +87,18 @@ public class TableMeta {
     this.partitions = partitions;
   }
 
+  public String getFormat() {
+    return format;
+  }
+
+  public void setFormat(String format) {
+    this.format = format;
+  }
+
+  public boolean isBinaryFormat() {
+    return Constants.TABLE_FORMAT_BINARY.equals(format);
+  }
+
   public static TableMeta fromTable(Table table) {
     String projectName = table.getProject();
     String tableName = table.getName();
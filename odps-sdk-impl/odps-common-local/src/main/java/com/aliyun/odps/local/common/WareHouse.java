@@ -54,6 +54,8 @@ import com.aliyun.odps.OdpsException;
 import com.aliyun.odps.PartitionSpec;
 import com.aliyun.odps.conf.Configuration;
 import com.aliyun.odps.data.TableInfo;
+import com.aliyun.odps.local.common.utils.BinaryDataReader;
+import com.aliyun.odps.local.common.utils.BinaryDataWriter;
 import com.aliyun.odps.local.common.utils.DownloadUtils;
 import com.aliyun.odps.local.common.utils.LocalRunUtils;
 import com.aliyun.odps.local.common.utils.PartitionUtils;
@@ -363,7 +365,8 @@ public class WareHouse {
       final Collection<File> dataFiles = FileUtils.listFiles(whTableDir, HiddenFileFilter.VISIBLE,
                                                              HiddenFileFilter.VISIBLE);
       for (File dataFile : dataFiles) {
-        if (dataFile.getName().equals(Constants.SCHEMA_FILE)) {
+        if (dataFile.getName().equals(Constants.SCHEMA_FILE)
+            || dataFile.getName().equals(Constants.DOWNLOAD_MANIFEST_FILE)) {
           continue;
         }
         String parentDir = dataFile.getParentFile().getAbsolutePath();
@@ -482,6 +485,10 @@ public class WareHouse {
       }
     } else {
       for (File file : LocalRunUtils.listDataFiles(srcDir)) {
+        if (LocalRunUtils.isBinaryDataFile(file)) {
+          copyBinaryDataFile(file, indexes, destDir, inputColumnSeperator);
+          continue;
+        }
         CsvReader reader = DownloadUtils.newCsvReader(
             file.getAbsolutePath(), inputColumnSeperator, encoding);
         CsvWriter writer = new CsvWriter(new File(destDir, file.getName()).getAbsolutePath(),
@@ -500,6 +507,133 @@ public class WareHouse {
     }
   }
 
+  /**
+   * 只读取需要的列, 按裁剪后的列写成文本格式的数据文件
+   */
+  private void copyBinaryDataFile(File file, List<Integer> indexes, File destDir,
+                                  char inputColumnSeperator) throws IOException {
+    TableMeta tableMeta = SchemaUtils.readSchema(findSchemaDir(file.getParentFile()));
+    Column[] cols = tableMeta.getCols();
+    boolean[] readColumns = new boolean[cols.length];
+    for (Integer index : indexes) {
+      readColumns[index] = true;
+    }
+    String name = file.getName();
+    name = name.substring(0, name.length() - Constants.BINARY_DATA_FILE_SUFFIX.length());
+    BinaryDataReader reader = new BinaryDataReader(file, cols, readColumns, false);
+    CsvWriter writer = new CsvWriter(new File(destDir, name).getAbsolutePath(),
+                                     inputColumnSeperator, encoding);
+    try {
+      Object[] vals;
+      while ((vals = reader.read()) != null) {
+        String[] newVals = new String[indexes.size()];
+        for (int i = 0; i < indexes.size(); ++i) {
+          int index = indexes.get(i);
+          newVals[i] = TypeConvertUtils.toString(vals[index], cols[index].getTypeInfo());
+        }
+        writer.writeRecord(newVals);
+      }
+    } finally {
+      writer.close();
+      reader.close();
+    }
+  }
+
+  /**
+   * 分区数据文件所在目录没有 schema 文件, 向上查找表目录
+   */
+  private static File findSchemaDir(File dir) {
+    File current = dir;
+    while (current != null && !SchemaUtils.existsSchemaFile(current)) {
+      current = current.getParentFile();
+    }
+    if (current == null) {
+      throw new RuntimeException("Schema file not found for " + dir.getAbsolutePath());
+    }
+    return current;
+  }
+
+  /**
+   * 把表的所有数据文件转换为指定的存储格式, 并更新 schema 文件中的 format
+   *
+   * @param format
+   *     {@link Constants#TABLE_FORMAT_CSV} 或 {@link Constants#TABLE_FORMAT_BINARY}
+   */
+  public void convertTableFormat(String projName, String tblName, String format)
+      throws IOException {
+    if (!Constants.TABLE_FORMAT_CSV.equals(format)
+        && !Constants.TABLE_FORMAT_BINARY.equals(format)) {
+      throw new IllegalArgumentException("Unsupported table format: " + format);
+    }
+    File tableDir = getTableDir(projName, tblName);
+    if (!existsTableSchema(projName, tblName)) {
+      throw new IOException("Table " + projName + "." + tblName + " not exists in warehouse");
+    }
+    TableMeta tableMeta = SchemaUtils.readSchema(tableDir);
+    Column[] cols = tableMeta.getCols();
+    boolean toBinary = Constants.TABLE_FORMAT_BINARY.equals(format);
+    char separator = getInputColumnSeperator();
+
+    List<File> dataFiles = new ArrayList<File>();
+    LocalRunUtils.listAllDataFiles(tableDir, dataFiles);
+    for (File file : dataFiles) {
+      if (LocalRunUtils.isBinaryDataFile(file) == toBinary) {
+        continue;
+      }
+      String name = file.getName();
+      File dest;
+      if (toBinary) {
+        dest = new File(file.getParentFile(), name + Constants.BINARY_DATA_FILE_SUFFIX);
+        CsvReader reader = DownloadUtils.newCsvReader(file.getAbsolutePath(), separator,
+                                                      encoding);
+        BinaryDataWriter writer = new BinaryDataWriter(dest, cols);
+        try {
+          while (reader.readRecord()) {
+            String[] vals = reader.getValues();
+            if (vals.length != cols.length) {
+              throw new IOException("column num not match in " + file.getAbsolutePath()
+                                    + ", expect: " + cols.length + ", but: " + vals.length);
+            }
+            Object[] row = new Object[cols.length];
+            for (int i = 0; i < cols.length; ++i) {
+              row[i] = TypeConvertUtils.fromString(cols[i].getTypeInfo(), vals[i], false);
+            }
+            writer.write(row);
+          }
+        } finally {
+          writer.close();
+          reader.close();
+        }
+      } else {
+        dest = new File(file.getParentFile(),
+                        name.substring(0, name.length()
+                                          - Constants.BINARY_DATA_FILE_SUFFIX.length()));
+        BinaryDataReader reader = new BinaryDataReader(file, cols, null, false);
+        CsvWriter writer = new CsvWriter(dest.getAbsolutePath(), separator, encoding);
+        try {
+          Object[] row;
+          String[] vals = new String[cols.length];
+          while ((row = reader.read()) != null) {
+            for (int i = 0; i < cols.length; ++i) {
+              vals[i] = TypeConvertUtils.toString(row[i], cols[i].getTypeInfo());
+            }
+            writer.writeRecord(vals);
+          }
+        } finally {
+          writer.close();
+          reader.close();
+        }
+      }
+      if (!file.delete()) {
+        throw new IOException("Delete data file failed: " + file.getAbsolutePath());
+      }
+    }
+
+    tableMeta.setFormat(format);
+    SchemaUtils.generateSchemaFile(tableMeta, null, tableDir);
+    LOG.info("Converted table " + projName + "." + tblName + " to " + format + " format");
+  }
+
   public File createPartitionDir(String projName, String tblName, PartitionSpec partSpec) {
     File tableDir = getTableDir(projName, tblName);
     if (!tableDir.exists()) {
@@ -593,7 +727,8 @@ public class WareHouse {
     dataFiles.addAll(emptyPatitions);
 
     for (File dataFile : dataFiles) {
-      if (dataFile.getName().equals(Constants.SCHEMA_FILE)) {
+      if (dataFile.getName().equals(Constants.SCHEMA_FILE)
+          || dataFile.getName().equals(Constants.DOWNLOAD_MANIFEST_FILE)) {
         continue;
       }
 
@@ -789,7 +924,11 @@ public class WareHouse {
   }
 
   public boolean existsTable(String projName, String tblName) {
-    return existsTableSchema(projName, tblName);
+    if (!existsTableSchema(projName, tblName)) {
+      return false;
+    }
+    // 下载未完成的表视为不存在, 再次下载时从中断处继续
+    return !new File(getTableDir(projName, tblName), Constants.DOWNLOAD_MANIFEST_FILE).exists();
   }
 
   public boolean existsTableSchema(String projectName, String tableName) {
@@ -927,19 +1066,135 @@ public class WareHouse {
   public List<Object[]> readData(String projName, String tblName, PartitionSpec partitionSpec,
                                  String[] readCols, char inputColumnSeparator)
       throws OdpsException, IOException {
-    List<File> dataFiles = getDataFiles(projName, tblName, partitionSpec, inputColumnSeparator);
+    Iterator<Object[]> iterator =
+        readDataIterator(projName, tblName, partitionSpec, readCols, inputColumnSeparator);
+    if (iterator == null) {
+      return null;
+    }
+    List<Object[]> result = new ArrayList<Object[]>();
+    try {
+      while (iterator.hasNext()) {
+        result.add(iterator.next());
+      }
+    } catch (RuntimeException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw e;
+    }
+    return result;
+  }
+
+  /**
+   * 逐个数据文件、逐条记录地读取表数据, 不会把整张表读入内存, 没有数据文件时返回 null。
+   * 读取出错时 hasNext 抛出以 IOException 为 cause 的 RuntimeException
+   */
+  public Iterator<Object[]> readDataIterator(String projName, String tblName,
+                                             PartitionSpec partitionSpec, String[] readCols,
+                                             final char inputColumnSeparator)
+      throws OdpsException, IOException {
+    final List<File> dataFiles =
+        getDataFiles(projName, tblName, partitionSpec, inputColumnSeparator);
     if (dataFiles == null || dataFiles.size() == 0) {
       return null;
     }
     File tableDir = getTableDir(projName, tblName);
-    TableMeta tableMeta = SchemaUtils.readSchema(tableDir);
-    List<ColumnOrConstant> columnOrConstants = SchemaUtils.parseColumnConstant(readCols, tableMeta);
-    CsvReader reader;
-    List<Object[]> result = new ArrayList<Object[]>();
-    for (File file : dataFiles) {
-      reader = DownloadUtils.newCsvReader(file.getAbsolutePath(), inputColumnSeparator, encoding);
-      while (reader.readRecord()) {
-        String[] vals = reader.getValues();
+    final TableMeta tableMeta = SchemaUtils.readSchema(tableDir);
+    final List<ColumnOrConstant> columnOrConstants =
+        SchemaUtils.parseColumnConstant(readCols, tableMeta);
+
+    // 二进制数据文件只解码需要读取的列
+    final boolean[] readColumns;
+    if (columnOrConstants != null && !columnOrConstants.isEmpty()) {
+      readColumns = new boolean[tableMeta.getCols().length];
+      for (ColumnOrConstant columnOrConstant : columnOrConstants) {
+        if (!columnOrConstant.isConstant()) {
+          readColumns[columnOrConstant.getColIndex()] = true;
+        }
+      }
+    } else {
+      readColumns = null;
+    }
+
+    return new Iterator<Object[]>() {
+      CsvReader reader;
+      BinaryDataReader binaryReader;
+      int fileIndex;
+      Object[] current;
+
+      @Override
+      public boolean hasNext() {
+        if (current != null) {
+          return true;
+        }
+        try {
+          current = read();
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+        return current != null;
+      }
+
+      @Override
+      public Object[] next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        Object[] result = current;
+        current = null;
+        return result;
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+
+      private Object[] read() throws IOException {
+        while (true) {
+          if (reader == null && binaryReader == null) {
+            if (fileIndex >= dataFiles.size()) {
+              return null;
+            }
+            File file = dataFiles.get(fileIndex++);
+            if (LocalRunUtils.isBinaryDataFile(file)) {
+              binaryReader = new BinaryDataReader(file, tableMeta.getCols(), readColumns, false);
+            } else {
+              reader = DownloadUtils.newCsvReader(file.getAbsolutePath(), inputColumnSeparator,
+                                                  encoding);
+            }
+          }
+          if (binaryReader != null) {
+            Object[] row = binaryReader.read();
+            if (row != null) {
+              return project(row);
+            }
+            binaryReader.close();
+            binaryReader = null;
+          } else {
+            if (reader.readRecord()) {
+              return convert(reader.getValues());
+            }
+            reader.close();
+            reader = null;
+          }
+        }
+      }
+
+      private Object[] project(Object[] row) {
+        if (columnOrConstants == null || columnOrConstants.isEmpty()) {
+          return row;
+        }
+        Object[] newVals = new Object[columnOrConstants.size()];
+        for (int i = 0; i < columnOrConstants.size(); ++i) {
+          ColumnOrConstant columnOrConstant = columnOrConstants.get(i);
+          newVals[i] = columnOrConstant.isConstant() ? columnOrConstant.getConstantValue()
+                                                     : row[columnOrConstant.getColIndex()];
+        }
+        return newVals;
+      }
+
+      private Object[] convert(String[] vals) {
         Object[] newVals;
         if (columnOrConstants != null && !columnOrConstants.isEmpty()) {
           newVals = new Object[columnOrConstants.size()];
@@ -960,11 +1215,9 @@ public class WareHouse {
               .fromString(tableMeta.getCols()[i].getTypeInfo(), vals[i], false);
           }
         }
-        result.add(newVals);
+        return newVals;
       }
-      reader.close();
-    }
-    return result;
+    };
   }
 
   public Class[] getColumnTypes(String projName, String tblName, String[] readCols) {
@@ -1062,98 +1315,12 @@ public class WareHouse {
     TableInfo tableInfo = getReferencedTable(project, resource);
     PartitionSpec partitionSpec = PartitionUtils.convert(tableInfo.getPartSpec());
 
-    final List<File> datafiles = getDataFiles(project, tableInfo.getTableName(), partitionSpec,
-                                              inputColumnSeperator);
-
-    final Column[] schema = SchemaUtils.readSchema(getTableDir(project, tableInfo.getTableName()))
-        .getCols();
-
-    return new Iterator<Object[]>() {
-      CsvReader reader;
-      Object[] current;
-      boolean fetched;
-
-      @Override
-      public boolean hasNext() {
-        if (fetched) {
-          return current != null;
-        }
-        // Fetch new one
-        try {
-          fetch();
-        } catch (IOException e) {
-          throw new RuntimeException(e);
-        }
-        return current != null;
-
-      }
-
-      private void fetch() throws IOException {
-
-        // first time
-        if (reader == null) {
-          if (datafiles.isEmpty()) {
-            current = null;
-            fetched = true;
-            return;
-          }
-
-          File f = datafiles.remove(0);
-          reader = DownloadUtils.newCsvReader(f.getAbsolutePath(), inputColumnSeperator, encoding);
-          reader.setSafetySwitch(false);
-          current = read();
-          fetched = true;
-          return;
-        }
-
-        current = read();
-
-        if (current == null && !datafiles.isEmpty()) {
-          File f = datafiles.remove(0);
-          reader = DownloadUtils.newCsvReader(f.getAbsolutePath(), inputColumnSeperator, encoding);
-          reader.setSafetySwitch(false);
-
-          current = read();
-
-          fetched = true;
-          return;
-        }
-
-        fetched = true;
-      }
-
-      @Override
-      public Object[] next() {
-        if (!hasNext()) {
-          throw new NoSuchElementException();
-        }
-        fetched = false;
-        return current;
-      }
-
-      @Override
-      public void remove() {
-        throw new UnsupportedOperationException();
-      }
-
-      private Object[] read() throws IOException {
-        Object[] result;
-        if (!reader.readRecord()) {
-          return null;
-        }
-        String[] vals = reader.getValues();
-        if (vals == null || vals.length == 0) {
-          result = null;
-        } else {
-          result = new Object[vals.length];
-          for (int i = 0; i < vals.length; i++) {
-            result[i] = TypeConvertUtils.fromString(schema[i].getTypeInfo(), vals[i], false);
-          }
-        }
-        return result;
-      }
-
-    };
+    Iterator<Object[]> iterator = readDataIterator(project, tableInfo.getTableName(),
+                                                   partitionSpec, null, inputColumnSeperator);
+    if (iterator == null) {
+      return new ArrayList<Object[]>().iterator();
+    }
+    return iterator;
   }
 
   // ////////////////Local Configuration////////////////////////////
@@ -1215,6 +1382,71 @@ public class WareHouse {
     return limit > 0 ? limit : Constants.DEFAULT_DOWNLOAD_RECORD;
   }
   
+  /**
+   * 本地运行时同一 stage 内并发执行的 task 数, 图作业中为同一超步内并发执行的 worker 数, 默认为 1, 即串行执行
+   */
+  public int getLocalWorkerNum() {
+    int num = getConfiguration().getInt(Constants.LOCAL_WORKER_NUM, 1);
+    return num > 0 ? num : 1;
+  }
+
+  /**
+   * 本地 shuffle 时内存中最多缓存的记录数, 超过后排序并溢写到作业临时目录
+   */
+  public int getLocalSortBufferRecords() {
+    int num = getConfiguration().getInt(Constants.LOCAL_SORT_BUFFER_RECORDS,
+                                        Constants.DEFAULT_SORT_BUFFER_RECORDS);
+    return num > 0 ? num : Constants.DEFAULT_SORT_BUFFER_RECORDS;
+  }
+
+  /**
+   * 并发下载分区和数据块的线程数
+   */
+  public int getDownloadThreadNum() {
+    int num = getConfiguration().getInt(Constants.LOCAL_DOWNLOAD_THREADS,
+                                        Constants.DEFAULT_DOWNLOAD_THREADS);
+    return num > 0 ? num : Constants.DEFAULT_DOWNLOAD_THREADS;
+  }
+
+  /**
+   * 下载时每个数据文件最多包含的记录数, 较大的分区拆分为多个数据块并发下载
+   */
+  public int getDownloadChunkRecords() {
+    int num = getConfiguration().getInt(Constants.LOCAL_DOWNLOAD_CHUNK_RECORDS,
+                                        Constants.DEFAULT_DOWNLOAD_CHUNK_RECORDS);
+    return num > 0 ? num : Constants.DEFAULT_DOWNLOAD_CHUNK_RECORDS;
+  }
+
+  /**
+   * 下载到 warehouse 的表使用的存储格式, {@link Constants#TABLE_FORMAT_CSV} 或
+   * {@link Constants#TABLE_FORMAT_BINARY}
+   */
+  public String getTableFormat() {
+    String format = getConfiguration().get(Constants.LOCAL_TABLE_FORMAT,
+                                           Constants.TABLE_FORMAT_CSV).trim().toLowerCase();
+    if (!Constants.TABLE_FORMAT_BINARY.equals(format)) {
+      return Constants.TABLE_FORMAT_CSV;
+    }
+    return format;
+  }
+
+  /**
+   * 资源文件的本地缓存目录, 多个 warehouse 可以共享, 没有设置时返回 null
+   */
+  public File getResourceCacheDir() {
+    String dir = getConfiguration().get(Constants.LOCAL_RESOURCE_CACHE_DIR);
+    return StringUtils.isBlank(dir) ? null : new File(dir.trim());
+  }
+
+  /**
+   * 资源文件本地缓存的大小上限, 单位为字节
+   */
+  public long getResourceCacheBytes() {
+    long mb = getConfiguration().getLong(Constants.LOCAL_RESOURCE_CACHE_SIZE,
+                                         Constants.DEFAULT_RESOURCE_CACHE_SIZE);
+    return (mb > 0 ? mb : Constants.DEFAULT_RESOURCE_CACHE_SIZE) << 20;
+  }
+
   public DownloadMode getDownloadMode() {
     String downloadModeStr =
         getConfiguration().get(Constants.LOCAL_DOWNLOAD_MODE, DownloadMode.AUTO.toString())
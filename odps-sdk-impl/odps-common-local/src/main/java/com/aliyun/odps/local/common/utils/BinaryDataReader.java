@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.local.common.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Date;
+
+import com.aliyun.odps.Column;
+import com.aliyun.odps.type.TypeInfo;
+
+/**
+ * 读取 {@link BinaryDataWriter} 写出的数据文件
+ *
+ * <p>
+ * 文件通过内存映射读取，只解码需要读取的列，其他列按编码长度直接跳过。
+ * </p>
+ */
+public class BinaryDataReader implements Closeable {
+
+  private final Column[] schema;
+  private final boolean toBinary;
+  // 每一列是否需要读取
+  private final boolean[] readColumns;
+  private final int nullBytes;
+  private RandomAccessFile file;
+  private ByteBuffer buffer;
+
+  /**
+   * @param schema
+   *     文件中所有列
+   * @param readColumns
+   *     每一列是否需要读取，不读取的列在返回的记录中为 null；参数为 null 表示读取所有列
+   * @param toBinary
+   *     string 列是否以 byte[] 返回，与 {@link TypeConvertUtils#fromString} 相同
+   */
+  public BinaryDataReader(File dataFile, Column[] schema, boolean[] readColumns,
+                          boolean toBinary) throws IOException {
+    this.schema = schema;
+    this.toBinary = toBinary;
+    this.nullBytes = (schema.length + 7) / 8;
+    if (readColumns == null) {
+      readColumns = new boolean[schema.length];
+      Arrays.fill(readColumns, true);
+    }
+    this.readColumns = readColumns;
+
+    file = new RandomAccessFile(dataFile, "r");
+    FileChannel channel = file.getChannel();
+    if (channel.size() > Integer.MAX_VALUE) {
+      close();
+      throw new IOException("Binary data file is too large: " + dataFile.getAbsolutePath());
+    }
+    buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    byte[] magic = new byte[BinaryDataWriter.MAGIC.length];
+    if (buffer.remaining() < magic.length + 4) {
+      close();
+      throw new IOException("Invalid binary data file: " + dataFile.getAbsolutePath());
+    }
+    buffer.get(magic);
+    int columnCount = buffer.getInt();
+    if (!Arrays.equals(magic, BinaryDataWriter.MAGIC) || columnCount != schema.length) {
+      close();
+      throw new IOException("Invalid binary data file: " + dataFile.getAbsolutePath()
+                            + ", column num expect: " + schema.length + ", but: " + columnCount);
+    }
+  }
+
+  /**
+   * @return 下一条记录，包含 schema 中的所有列，没有更多记录时返回 null
+   */
+  public Object[] read() throws IOException {
+    if (buffer == null || !buffer.hasRemaining()) {
+      return null;
+    }
+    int rowLength = buffer.getInt();
+    int rowStart = buffer.position();
+    buffer.position(rowStart + nullBytes);
+    Object[] result = new Object[schema.length];
+    for (int i = 0; i < schema.length; i++) {
+      if ((buffer.get(rowStart + (i >> 3)) & (1 << (i & 7))) != 0) {
+        continue;
+      }
+      TypeInfo typeInfo = schema[i].getTypeInfo();
+      if (readColumns[i]) {
+        result[i] = readValue(typeInfo);
+      } else {
+        skipValue(typeInfo);
+      }
+    }
+    buffer.position(rowStart + rowLength);
+    return result;
+  }
+
+  private Object readValue(TypeInfo typeInfo) {
+    switch (typeInfo.getOdpsType()) {
+      case BIGINT:
+        return buffer.getLong();
+      case DOUBLE:
+        return Double.longBitsToDouble(buffer.getLong());
+      case DATETIME:
+        return new Date(buffer.getLong());
+      case BOOLEAN:
+        return buffer.get() != 0;
+      case INT:
+        return buffer.getInt();
+      case FLOAT:
+        return Float.intBitsToFloat(buffer.getInt());
+      case SMALLINT:
+        return buffer.getShort();
+      case TINYINT:
+        return buffer.get();
+      case STRING: {
+        byte[] bytes = readBytes();
+        return toBinary ? bytes : new String(bytes, TypeConvertUtils.UTF8);
+      }
+      default:
+        return TypeConvertUtils.fromString(typeInfo,
+                                           new String(readBytes(), TypeConvertUtils.UTF8),
+                                           toBinary);
+    }
+  }
+
+  private void skipValue(TypeInfo typeInfo) {
+    int size;
+    switch (typeInfo.getOdpsType()) {
+      case BIGINT:
+      case DOUBLE:
+      case DATETIME:
+        size = 8;
+        break;
+      case INT:
+      case FLOAT:
+        size = 4;
+        break;
+      case SMALLINT:
+        size = 2;
+        break;
+      case BOOLEAN:
+      case TINYINT:
+        size = 1;
+        break;
+      default:
+        size = buffer.getInt();
+    }
+    buffer.position(buffer.position() + size);
+  }
+
+  private byte[] readBytes() {
+    byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return bytes;
+  }
+
+  @Override
+  public void close() throws IOException {
+    buffer = null;
+    if (file != null) {
+      file.close();
+      file = null;
+    }
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.local.common.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Date;
+
+import com.aliyun.odps.Column;
+import com.aliyun.odps.type.TypeInfo;
+
+/**
+ * 写出 warehouse 二进制格式的数据文件
+ *
+ * <p>
+ * 文件格式：8 字节的魔数 {@link #MAGIC}，4 字节的列数，之后是逐条记录。每条记录为 4 字节的记录长度（不含自身），
+ * 空值位图（每列一位，置位表示为空），以及各个非空列的值：
+ * <ul>
+ * <li>bigint、datetime（毫秒）、double（IEEE 754 位）：8 字节</li>
+ * <li>int、float：4 字节；smallint：2 字节；tinyint、boolean：1 字节</li>
+ * <li>string：4 字节长度加原始字节</li>
+ * <li>其他类型：4 字节长度加 {@link TypeConvertUtils#toRawString} 的 UTF-8 文本</li>
+ * </ul>
+ * 所有数值均为大端序。定长编码使读取时可以不解析直接跳过未读取的列。
+ * </p>
+ */
+public class BinaryDataWriter implements Closeable {
+
+  public static final byte[] MAGIC = {'O', 'D', 'P', 'S', 'B', 'I', 'N', '1'};
+
+  private final Column[] schema;
+  private final DataOutputStream out;
+  private final ByteArrayOutputStream rowBytes = new ByteArrayOutputStream();
+  private final DataOutputStream row = new DataOutputStream(rowBytes);
+  private final byte[] nullBits;
+
+  public BinaryDataWriter(File file, Column[] schema) throws IOException {
+    this.schema = schema;
+    this.nullBits = new byte[(schema.length + 7) / 8];
+    out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+    out.write(MAGIC);
+    out.writeInt(schema.length);
+  }
+
+  /**
+   * 写出一条记录，值的类型与 {@link TypeConvertUtils#fromString} 的返回值相同，string 列也可以是 byte[]
+   */
+  public void write(Object[] values) throws IOException {
+    if (values.length != schema.length) {
+      throw new IOException("column num not match, expect: " + schema.length + ", but: "
+                            + values.length);
+    }
+    rowBytes.reset();
+    for (int i = 0; i < nullBits.length; i++) {
+      nullBits[i] = 0;
+    }
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] == null) {
+        nullBits[i >> 3] |= 1 << (i & 7);
+      }
+    }
+    row.write(nullBits);
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] != null) {
+        writeValue(values[i], schema[i].getTypeInfo());
+      }
+    }
+    out.writeInt(rowBytes.size());
+    rowBytes.writeTo(out);
+  }
+
+  private void writeValue(Object value, TypeInfo typeInfo) throws IOException {
+    switch (typeInfo.getOdpsType()) {
+      case BIGINT:
+        row.writeLong((Long) value);
+        break;
+      case DOUBLE:
+        row.writeLong(Double.doubleToLongBits((Double) value));
+        break;
+      case DATETIME:
+        row.writeLong(((Date) value).getTime());
+        break;
+      case BOOLEAN:
+        row.writeBoolean((Boolean) value);
+        break;
+      case INT:
+        row.writeInt((Integer) value);
+        break;
+      case FLOAT:
+        row.writeInt(Float.floatToIntBits((Float) value));
+        break;
+      case SMALLINT:
+        row.writeShort((Short) value);
+        break;
+      case TINYINT:
+        row.writeByte((Byte) value);
+        break;
+      case STRING:
+        writeBytes(value instanceof byte[] ? (byte[]) value
+                                           : ((String) value).getBytes(TypeConvertUtils.UTF8));
+        break;
+      default:
+        writeBytes(TypeConvertUtils.toRawString(value, typeInfo).getBytes(TypeConvertUtils.UTF8));
+    }
+  }
+
+  private void writeBytes(byte[] bytes) throws IOException {
+    row.writeInt(bytes.length);
+    row.write(bytes);
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.local.common.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+
+import com.aliyun.odps.local.common.Constants;
+
+/**
+ * 记录一张表的下载进度, 使中断的下载可以从已完成的数据块之后继续
+ *
+ * <p>
+ * 文件位于表目录下, 第一行是下载参数的签名, 之后每行是一个已经完整写出的数据文件相对表目录的路径。签名不同时
+ * (例如表结构、下载条数或存储格式发生了变化) 之前的进度作废。下载全部完成后删除该文件,
+ * 文件存在期间 {@link com.aliyun.odps.local.common.WareHouse#existsTable} 认为表不存在。
+ * </p>
+ */
+class DownloadManifest {
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private final File file;
+  private final File tableDir;
+  private final Set<String> done = new HashSet<String>();
+  private final boolean resumed;
+  private Writer writer;
+
+  private DownloadManifest(File tableDir, String signature) throws IOException {
+    this.tableDir = tableDir;
+    this.file = new File(tableDir, Constants.DOWNLOAD_MANIFEST_FILE);
+    boolean resumed = false;
+    if (file.exists()) {
+      List<String> lines = FileUtils.readLines(file, UTF8);
+      if (!lines.isEmpty() && lines.get(0).equals(signature)) {
+        resumed = true;
+        done.addAll(lines.subList(1, lines.size()));
+      }
+    }
+    this.resumed = resumed;
+    tableDir.mkdirs();
+    writer = new OutputStreamWriter(new FileOutputStream(file, resumed), UTF8);
+    if (!resumed) {
+      writer.write(signature + "\n");
+      writer.flush();
+    }
+  }
+
+  static DownloadManifest open(File tableDir, String signature) throws IOException {
+    return new DownloadManifest(tableDir, signature);
+  }
+
+  /**
+   * 是否继续了之前未完成的下载
+   */
+  boolean isResumed() {
+    return resumed;
+  }
+
+  synchronized boolean isDone(File dataFile) {
+    return done.contains(key(dataFile));
+  }
+
+  /**
+   * 数据文件完整写出后调用, 立即落盘
+   */
+  synchronized void markDone(File dataFile) throws IOException {
+    String key = key(dataFile);
+    writer.write(key + "\n");
+    writer.flush();
+    done.add(key);
+  }
+
+  /**
+   * 删除目录下不在清单中的数据文件, 即上次中断时没有写完的文件
+   */
+  synchronized void removeUnfinished(File dataDir) {
+    if (!dataDir.exists()) {
+      return;
+    }
+    for (File dataFile : LocalRunUtils.listDataFiles(dataDir)) {
+      if (!done.contains(key(dataFile))) {
+        dataFile.delete();
+      }
+    }
+  }
+
+  /**
+   * 下载完成, 删除清单文件
+   */
+  synchronized void complete() throws IOException {
+    close();
+    if (!file.delete()) {
+      throw new IOException("Delete download manifest failed: " + file.getAbsolutePath());
+    }
+  }
+
+  synchronized void close() throws IOException {
+    if (writer != null) {
+      writer.close();
+      writer = null;
+    }
+  }
+
+  private String key(File dataFile) {
+    String path = dataFile.getAbsolutePath().substring(tableDir.getAbsolutePath().length() + 1);
+    return path.replace(File.separatorChar, '/');
+  }
+}
@@ -25,10 +25,20 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.io.IOUtils;
 import com.aliyun.odps.utils.StringUtils;
@@ -66,50 +76,107 @@ public class DownloadUtils {
   public static void downloadTableSchemeAndData(Odps odps, TableInfo tableInfo,
                                                 int limitDownloadRecordCount,
                                                 char inputColumnSeperator) {
-
     if (odps == null || tableInfo == null) {
       throw new IllegalArgumentException("Missing arguments:odps|tableInfo");
     }
-    
-    if (StringUtils.isBlank(tableInfo.getProjectName())) {
-      tableInfo.setProjectName(odps.getDefaultProject());
-    }
+    downloadTablesSchemeAndData(odps, Collections.singletonList(tableInfo),
+                                limitDownloadRecordCount, inputColumnSeperator);
+  }
 
-    validateTable(odps, tableInfo);
+  /**
+   * 下载多张表(或分区)的表结构和数据到 warehouse
+   *
+   * <p>
+   * 所有表的分区以及分区内按 {@link WareHouse#getDownloadChunkRecords()} 拆分的数据块, 共用一个大小为
+   * {@link WareHouse#getDownloadThreadNum()} 的线程池并发下载, 每个数据块写成一个数据文件, 格式由
+   * {@link WareHouse#getTableFormat()} 决定。已写完的数据块记录在表目录下的下载清单中, 下载中断后再次下载时跳过这些数据块。
+   * </p>
+   */
+  public static void downloadTablesSchemeAndData(Odps odps, List<TableInfo> tableInfos,
+                                                 int limitDownloadRecordCount,
+                                                 final char inputColumnSeperator) {
+    if (odps == null || tableInfos == null) {
+      throw new IllegalArgumentException("Missing arguments:odps|tableInfos");
+    }
+    if (tableInfos.isEmpty()) {
+      return;
+    }
 
-    Table table = odps.tables().get(tableInfo.getProjectName(), tableInfo.getTableName());
+    // WareHouse 的配置是线程相关的, 在当前线程中读取后传给下载线程
+    WareHouse wareHouse = WareHouse.getInstance();
+    String format = wareHouse.getTableFormat();
+    int chunkRecords = wareHouse.getDownloadChunkRecords();
+    final TableTunnel tunnel = new TableTunnel(odps);
+    String tunnelEndpoint = wareHouse.getTunnelEndpoint();
+    if (StringUtils.isNotBlank(tunnelEndpoint)) {
+      tunnel.setEndpoint(tunnelEndpoint);
+    }
 
-    // create table scheme file
-    File tableDir = WareHouse.getInstance().getTableDir(tableInfo.getProjectName(),
-                                                        tableInfo.getTableName());
-    if (!tableDir.exists()){
-      tableDir.mkdirs();
+    for (TableInfo tableInfo : tableInfos) {
+      if (StringUtils.isBlank(tableInfo.getProjectName())) {
+        tableInfo.setProjectName(odps.getDefaultProject());
+      }
     }
-    TableMeta tableMeta = TableMeta.fromTable(table);
-    SchemaUtils.generateSchemaFile(tableMeta, null, tableDir);
 
-    // download data file
-    if (tableMeta.getPartitions() != null && tableMeta.getPartitions().length > 0) {
-      LinkedHashMap<String, String> parts = tableInfo.getPartSpec();
-      int downloadedPartition = 0;
-      for (Partition partition : table.getPartitions()) {
-        PartitionSpec spec = partition.getPartitionSpec();
-        if (matches(spec, parts)) {
-          downloadTable(odps, tableMeta, spec, limitDownloadRecordCount, inputColumnSeperator);
-          downloadedPartition++;
+    List<TableDownload> downloads = new ArrayList<TableDownload>();
+    ExecutorService pool = createDownloadPool(wareHouse.getDownloadThreadNum());
+    try {
+      for (List<TableInfo> group : groupByTable(tableInfos)) {
+        downloads.add(prepareDownload(odps, group, format, limitDownloadRecordCount,
+                                      chunkRecords));
+      }
+
+      // 为每个分区创建下载会话并拆分数据块
+      List<Callable<List<DownloadChunk>>> planTasks = new ArrayList<Callable<List<DownloadChunk>>>();
+      for (final TableDownload download : downloads) {
+        for (final PartitionSpec partition : download.partitions) {
+          planTasks.add(new Callable<List<DownloadChunk>>() {
+            @Override
+            public List<DownloadChunk> call() {
+              try {
+                return planChunks(tunnel, download, partition);
+              } catch (Exception e) {
+                throw downloadError(download, e);
+              }
+            }
+          });
         }
       }
-      if (downloadedPartition == 0) {
-        throw new RuntimeException("No partition found for " + tableInfo.toString());
+      List<Callable<Object>> chunkTasks = new ArrayList<Callable<Object>>();
+      for (List<DownloadChunk> chunks : invokeAll(pool, planTasks)) {
+        for (final DownloadChunk chunk : chunks) {
+          chunkTasks.add(new Callable<Object>() {
+            @Override
+            public Object call() {
+              try {
+                downloadChunk(chunk, inputColumnSeperator);
+              } catch (Exception e) {
+                throw downloadError(chunk.download, e);
+              }
+              return null;
+            }
+          });
+        }
       }
-    } else {
-      if (tableInfo.getPartSpec().size() > 0) {
-        throw new RuntimeException("Warehouse not exists table: " + tableInfo
-                                   + " ,while try to download from remote server found it is not a partitioned table");
+      invokeAll(pool, chunkTasks);
+
+      for (TableDownload download : downloads) {
+        download.manifest.complete();
+        LOG.info("Finished download table: " + download.tableInfo + "-->"
+                 + download.tableDir.getAbsolutePath());
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    } finally {
+      pool.shutdownNow();
+      for (TableDownload download : downloads) {
+        try {
+          download.manifest.close();
+        } catch (IOException e) {
+          LOG.warn("Close download manifest failed: " + e.getMessage());
+        }
       }
-      downloadTable(odps, tableMeta, null, limitDownloadRecordCount, inputColumnSeperator);
     }
-
   }
 
   public static File downloadTable(Odps odps, TableMeta tableMeta, PartitionSpec partition,
@@ -117,45 +184,270 @@ public class DownloadUtils {
 
     TableInfo tableInfo = TableInfo.builder().projectName(tableMeta.getProjName())
         .tableName(tableMeta.getTableName()).partSpec(partition).build();
+    downloadTableSchemeAndData(odps, tableInfo, limitDownloadRecordCount, inputColumnSeperator);
 
-    List<String[]> records = downloadTableData(odps, tableMeta.getProjName(),
-                                               tableMeta.getTableName(), partition,
-                                               limitDownloadRecordCount, null);
+    File dataDir = WareHouse.getInstance().getTableDir(tableMeta.getProjName(),
+                                                       tableMeta.getTableName());
+    if (partition != null) {
+      dataDir = new File(dataDir, PartitionUtils.toString(partition));
+    }
+    return dataDir;
+  }
+
+  /**
+   * 一张表的下载任务, 同一张表的多个输入分区合并在一个任务中
+   */
+  private static class TableDownload {
+
+    TableInfo tableInfo;
+    TableMeta tableMeta;
+    File tableDir;
+    int limit;
+    int chunkRecords;
+    // 非分区表为只包含 null 的列表
+    List<PartitionSpec> partitions = new ArrayList<PartitionSpec>();
+    DownloadManifest manifest;
+  }
 
-    File tableDir = WareHouse.getInstance().getTableDir(tableMeta.getProjName(),
-                                                        tableMeta.getTableName());
-    if (!tableDir.exists()) {
-      tableDir.mkdirs();
+  /**
+   * 一个分区内连续的一段记录, 写成一个数据文件
+   */
+  private static class DownloadChunk {
+
+    TableDownload download;
+    DownloadSession session;
+    File dataFile;
+    long start;
+    long count;
+  }
+
+  /**
+   * 按 (project, table) 合并输入, 同一张表只能有一个下载清单, 多个分区必须在同一个下载任务中
+   */
+  static Collection<List<TableInfo>> groupByTable(List<TableInfo> tableInfos) {
+    Map<String, List<TableInfo>> groups = new LinkedHashMap<String, List<TableInfo>>();
+    for (TableInfo tableInfo : tableInfos) {
+      String key = tableInfo.getProjectName() + "." + tableInfo.getTableName();
+      List<TableInfo> group = groups.get(key);
+      if (group == null) {
+        group = new ArrayList<TableInfo>();
+        groups.put(key, group);
+      }
+      group.add(tableInfo);
     }
+    return groups.values();
+  }
 
-    File dataDir = tableDir;
-    if (partition != null) {
-      dataDir = new File(tableDir, PartitionUtils.toString(partition));
-      if (!dataDir.exists()) {
-        dataDir.mkdirs();
+  private static TableDownload prepareDownload(Odps odps, List<TableInfo> group, String format,
+                                               int limit, int chunkRecords) throws IOException {
+    TableInfo tableInfo = group.get(0);
+    for (TableInfo info : group) {
+      validateTable(odps, info);
+    }
+
+    Table table = odps.tables().get(tableInfo.getProjectName(), tableInfo.getTableName());
+
+    TableDownload download = new TableDownload();
+    download.tableInfo = tableInfo;
+    download.tableMeta = TableMeta.fromTable(table);
+    download.tableMeta.setFormat(format);
+    download.tableDir = WareHouse.getInstance().getTableDir(tableInfo.getProjectName(),
+                                                           tableInfo.getTableName());
+    download.limit = limit;
+    download.chunkRecords = chunkRecords;
+
+    TableMeta tableMeta = download.tableMeta;
+    if (tableMeta.getPartitions() != null && tableMeta.getPartitions().length > 0) {
+      List<Partition> partitions = table.getPartitions();
+      for (TableInfo info : group) {
+        boolean found = false;
+        for (Partition partition : partitions) {
+          PartitionSpec spec = partition.getPartitionSpec();
+          if (matches(spec, info.getPartSpec())) {
+            found = true;
+            if (!containsPartition(download.partitions, spec)) {
+              download.partitions.add(spec);
+            }
+          }
+        }
+        if (!found) {
+          throw new RuntimeException("No partition found for " + info.toString());
+        }
+      }
+    } else {
+      for (TableInfo info : group) {
+        if (info.getPartSpec().size() > 0) {
+          throw new RuntimeException("Warehouse not exists table: " + info
+                                     + " ,while try to download from remote server found it is not a partitioned table");
+        }
+      }
+      download.partitions.add(null);
+    }
+
+    // create table scheme file
+    SchemaUtils.generateSchemaFile(tableMeta, null, download.tableDir);
+
+    String signature = SchemaUtils.toString(tableMeta.getCols()) + "|limit=" + limit
+                       + "|chunk=" + chunkRecords + "|format=" + format;
+    download.manifest = DownloadManifest.open(download.tableDir, signature);
+    for (PartitionSpec partition : download.partitions) {
+      File dataDir = getDataDir(download, partition);
+      if (download.manifest.isResumed()) {
+        download.manifest.removeUnfinished(dataDir);
+      } else if (dataDir.exists()) {
+        LocalRunUtils.removeDataFiles(dataDir);
       }
     }
+    if (download.manifest.isResumed()) {
+      LOG.info("Resume download table: " + group + ", download mode:"
+               + WareHouse.getInstance().getDownloadMode());
+    } else {
+      LOG.info("Start to download table: " + group + ", download mode:"
+               + WareHouse.getInstance().getDownloadMode());
+    }
+    return download;
+  }
 
-    LOG.info("Start to write table: " + tableInfo.toString() + "-->" + dataDir.getAbsolutePath());
+  private static boolean containsPartition(List<PartitionSpec> partitions, PartitionSpec spec) {
+    for (PartitionSpec partition : partitions) {
+      if (partition.toString().equals(spec.toString())) {
+        return true;
+      }
+    }
+    return false;
+  }
 
-    File dataFile = new File(dataDir, "data");
+  private static File getDataDir(TableDownload download, PartitionSpec partition) {
+    if (partition == null) {
+      return download.tableDir;
+    }
+    return new File(download.tableDir, PartitionUtils.toString(partition));
+  }
+
+  private static List<DownloadChunk> planChunks(TableTunnel tunnel, TableDownload download,
+                                                PartitionSpec partition) throws Exception {
+    TableMeta tableMeta = download.tableMeta;
+    File dataDir = getDataDir(download, partition);
+    dataDir.mkdirs();
+
+    DownloadSession session = (partition == null) ?
+        tunnel.createDownloadSession(tableMeta.getProjName(), tableMeta.getTableName()) :
+        tunnel.createDownloadSession(tableMeta.getProjName(), tableMeta.getTableName(), partition);
+    LOG.info("Tunnel DownloadSession ID is : " + session.getId());
+    long total = Math.min(download.limit, session.getRecordCount());
+
+    List<DownloadChunk> chunks = new ArrayList<DownloadChunk>();
+    String suffix = tableMeta.isBinaryFormat() ? Constants.BINARY_DATA_FILE_SUFFIX : "";
+    int chunkNum = (int) Math.max(1, (total + download.chunkRecords - 1) / download.chunkRecords);
+    for (int i = 0; i < chunkNum; i++) {
+      DownloadChunk chunk = new DownloadChunk();
+      chunk.download = download;
+      chunk.session = session;
+      // 只有一个数据块时保持原来的文件名
+      chunk.dataFile = new File(dataDir, (chunkNum == 1 ? "data" : "data_" + i) + suffix);
+      chunk.start = (long) i * download.chunkRecords;
+      chunk.count = Math.min(download.chunkRecords, total - chunk.start);
+      if (!download.manifest.isDone(chunk.dataFile)) {
+        chunks.add(chunk);
+      }
+    }
+    return chunks;
+  }
+
+  private static void downloadChunk(DownloadChunk chunk, char inputColumnSeperator)
+      throws Exception {
+    TableMeta tableMeta = chunk.download.tableMeta;
+    Column[] cols = tableMeta.getCols();
+    RecordReader reader = chunk.count > 0 ?
+        chunk.session.openRecordReader(chunk.start, chunk.count) : null;
     try {
-      dataFile.createNewFile();
-    } catch (IOException e1) {
+      if (tableMeta.isBinaryFormat()) {
+        BinaryDataWriter writer = new BinaryDataWriter(chunk.dataFile, cols);
+        try {
+          Record record;
+          Object[] vals = new Object[cols.length];
+          while (reader != null && (record = reader.read()) != null) {
+            // 下载的数据不包括分区数据，分区数据在目录结构中表示
+            for (int i = 0; i < vals.length; i++) {
+              vals[i] = record.get(i);
+            }
+            writer.write(vals);
+          }
+        } finally {
+          writer.close();
+        }
+      } else {
+        CsvWriter writer = new CsvWriter(chunk.dataFile.getAbsolutePath(), inputColumnSeperator,
+                                         encoding);
+        try {
+          Record record;
+          String[] vals = new String[cols.length];
+          while (reader != null && (record = reader.read()) != null) {
+            for (int i = 0; i < vals.length; i++) {
+              vals[i] = getColumnValueString(tableMeta, record, i);
+            }
+            writer.writeRecord(vals);
+          }
+        } finally {
+          writer.close();
+        }
+      }
+    } finally {
+      if (reader != null) {
+        reader.close();
+      }
     }
-    CsvWriter writer = new CsvWriter(dataFile.getAbsolutePath(), inputColumnSeperator, encoding);
+    chunk.download.manifest.markDone(chunk.dataFile);
+  }
+
+  private static <T> List<T> invokeAll(ExecutorService pool, List<Callable<T>> tasks)
+      throws IOException {
+    List<Future<T>> futures = new ArrayList<Future<T>>();
+    for (Callable<T> task : tasks) {
+      futures.add(pool.submit(task));
+    }
+    List<T> results = new ArrayList<T>();
     try {
-      for (String[] record : records) {
-        writer.writeRecord(record);
+      for (Future<T> future : futures) {
+        results.add(future.get());
       }
-    } catch (IOException e) {
-      throw new RuntimeException(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      // 已完成的数据块保留在下载清单中, 再次下载时继续
+      for (Future<T> future : futures) {
+        future.cancel(true);
+      }
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new RuntimeException(cause);
     }
-    writer.close();
+    return results;
+  }
 
-    LOG.info("Finished write table: " + tableInfo.toString() + "-->" + dataDir.getAbsolutePath());
+  private static RuntimeException downloadError(TableDownload download, Exception e) {
+    if (e instanceof RuntimeException) {
+      return (RuntimeException) e;
+    }
+    return new RuntimeException(LocalRunUtils.getDownloadErrorMsg(download.tableInfo.toString())
+                                + e.getMessage(), e);
+  }
 
-    return dataDir;
+  private static ExecutorService createDownloadPool(int threadNum) {
+    final AtomicInteger index = new AtomicInteger();
+    return Executors.newFixedThreadPool(threadNum, new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "local-download-" + index.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+      }
+    });
   }
 
   /**
@@ -278,7 +570,9 @@ public class DownloadUtils {
         InputStream in = null;
         FileOutputStream out = null;
         try {
-          in = odps.resources().getResourceAsStream(resource.getProject(), resource.getName());
+          in = odps.resources().getResourceAsStream(resource.getProject(), resource.getName(),
+                                                    WareHouse.getInstance().getResourceCacheDir(),
+                                                    WareHouse.getInstance().getResourceCacheBytes());
           resFile.getParentFile().mkdirs();
           out = new FileOutputStream(resFile);
           IOUtils.copy(in, out);
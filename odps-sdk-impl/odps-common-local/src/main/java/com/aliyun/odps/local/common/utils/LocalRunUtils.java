@@ -134,7 +134,8 @@ public class LocalRunUtils {
   public static List<File> listDataFiles(File dir) {
     List<File> dataFiles = new ArrayList<File>();
     for (File file : dir.listFiles()) {
-      if (!Constants.SCHEMA_FILE.equals(file.getName()) && file.isFile()) {
+      if (!Constants.SCHEMA_FILE.equals(file.getName())
+          && !Constants.DOWNLOAD_MANIFEST_FILE.equals(file.getName()) && file.isFile()) {
         dataFiles.add(file);
       }
     }
@@ -155,11 +156,19 @@ public class LocalRunUtils {
       for (File f : list) {
         listAllDataFiles(f, result);
       }
-    } else if (!Constants.SCHEMA_FILE.equals(srcFile.getName())) {
+    } else if (!Constants.SCHEMA_FILE.equals(srcFile.getName())
+               && !Constants.DOWNLOAD_MANIFEST_FILE.equals(srcFile.getName())) {
       result.add(srcFile);
     }
   }
 
+  /**
+   * 是否为 warehouse 二进制格式的数据文件, 参见 {@link BinaryDataWriter}
+   */
+  public static boolean isBinaryDataFile(File file) {
+    return file.getName().endsWith(Constants.BINARY_DATA_FILE_SUFFIX);
+  }
+
   public static void removeDataFiles(File dir) {
     for (File file : listDataFiles(dir)) {
       file.delete();
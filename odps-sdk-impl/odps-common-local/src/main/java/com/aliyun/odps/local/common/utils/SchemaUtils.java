@@ -100,6 +100,11 @@ public class SchemaUtils {
       sb.append("\n");
     }
 
+    if (table.isBinaryFormat()) {
+      sb.append("format" + KEY_VALUE_SEPARATOR + table.getFormat());
+      sb.append("\n");
+    }
+
     dir.mkdirs();
     File schemaFile = new File(dir, Constants.SCHEMA_FILE);
     LOG.info("generate schema file: " + schemaFile.getAbsolutePath());
@@ -146,6 +151,7 @@ public class SchemaUtils {
     String table = null;
     Column[] cols = null;
     Column[] partitionCols = null;
+    String format = null;
     while (line != null) {
       line = line.trim();
       if (line.equals("") || line.startsWith("#")) {
@@ -193,6 +199,13 @@ public class SchemaUtils {
         if (partitions != null && !partitions.trim().isEmpty()) {
           partitionCols = fromString(partitions);
         }
+      } else if (kv[0].equals("format")) {
+        format = kv[1];
+        if (!format.equals(Constants.TABLE_FORMAT_CSV)
+            && !format.equals(Constants.TABLE_FORMAT_BINARY)) {
+          throw new RuntimeException("'format' in table schema file '_schema_' has invalid value: "
+                                     + format);
+        }
       }
 
       try {
@@ -208,7 +221,9 @@ public class SchemaUtils {
       throw new RuntimeException(e);
     }
 
-    return new TableMeta(project, table, cols, partitionCols);
+    TableMeta meta = new TableMeta(project, table, cols, partitionCols);
+    meta.setFormat(format);
+    return meta;
 
   }
 
@@ -31,9 +31,21 @@ public class TypeConvertUtils {
   public static DateFormat DATE_FORMAT = LocalRunUtils.getDateFormat(Constants.DATE_FORMAT_2);
 
   public static String toString(Object value, TypeInfo typeInfo) {
+    String rawVal = toRawString(value, typeInfo);
+    if (rawVal == null) {
+      return Constants.NULL_TOKEN;
+    }
+    //Encode:replace \N with "\N", exception column is null
+    return rawVal.replaceAll("\\\\N", "\"\\\\N\"");
+  }
+
+  /**
+   * 与 {@link #toString(Object, TypeInfo)} 相同, 但空值返回 null, 也不转义值中的 \N
+   */
+  public static String toRawString(Object value, TypeInfo typeInfo) {
     Object javaVal = transOdpsToJava(value, typeInfo);
     if (javaVal == null) {
-      return Constants.NULL_TOKEN;
+      return null;
     }
     String rawVal;
     switch (typeInfo.getOdpsType()) {
@@ -64,8 +76,7 @@ public class TypeConvertUtils {
       default:
         throw new RuntimeException(" Unknown column type: " + typeInfo.getOdpsType());
     }
-    //Encode:replace \N with "\N", exception column is null
-    return rawVal.replaceAll("\\\\N", "\"\\\\N\"");
+    return rawVal;
   }
 
   public static Object fromString(TypeInfo typeInfo, String token, boolean toBinary) {
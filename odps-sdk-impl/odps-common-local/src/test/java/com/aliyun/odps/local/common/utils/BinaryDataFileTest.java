@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.local.common.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.aliyun.odps.Column;
+import com.aliyun.odps.local.common.Constants;
+import com.aliyun.odps.local.common.TableMeta;
+import com.aliyun.odps.local.common.WareHouse;
+
+public class BinaryDataFileTest {
+
+  private static final Column[] SCHEMA = SchemaUtils.fromString(
+      "s:string,l:bigint,d:double,b:boolean,t:datetime,i:int,a:array<bigint>");
+
+  private static Object[][] rows() {
+    return new Object[][]{
+        {"hello", 1L, 1.5, true, new Date(1000L), 7, Arrays.asList(1L, 2L)},
+        {null, null, null, null, null, null, null},
+        {"\\N,中文", Long.MIN_VALUE, -0.0, false, new Date(-1L), Integer.MAX_VALUE,
+         Arrays.asList(3L)}
+    };
+  }
+
+  private static File writeFile(File dir) throws IOException {
+    dir.mkdirs();
+    File file = new File(dir, "data" + Constants.BINARY_DATA_FILE_SUFFIX);
+    BinaryDataWriter writer = new BinaryDataWriter(file, SCHEMA);
+    for (Object[] row : rows()) {
+      writer.write(row);
+    }
+    writer.close();
+    return file;
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    File file = writeFile(new File("target/binary_data_test"));
+    BinaryDataReader reader = new BinaryDataReader(file, SCHEMA, null, false);
+    for (Object[] expected : rows()) {
+      Object[] actual = reader.read();
+      Assert.assertEquals(expected.length, actual.length);
+      Assert.assertArrayEquals(expected, actual);
+    }
+    Assert.assertNull(reader.read());
+    reader.close();
+  }
+
+  @Test
+  public void testProjection() throws IOException {
+    File file = writeFile(new File("target/binary_data_test"));
+    boolean[] readColumns = new boolean[SCHEMA.length];
+    readColumns[1] = true;
+    readColumns[4] = true;
+    BinaryDataReader reader = new BinaryDataReader(file, SCHEMA, readColumns, true);
+    Object[] row = reader.read();
+    Assert.assertNull(row[0]);
+    Assert.assertEquals(1L, row[1]);
+    Assert.assertNull(row[2]);
+    Assert.assertEquals(new Date(1000L), row[4]);
+    Assert.assertNull(reader.read()[1]);
+    row = reader.read();
+    Assert.assertEquals(Long.MIN_VALUE, row[1]);
+    Assert.assertEquals(new Date(-1L), row[4]);
+    Assert.assertNull(reader.read());
+    reader.close();
+
+    reader = new BinaryDataReader(file, SCHEMA, null, true);
+    Assert.assertArrayEquals("hello".getBytes("UTF-8"), (byte[]) reader.read()[0]);
+    reader.close();
+  }
+
+  @Test(expected = IOException.class)
+  public void testSchemaMismatch() throws IOException {
+    File file = writeFile(new File("target/binary_data_test"));
+    new BinaryDataReader(file, SchemaUtils.fromString("l:bigint"), null, false);
+  }
+
+  @Test
+  public void testConvertTableFormat() throws Exception {
+    String project = "project_name";
+    String table = "binary_format_test";
+    WareHouse wareHouse = WareHouse.getInstance();
+    File tableDir = wareHouse.getTableDir(project, table);
+    FileUtils.deleteDirectory(tableDir);
+    try {
+      TableMeta meta = new TableMeta(project, table,
+                                     SchemaUtils.fromString("s:string,l:bigint,d:double"));
+      SchemaUtils.generateSchemaFile(meta, null, tableDir);
+      FileUtils.writeStringToFile(new File(tableDir, "data"), "a,1,1.5\n\\N,\\N,2.0\n", "UTF-8");
+      List<Object[]> expected = wareHouse.readData(project, table, null, null, ',');
+
+      wareHouse.convertTableFormat(project, table, Constants.TABLE_FORMAT_BINARY);
+      Assert.assertTrue(SchemaUtils.readSchema(tableDir).isBinaryFormat());
+      Assert.assertTrue(new File(tableDir, "data" + Constants.BINARY_DATA_FILE_SUFFIX).exists());
+      Assert.assertFalse(new File(tableDir, "data").exists());
+      assertRowsEquals(expected, wareHouse.readData(project, table, null, null, ','));
+
+      List<Object[]> projected =
+          wareHouse.readData(project, table, null, new String[]{"l", "s"}, ',');
+      Assert.assertEquals(1L, projected.get(0)[0]);
+      Assert.assertEquals("a", projected.get(0)[1]);
+      Assert.assertNull(projected.get(1)[1]);
+
+      wareHouse.convertTableFormat(project, table, Constants.TABLE_FORMAT_CSV);
+      Assert.assertFalse(SchemaUtils.readSchema(tableDir).isBinaryFormat());
+      Assert.assertTrue(new File(tableDir, "data").exists());
+      assertRowsEquals(expected, wareHouse.readData(project, table, null, null, ','));
+    } finally {
+      FileUtils.deleteDirectory(tableDir);
+    }
+  }
+
+  private static void assertRowsEquals(List<Object[]> expected, List<Object[]> actual) {
+    Assert.assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      Assert.assertArrayEquals(expected.get(i), actual.get(i));
+    }
+  }
+}
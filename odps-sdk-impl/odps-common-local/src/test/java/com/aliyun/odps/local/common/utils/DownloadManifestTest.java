@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.local.common.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aliyun.odps.PartitionSpec;
+import com.aliyun.odps.data.TableInfo;
+import com.aliyun.odps.local.common.Constants;
+import com.aliyun.odps.local.common.TableMeta;
+import com.aliyun.odps.local.common.WareHouse;
+
+public class DownloadManifestTest {
+
+  private static final String PROJECT = "project_name";
+  private static final String TABLE = "download_manifest_test";
+
+  private File tableDir;
+
+  @Before
+  public void setUp() throws IOException {
+    tableDir = WareHouse.getInstance().getTableDir(PROJECT, TABLE);
+    FileUtils.deleteDirectory(tableDir);
+    TableMeta meta = new TableMeta(PROJECT, TABLE, SchemaUtils.fromString("c:bigint"));
+    SchemaUtils.generateSchemaFile(meta, null, tableDir);
+  }
+
+  private File dataFile(String name) throws IOException {
+    File file = new File(tableDir, name);
+    FileUtils.writeStringToFile(file, "1\n", "UTF-8");
+    return file;
+  }
+
+  @Test
+  public void testResume() throws IOException {
+    try {
+      DownloadManifest manifest = DownloadManifest.open(tableDir, "sig");
+      Assert.assertFalse(manifest.isResumed());
+      File done = dataFile("data_0");
+      manifest.markDone(done);
+      File unfinished = dataFile("data_1");
+      // 模拟下载中断
+      manifest.close();
+      Assert.assertFalse(WareHouse.getInstance().existsTable(PROJECT, TABLE));
+      Assert.assertEquals(2, LocalRunUtils.listDataFiles(tableDir).size());
+
+      manifest = DownloadManifest.open(tableDir, "sig");
+      Assert.assertTrue(manifest.isResumed());
+      Assert.assertTrue(manifest.isDone(done));
+      Assert.assertFalse(manifest.isDone(unfinished));
+      manifest.removeUnfinished(tableDir);
+      Assert.assertTrue(done.exists());
+      Assert.assertFalse(unfinished.exists());
+      manifest.markDone(dataFile("data_1"));
+      manifest.complete();
+
+      Assert.assertFalse(new File(tableDir, Constants.DOWNLOAD_MANIFEST_FILE).exists());
+      Assert.assertTrue(WareHouse.getInstance().existsTable(PROJECT, TABLE));
+    } finally {
+      FileUtils.deleteDirectory(tableDir);
+    }
+  }
+
+  @Test
+  public void testSignatureChanged() throws IOException {
+    try {
+      DownloadManifest manifest = DownloadManifest.open(tableDir, "sig1");
+      File file = dataFile("data");
+      manifest.markDone(file);
+      manifest.close();
+
+      manifest = DownloadManifest.open(tableDir, "sig2");
+      Assert.assertFalse(manifest.isResumed());
+      Assert.assertFalse(manifest.isDone(file));
+      manifest.close();
+
+      // 重新开始后之前的进度不再生效
+      manifest = DownloadManifest.open(tableDir, "sig2");
+      Assert.assertTrue(manifest.isResumed());
+      Assert.assertFalse(manifest.isDone(file));
+      manifest.complete();
+    } finally {
+      FileUtils.deleteDirectory(tableDir);
+    }
+  }
+
+  @Test
+  public void testOneManifestPerTable() {
+    TableInfo p1 = TableInfo.builder().projectName(PROJECT).tableName(TABLE)
+        .partSpec(new PartitionSpec("p=1")).build();
+    TableInfo p2 = TableInfo.builder().projectName(PROJECT).tableName(TABLE)
+        .partSpec(new PartitionSpec("p=2")).build();
+    TableInfo other = TableInfo.builder().projectName(PROJECT).tableName(TABLE + "_other").build();
+    // 同一张表的两个分区合并为一个下载任务, 共用表目录下的一个清单
+    List<List<TableInfo>> groups =
+        new ArrayList<List<TableInfo>>(DownloadUtils.groupByTable(Arrays.asList(p1, other, p2)));
+    Assert.assertEquals(2, groups.size());
+    Assert.assertEquals(Arrays.asList(p1, p2), groups.get(0));
+    Assert.assertEquals(Arrays.asList(other), groups.get(1));
+  }
+}
@@ -294,6 +294,25 @@ public class DownloadUtilsTest {
     Assert.assertEquals(true, record[5] instanceof BigDecimal);
   }
 
+  @Test
+  public void testDownloadPartitionsOfOneTable() throws OdpsException, IOException {
+    WareHouse.getInstance().dropTableIfExists(project, partTable);
+    PartitionSpec p1 = new PartitionSpec("p1=1,p2=1");
+    PartitionSpec p2 = new PartitionSpec("p1=1,p2=2");
+    List<TableInfo> tableInfos = Arrays.asList(
+        TableInfo.builder().projectName(project).tableName(partTable).partSpec(p1).build(),
+        TableInfo.builder().projectName(project).tableName(partTable).partSpec(p2).build());
+    DownloadUtils.downloadTablesSchemeAndData(odps, tableInfos, 10, ',');
+
+    Assert.assertTrue(WareHouse.getInstance().existsTable(project, partTable));
+    List<Object[]> dataList = WareHouse.getInstance().readData(project, partTable, p1, null, ',');
+    Assert.assertEquals(1, dataList.size());
+    Assert.assertEquals("col1", dataList.get(0)[0]);
+    dataList = WareHouse.getInstance().readData(project, partTable, p2, null, ',');
+    Assert.assertEquals(1, dataList.size());
+    Assert.assertEquals("col2", dataList.get(0)[0]);
+  }
+
   @Test
   public void testDownloadComplexTable() throws OdpsException, IOException {
     // //////Test Complex table////////
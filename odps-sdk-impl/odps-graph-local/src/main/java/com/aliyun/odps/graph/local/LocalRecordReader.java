@@ -34,6 +34,7 @@ import com.aliyun.odps.graph.local.utils.LocalGraphRunUtils;
 import com.aliyun.odps.io.LongWritable;
 import com.aliyun.odps.io.Writable;
 import com.aliyun.odps.io.WritableRecord;
+import com.aliyun.odps.local.common.utils.BinaryDataReader;
 import com.aliyun.odps.local.common.utils.DownloadUtils;
 import com.aliyun.odps.local.common.utils.LocalRunUtils;
 import com.aliyun.odps.local.common.utils.SchemaUtils;
@@ -45,9 +46,11 @@ public class LocalRecordReader extends BaseRecordReader<LongWritable, WritableRe
   private LongWritable key;
   private SQLRecord value;
   private Counter recordCounter;
-  private List<CsvReader> readers;
+  private List<File> dataFiles;
+  private int nextFileIdx = 0;
   private CsvReader reader;
-  private int nextReaderIdx = 0;
+  private BinaryDataReader binaryReader;
+  private Column[] cols;
   private byte[] types;
 
   private long count = 0;
@@ -56,7 +59,7 @@ public class LocalRecordReader extends BaseRecordReader<LongWritable, WritableRe
   public LocalRecordReader(File inputDir, File tableDir, Counter recordCounter,
                            Counter byteCounter) throws IOException {
     this.key = new LongWritable();
-    Column[] cols = SchemaUtils.readSchema(tableDir).getCols();
+    cols = SchemaUtils.readSchema(tableDir).getCols();
     this.types = new byte[cols.length];
     Map<String, Integer> mapIdx = new HashMap<String, Integer>();
     for (int i = 0; i < cols.length; i++) {
@@ -64,47 +67,71 @@ public class LocalRecordReader extends BaseRecordReader<LongWritable, WritableRe
       types[i] = DataType.convertToDataType(cols[i].getType().name());
     }
     this.value = new SQLRecord(cols, types);
-    readers = new ArrayList<CsvReader>();
+    dataFiles = new ArrayList<File>();
     for (File dataFile : LocalRunUtils.listDataFiles(inputDir)) {
       if (byteCounter != null) {
         byteCounter.increment(dataFile.length());
       }
-      Charset encoding = LocalRunContext.getInstance().getEncoding();
-      CsvReader csvReader = DownloadUtils.newCsvReader(dataFile.getAbsolutePath(), ',', encoding);
-      readers.add(csvReader);
-    }
-    if (readers.size() > 0) {
-      reader = readers.get(0);
-      nextReaderIdx++;
+      dataFiles.add(dataFile);
     }
     this.recordCounter = recordCounter;
   }
 
-  @Override
-  public boolean nextKeyValue() throws IOException {
-    if (readers.size() == 0) {
-      return false;
+  /**
+   * 读取下一条记录的各列值, 所有数据文件都读完时返回 null
+   */
+  private Writable[] readFields() throws IOException {
+    while (true) {
+      if (reader == null && binaryReader == null) {
+        if (nextFileIdx >= dataFiles.size()) {
+          return null;
+        }
+        File dataFile = dataFiles.get(nextFileIdx++);
+        if (LocalRunUtils.isBinaryDataFile(dataFile)) {
+          binaryReader = new BinaryDataReader(dataFile, cols, null, true);
+        } else {
+          Charset encoding = LocalRunContext.getInstance().getEncoding();
+          reader = DownloadUtils.newCsvReader(dataFile.getAbsolutePath(), ',', encoding);
+        }
+      }
+      Writable[] fields = new Writable[types.length];
+      if (binaryReader != null) {
+        Object[] vals = binaryReader.read();
+        if (vals == null) {
+          binaryReader.close();
+          binaryReader = null;
+          continue;
+        }
+        for (int i = 0; i < types.length; i++) {
+          fields[i] = LocalGraphRunUtils.fromObject(types[i], vals[i]);
+        }
+      } else {
+        if (!reader.readRecord()) {
+          reader.close();
+          reader = null;
+          continue;
+        }
+        String[] vals = reader.getValues();
+        if (vals.length != types.length) {
+          throw new IOException("column num not match, expect: " + types.length
+                                + ", but: " + vals.length);
+        }
+        for (int i = 0; i < types.length; i++) {
+          fields[i] = LocalGraphRunUtils.fromString(types[i], vals[i], "\\N");
+        }
+      }
+      return fields;
     }
+  }
 
-    boolean hasNext = reader.readRecord();
-    if (!hasNext && nextReaderIdx < readers.size()) {
-      reader = readers.get(nextReaderIdx++);
-      hasNext = reader.readRecord();
-    }
+  @Override
+  public boolean nextKeyValue() throws IOException {
+    Writable[] fields = readFields();
+    boolean hasNext = fields != null;
 
     if (hasNext) {
       count++;
       key.set(count);
-      String[] vals = reader.getValues();
-      if (vals.length != types.length) {
-        throw new IOException("column num not match, expect: " + types.length
-                              + ", but: " + vals.length);
-      }
-      Writable[] fields = new Writable[types.length];
-      for (int i = 0; i < types.length; i++) {
-        fields[i] = LocalGraphRunUtils.fromString(types[i], vals[i], "\\N");
-      }
-
       for (int i = 0; i < fields.length; i++) {
         Writable field = value.get(i);
         if (field == null) {
@@ -143,9 +170,12 @@ public class LocalRecordReader extends BaseRecordReader<LongWritable, WritableRe
       if (recordCounter != null) {
         recordCounter.setValue(count);
       }
-      for (CsvReader reader : readers) {
+      if (reader != null) {
         reader.close();
       }
+      if (binaryReader != null) {
+        binaryReader.close();
+      }
     }
   }
 
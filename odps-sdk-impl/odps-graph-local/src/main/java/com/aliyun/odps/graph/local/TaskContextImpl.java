@@ -105,7 +105,7 @@ public class TaskContextImpl<VERTEX_ID extends WritableComparable<?>, VERTEX_VAL
   @SuppressWarnings("unchecked")
   public LocalVertexMutations getRealVertexMutations(VERTEX_ID id) {
     if (mJob.getRuntimePartitioning()) {
-      return mWorker.getMaster().getVertexMutations(id);
+      return mWorker.getOutgoingVertexMutations(id);
     } else {
       return mWorker.getVertexMutations(id);
     }
@@ -164,7 +164,7 @@ public class TaskContextImpl<VERTEX_ID extends WritableComparable<?>, VERTEX_VAL
           "ODPS-0730001: sendMessage: Cannot send null message to "
           + destVertexID);
     }
-    mWorker.getMaster().pushMsg(mCtx, getSuperstep() + 1, destVertexID, msg);
+    mWorker.sendMsg(getSuperstep() + 1, destVertexID, msg);
   }
 
   @Override
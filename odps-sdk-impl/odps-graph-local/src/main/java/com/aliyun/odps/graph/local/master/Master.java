@@ -24,11 +24,22 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import com.aliyun.odps.Odps;
+import com.aliyun.odps.conf.Configuration;
 import com.aliyun.odps.counter.Counter;
 import com.aliyun.odps.counter.CounterGroup;
 import com.aliyun.odps.counter.Counters;
@@ -40,7 +51,6 @@ import com.aliyun.odps.graph.VertexResolver;
 import com.aliyun.odps.graph.local.COUNTER;
 import com.aliyun.odps.graph.local.GraphTaskAttemptID;
 import com.aliyun.odps.graph.local.InputSplit;
-import com.aliyun.odps.graph.local.LocalVertexMutations;
 import com.aliyun.odps.graph.local.RuntimeContext;
 import com.aliyun.odps.graph.local.utils.LocalGraphRunUtils;
 import com.aliyun.odps.graph.local.worker.Worker;
@@ -48,6 +58,7 @@ import com.aliyun.odps.graph.utils.VerifyUtils;
 import com.aliyun.odps.io.Writable;
 import com.aliyun.odps.io.WritableComparable;
 import com.aliyun.odps.local.common.FileSplit;
+import com.aliyun.odps.local.common.WareHouse;
 import com.aliyun.odps.utils.ReflectionUtils;
 
 @SuppressWarnings("rawtypes")
@@ -67,6 +78,7 @@ public class Master<VERTEX_ID extends WritableComparable<?>, VERTEX_VALUE extend
 
   List<Worker> mWorkers = new ArrayList<Worker>();
   private Counters mCounters;
+  private ExecutorService executor;
   int totalVertex = 0;
   int totalEdge = 0;
 
@@ -121,6 +133,99 @@ public class Master<VERTEX_ID extends WritableComparable<?>, VERTEX_VALUE extend
       mWorkers.add(w);
     }
     initCounters();
+
+    int threadNum = Math.min(WareHouse.getInstance().getLocalWorkerNum(), workerNum);
+    if (threadNum > 1) {
+      LOG.info("Run workers in parallel, thread num: " + threadNum);
+      executor = createExecutor(threadNum);
+    }
+  }
+
+  /**
+   * 一个超步内每个 worker 执行的操作
+   */
+  private interface WorkerTask {
+
+    void run(Worker w) throws IOException;
+  }
+
+  /**
+   * 对每个 worker 执行 task, 全部完成后返回, 相当于 BSP 的 barrier。未开启并发时按顺序串行执行
+   */
+  private void runWorkers(final WorkerTask task) throws IOException {
+    if (executor == null) {
+      for (Worker w : mWorkers) {
+        task.run(w);
+      }
+      return;
+    }
+
+    final WareHouse wareHouse = WareHouse.getInstance();
+    final Odps odps = wareHouse.getOdps();
+    final Configuration conf = wareHouse.getConfiguration();
+    List<Future<?>> futures = new ArrayList<Future<?>>(mWorkers.size());
+    for (final Worker w : mWorkers) {
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          // WareHouse 中的 Odps 和 Configuration 是线程本地的
+          wareHouse.setOdps(odps);
+          wareHouse.setConfiguration(conf);
+          task.run(w);
+          return null;
+        }
+      }));
+    }
+
+    try {
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      for (Future<?> future : futures) {
+        future.cancel(true);
+      }
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+
+  /**
+   * 将各 worker 缓存的消息和点变更投递到目标 worker, 每个目标 worker 按 worker 顺序接收
+   */
+  private void deliverMessages() throws IOException {
+    runWorkers(new WorkerTask() {
+      @Override
+      public void run(Worker w) throws IOException {
+        for (Worker sender : mWorkers) {
+          w.receiveFrom(sender);
+        }
+      }
+    });
+  }
+
+  private static ExecutorService createExecutor(int threadNum) {
+    final AtomicInteger index = new AtomicInteger();
+    return new ThreadPoolExecutor(
+        threadNum, threadNum, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "local-graph-worker-" + index.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+          }
+        });
   }
 
   private void initCounters() {
@@ -131,9 +236,13 @@ public class Master<VERTEX_ID extends WritableComparable<?>, VERTEX_VALUE extend
   }
 
   private void initGraph() throws IOException {
-    for (Worker w : mWorkers) {
-      w.loadGraph();
-    }
+    runWorkers(new WorkerTask() {
+      @Override
+      public void run(Worker w) throws IOException {
+        w.loadGraph();
+      }
+    });
+    deliverMessages();
 
     VertexResolver vertexResolver = LocalGraphRunUtils
         .createLoadingVertexResolver(mJob);
@@ -176,9 +285,12 @@ public class Master<VERTEX_ID extends WritableComparable<?>, VERTEX_VALUE extend
 
   private void WorkerSetup() throws IOException {
     initGraph();
-    for (Worker w : mWorkers) {
-      w.init();
-    }
+    runWorkers(new WorkerTask() {
+      @Override
+      public void run(Worker w) throws IOException {
+        w.init();
+      }
+    });
   }
 
   @SuppressWarnings("unchecked")
@@ -232,6 +344,18 @@ public class Master<VERTEX_ID extends WritableComparable<?>, VERTEX_VALUE extend
   }
 
   public void run() throws IOException {
+    try {
+      runSuperSteps();
+    } finally {
+      if (executor != null) {
+        executor.shutdownNow();
+        executor = null;
+      }
+    }
+    close();
+  }
+
+  private void runSuperSteps() throws IOException {
 
     WorkerSetup();
 
@@ -252,48 +376,39 @@ public class Master<VERTEX_ID extends WritableComparable<?>, VERTEX_VALUE extend
 
       ++superStep;
 
-      for (Worker w : mWorkers) {
-        w.processNextStep();
-      }
-
-      for (Worker w : mWorkers) {
-        w.Compute();
-      }
+      // 每个 worker 只读写自己的点, 发出的消息在所有 worker 计算完成后统一投递
+      runWorkers(new WorkerTask() {
+        @Override
+        public void run(Worker w) throws IOException {
+          w.processNextStep();
+          w.Compute();
+        }
+      });
+      deliverMessages();
 
       if (Aggregate()) {
         break;
       }
     }
 
-    for (Worker w : mWorkers) {
-      w.cleanup();
-    }
+    runWorkers(new WorkerTask() {
+      @Override
+      public void run(Worker w) throws IOException {
+        w.cleanup();
+      }
+    });
 
     for (Worker w : mWorkers) {
       w.close();
     }
-    close();
   }
 
-  private Worker getWorkerByVertexID(VERTEX_ID vertex_id) {
-    int worker_id = p.getPartition(vertex_id, mWorkers.size());
-    return mWorkers.get(worker_id);
+  public int getWorkerIndex(VERTEX_ID vertex_id) {
+    return p.getPartition(vertex_id, mWorkers.size());
   }
 
   public long getSuperStep() {
     return superStep;
   }
 
-  @SuppressWarnings("unchecked")
-  public LocalVertexMutations getVertexMutations(VERTEX_ID id) {
-    return getWorkerByVertexID(id).getVertexMutations(id);
-  }
-
-  @SuppressWarnings("unchecked")
-  public void pushMsg(RuntimeContext context, long superStep,
-                      VERTEX_ID vertexId, Writable msg) {
-    getWorkerByVertexID(vertexId).pushMsg(context, superStep, vertexId, msg);
-
-  }
-
 }
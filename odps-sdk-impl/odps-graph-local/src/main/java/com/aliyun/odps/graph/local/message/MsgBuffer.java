@@ -42,6 +42,12 @@ public class MsgBuffer {
     }
   }
 
+  public void addMessages(List<Writable> msgs) {
+    synchronized (msges) {
+      msges.addAll(msgs);
+    }
+  }
+
   public boolean hasMessages() {
     synchronized (msges) {
       return msges.size() > 0;
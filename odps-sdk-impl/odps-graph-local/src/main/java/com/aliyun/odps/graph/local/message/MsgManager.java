@@ -20,12 +20,16 @@
 package com.aliyun.odps.graph.local.message;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import com.aliyun.odps.graph.Combiner;
+import com.aliyun.odps.graph.JobConf;
 import com.aliyun.odps.graph.local.RuntimeContext;
+import com.aliyun.odps.local.common.Constants;
 import com.aliyun.odps.io.Writable;
 import com.aliyun.odps.io.WritableComparable;
 
@@ -33,16 +37,23 @@ public class MsgManager {
 
   private static Log LOG = LogFactory.getLog(MsgManager.class);
 
-  public MsgManager() {
+  public MsgManager(Combiner combiner, JobConf job) {
+    this.combiner = combiner;
+    this.job = job;
+    this.dumpMessages = job.getBoolean(Constants.LOCAL_GRAPH_MESSAGE_DUMP, false);
     curBuffer = new SuperStepBuffer(-1);
-    nextBuffer = new SuperStepBuffer(0);
+    nextBuffer = new SuperStepBuffer(0, combiner, job);
   }
 
   private SuperStepBuffer curBuffer = null;
   private SuperStepBuffer nextBuffer = null;
+  private Combiner combiner;
+  private JobConf job;
+  // 每个超步把每个点的消息写到单独的文件中, 只用于调试
+  private boolean dumpMessages;
 
   public void pushMsg(RuntimeContext context, long superStep,
-                      WritableComparable<?> vertexId, Writable msg) {
+                      WritableComparable<?> vertexId, Writable msg) throws IOException {
     if (superStep != nextBuffer.getSuperStep()) {
       throw new RuntimeException(
           "Internal error, super step is inconsistent, expected "
@@ -51,6 +62,18 @@ public class MsgManager {
     nextBuffer.pushMsg(vertexId, msg);
   }
 
+  /**
+   * 接收其他 worker 在当前超步发出的消息
+   */
+  public void pushMsgs(SuperStepBuffer msgs) throws IOException {
+    if (msgs.getSuperStep() != nextBuffer.getSuperStep()) {
+      throw new RuntimeException(
+          "Internal error, super step is inconsistent, expected "
+          + nextBuffer.getSuperStep() + ", but " + msgs.getSuperStep());
+    }
+    nextBuffer.pushMsgs(msgs);
+  }
+
   public boolean hasMessageForVertex(RuntimeContext context, long superStep,
                                      WritableComparable<?> vertexId) {
     if (superStep != curBuffer.getSuperStep()) {
@@ -61,6 +84,18 @@ public class MsgManager {
     return curBuffer.hasMsg(vertexId);
   }
 
+  /**
+   * @return 点在当前超步收到的消息, 没有消息时返回 null
+   */
+  public List<Writable> getMsgs(long superStep, WritableComparable<?> vertexId) {
+    if (superStep != curBuffer.getSuperStep()) {
+      throw new RuntimeException(
+          "Internal error, super step is inconsistent, expected "
+          + curBuffer.getSuperStep() + ", but " + superStep);
+    }
+    return curBuffer.getMsgs(vertexId);
+  }
+
   public Iterable<Writable> popMsges(RuntimeContext context, long superStep,
                                      WritableComparable<?> vertexId) {
     if (superStep != curBuffer.getSuperStep()) {
@@ -74,10 +109,12 @@ public class MsgManager {
   public void nextSuperStep(RuntimeContext context)
       throws IOException {
     // dump next buffer, from 0
-    nextBuffer.dump(context);
+    if (dumpMessages) {
+      nextBuffer.dump(context);
+    }
 
     curBuffer = nextBuffer;
-    nextBuffer = new SuperStepBuffer(curBuffer.getSuperStep() + 1);
+    nextBuffer = new SuperStepBuffer(curBuffer.getSuperStep() + 1, combiner, job);
   }
 
   public Set<WritableComparable<?>> getVertexIDList() {
@@ -24,21 +24,41 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import com.aliyun.odps.conf.Configuration;
+import com.aliyun.odps.graph.Combiner;
 import com.aliyun.odps.graph.local.RuntimeContext;
 import com.aliyun.odps.io.Writable;
 import com.aliyun.odps.io.WritableComparable;
+import com.aliyun.odps.io.WritableUtils;
 
 public class SuperStepBuffer {
 
   private long superStep;
   private Map<WritableComparable<?>, MsgBuffer> msgBuffer = null;
+  private Combiner combiner;
+  private Configuration conf;
 
   public SuperStepBuffer(long superstep) {
+    this(superstep, null, null);
+  }
+
+  /**
+   * 设置了 combiner 时, 每个点只保存一条合并后的消息
+   *
+   * @param combiner
+   *     消息合并器, 可以为 null
+   * @param conf
+   *     用于复制消息的配置
+   */
+  public SuperStepBuffer(long superstep, Combiner combiner, Configuration conf) {
     superStep = superstep;
     msgBuffer = new HashMap<WritableComparable<?>, MsgBuffer>();
+    this.combiner = combiner;
+    this.conf = conf;
   }
 
   public void setSuperStep(long superstep) {
@@ -49,13 +69,38 @@ public class SuperStepBuffer {
     return this.superStep;
   }
 
-  public void pushMsg(WritableComparable<?> vertexId, Writable msg) {
-    if (msgBuffer.containsKey(vertexId)) {
-      msgBuffer.get(vertexId).addMessage(msg);
+  @SuppressWarnings("unchecked")
+  public void pushMsg(WritableComparable<?> vertexId, Writable msg) throws IOException {
+    MsgBuffer buffer = msgBuffer.get(vertexId);
+    if (buffer == null) {
+      buffer = new MsgBuffer();
+      // 合并时会修改第一条消息, 而发送方可能复用同一个消息对象, 因此先复制
+      buffer.addMessage(combiner == null ? msg : WritableUtils.clone(msg, conf));
+      msgBuffer.put(vertexId, buffer);
+    } else if (combiner != null) {
+      combiner.combine(vertexId, buffer.getMessages().get(0), msg);
     } else {
-      MsgBuffer buffer = new MsgBuffer();
       buffer.addMessage(msg);
-      msgBuffer.put(vertexId, buffer);
+    }
+  }
+
+  /**
+   * 追加另一个 buffer 中的全部消息, 同一个点的消息保持原有顺序。other 中的消息对象直接转移到本 buffer
+   */
+  @SuppressWarnings("unchecked")
+  public void pushMsgs(SuperStepBuffer other) throws IOException {
+    for (Map.Entry<WritableComparable<?>, MsgBuffer> entry : other.msgBuffer.entrySet()) {
+      MsgBuffer buffer = msgBuffer.get(entry.getKey());
+      if (buffer == null) {
+        msgBuffer.put(entry.getKey(), entry.getValue());
+      } else if (combiner != null) {
+        Writable combined = buffer.getMessages().get(0);
+        for (Writable msg : entry.getValue().getMessages()) {
+          combiner.combine(entry.getKey(), combined, msg);
+        }
+      } else {
+        buffer.addMessages(entry.getValue().getMessages());
+      }
     }
   }
 
@@ -64,6 +109,14 @@ public class SuperStepBuffer {
            && msgBuffer.get(vertexId).hasMessages();
   }
 
+  /**
+   * @return 点收到的消息, 没有消息时返回 null
+   */
+  public List<Writable> getMsgs(WritableComparable<?> vertexId) {
+    MsgBuffer buffer = msgBuffer.get(vertexId);
+    return buffer == null ? null : buffer.getMessages();
+  }
+
   public Iterable<Writable> popMsges(final WritableComparable<?> vertexId) {
     return new MsgIterable(vertexId);
   }
@@ -182,6 +182,29 @@ public class LocalGraphRunUtils {
     }
   }
 
+  /**
+   * 把二进制数据文件中读出的值转换为 Writable, 字符串为 byte[], datetime 为 Date
+   */
+  public static Writable fromObject(byte type, Object val) throws IOException {
+    if (val == null) {
+      return null;
+    }
+    switch (type) {
+      case DataType.INTEGER:
+        return new LongWritable((Long) val);
+      case DataType.STRING:
+        return val instanceof byte[] ? new Text((byte[]) val) : new Text(val.toString());
+      case DataType.DOUBLE:
+        return new DoubleWritable((Double) val);
+      case DataType.BOOLEAN:
+        return new BooleanWritable((Boolean) val);
+      case DataType.DATETIME:
+        return new DatetimeWritable(((Date) val).getTime());
+      default:
+        throw new IOException("unsupported type: " + type);
+    }
+  }
+
   private static Writable parseDateTime(String val) throws IOException {
     try {
       return new DatetimeWritable(Long.parseLong(val));
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.graph.local.worker;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import com.aliyun.odps.graph.Vertex;
+import com.aliyun.odps.io.LongWritable;
+
+/**
+ * worker 上的点集合。
+ *
+ * <p>
+ * 点按下标连续存放在数组中, 点 id 到下标的索引是线性探测的开放寻址表, 表中只保存下标, 比较时直接使用点自身的 id,
+ * 不需要为每个点分配 Map.Entry。{@link LongWritable} 类型的 id 直接按 long 值计算哈希。另外用一个 bitset 记录每个点在
+ * 上次计算后是否已经结束, 没有消息的已结束点可以不访问点对象直接跳过。
+ * </p>
+ *
+ * <p>
+ * 删除点时用最后一个点填补空位, 因此删除会改变其他点的下标。
+ * </p>
+ */
+@SuppressWarnings("rawtypes")
+class VertexStore {
+
+  private static final int EMPTY = -1;
+
+  private Vertex[] vertices = new Vertex[16];
+  private int size;
+  private int[] slots;
+  private int mask;
+  private final BitSet halted = new BitSet();
+
+  VertexStore() {
+    slots = new int[32];
+    Arrays.fill(slots, EMPTY);
+    mask = slots.length - 1;
+  }
+
+  int size() {
+    return size;
+  }
+
+  Vertex get(int index) {
+    return vertices[index];
+  }
+
+  /**
+   * @return 点的下标, 不存在时返回 -1
+   */
+  int indexOf(Object id) {
+    int slot = findSlot(id);
+    return slot < 0 ? EMPTY : slots[slot];
+  }
+
+  Vertex get(Object id) {
+    int index = indexOf(id);
+    return index < 0 ? null : vertices[index];
+  }
+
+  /**
+   * 添加点, id 已存在时替换原来的点
+   */
+  void put(Object id, Vertex vertex) {
+    int slot = findSlot(id);
+    if (slot >= 0) {
+      int index = slots[slot];
+      vertices[index] = vertex;
+      updateHalted(index);
+      return;
+    }
+    if (size == vertices.length) {
+      vertices = Arrays.copyOf(vertices, size * 2);
+    }
+    vertices[size] = vertex;
+    slots[-slot - 1] = size;
+    updateHalted(size);
+    size++;
+    if (size * 2 > slots.length) {
+      rehash(slots.length * 2);
+    }
+  }
+
+  void remove(Object id) {
+    int slot = findSlot(id);
+    if (slot < 0) {
+      return;
+    }
+    int index = slots[slot];
+    deleteSlot(slot);
+    int last = size - 1;
+    if (index != last) {
+      vertices[index] = vertices[last];
+      slots[findSlot(vertices[index].getId())] = index;
+      halted.set(index, halted.get(last));
+    }
+    vertices[last] = null;
+    halted.clear(last);
+    size--;
+  }
+
+  /**
+   * 上次更新时点是否已经结束
+   */
+  boolean isHalted(int index) {
+    return halted.get(index);
+  }
+
+  /**
+   * 点的计算结束后, 更新其结束状态
+   */
+  void updateHalted(int index) {
+    halted.set(index, vertices[index].isHalted());
+  }
+
+  boolean allHalted() {
+    return halted.cardinality() == size;
+  }
+
+  private static int hash(Object id) {
+    long h = id instanceof LongWritable ? ((LongWritable) id).get() : id.hashCode();
+    h *= 0x9E3779B97F4A7C15L;
+    return (int) (h >>> 32);
+  }
+
+  /**
+   * @return id 所在的槽, 不存在时返回 -(可插入的槽 + 1)
+   */
+  private int findSlot(Object id) {
+    int i = hash(id) & mask;
+    while (slots[i] != EMPTY) {
+      if (vertices[slots[i]].getId().equals(id)) {
+        return i;
+      }
+      i = (i + 1) & mask;
+    }
+    return -i - 1;
+  }
+
+  /**
+   * 线性探测表的删除, 把后面同一探测链上的槽前移, 不需要墓碑
+   */
+  private void deleteSlot(int i) {
+    int j = i;
+    while (true) {
+      j = (j + 1) & mask;
+      if (slots[j] == EMPTY) {
+        break;
+      }
+      int home = hash(vertices[slots[j]].getId()) & mask;
+      // home 位于 (i, j] 之间时, 该槽不能前移到 i
+      boolean between = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+      if (!between) {
+        slots[i] = slots[j];
+        i = j;
+      }
+    }
+    slots[i] = EMPTY;
+  }
+
+  private void rehash(int capacity) {
+    slots = new int[capacity];
+    Arrays.fill(slots, EMPTY);
+    mask = capacity - 1;
+    for (int index = 0; index < size; index++) {
+      slots[-findSlot(vertices[index].getId()) - 1] = index;
+    }
+  }
+}
@@ -22,8 +22,10 @@ package com.aliyun.odps.graph.local.worker;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -55,6 +57,7 @@ import com.aliyun.odps.graph.local.SQLRecord;
 import com.aliyun.odps.graph.local.TaskContextImpl;
 import com.aliyun.odps.graph.local.master.Master;
 import com.aliyun.odps.graph.local.message.MsgManager;
+import com.aliyun.odps.graph.local.message.SuperStepBuffer;
 import com.aliyun.odps.graph.local.utils.LocalGraphRunUtils;
 import com.aliyun.odps.graph.utils.VerifyUtils;
 import com.aliyun.odps.io.LongWritable;
@@ -79,9 +82,6 @@ public class Worker<VERTEX_ID extends WritableComparable<?>, VERTEX_VALUE extend
   private InputSplit mInput;
   private JobConf mJob;
   private List<Writable> mLastAggregatorValues;
-  private Map<Vertex, Iterable<Writable>>
-      mLastStepMessage =
-      new HashMap<Vertex, Iterable<Writable>>();
   private Map<String, TableInfo> mOutputs;
   private Map<VERTEX_ID, LocalVertexMutations> mVertexMutations;
   private GraphTaskAttemptID mTaskAttemptID;
@@ -92,7 +92,7 @@ public class Worker<VERTEX_ID extends WritableComparable<?>, VERTEX_VALUE extend
   private int mWorkerNum;
   private Map<String, LocalRecordWriter> mWriters;
 
-  private Map<VERTEX_ID, Vertex> vertices = new HashMap<VERTEX_ID, Vertex>();
+  private VertexStore vertices = new VertexStore();
 
   private Writable mWorkerValue;
 
@@ -100,6 +100,10 @@ public class Worker<VERTEX_ID extends WritableComparable<?>, VERTEX_VALUE extend
 
   private Combiner mCombiner;
 
+  // 发往各个 worker 的消息和点变更, 由 master 在超步结束后统一投递, 计算时 worker 之间互不访问
+  private SuperStepBuffer[] mOutgoingMsgs;
+  private Map<VERTEX_ID, LocalVertexMutations>[] mOutgoingMutations;
+
   @SuppressWarnings("unchecked")
   public Worker(JobConf job, RuntimeContext ctx, Master m,
                 GraphTaskAttemptID taskAttemptID, int workerID, int workerNum,
@@ -119,20 +123,18 @@ public class Worker<VERTEX_ID extends WritableComparable<?>, VERTEX_VALUE extend
     mCounters = new Counters();
 
     mAggregators = LocalGraphRunUtils.getAggregator(mJob);
-    mMsgManager = new MsgManager();
+    initCombiner();
+    mMsgManager = new MsgManager(mCombiner, mJob);
 
     mTaskContext = new TaskContextImpl(mCtx, mJob, this, mWorkerID, mWorkerNum,
                                        mOutputs, mCounters);
     mVertexMutations = new HashMap<VERTEX_ID, LocalVertexMutations>();
-
+    mOutgoingMsgs = new SuperStepBuffer[workerNum];
+    mOutgoingMutations = new Map[workerNum];
   }
 
   public boolean allVertexVoltHalt() {
-    boolean ret = true;
-    for (Vertex v : vertices.values()) {
-      ret = ret && v.isHalted();
-    }
-    return ret && (!mMsgManager.hasNextStepMessages());
+    return vertices.allHalted() && (!mMsgManager.hasNextStepMessages());
   }
 
   private void initCombiner() {
@@ -239,12 +241,12 @@ public class Worker<VERTEX_ID extends WritableComparable<?>, VERTEX_VALUE extend
 
   @SuppressWarnings("unchecked")
   public void init() throws IOException {
-    initCombiner();
     initWorkerComputer();
     initAggregatorValues();
 
-    for (Vertex v : vertices.values()) {
-      v.setup(mTaskContext);
+    for (int i = 0; i < vertices.size(); i++) {
+      vertices.get(i).setup(mTaskContext);
+      vertices.updateHalted(i);
     }
 
   }
@@ -266,16 +268,25 @@ public class Worker<VERTEX_ID extends WritableComparable<?>, VERTEX_VALUE extend
   @SuppressWarnings("unchecked")
   public void Compute() throws IOException {
 
-    prepareMsg();
-    for (Vertex v : vertices.values()) {
-      Iterable<Writable> msg = mLastStepMessage.get(v);
-      if (v.isHalted() && msg.iterator().hasNext()) {
+    long superStep = master.getSuperStep();
+    LOG.debug("worker super step " + superStep + ", vertices count "
+              + vertices.size());
+    for (int i = 0; i < vertices.size(); i++) {
+      // 设置了 combiner 时, 发送和投递消息时已经合并, 每个点最多一条消息
+      List<Writable> msgs = mMsgManager.getMsgs(superStep, vertices.get(i).getId());
+      if (msgs == null && vertices.isHalted(i)) {
+        // 已结束且没有消息的点不需要访问
+        continue;
+      }
+      Vertex v = vertices.get(i);
+      if (v.isHalted() && msgs != null && !msgs.isEmpty()) {
         v.wakeUp();
       }
 
       if (!v.isHalted()) {
-        v.compute(mTaskContext, msg);
+        v.compute(mTaskContext, msgs == null ? Collections.<Writable>emptyList() : msgs);
       }
+      vertices.updateHalted(i);
     }
   }
 
@@ -326,8 +337,8 @@ public class Worker<VERTEX_ID extends WritableComparable<?>, VERTEX_VALUE extend
 
   public long getEgeNumber() {
     long egeNumber = 0;
-    for (Vertex v : vertices.values()) {
-      egeNumber += v.getNumEdges();
+    for (int i = 0; i < vertices.size(); i++) {
+      egeNumber += vertices.get(i).getNumEdges();
     }
     return egeNumber;
   }
@@ -357,13 +368,69 @@ public class Worker<VERTEX_ID extends WritableComparable<?>, VERTEX_VALUE extend
     return ret;
   }
 
+  /**
+   * 获取发往其他 worker 的点变更, 超步结束后由 {@link #receiveFrom(Worker)} 合并到目标 worker
+   */
+  @SuppressWarnings("unchecked")
+  public LocalVertexMutations getOutgoingVertexMutations(VERTEX_ID id) {
+    int dest = master.getWorkerIndex(id);
+    Map<VERTEX_ID, LocalVertexMutations> mutations = mOutgoingMutations[dest];
+    if (mutations == null) {
+      mutations = new LinkedHashMap<VERTEX_ID, LocalVertexMutations>();
+      mOutgoingMutations[dest] = mutations;
+    }
+    LocalVertexMutations ret = mutations.get(id);
+    if (ret == null) {
+      ret = new LocalVertexMutations();
+      mutations.put(id, ret);
+    }
+    return ret;
+  }
+
   public List<Writable> partialAggregate() {
     return mAggregatorValues;
   }
 
-  public void pushMsg(RuntimeContext context, long superStep,
-                      WritableComparable<?> vertexId, Writable msg) {
-    mMsgManager.pushMsg(context, superStep, vertexId, msg);
+  /**
+   * 发送消息, 消息先缓存在本 worker 中, 超步结束后由 {@link #receiveFrom(Worker)} 投递
+   */
+  @SuppressWarnings("unchecked")
+  public void sendMsg(long superStep, WritableComparable<?> vertexId, Writable msg)
+      throws IOException {
+    int dest = master.getWorkerIndex(vertexId);
+    SuperStepBuffer outgoing = mOutgoingMsgs[dest];
+    if (outgoing == null) {
+      outgoing = new SuperStepBuffer(superStep, mCombiner, mJob);
+      mOutgoingMsgs[dest] = outgoing;
+    }
+    outgoing.pushMsg(vertexId, msg);
+  }
+
+  /**
+   * 接收 sender 发往本 worker 的消息和点变更。按 worker 顺序依次接收时, 结果与串行执行一致
+   *
+   * @param sender
+   *     发送方 worker, 可以是自己
+   */
+  @SuppressWarnings("unchecked")
+  public void receiveFrom(Worker sender) throws IOException {
+    SuperStepBuffer msgs = sender.mOutgoingMsgs[mWorkerID];
+    if (msgs != null) {
+      sender.mOutgoingMsgs[mWorkerID] = null;
+      mMsgManager.pushMsgs(msgs);
+    }
+    Map<VERTEX_ID, LocalVertexMutations> mutations = sender.mOutgoingMutations[mWorkerID];
+    if (mutations != null) {
+      sender.mOutgoingMutations[mWorkerID] = null;
+      for (Map.Entry<VERTEX_ID, LocalVertexMutations> entry : mutations.entrySet()) {
+        LocalVertexMutations existing = mVertexMutations.get(entry.getKey());
+        if (existing == null) {
+          mVertexMutations.put(entry.getKey(), entry.getValue());
+        } else {
+          existing.addVertexMutations(entry.getValue());
+        }
+      }
+    }
   }
 
   public void close() throws IOException {
@@ -380,50 +447,12 @@ public class Worker<VERTEX_ID extends WritableComparable<?>, VERTEX_VALUE extend
 
   @SuppressWarnings("unchecked")
   public void cleanup() throws IOException {
-    for (Vertex v : vertices.values()) {
-      v.cleanup(mTaskContext);
+    for (int i = 0; i < vertices.size(); i++) {
+      vertices.get(i).cleanup(mTaskContext);
     }
     mWorkerComputer.cleanup(mTaskContext);
   }
 
-  @SuppressWarnings("unchecked")
-  private Iterable<Writable> combineMsg(WritableComparable id,
-                                        Iterable<Writable> msgs) throws IOException {
-    if (mCombiner != null) {
-      Writable combineMsg = null;
-      for (Writable msg : msgs) {
-        if (combineMsg == null) {
-          combineMsg = msg;
-        } else {
-          mCombiner.combine(id, combineMsg, msg);
-        }
-      }
-      ArrayList<Writable> combinedMsgs = new ArrayList<Writable>();
-      if (combineMsg != null) {
-        combinedMsgs.add(combineMsg);
-      }
-      return combinedMsgs;
-    } else {
-      return msgs;
-    }
-  }
-
-  private void prepareMsg() throws IOException {
-    long superStep = master.getSuperStep();
-    LOG.debug("worker super step " + superStep + ", vertices count "
-              + vertices.size());
-    mLastStepMessage.clear();
-    for (Vertex v : vertices.values()) {
-      Iterable<Writable> msgs = mMsgManager
-          .popMsges(mCtx, superStep, v.getId());
-      if (mCombiner != null) {
-        msgs = combineMsg(v.getId(), msgs);
-      }
-      mLastStepMessage.put(v, msgs);
-    }
-
-  }
-
   public void setLastAggregatedValue(List<Writable> lastAggrValues) {
     mLastAggregatorValues = new ArrayList<Writable>(lastAggrValues.size());
     for (int i = 0; i < lastAggrValues.size(); ++i) {
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.graph.local;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aliyun.odps.Odps;
+import com.aliyun.odps.account.AliyunAccount;
+import com.aliyun.odps.data.TableInfo;
+import com.aliyun.odps.examples.graph.PageRank;
+import com.aliyun.odps.examples.graph.SSSP;
+import com.aliyun.odps.examples.graph.TestUtils;
+import com.aliyun.odps.graph.GraphJob;
+import com.aliyun.odps.local.common.Constants;
+import com.aliyun.odps.local.common.WareHouse;
+import com.aliyun.odps.mapred.conf.SessionState;
+
+public class ParallelSuperstepTest {
+
+  private static final String PROJECT = TestUtils.yzy2;
+
+  @Before
+  public void setUp() {
+    // 输入表都在本地 warehouse 中, 不会访问服务端
+    Odps odps = new Odps(new AliyunAccount("access_id", "access_key"));
+    odps.setDefaultProject(PROJECT);
+    odps.setEndpoint("http://localhost");
+    SessionState.get().setOdps(odps);
+    SessionState.get().setLocalRun(true);
+  }
+
+  private static GraphJob createJob(int threadNum, String input, String output)
+      throws IOException {
+    GraphJob job = new GraphJob();
+    job.setNumWorkers(4);
+    job.setInt(Constants.LOCAL_WORKER_NUM, threadNum);
+    job.set(Constants.LOCAL_TEMP_DIR, "target/graph_local_temp");
+    job.addInput(TableInfo.builder().tableName(input).build());
+    job.addOutput(TableInfo.builder().tableName(output).build());
+    return job;
+  }
+
+  private static List<Object[]> run(GraphJob job, String output) throws Exception {
+    WareHouse wareHouse = WareHouse.getInstance();
+    wareHouse.dropTableDataIfExists(PROJECT, output, null);
+    try {
+      job.run();
+      return wareHouse.readData(PROJECT, output, null, null, ',');
+    } finally {
+      wareHouse.dropTableDataIfExists(PROJECT, output, null);
+    }
+  }
+
+  private static List<String> sorted(List<Object[]> records) {
+    // 输出文件的读取顺序与运行无关, 按内容排序后比较
+    List<String> result = new ArrayList<String>();
+    for (Object[] record : records) {
+      result.add(Arrays.toString(record));
+    }
+    Collections.sort(result);
+    return result;
+  }
+
+  private static void assertSameResult(List<Object[]> expected, List<Object[]> actual) {
+    Assert.assertFalse(expected.isEmpty());
+    Assert.assertEquals(sorted(expected), sorted(actual));
+  }
+
+  @Test
+  public void testSSSP() throws Exception {
+    List<List<Object[]>> results = new ArrayList<List<Object[]>>();
+    for (int threadNum : new int[]{1, 4}) {
+      GraphJob job = createJob(threadNum, "sssp_in", "sssp_out");
+      job.setGraphLoaderClass(SSSP.SSSPVertexReader.class);
+      job.setVertexClass(SSSP.SSSPVertex.class);
+      job.setCombinerClass(SSSP.MinLongCombiner.class);
+      job.set(SSSP.START_VERTEX, "1");
+      results.add(run(job, "sssp_out"));
+      // 默认不再逐个点写出每个超步的消息
+      Assert.assertEquals(0, RuntimeContext.getInstance().getSuperStepDir().list().length);
+    }
+    Assert.assertEquals(Arrays.asList("[1, 0]", "[2, 2]", "[3, 1]", "[4, 3]", "[5, 2]"),
+                        sorted(results.get(0)));
+    assertSameResult(results.get(0), results.get(1));
+  }
+
+  @Test
+  public void testPageRank() throws Exception {
+    List<List<Object[]>> results = new ArrayList<List<Object[]>>();
+    for (int threadNum : new int[]{1, 4}) {
+      GraphJob job = createJob(threadNum, "pagerank_in", "pagerank_out");
+      job.setGraphLoaderClass(PageRank.PageRankVertexReader.class);
+      job.setVertexClass(PageRank.PageRankVertex.class);
+      job.setMaxIteration(10);
+      results.add(run(job, "pagerank_out"));
+    }
+    // 消息按 worker 顺序投递, 浮点累加的顺序与串行一致, 结果完全相同
+    assertSameResult(results.get(0), results.get(1));
+  }
+}
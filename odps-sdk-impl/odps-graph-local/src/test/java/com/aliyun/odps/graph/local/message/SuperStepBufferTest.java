@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.graph.local.message;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.aliyun.odps.graph.Combiner;
+import com.aliyun.odps.graph.JobConf;
+import com.aliyun.odps.io.LongWritable;
+import com.aliyun.odps.io.Writable;
+
+public class SuperStepBufferTest {
+
+  private static List<Long> messages(SuperStepBuffer buffer, long vertexId) {
+    List<Long> result = new ArrayList<Long>();
+    for (Writable msg : buffer.popMsges(new LongWritable(vertexId))) {
+      result.add(((LongWritable) msg).get());
+    }
+    return result;
+  }
+
+  @Test
+  public void testCombineOnPush() throws Exception {
+    SuperStepBuffer buffer = new SuperStepBuffer(1, new MinCombiner(), new JobConf());
+    // 发送方复用同一个消息对象
+    LongWritable msg = new LongWritable();
+    for (long v : new long[]{5, 3, 7}) {
+      msg.set(v);
+      buffer.pushMsg(new LongWritable(1), msg);
+      buffer.pushMsg(new LongWritable(2), msg);
+    }
+    Assert.assertEquals(7, msg.get());
+    Assert.assertEquals(3L, (long) messages(buffer, 1).get(0));
+    Assert.assertEquals(1, messages(buffer, 2).size());
+
+    SuperStepBuffer other = new SuperStepBuffer(1, new MinCombiner(), new JobConf());
+    other.pushMsg(new LongWritable(2), new LongWritable(1));
+    other.pushMsg(new LongWritable(3), new LongWritable(9));
+    buffer.pushMsgs(other);
+    Assert.assertEquals(1, messages(buffer, 2).size());
+    Assert.assertEquals(1L, (long) messages(buffer, 2).get(0));
+    Assert.assertEquals(9L, (long) messages(buffer, 3).get(0));
+  }
+
+  @Test
+  public void testNoCombiner() throws Exception {
+    SuperStepBuffer buffer = new SuperStepBuffer(1);
+    SuperStepBuffer other = new SuperStepBuffer(1);
+    buffer.pushMsg(new LongWritable(1), new LongWritable(5));
+    other.pushMsg(new LongWritable(1), new LongWritable(3));
+    other.pushMsg(new LongWritable(1), new LongWritable(4));
+    buffer.pushMsgs(other);
+    Assert.assertEquals("[5, 3, 4]", messages(buffer, 1).toString());
+  }
+
+  public static class MinCombiner extends Combiner<LongWritable, LongWritable> {
+
+    @Override
+    public void combine(LongWritable vertexId, LongWritable combinedMessage,
+                        LongWritable messageToCombine) {
+      if (combinedMessage.get() > messageToCombine.get()) {
+        combinedMessage.set(messageToCombine.get());
+      }
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.graph.local.worker;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.aliyun.odps.graph.ComputeContext;
+import com.aliyun.odps.graph.Vertex;
+import com.aliyun.odps.io.LongWritable;
+import com.aliyun.odps.io.Text;
+import com.aliyun.odps.io.WritableComparable;
+
+public class VertexStoreTest {
+
+  @SuppressWarnings("rawtypes")
+  private static class TestVertex extends Vertex {
+
+    TestVertex(WritableComparable id) {
+      setId(id);
+    }
+
+    @Override
+    public void compute(ComputeContext context, Iterable messages) throws IOException {
+    }
+  }
+
+  private static void check(VertexStore store, Map<Object, Vertex> expected) {
+    Assert.assertEquals(expected.size(), store.size());
+    for (Map.Entry<Object, Vertex> entry : expected.entrySet()) {
+      Assert.assertSame(entry.getValue(), store.get(entry.getKey()));
+    }
+    int halted = 0;
+    for (int i = 0; i < store.size(); i++) {
+      Vertex v = store.get(i);
+      Assert.assertSame(v, expected.get(v.getId()));
+      Assert.assertEquals(v.isHalted(), store.isHalted(i));
+      halted += v.isHalted() ? 1 : 0;
+    }
+    Assert.assertEquals(halted == store.size(), store.allHalted());
+  }
+
+  private static void randomOps(boolean textId) {
+    Random random = new Random(36);
+    VertexStore store = new VertexStore();
+    Map<Object, Vertex> expected = new HashMap<Object, Vertex>();
+    for (int op = 0; op < 20000; op++) {
+      long key = random.nextInt(2000) - 1000;
+      WritableComparable id = textId ? new Text("v" + key) : new LongWritable(key);
+      if (random.nextInt(3) == 0) {
+        store.remove(id);
+        expected.remove(id);
+        Assert.assertEquals(-1, store.indexOf(id));
+      } else {
+        Vertex v = new TestVertex(id);
+        if (random.nextBoolean()) {
+          v.voteToHalt();
+        }
+        store.put(id, v);
+        expected.put(id, v);
+      }
+      if (op % 1000 == 0) {
+        check(store, expected);
+      }
+    }
+    check(store, expected);
+  }
+
+  @Test
+  public void testLongIds() {
+    randomOps(false);
+  }
+
+  @Test
+  public void testTextIds() {
+    randomOps(true);
+  }
+
+  @Test
+  public void testHaltedState() {
+    VertexStore store = new VertexStore();
+    Assert.assertTrue(store.allHalted());
+    Vertex v = new TestVertex(new LongWritable(1));
+    store.put(v.getId(), v);
+    Assert.assertFalse(store.allHalted());
+    v.voteToHalt();
+    // 只有显式更新后才会记录结束状态
+    Assert.assertFalse(store.isHalted(0));
+    store.updateHalted(0);
+    Assert.assertTrue(store.allHalted());
+  }
+}
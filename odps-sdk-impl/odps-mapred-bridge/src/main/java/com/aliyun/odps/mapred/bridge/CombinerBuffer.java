@@ -0,0 +1,281 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.mapred.bridge;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.aliyun.odps.io.BooleanWritable;
+import com.aliyun.odps.io.DataOutputBuffer;
+import com.aliyun.odps.io.DatetimeWritable;
+import com.aliyun.odps.io.DoubleWritable;
+import com.aliyun.odps.io.LongWritable;
+import com.aliyun.odps.io.Text;
+import com.aliyun.odps.io.Writable;
+
+/**
+ * Buffer of map output key/values waiting for the combiner.
+ *
+ * <p>
+ * When the grouping columns are known, keys are grouped by their serialized grouping columns in a
+ * hash table, so each offer costs one serialization and one hash lookup instead of a
+ * comparator-based tree search. Groups are sorted by the key comparator only when the buffer is
+ * drained. With a user-defined key comparator the buffer falls back to a comparator-ordered tree.
+ * </p>
+ *
+ * <p>
+ * The buffer keeps an estimate of the heap used by its keys and values so callers can bound it by
+ * bytes instead of record count.
+ * </p>
+ */
+class CombinerBuffer {
+
+  private static final int SLOT_OVERHEAD = 96;
+  private static final int ARRAY_OVERHEAD = 16;
+  private static final int REFERENCE_SIZE = 8;
+  private static final int WRITABLE_OVERHEAD = 16;
+
+  /**
+   * One key group: a copy of the first key seen and the values buffered for it.
+   */
+  static class Slot {
+
+    final Object[] key;
+    final List<Object[]> values = new ArrayList<Object[]>(1);
+    long bytes;
+
+    Slot(Object[] key) {
+      this.key = key;
+    }
+  }
+
+  /**
+   * Hash table key over serialized grouping columns.
+   */
+  private static final class GroupKey {
+
+    private final byte[] data;
+    private final int length;
+    private final int hash;
+
+    GroupKey(byte[] data, int length) {
+      this.data = data;
+      this.length = length;
+      int h = 1;
+      for (int i = 0; i < length; i++) {
+        h = 31 * h + data[i];
+      }
+      this.hash = h;
+    }
+
+    GroupKey copy() {
+      return new GroupKey(Arrays.copyOf(data, length), length);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof GroupKey)) {
+        return false;
+      }
+      GroupKey other = (GroupKey) obj;
+      if (hash != other.hash || length != other.length) {
+        return false;
+      }
+      for (int i = 0; i < length; i++) {
+        if (data[i] != other.data[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private final Comparator<Object[]> comparator;
+  private final int[] groupColumns;
+  private final Map<Object, Slot> slots;
+  private final DataOutputBuffer keyBuffer = new DataOutputBuffer();
+  private final DataOutputBuffer sizeBuffer = new DataOutputBuffer();
+  private long bytes;
+
+  /**
+   * @param comparator
+   *     key comparator, used to sort groups when the buffer is drained
+   * @param groupColumns
+   *     indexes of the key columns the comparator looks at, or null if unknown (user-defined
+   *     comparator), in which case groups are kept in a tree ordered by the comparator
+   */
+  CombinerBuffer(Comparator<Object[]> comparator, int[] groupColumns) {
+    this.comparator = comparator;
+    this.groupColumns = groupColumns;
+    if (groupColumns != null) {
+      slots = new HashMap<Object, Slot>();
+    } else {
+      slots = new TreeMap<Object, Slot>(new Comparator<Object>() {
+        @Override
+        public int compare(Object o1, Object o2) {
+          return CombinerBuffer.this.comparator.compare((Object[]) o1, (Object[]) o2);
+        }
+      });
+    }
+  }
+
+  /**
+   * Adds a copy of the key/value arrays to the group of the key.
+   *
+   * @return the group the value was added to
+   */
+  Slot offer(Writable[] key, int keyCount, Writable[] value, int valueCount) {
+    Object lookup = groupKey(key);
+    Slot slot = slots.get(lookup);
+    if (slot == null) {
+      slot = new Slot(Arrays.copyOf(key, keyCount, Object[].class));
+      slot.bytes = SLOT_OVERHEAD + estimate(slot.key);
+      bytes += slot.bytes;
+      slots.put(lookup instanceof GroupKey ? ((GroupKey) lookup).copy() : slot.key, slot);
+    }
+    Object[] copy = Arrays.copyOf(value, valueCount, Object[].class);
+    slot.values.add(copy);
+    long valueBytes = estimate(copy);
+    slot.bytes += valueBytes;
+    bytes += valueBytes;
+    return slot;
+  }
+
+  /**
+   * Replaces the buffered values of a group, e.g. with its combined result. A single value is
+   * copied into the existing value array so the group keeps reusing it.
+   */
+  void replaceValues(Slot slot, List<Object[]> values) {
+    long valueBytes = 0;
+    if (values.size() == 1 && !slot.values.isEmpty()
+        && slot.values.get(0).length == values.get(0).length) {
+      Object[] reused = slot.values.get(0);
+      System.arraycopy(values.get(0), 0, reused, 0, reused.length);
+      slot.values.subList(1, slot.values.size()).clear();
+      valueBytes = estimate(reused);
+    } else {
+      slot.values.clear();
+      for (Object[] value : values) {
+        slot.values.add(value);
+        valueBytes += estimate(value);
+      }
+    }
+    long slotBytes = SLOT_OVERHEAD + estimate(slot.key) + valueBytes;
+    bytes += slotBytes - slot.bytes;
+    slot.bytes = slotBytes;
+  }
+
+  /**
+   * @return whether two keys belong to the same group
+   */
+  boolean sameGroup(Object[] l, Object[] r) {
+    return comparator.compare(l, r) == 0;
+  }
+
+  /**
+   * @return groups ordered by the key comparator
+   */
+  List<Slot> sortedSlots() {
+    List<Slot> result = new ArrayList<Slot>(slots.values());
+    if (groupColumns != null) {
+      Collections.sort(result, new Comparator<Slot>() {
+        @Override
+        public int compare(Slot o1, Slot o2) {
+          return comparator.compare(o1.key, o2.key);
+        }
+      });
+    }
+    return result;
+  }
+
+  int size() {
+    return slots.size();
+  }
+
+  long getBytes() {
+    return bytes;
+  }
+
+  void clear() {
+    slots.clear();
+    bytes = 0;
+  }
+
+  private Object groupKey(Writable[] key) {
+    if (groupColumns == null) {
+      return key;
+    }
+    keyBuffer.reset();
+    try {
+      for (int idx : groupColumns) {
+        Writable field = key[idx];
+        if (field == null) {
+          keyBuffer.writeByte(0);
+        } else {
+          keyBuffer.writeByte(1);
+          field.write(keyBuffer);
+        }
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return new GroupKey(keyBuffer.getData(), keyBuffer.getLength());
+  }
+
+  private long estimate(Object[] fields) {
+    long size = ARRAY_OVERHEAD + (long) REFERENCE_SIZE * fields.length;
+    for (Object field : fields) {
+      if (field != null) {
+        size += WRITABLE_OVERHEAD + estimate((Writable) field);
+      }
+    }
+    return size;
+  }
+
+  private long estimate(Writable field) {
+    if (field instanceof Text) {
+      return ARRAY_OVERHEAD + ((Text) field).getLength();
+    } else if (field instanceof LongWritable || field instanceof DoubleWritable
+               || field instanceof DatetimeWritable) {
+      return 8;
+    } else if (field instanceof BooleanWritable) {
+      return 1;
+    }
+    sizeBuffer.reset();
+    try {
+      field.write(sizeBuffer);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return sizeBuffer.getLength();
+  }
+}
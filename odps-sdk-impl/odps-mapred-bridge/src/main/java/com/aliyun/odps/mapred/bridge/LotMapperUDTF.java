@@ -26,9 +26,7 @@ import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map.Entry;
 import java.util.PriorityQueue;
-import java.util.TreeMap;
 
 import com.aliyun.odps.OdpsType;
 import com.aliyun.odps.mapred.bridge.utils.VersionUtils;
@@ -154,7 +152,7 @@ public class LotMapperUDTF extends LotTaskUDTF {
         throw new IOException(ErrorCode.NO_SUCH_LABEL.toString() + " " + label);
       }
       if (innerOutput) {
-        write(createInnerOutputRow(((WritableRecord)r).toWritableArray(), true, TableInfo.INNER_OUTPUT_LABEL, label));
+        write(createInnerOutputRow(((WritableRecord)r).detach(), true, TableInfo.INNER_OUTPUT_LABEL, label));
       } else {
         write(createOutputRow(r, label));
       }
@@ -165,8 +163,8 @@ public class LotMapperUDTF extends LotTaskUDTF {
       if (getNumReduceTasks() == 0) {
         throw new UnsupportedOperationException(ErrorCode.UNEXPECTED_MAP_WRITE_INTER.toString());
       }
-      Writable[] keyArray = ((WritableRecord) key).toWritableArray();
-      Writable[] valueArray = ((WritableRecord) value).toWritableArray();
+      Writable[] keyArray = ((WritableRecord) key).detach();
+      Writable[] valueArray = ((WritableRecord) value).detach();
       Writable[] result;
       int idx = 0;
       if (partitioner != null) {
@@ -255,45 +253,31 @@ public class LotMapperUDTF extends LotTaskUDTF {
 
     class NonGroupingCombineContextImpl extends DirectMapContextImpl implements
                                                          com.aliyun.odps.mapred.Reducer.TaskContext, CombineContext {
-      private class CombinerBuffer extends TreeMap<Object[], List<Object[]>> {
-
-        private static final long serialVersionUID = 1L;
-
-        public CombinerBuffer(Comparator<Object[]> comparator) {
-          super(comparator);
-        }
-
-        public boolean offerKeyValue(Record key, Record value) throws InterruptedException {
-          boolean rt = false;
-          Object[] objKey = Arrays.copyOf(((WritableRecord) key).toWritableArray(), key.getColumnCount());
-          List<Object[]> objValue;
-          if (super.containsKey(objKey)) {
-            objValue = super.get(objKey);
-          } else {
-            objValue = new ArrayList<Object[]>();
-            super.put(objKey, objValue);
-          }
-          rt = objValue.add(Arrays.copyOf(((WritableRecord) value).toWritableArray(), value.getColumnCount()));
-
-          return rt;
-        }
-      }
 
       private Record key;
       private Record value;
-      private Iterator<Entry<Object[], List<Object[]>>> itr;
-      private List<Object[]> curValuelist;
-      
-      private int velocity = 0;
-      private int threshold = 0;
+      private Iterator<CombinerBuffer.Slot> itr;
+      private NonGroupingRecordIterator recordsItr;
+
+      private int bufferItems;
+      private int thresholdItems;
+      private long bufferBytes;
+      private long thresholdBytes;
+      // records offered since the buffer was last combined
       private int size = 0;
+      private boolean incremental;
 
       private CombinerBuffer combinerBuffer;
       private CombinerBuffer backupCombinerBuffer;
-      private NonGroupingRecordIterator recordsItr;
 
-      public NonGroupingCombineContextImpl(BridgeJobConf conf, int velocity, float spillPercent,
-          Comparator<Object[]> keyComparator, ExecutionContext context) {
+      // incremental combine: the group being combined and the values the combiner wrote for it
+      private CombinerBuffer.Slot combiningSlot;
+      private List<Object[]> combinedValues = new ArrayList<Object[]>();
+      private Reducer incrementalCombiner;
+
+      public NonGroupingCombineContextImpl(BridgeJobConf conf, int bufferItems, long bufferBytes,
+          float spillPercent, Comparator<Object[]> keyComparator, int[] groupColumns,
+          ExecutionContext context) {
         super(conf, null, context);
 
         if (pipeMode) {
@@ -304,16 +288,24 @@ public class LotMapperUDTF extends LotTaskUDTF {
           value = new WritableRecord(conf.getMapOutputValueSchema());
         }
 
-        this.velocity = velocity;
-        threshold = (int) (velocity * spillPercent);
-        if (threshold < 0) {
-          threshold = 0;
-        } else if (threshold > velocity) {
-          threshold = velocity;
+        this.bufferItems = bufferItems;
+        thresholdItems = (int) (bufferItems * spillPercent);
+        if (thresholdItems < 0) {
+          thresholdItems = 0;
+        } else if (thresholdItems > bufferItems) {
+          thresholdItems = bufferItems;
+        }
+        this.bufferBytes = bufferBytes;
+        thresholdBytes = (long) (bufferBytes * spillPercent);
+        if (thresholdBytes < 0) {
+          thresholdBytes = 0;
+        } else if (thresholdBytes > bufferBytes) {
+          thresholdBytes = bufferBytes;
         }
+        incremental = conf.getCombinerIncrementalEnable();
 
-        combinerBuffer = new CombinerBuffer(keyComparator);
-        backupCombinerBuffer = new CombinerBuffer(keyComparator);
+        combinerBuffer = new CombinerBuffer(keyComparator, groupColumns);
+        backupCombinerBuffer = new CombinerBuffer(keyComparator, groupColumns);
       }
 
       @Override
@@ -334,10 +326,9 @@ public class LotMapperUDTF extends LotTaskUDTF {
       @Override
       public boolean nextKeyValue() {
         if (itr.hasNext()) {
-          Entry<Object[], List<Object[]>> entry = itr.next();
-          curValuelist = entry.getValue();
-          recordsItr = new NonGroupingRecordIterator(curValuelist, (WritableRecord) value);
-          key.set(Arrays.copyOf(entry.getKey(), key.getColumnCount()));
+          CombinerBuffer.Slot slot = itr.next();
+          recordsItr = new NonGroupingRecordIterator(slot.values, (WritableRecord) value);
+          key.set(Arrays.copyOf(slot.key, key.getColumnCount()));
           return true;
         }
         
@@ -351,27 +342,48 @@ public class LotMapperUDTF extends LotTaskUDTF {
 
       @Override
       public void write(Record key, Record value) {
-        try {
-          backupCombinerBuffer.offerKeyValue(key, value);
-        } catch (InterruptedException e) {
-          // TODO Auto-generated catch block
-          e.printStackTrace();
+        if (combiningSlot != null) {
+          Writable[] keyFields = ((WritableRecord) key).toWritableArray();
+          if (combinerBuffer.sameGroup(keyFields, combiningSlot.key)) {
+            combinedValues.add(Arrays.copyOf(((WritableRecord) value).detach(),
+                                             value.getColumnCount(), Object[].class));
+            return;
+          }
+          // the combiner changed the key, buffer it as a new map output
+          combinerBuffer.offer(((WritableRecord) key).detach(), key.getColumnCount(),
+                               ((WritableRecord) value).detach(), value.getColumnCount());
+          return;
         }
+        backupCombinerBuffer.offer(((WritableRecord) key).detach(), key.getColumnCount(),
+                                   ((WritableRecord) value).detach(),
+                                   value.getColumnCount());
       }
       
       @Override
       public void offerKeyValue(Record key, Record value) throws InterruptedException {
-        combinerBuffer.offerKeyValue(key, value);
-        
-        if (++size >= velocity) {
+        CombinerBuffer.Slot slot = combinerBuffer.offer(
+            ((WritableRecord) key).detach(), key.getColumnCount(),
+            ((WritableRecord) value).detach(), value.getColumnCount());
+        if (incremental && slot.values.size() > 1) {
+          combineIncremental(slot);
+        }
+
+        if (++size >= bufferItems || combinerBuffer.getBytes() >= bufferBytes) {
+          if (incremental) {
+            // groups are already combined, nothing to gain from another pass
+            spill();
+            size = 0;
+            return;
+          }
           combine();
           // after combine, check backupCombinerBuffer's size, whether need to spill
-          if (backupCombinerBuffer.size() >= threshold) {
+          if (backupCombinerBuffer.size() >= thresholdItems
+              || backupCombinerBuffer.getBytes() >= thresholdBytes) {
             spill();
+            size = 0;
           } else {
             // just swap the two buffers
-            CombinerBuffer tmp = null;
-            tmp = combinerBuffer;
+            CombinerBuffer tmp = combinerBuffer;
             combinerBuffer = backupCombinerBuffer;
             backupCombinerBuffer = tmp;
             size = combinerBuffer.size();
@@ -381,21 +393,38 @@ public class LotMapperUDTF extends LotTaskUDTF {
 
       @Override
       public void spill() {
-        if (combinerBuffer.size() > 0) {
+        if (incremental) {
+          // the groups are already combined, emit them as they are, together with the records the
+          // combiner wrote outside of reduce() (e.g. in cleanup)
+          writeDirect(combinerBuffer);
+        } else if (combinerBuffer.size() > 0) {
           combine();
         }
-        for (Entry<Object[], List<Object[]>> it : backupCombinerBuffer.entrySet()) {
-          List<Object[]> objList = it.getValue();
-          ((WritableRecord)key).set(it.getKey());
-          ((WritableRecord)value).set(objList.get(0));
-          ProxiedMapContextImpl.this.writeDirect(key, value);
+        writeDirect(backupCombinerBuffer);
+      }
+
+      private void writeDirect(CombinerBuffer buffer) {
+        for (CombinerBuffer.Slot slot : buffer.sortedSlots()) {
+          ((WritableRecord) key).set(slot.key);
+          for (Object[] v : slot.values) {
+            ((WritableRecord) value).set(v);
+            ProxiedMapContextImpl.this.writeDirect(key, value);
+          }
         }
-        backupCombinerBuffer.clear();
+        buffer.clear();
+      }
+
+      void close() throws IOException {
+        // cleanup may still write records, run it before the final spill
+        if (incrementalCombiner != null) {
+          incrementalCombiner.cleanup(this);
+          incrementalCombiner = null;
+        }
+        spill();
       }
-      
 
       private void combine() {
-        this.itr = combinerBuffer.entrySet().iterator();
+        this.itr = combinerBuffer.sortedSlots().iterator();
 
         try {
           MapReduceUtils.runReducer((Class<Reducer>) this.getCombinerClass(), this);
@@ -403,7 +432,30 @@ public class LotMapperUDTF extends LotTaskUDTF {
           throw new RuntimeException(e);
         } finally {
           combinerBuffer.clear();
-          size = 0;
+        }
+      }
+
+      /**
+       * Combines the values of one group as soon as it has more than one, so the group keeps a
+       * single value slot when the combiner is associative and emits one value per key.
+       */
+      private void combineIncremental(CombinerBuffer.Slot slot) {
+        try {
+          if (incrementalCombiner == null) {
+            incrementalCombiner = ReflectionUtils.newInstance(
+                (Class<Reducer>) this.getCombinerClass(), getJobConf());
+            incrementalCombiner.setup(this);
+          }
+          combiningSlot = slot;
+          key.set(Arrays.copyOf(slot.key, key.getColumnCount()));
+          recordsItr = new NonGroupingRecordIterator(slot.values, (WritableRecord) value);
+          incrementalCombiner.reduce(key, recordsItr, this);
+          combinerBuffer.replaceValues(slot, combinedValues);
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        } finally {
+          combiningSlot = null;
+          combinedValues.clear();
         }
       }
     }
@@ -418,8 +470,8 @@ public class LotMapperUDTF extends LotTaskUDTF {
         }
 
         public boolean offerKeyValue(Record key, Record value) throws InterruptedException {
-          return super.offer(ArrayUtils.addAll(((WritableRecord) key).toWritableArray(),
-                                                     ((WritableRecord) value).toWritableArray()));
+          return super.offer(ArrayUtils.addAll(((WritableRecord) key).detach(),
+                                                     ((WritableRecord) value).detach()));
         }
 
       }
@@ -588,9 +640,18 @@ public class LotMapperUDTF extends LotTaskUDTF {
 
       if (conf.getCombinerOptimizeEnable() && Arrays.deepEquals(keySortColumns, keyGrpColumns)
           && keyComparatorClass == keyGroupingComparatorClass) {
+        // with the column based comparator, keys group by the bytes of their sort columns
+        int[] groupColumns = null;
+        if (keyComparatorClass == null) {
+          groupColumns = new int[keySortColumns.length];
+          List<String> keyNames = Arrays.asList(SchemaUtils.getNames(keyRS));
+          for (int i = 0; i < keySortColumns.length; i++) {
+            groupColumns[i] = keyNames.indexOf(keySortColumns[i]);
+          }
+        }
         combineCtx =
-            new NonGroupingCombineContextImpl(conf, bufferSize, combineBufferSpillPercent,
-                keyComparator, context);
+            new NonGroupingCombineContextImpl(conf, bufferSize, conf.getCombinerCacheBytes(),
+                combineBufferSpillPercent, keyComparator, groupColumns, context);
       } else {
         combineCtx = new GroupingCombineContextImpl(conf, bufferSize, keyComparator, context);
       }
@@ -611,7 +672,11 @@ public class LotMapperUDTF extends LotTaskUDTF {
 
     @Override
     public void close() throws IOException {
-      combineCtx.spill();
+      if (combineCtx instanceof NonGroupingCombineContextImpl) {
+        ((NonGroupingCombineContextImpl) combineCtx).close();
+      } else {
+        combineCtx.spill();
+      }
     }
   }
 
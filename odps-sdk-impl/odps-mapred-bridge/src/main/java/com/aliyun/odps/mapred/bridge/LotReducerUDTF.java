@@ -157,7 +157,7 @@ public class LotReducerUDTF extends LotTaskUDTF {
         throw new IOException(ErrorCode.NO_SUCH_LABEL.toString() + " " + label);
       }
       if (innerOutput) {
-        write(createInnerOutputRow(((WritableRecord)r).toWritableArray(), true, TableInfo.INNER_OUTPUT_LABEL, label));
+        write(createInnerOutputRow(((WritableRecord)r).detach(), true, TableInfo.INNER_OUTPUT_LABEL, label));
       } else {
         write(createOutputRow(r, label));
       }
@@ -210,8 +210,8 @@ public class LotReducerUDTF extends LotTaskUDTF {
             ErrorCode.INTERMEDIATE_OUTPUT_IN_REDUCER.toString());
       }
       // pipeline mode
-      Writable[] keyArray = ((WritableRecord) key).toWritableArray();
-      Writable[] valueArray = ((WritableRecord) value).toWritableArray();
+      Writable[] keyArray = ((WritableRecord) key).detach();
+      Writable[] valueArray = ((WritableRecord) value).detach();
       Writable[] result;
       int idx = 0;
       if (partitioner != null) {
@@ -395,14 +395,18 @@ public abstract class UDTFTaskContextImpl implements TaskContext {
     return true;
   }
 
+  /**
+   * Build the row to forward for an output record. The record gives up its writables, so the
+   * forwarded row is not changed when the record is set again.
+   */
   protected Writable[] createOutputRow(Record r, String label) {
     if (label2offset.size() == 1 && !innerOutput) {
       // not a multi-insert
-      return ((WritableRecord) r).toWritableArray();
+      return ((WritableRecord) r).detach();
     } else {
       // assert validateLabel(label) == true;
       Writable[] row = new Writable[packagedOutputSchema.length];
-      Writable[] output = ((WritableRecord) r).toWritableArray();
+      Writable[] output = ((WritableRecord) r).detach();
       System.arraycopy(output, 0, row, label2offset.get(label), output.length);
       int index = row.length - 1;
       if (innerOutput) {
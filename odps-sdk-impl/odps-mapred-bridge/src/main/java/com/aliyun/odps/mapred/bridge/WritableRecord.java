@@ -23,8 +23,11 @@ import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import com.aliyun.odps.Column;
 import com.aliyun.odps.commons.util.DateUtils;
@@ -61,19 +64,34 @@ import com.aliyun.odps.io.ShortWritable;
 /**
  * 基于数组的{@link Record}实现
  *
+ * <p>
+ * 记录为每列保留一个自己创建的 {@link Writable}, setBigint/setDouble/setString 等方法原地更新该对象, 不再每次
+ * 分配新对象。因此 {@link #toWritableArray()} 返回的对象在下次 set 后可能被修改, 需要长期持有这些对象的调用方应使用
+ * {@link #detach()}。输出记录转发时也通过 detach 交出各列对象, 已转发的行不会被之后的 set 修改。
+ * 通过 {@link #set(int, Object)} 传入的 {@link Writable} 不属于记录, 不会被修改。
+ * </p>
+ *
  * @see Record
  */
 public class WritableRecord implements Record {
 
+  /**
+   * 列名(小写)到下标的索引, 同一个 schema 的记录共享
+   */
+  private static final Map<Column[], Map<String, Integer>> NAME_INDEXES =
+      Collections.synchronizedMap(new WeakHashMap<Column[], Map<String, Integer>>());
+
   private Column[] columns;
   private final Writable[] values;
+  // writables created and owned by this record, updated in place by the setters
+  private final Writable[] slots;
   // for columns access statistics
   private boolean[] accessMarks;
   private boolean enableColumnAccessStat;
 
   private static final String STRING_CHARSET = "UTF-8";
 
-  private HashMap<String, Integer> nameMap = new HashMap<String, Integer>();
+  private final Map<String, Integer> nameMap;
 
   public WritableRecord(Column[] columns) {
 
@@ -84,13 +102,32 @@ public class WritableRecord implements Record {
     this.columns = columns;
 
     values = new Writable[columns.length];
+    slots = new Writable[columns.length];
     accessMarks = new boolean[columns.length];
+    nameMap = getNameIndex(columns);
+  }
 
-    for (int i = 0; i < columns.length; i++) {
-      String colName = (columns[i].getName() == null) ? null : columns[i].getName().toLowerCase();
-      nameMap.put(colName, i);
+  private static Map<String, Integer> getNameIndex(Column[] columns) {
+    // 数组按引用比较, 同一个 schema 数组只建一次索引
+    Map<String, Integer> index = NAME_INDEXES.get(columns);
+    if (index == null) {
+      index = new HashMap<String, Integer>();
+      for (int i = 0; i < columns.length; i++) {
+        String colName = (columns[i].getName() == null) ? null : columns[i].getName().toLowerCase();
+        index.put(colName, i);
+      }
+      index = Collections.unmodifiableMap(index);
+      NAME_INDEXES.put(columns, index);
     }
+    return index;
+  }
 
+  /**
+   * 把记录自己的对象设为列的当前值
+   */
+  private void own(int idx, Writable value) {
+    slots[idx] = value;
+    values[idx] = value;
   }
 
   @Override
@@ -124,22 +161,22 @@ public class WritableRecord implements Record {
         break;
       case BIGINT:
         if (value instanceof Long) {
-          setBigint(idx, (Long) value);
+          setBigint(idx, ((Long) value).longValue());
         } else if (value instanceof Integer) {
-          setBigint(idx, new Long((Integer) value));
+          setBigint(idx, ((Integer) value).longValue());
         } else {
           throw new RuntimeException("Unsupported value type " + value.getClass().getName() +
               " for column type " + columns[idx].getType());
         }
         break;
       case BOOLEAN:
-        setBoolean(idx, (Boolean) value);
+        setBoolean(idx, ((Boolean) value).booleanValue());
         break;
       case DOUBLE:
         if (value instanceof Double) {
-          setDouble(idx, (Double) value);
+          setDouble(idx, ((Double) value).doubleValue());
         } else if (value instanceof Float) {
-          setDouble(idx, new Double((Float) value));
+          setDouble(idx, ((Float) value).doubleValue());
         } else {
           throw new RuntimeException("Unsupported value type " + value.getClass().getName() +
               " for column type " + columns[idx].getType());
@@ -150,9 +187,9 @@ public class WritableRecord implements Record {
         break;
       case DECIMAL:
         if (value instanceof Long) {
-          setDecimal(idx, new BigDecimal( (Long) value));
+          setDecimal(idx, BigDecimal.valueOf((Long) value));
         } else if (value instanceof Integer) {
-          setDecimal(idx, new BigDecimal( (Integer) value));
+          setDecimal(idx, BigDecimal.valueOf((Integer) value));
         } else if (value instanceof Double) {
           setDecimal(idx, new BigDecimal( (Double) value));
         } else if (value instanceof Float) {
@@ -164,16 +201,16 @@ public class WritableRecord implements Record {
         }
         break;
       case TINYINT:
-        setTinyint(idx, (Byte)value);
+        setTinyint(idx, ((Byte) value).byteValue());
         break;
       case SMALLINT:
-        setSmallint(idx, (Short)value);
+        setSmallint(idx, ((Short) value).shortValue());
         break;
       case INT:
-        setInt(idx, (Integer)value);
+        setInt(idx, ((Integer) value).intValue());
         break;
       case FLOAT:
-        setFloat(idx, (Float)value);
+        setFloat(idx, ((Float) value).floatValue());
         break;
       case CHAR:
         setChar(idx, (Char) value);
@@ -266,10 +303,21 @@ public class WritableRecord implements Record {
 
   @Override
   public void setBigint(int idx, Long value) {
-    if (value != null && value == Long.MIN_VALUE) {
+    if (value == null) {
+      values[idx] = null;
+    } else {
+      setBigint(idx, value.longValue());
+    }
+  }
+
+  public void setBigint(int idx, long value) {
+    if (value == Long.MIN_VALUE) {
       throw new IllegalArgumentException("InvalidData: Bigint out of range.");
     }
-    values[idx] = value == null ? null : new LongWritable(value);
+    LongWritable w = slots[idx] instanceof LongWritable ? (LongWritable) slots[idx]
+                                                        : new LongWritable();
+    w.set(value);
+    own(idx, w);
   }
 
   @Override
@@ -295,7 +343,18 @@ public class WritableRecord implements Record {
 
   @Override
   public void setDouble(int idx, Double value) {
-    values[idx] = value == null ? null : new DoubleWritable(value);
+    if (value == null) {
+      values[idx] = null;
+    } else {
+      setDouble(idx, value.doubleValue());
+    }
+  }
+
+  public void setDouble(int idx, double value) {
+    DoubleWritable w = slots[idx] instanceof DoubleWritable ? (DoubleWritable) slots[idx]
+                                                            : new DoubleWritable();
+    w.set(value);
+    own(idx, w);
   }
 
   @Override
@@ -321,7 +380,18 @@ public class WritableRecord implements Record {
 
   @Override
   public void setBoolean(int idx, Boolean value) {
-    values[idx] = value == null ? null : new BooleanWritable(value);
+    if (value == null) {
+      values[idx] = null;
+    } else {
+      setBoolean(idx, value.booleanValue());
+    }
+  }
+
+  public void setBoolean(int idx, boolean value) {
+    BooleanWritable w = slots[idx] instanceof BooleanWritable ? (BooleanWritable) slots[idx]
+                                                              : new BooleanWritable();
+    w.set(value);
+    own(idx, w);
   }
 
   @Override
@@ -347,7 +417,14 @@ public class WritableRecord implements Record {
 
   @Override
   public void setDatetime(int idx, Date value) {
-    values[idx] = value == null ? null : new DatetimeWritable(value.getTime());
+    if (value == null) {
+      values[idx] = null;
+      return;
+    }
+    DatetimeWritable w = slots[idx] instanceof DatetimeWritable ? (DatetimeWritable) slots[idx]
+                                                                : new DatetimeWritable();
+    w.set(value.getTime());
+    own(idx, w);
   }
 
   @Override
@@ -403,7 +480,13 @@ public class WritableRecord implements Record {
 
   @Override
   public void setString(int idx, byte[] value) {
-    values[idx] = value == null ? null : new Text(value);
+    if (value == null) {
+      values[idx] = null;
+      return;
+    }
+    Text w = slots[idx] instanceof Text ? (Text) slots[idx] : new Text();
+    w.set(value);
+    own(idx, w);
   }
 
   @Override
@@ -456,6 +539,20 @@ public class WritableRecord implements Record {
     return values;
   }
 
+  /**
+   * 与 {@link #toWritableArray()} 相同, 但记录放弃对当前各列对象的所有权, 之后的 set 会重新创建对象。
+   *
+   * <p>
+   * 需要在记录被再次修改后继续持有这些对象时(例如缓存 combiner 的输入)使用。返回的数组本身仍属于记录, 调用方需要自行拷贝。
+   * </p>
+   *
+   * @return 各列的值
+   */
+  public Writable[] detach() {
+    Arrays.fill(slots, null);
+    return toWritableArray();
+  }
+
   private int getColumnIndex(String name) {
     Integer idx = nameMap.get(name.toLowerCase());
     if (idx == null) {
@@ -551,7 +648,14 @@ public class WritableRecord implements Record {
   }
 
   public void setDate(int idx, java.sql.Date value) {
-    values[idx] = value == null ? null : new DateWritable(value.getTime());
+    if (value == null) {
+      values[idx] = null;
+      return;
+    }
+    DateWritable w = slots[idx] instanceof DateWritable ? (DateWritable) slots[idx]
+                                                        : new DateWritable();
+    w.set(value.getTime());
+    own(idx, w);
   }
 
   public java.sql.Date getDate(int idx) {
@@ -568,7 +672,16 @@ public class WritableRecord implements Record {
   }
 
   public void setTimestamp(int idx, Timestamp value) {
-    values[idx] = value == null ? null : new TimestampWritable(value.getTime());
+    if (value == null) {
+      values[idx] = null;
+      return;
+    }
+    TimestampWritable w = slots[idx] instanceof TimestampWritable ? (TimestampWritable) slots[idx]
+                                                                  : new TimestampWritable();
+    // 与 TimestampWritable(long) 的换算保持一致
+    long time = value.getTime();
+    w.set(time / 1000, (int) (time % 1000) * 1000000);
+    own(idx, w);
   }
 
   public Timestamp getTimestamp(int idx) {
@@ -585,7 +698,17 @@ public class WritableRecord implements Record {
   }
 
   public void setFloat(int idx, Float value) {
-    values[idx] = value == null ? null : new FloatWritable(value);
+    if (value == null) {
+      values[idx] = null;
+    } else {
+      setFloat(idx, value.floatValue());
+    }
+  }
+
+  public void setFloat(int idx, float value) {
+    FloatWritable w = slots[idx] instanceof FloatWritable ? (FloatWritable) slots[idx] : new FloatWritable();
+    w.set(value);
+    own(idx, w);
   }
 
   public void setFloat(String columnName, Float value) {
@@ -602,7 +725,17 @@ public class WritableRecord implements Record {
   }
 
   public void setInt(int idx, Integer value) {
-    values[idx] = value == null ? null : new IntWritable(value);
+    if (value == null) {
+      values[idx] = null;
+    } else {
+      setInt(idx, value.intValue());
+    }
+  }
+
+  public void setInt(int idx, int value) {
+    IntWritable w = slots[idx] instanceof IntWritable ? (IntWritable) slots[idx] : new IntWritable();
+    w.set(value);
+    own(idx, w);
   }
 
   public void setInt(String columnName, Integer value) {
@@ -619,7 +752,17 @@ public class WritableRecord implements Record {
   }
 
   public void setTinyint(int idx, Byte value) {
-    values[idx] = value == null ? null : new ByteWritable(value);
+    if (value == null) {
+      values[idx] = null;
+    } else {
+      setTinyint(idx, value.byteValue());
+    }
+  }
+
+  public void setTinyint(int idx, byte value) {
+    ByteWritable w = slots[idx] instanceof ByteWritable ? (ByteWritable) slots[idx] : new ByteWritable();
+    w.set(value);
+    own(idx, w);
   }
 
   public void setTinyint(String columnName, Byte value) {
@@ -636,7 +779,17 @@ public class WritableRecord implements Record {
   }
 
   public void setSmallint(int idx, Short value) {
-    values[idx] = value == null ? null : new ShortWritable(value);
+    if (value == null) {
+      values[idx] = null;
+    } else {
+      setSmallint(idx, value.shortValue());
+    }
+  }
+
+  public void setSmallint(int idx, short value) {
+    ShortWritable w = slots[idx] instanceof ShortWritable ? (ShortWritable) slots[idx] : new ShortWritable();
+    w.set(value);
+    own(idx, w);
   }
 
   public void setSmallint(String columnName, Short value) {
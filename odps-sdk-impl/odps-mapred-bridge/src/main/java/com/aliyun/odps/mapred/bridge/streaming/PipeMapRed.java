@@ -29,8 +29,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
@@ -41,6 +43,8 @@ import com.aliyun.odps.Column;
 import com.aliyun.odps.OdpsType;
 import com.aliyun.odps.conf.Configuration;
 import com.aliyun.odps.data.Record;
+import com.aliyun.odps.io.DataInputBuffer;
+import com.aliyun.odps.io.DataOutputBuffer;
 import com.aliyun.odps.io.Text;
 import com.aliyun.odps.mapred.Mapper;
 import com.aliyun.odps.mapred.Reducer;
@@ -51,6 +55,9 @@ import com.aliyun.odps.mapred.bridge.streaming.io.OutputReader;
 import com.aliyun.odps.mapred.bridge.streaming.io.RecordOutputReader;
 import com.aliyun.odps.mapred.bridge.streaming.io.TextInputWriter;
 import com.aliyun.odps.mapred.bridge.streaming.io.TextOutputReader;
+import com.aliyun.odps.mapred.bridge.streaming.io.TypedBytesInput;
+import com.aliyun.odps.mapred.bridge.streaming.io.TypedBytesOutput;
+import com.aliyun.odps.mapred.bridge.streaming.io.TypedBytesOutputReader;
 import com.aliyun.odps.mapred.conf.BridgeJobConf;
 import com.aliyun.odps.mapred.conf.JobConf;
 import com.aliyun.odps.utils.ReflectionUtils;
@@ -236,12 +243,14 @@ public abstract class PipeMapRed {
       // Start the process
       sim = StreamSecurityHelper.startChildProcess(argvSplit, envMap);
 
+      // the buffers are only flushed when full, so a larger size means fewer pipe writes
+      int bufferSize = job_.getInt("stream.pipe.buffer.size", BUFFER_SIZE);
       clientOut_ = new DataOutputStream(new BufferedOutputStream(
           sim.getOutputStream(),
-          BUFFER_SIZE));
+          bufferSize));
       clientIn_ = new DataInputStream(new BufferedInputStream(
           sim.getInputStream(),
-          BUFFER_SIZE));
+          bufferSize));
       clientErr_ = new DataInputStream(new BufferedInputStream(sim.getErrorStream()));
       startTime_ = System.currentTimeMillis();
 
@@ -385,6 +394,108 @@ public abstract class PipeMapRed {
     return outputReader;
   }
 
+  /**
+   * Fill typed bytes output into table output record, the columns are the
+   * key followed by the value, a VECTOR or LIST contributes all its elements.
+   * Type convertion rule:
+   * STRING: Text or byte[] as is, others by toString
+   * BIGINT,DOUBLE: numbers converted, strings parsed, bad as NULL
+   * BOOLEAN: boolean, strings parsed
+   * DATETIME: LONG as milliseconds
+   */
+  void fillTypedOutputRecord(Record record, Object key, Object value, boolean ignoreBadCast) {
+    List<Object> fields = new ArrayList<Object>(record.getColumnCount());
+    addTypedFields(fields, key);
+    addTypedFields(fields, value);
+    if (fields.size() != record.getColumnCount()) {
+      throw new RuntimeException(
+          "streaming output has " + fields.size() + " fields but output schema has "
+          + record.getColumnCount());
+    }
+
+    Column[] columns = record.getColumns();
+    for (int i = 0; i < columns.length; i++) {
+      Column col = columns[i];
+      Object field = fields.get(i);
+      Object val = null;
+      try {
+        val = toColumnValue(col, field);
+      } catch (RuntimeException e) {
+        if (!ignoreBadCast) {
+          throw new RuntimeException(
+              "Invalid streaming field value for " + col.getType() + " column " + col.getName()
+              + ":" + field, e);
+        }
+      }
+      record.set(i, val);
+    }
+  }
+
+  private void addTypedFields(List<Object> fields, Object obj) {
+    if (obj instanceof List) {
+      fields.addAll((List<?>) obj);
+    } else {
+      fields.add(obj);
+    }
+  }
+
+  private Object toColumnValue(Column col, Object field) {
+    if (field == null) {
+      return null;
+    }
+    switch (col.getType()) {
+      case STRING:
+        if (field instanceof Text || field instanceof byte[]) {
+          return field;
+        }
+        return field.toString();
+      case BIGINT:
+        if (field instanceof Number) {
+          return ((Number) field).longValue();
+        }
+        return Long.valueOf(field.toString());
+      case DOUBLE:
+        if (field instanceof Number) {
+          return ((Number) field).doubleValue();
+        }
+        return Double.valueOf(field.toString());
+      case BOOLEAN:
+        if (field instanceof Boolean) {
+          return field;
+        }
+        return Boolean.valueOf(field.toString());
+      case DATETIME:
+        if (field instanceof Number) {
+          return new Date(((Number) field).longValue());
+        }
+        throw new IllegalArgumentException("datetime should be written as milliseconds");
+      default:
+        throw new RuntimeException(
+            "output column " + col.getName() + "'s type " + col.getType()
+            + " not supported by streaming job");
+    }
+  }
+
+  /**
+   * Whether the map output is shuffled as raw typed bytes, see
+   * {@link MROutputThread#toTypedBytes(Object)}.
+   */
+  boolean isTypedBytesShuffle() {
+    return TypedBytesOutputReader.class.isAssignableFrom(mapOutputReaderClass_);
+  }
+
+  /**
+   * Decodes a typed bytes object shuffled by the map side.
+   */
+  Object fromTypedBytes(byte[] bytes) throws IOException {
+    if (shuffleIn_ == null) {
+      shuffleIn_ = new DataInputBuffer();
+      shuffleTypedIn_ = new TypedBytesInput(shuffleIn_);
+    }
+    shuffleIn_.reset(bytes, bytes.length);
+    return shuffleTypedIn_.read();
+  }
+
   class MROutputThread extends Thread {
 
     MROutputThread(OutputReader outReader, TaskContext context) {
@@ -405,7 +516,9 @@ public abstract class PipeMapRed {
           Object key = outReader.getCurrentKey();
           Object value = outReader.getCurrentValue();
           // XXX dummy read and discard, as explained in waitOutputThreads()
-          if (context == null || key == null) {
+          // typed bytes output may have a NULL key
+          if (context == null
+              || (key == null && !(outReader instanceof TypedBytesOutputReader))) {
             continue;
           }
           if ((!context.getTaskID().isMap()) || context.getNumReduceTasks() == 0) {
@@ -416,6 +529,8 @@ public abstract class PipeMapRed {
             if (outReader instanceof RecordOutputReader) {
               Text[] fields = (Text[]) value;
               fillOutputRecord(record, fields, ignoreBadCast);
+            } else if (outReader instanceof TypedBytesOutputReader) {
+              fillTypedOutputRecord(record, key, value, ignoreBadCast);
             } else {
               record.setString(0, key.toString());
               record.setString(1, value.toString());
@@ -425,12 +540,20 @@ public abstract class PipeMapRed {
             } else {
               ((Reducer.TaskContext) context).write(record);
             }
+          } else if (outReader instanceof TypedBytesOutputReader) {
+            // keep the typed bytes encoding through the shuffle, as Hadoop does with
+            // TypedBytesWritable, so typed keys are neither stringified nor lost
+            Record keyRecord = context.createMapOutputKeyRecord();
+            keyRecord.setString(0, toTypedBytes(key));
+            Record valueRecord = context.createMapOutputValueRecord();
+            valueRecord.setString(0, toTypedBytes(value));
+            ((Mapper.TaskContext) context).write(keyRecord, valueRecord);
           } else {
             // FIXME shuffle key-value both just single Text field now.
             Record keyRecord = context.createMapOutputKeyRecord();
-            keyRecord.setString(0, key.toString());
+            keyRecord.setString(0, key == null ? null : key.toString());
             Record valueRecord = context.createMapOutputValueRecord();
-            valueRecord.setString(0, value.toString());
+            valueRecord.setString(0, value == null ? null : value.toString());
             ((Mapper.TaskContext) context).write(keyRecord, valueRecord);
           }
           numRecWritten_++;
@@ -523,6 +646,22 @@ public abstract class PipeMapRed {
       }
     }
 
+    /**
+     * Encodes a typed bytes object for the single string shuffle column. Keys
+     * are sorted and grouped by these raw bytes.
+     */
+    private byte[] toTypedBytes(Object obj) throws IOException {
+      if (shuffleBuffer == null) {
+        shuffleBuffer = new DataOutputBuffer();
+        shuffleOut = new TypedBytesOutput(shuffleBuffer);
+      }
+      shuffleBuffer.reset();
+      shuffleOut.write(obj);
+      return Arrays.copyOf(shuffleBuffer.getData(), shuffleBuffer.getLength());
+    }
+
+    private DataOutputBuffer shuffleBuffer;
+    private TypedBytesOutput shuffleOut;
     OutputReader outReader = null;
     TaskContext context = null;
     long lastStdoutReport = 0;
@@ -729,6 +868,9 @@ public abstract class PipeMapRed {
   DataOutputStream clientOut_;
   DataInputStream clientErr_;
   DataInputStream clientIn_;
+  // decodes typed bytes shuffled by the map side
+  DataInputBuffer shuffleIn_;
+  TypedBytesInput shuffleTypedIn_;
 
   // set in PipeMapper/PipeReducer subclasses
   int numExceptions_;
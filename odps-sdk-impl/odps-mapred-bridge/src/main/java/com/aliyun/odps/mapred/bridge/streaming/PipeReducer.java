@@ -29,6 +29,7 @@ import com.aliyun.odps.data.Record;
 import com.aliyun.odps.mapred.Reducer;
 import com.aliyun.odps.mapred.bridge.streaming.io.InputWriter;
 import com.aliyun.odps.mapred.bridge.streaming.io.OutputReader;
+import com.aliyun.odps.mapred.bridge.streaming.io.TypedBytesInputWriter;
 import com.aliyun.odps.mapred.conf.JobConf;
 
 /**
@@ -41,6 +42,8 @@ public class PipeReducer extends PipeMapRed implements Reducer {
   private byte[] reduceInputFieldSeparator;
   private int numOfReduceOutputKeyFields = 1;
   private boolean skipping = false;
+  // map output is shuffled as raw typed bytes
+  private boolean typedBytesShuffle;
 
   @Override
   String getPipeCommand(JobConf job) {
@@ -79,6 +82,7 @@ public class PipeReducer extends PipeMapRed implements Reducer {
           unescapeSeparator(job_.get("stream.reduce.input.field.separator", "\t"))
               .getBytes("UTF-8");
       this.numOfReduceOutputKeyFields = job_.getInt("stream.num.reduce.output.key.fields", 1);
+      typedBytesShuffle = isTypedBytesShuffle();
     } catch (UnsupportedEncodingException e) {
       throw new RuntimeException("The current system does not support UTF-8 encoding!", e);
     }
@@ -112,9 +116,24 @@ public class PipeReducer extends PipeMapRed implements Reducer {
             throw new IOException("MROutput/MRErrThread failed:",
                                   outerrThreadsThrowable);
           }
-          // FIXME shuffle key-value both just single Text field now.
-          inWriter_.writeKey(key.get(0));
-          inWriter_.writeValue(val.get(0));
+          if (typedBytesShuffle && inWriter_ instanceof TypedBytesInputWriter) {
+            // pass the shuffled typed bytes through unchanged
+            ((TypedBytesInputWriter) inWriter_).writeRaw(key.getBytes(0));
+            ((TypedBytesInputWriter) inWriter_).writeRaw(val.getBytes(0));
+          } else if (typedBytesShuffle) {
+            inWriter_.writeKey(fromTypedBytes(key.getBytes(0)));
+            inWriter_.writeValue(fromTypedBytes(val.getBytes(0)));
+          } else {
+            // FIXME shuffle key-value both just single Text field now.
+            inWriter_.writeKey(key.get(0));
+            inWriter_.writeValue(val.get(0));
+          }
+        } else if (typedBytesShuffle) {
+          // "identity reduce" of typed bytes, decode and fill the columns
+          Record record = context.createOutputRecord();
+          fillTypedOutputRecord(record, fromTypedBytes(key.getBytes(0)),
+                                fromTypedBytes(val.getBytes(0)), false);
+          context.write(record);
         } else {
           // "identity reduce"
           // FIXME field split & type convert
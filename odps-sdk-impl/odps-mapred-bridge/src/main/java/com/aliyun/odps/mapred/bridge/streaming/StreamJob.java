@@ -56,6 +56,7 @@ import com.aliyun.odps.mapred.JobClient;
 import com.aliyun.odps.mapred.RunningJob;
 import com.aliyun.odps.mapred.bridge.MetaExplorer;
 import com.aliyun.odps.mapred.bridge.MetaExplorerImpl;
+import com.aliyun.odps.mapred.bridge.streaming.io.IdentifierResolver;
 import com.aliyun.odps.mapred.bridge.streaming.io.InputWriter;
 import com.aliyun.odps.mapred.bridge.streaming.io.OutputReader;
 import com.aliyun.odps.mapred.bridge.streaming.io.RecordInputWriter;
@@ -75,6 +76,7 @@ public class StreamJob {
 
   protected static final Log LOG = LogFactory.getLog(StreamJob.class.getName());
   final static String REDUCE_NONE = "NONE";
+  final static int TYPED_BYTES_BUFFER_SIZE = 1024 * 1024;
 
   /**
    * -----------Streaming CLI Implementation  *
@@ -499,6 +501,8 @@ public class StreamJob {
     System.out.println("  -cmdenv         <n>=<v> Optional. Pass env.var to"
                        + " streaming commands.");
     System.out.println("  -lazyOutput     Optional. Lazily create Output.");
+    System.out.println("  -io             <text|typedbytes> Optional. Format of the data"
+                       + " piped to and from the commands.");
     System.out
         .println("  -background     Optional. Submit the job and don't wait till it completes.");
     System.out.println("  -verbose        Optional. Print verbose output.");
@@ -526,6 +530,11 @@ public class StreamJob {
                        "input order are preserved.");
     System.out.println("  This is equivalent to -reducer NONE");
     System.out.println();
+    System.out.println("To pipe typed binary data instead of text lines:");
+    System.out.println("  Use -io typedbytes");
+    System.out.println("  Map input records are written as vectors of the columns, the commands");
+    System.out.println("  write a key followed by a value, which are flattened into output columns");
+    System.out.println();
     System.out.println("To treat tasks with non-zero exit status as SUCCEDED:");
     System.out.println("  -D stream.non.zero.exit.is.failure=false");
     System.out.println("To set an environement variable in a streaming " +
@@ -763,6 +772,27 @@ public class StreamJob {
       boolean hasKey = jobConf_.getInt("stream.num.map.output.key.fields", 0) > 0;
       mapOutputReaderClass = hasKey ? TextOutputReader.class : RecordOutputReader.class;
     }
+    if (ioSpec_ != null && ioSpec_.equalsIgnoreCase(IdentifierResolver.TYPED_BYTES_ID)) {
+      // binary protocol in both directions instead of tab separated lines
+      if (jobConf_.getNumReduceTasks() > 0
+          && (mapOutputKeySchema.length != 1
+              || mapOutputKeySchema[0].getType() != OdpsType.STRING)) {
+        // typed keys are shuffled as their raw encoding in one string column
+        throw new IllegalArgumentException(
+            "multiple-fields or numeric map output key not supported with -io typedbytes");
+      }
+      IdentifierResolver idResolver = new IdentifierResolver();
+      idResolver.resolve(ioSpec_);
+      jobConf_.setClass("stream.map.input.writer.class", idResolver.getInputWriterClass(),
+                        InputWriter.class);
+      jobConf_.setClass("stream.reduce.input.writer.class", idResolver.getInputWriterClass(),
+                        InputWriter.class);
+      mapOutputReaderClass = idResolver.getOutputReaderClass();
+      reduceOutputReaderClass = idResolver.getOutputReaderClass();
+      if (jobConf_.get("stream.pipe.buffer.size") == null) {
+        jobConf_.setInt("stream.pipe.buffer.size", TYPED_BYTES_BUFFER_SIZE);
+      }
+    }
     jobConf_.setClass("stream.map.output.reader.class", mapOutputReaderClass, OutputReader.class);
     jobConf_
         .setClass("stream.reduce.output.reader.class", reduceOutputReaderClass, OutputReader.class);
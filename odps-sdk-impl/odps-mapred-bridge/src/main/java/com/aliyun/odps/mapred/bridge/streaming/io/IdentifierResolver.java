@@ -50,17 +50,18 @@ public class IdentifierResolver {
     //  setOutputReaderClass(RawBytesOutputReader.class);
     //  setOutputKeyClass(BytesWritable.class);
     //  setOutputValueClass(BytesWritable.class);
-    //} else if (identifier.equalsIgnoreCase(TYPED_BYTES_ID)) {
-    //  setInputWriterClass(TypedBytesInputWriter.class);
-    //  setOutputReaderClass(TypedBytesOutputReader.class);
-    //  setOutputKeyClass(TypedBytesWritable.class);
-    //  setOutputValueClass(TypedBytesWritable.class);
-    //} else { // assume TEXT_ID
-    setInputWriterClass(TextInputWriter.class);
-    setOutputReaderClass(TextOutputReader.class);
-    setOutputKeyClass(Text.class);
-    setOutputValueClass(Text.class);
-    //}
+    //} else
+    if (identifier.equalsIgnoreCase(TYPED_BYTES_ID)) {
+      setInputWriterClass(TypedBytesInputWriter.class);
+      setOutputReaderClass(TypedBytesOutputReader.class);
+      setOutputKeyClass(Object.class);
+      setOutputValueClass(Object.class);
+    } else { // assume TEXT_ID
+      setInputWriterClass(TextInputWriter.class);
+      setOutputReaderClass(TextOutputReader.class);
+      setOutputKeyClass(Text.class);
+      setOutputValueClass(Text.class);
+    }
   }
 
   /**
@@ -0,0 +1,51 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aliyun.odps.mapred.bridge.streaming.io;
+
+/**
+ * Type codes of the typed bytes protocol, compatible with Hadoop streaming's
+ * typedbytes. Every object is written as a one byte type code followed by
+ * its big-endian encoding; bytes, strings and vectors are prefixed with an
+ * int length, lists are terminated by {@link #MARKER}.
+ */
+public final class TypedBytes {
+
+  public static final int BYTES = 0;
+  public static final int BYTE = 1;
+  public static final int BOOL = 2;
+  public static final int INT = 3;
+  public static final int LONG = 4;
+  public static final int FLOAT = 5;
+  public static final int DOUBLE = 6;
+  public static final int STRING = 7;
+  public static final int VECTOR = 8;
+  public static final int LIST = 9;
+  public static final int MAP = 10;
+
+  /**
+   * NULL of table columns, taken from the application specific codes (50-200).
+   */
+  public static final int NULL = 50;
+
+  public static final int MARKER = 255;
+
+  private TypedBytes() {
+  }
+
+}
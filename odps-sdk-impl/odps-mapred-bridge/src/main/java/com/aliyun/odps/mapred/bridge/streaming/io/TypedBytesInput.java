@@ -0,0 +1,136 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aliyun.odps.mapred.bridge.streaming.io;
+
+import java.io.DataInput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.aliyun.odps.io.Text;
+
+/**
+ * Reads objects in the typed bytes format, see {@link TypedBytes}.
+ *
+ * STRING is read as {@link Text} without decoding, BYTES as byte[], VECTOR
+ * and LIST as {@link List}, MAP as {@link Map} and NULL as null.
+ */
+public class TypedBytesInput {
+
+  private final DataInput in;
+
+  public TypedBytesInput(DataInput in) {
+    this.in = in;
+  }
+
+  /**
+   * Reads the type code of the next object.
+   *
+   * @return the type code, or -1 at the end of input
+   */
+  public int readType() throws IOException {
+    try {
+      return in.readUnsignedByte();
+    } catch (EOFException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Reads the next object.
+   *
+   * @throws EOFException at the end of input
+   */
+  public Object read() throws IOException {
+    int code = readType();
+    if (code == -1) {
+      throw new EOFException();
+    }
+    return read(code);
+  }
+
+  /**
+   * Reads the object following the given type code.
+   */
+  public Object read(int code) throws IOException {
+    switch (code) {
+      case TypedBytes.NULL:
+        return null;
+      case TypedBytes.STRING: {
+        Text text = new Text();
+        text.set(readBytes());
+        return text;
+      }
+      case TypedBytes.LONG:
+        return in.readLong();
+      case TypedBytes.DOUBLE:
+        return in.readDouble();
+      case TypedBytes.BOOL:
+        return in.readBoolean();
+      case TypedBytes.INT:
+        return in.readInt();
+      case TypedBytes.BYTE:
+        return in.readByte();
+      case TypedBytes.FLOAT:
+        return in.readFloat();
+      case TypedBytes.BYTES:
+        return readBytes();
+      case TypedBytes.VECTOR: {
+        int size = in.readInt();
+        List<Object> list = new ArrayList<Object>(size);
+        for (int i = 0; i < size; i++) {
+          list.add(read());
+        }
+        return list;
+      }
+      case TypedBytes.LIST: {
+        List<Object> list = new ArrayList<Object>();
+        for (int c = in.readUnsignedByte(); c != TypedBytes.MARKER; c = in.readUnsignedByte()) {
+          list.add(read(c));
+        }
+        return list;
+      }
+      case TypedBytes.MAP: {
+        int size = in.readInt();
+        Map<Object, Object> map = new LinkedHashMap<Object, Object>();
+        for (int i = 0; i < size; i++) {
+          Object key = read();
+          map.put(key, read());
+        }
+        return map;
+      }
+      default:
+        throw new IOException("Unknown typed bytes type code " + code);
+    }
+  }
+
+  private byte[] readBytes() throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      throw new IOException("Invalid typed bytes length " + length);
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return bytes;
+  }
+
+}
@@ -0,0 +1,71 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aliyun.odps.mapred.bridge.streaming.io;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+import com.aliyun.odps.io.DataOutputBuffer;
+import com.aliyun.odps.mapred.bridge.streaming.PipeMapRed;
+
+/**
+ * InputWriter that writes the client's input as typed bytes. A table record
+ * is written as one VECTOR, reduce input as a key object followed by a value
+ * object. Every key or value is encoded into a local buffer first, so that
+ * the pipe sees a single write per object.
+ */
+public class TypedBytesInputWriter extends InputWriter<Object, Object> {
+
+  private DataOutput clientOut;
+  private DataOutputBuffer buffer;
+  private TypedBytesOutput typedOut;
+
+  @Override
+  public void initialize(PipeMapRed pipeMapRed) throws IOException {
+    super.initialize(pipeMapRed);
+    clientOut = pipeMapRed.getClientOutput();
+    buffer = new DataOutputBuffer();
+    typedOut = new TypedBytesOutput(buffer);
+  }
+
+  @Override
+  public void writeKey(Object key) throws IOException {
+    write(key);
+  }
+
+  @Override
+  public void writeValue(Object value) throws IOException {
+    write(value);
+  }
+
+  /**
+   * Writes an object that is already encoded as typed bytes, e.g. a key or
+   * value shuffled by the map side, without decoding it.
+   */
+  public void writeRaw(byte[] bytes) throws IOException {
+    clientOut.write(bytes, 0, bytes.length);
+  }
+
+  private void write(Object obj) throws IOException {
+    buffer.reset();
+    typedOut.write(obj);
+    clientOut.write(buffer.getData(), 0, buffer.getLength());
+  }
+
+}
@@ -0,0 +1,137 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aliyun.odps.mapred.bridge.streaming.io;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import com.aliyun.odps.Column;
+import com.aliyun.odps.OdpsType;
+import com.aliyun.odps.data.Record;
+import com.aliyun.odps.io.BytesWritable;
+import com.aliyun.odps.io.Text;
+
+/**
+ * Writes objects in the typed bytes format, see {@link TypedBytes}.
+ *
+ * Datetime values are written as LONG milliseconds, decimals as STRING and
+ * table records as a VECTOR of their columns.
+ */
+public class TypedBytesOutput {
+
+  private final DataOutput out;
+
+  public TypedBytesOutput(DataOutput out) {
+    this.out = out;
+  }
+
+  public void write(Object obj) throws IOException {
+    if (obj == null) {
+      out.write(TypedBytes.NULL);
+    } else if (obj instanceof Text) {
+      Text text = (Text) obj;
+      writeBytes(TypedBytes.STRING, text.getBytes(), text.getLength());
+    } else if (obj instanceof String) {
+      byte[] bytes = ((String) obj).getBytes(StandardCharsets.UTF_8);
+      writeBytes(TypedBytes.STRING, bytes, bytes.length);
+    } else if (obj instanceof Long) {
+      out.write(TypedBytes.LONG);
+      out.writeLong((Long) obj);
+    } else if (obj instanceof Double) {
+      out.write(TypedBytes.DOUBLE);
+      out.writeDouble((Double) obj);
+    } else if (obj instanceof Boolean) {
+      out.write(TypedBytes.BOOL);
+      out.writeBoolean((Boolean) obj);
+    } else if (obj instanceof Integer || obj instanceof Short) {
+      out.write(TypedBytes.INT);
+      out.writeInt(((Number) obj).intValue());
+    } else if (obj instanceof Byte) {
+      out.write(TypedBytes.BYTE);
+      out.writeByte((Byte) obj);
+    } else if (obj instanceof Float) {
+      out.write(TypedBytes.FLOAT);
+      out.writeFloat((Float) obj);
+    } else if (obj instanceof Date) {
+      out.write(TypedBytes.LONG);
+      out.writeLong(((Date) obj).getTime());
+    } else if (obj instanceof BigDecimal) {
+      write(((BigDecimal) obj).toPlainString());
+    } else if (obj instanceof byte[]) {
+      byte[] bytes = (byte[]) obj;
+      writeBytes(TypedBytes.BYTES, bytes, bytes.length);
+    } else if (obj instanceof BytesWritable) {
+      BytesWritable bytes = (BytesWritable) obj;
+      writeBytes(TypedBytes.BYTES, bytes.getBytes(), bytes.getLength());
+    } else if (obj instanceof Record) {
+      writeRecord((Record) obj);
+    } else if (obj instanceof List) {
+      List<?> list = (List<?>) obj;
+      out.write(TypedBytes.VECTOR);
+      out.writeInt(list.size());
+      for (Object o : list) {
+        write(o);
+      }
+    } else if (obj instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) obj;
+      out.write(TypedBytes.MAP);
+      out.writeInt(map.size());
+      for (Map.Entry<?, ?> e : map.entrySet()) {
+        write(e.getKey());
+        write(e.getValue());
+      }
+    } else {
+      write(obj.toString());
+    }
+  }
+
+  /**
+   * Writes a table record as a VECTOR of its columns. String columns are
+   * copied as raw bytes without decoding.
+   */
+  public void writeRecord(Record record) throws IOException {
+    Column[] columns = record.getColumns();
+    out.write(TypedBytes.VECTOR);
+    out.writeInt(columns.length);
+    for (int i = 0; i < columns.length; i++) {
+      if (columns[i].getType() == OdpsType.STRING) {
+        byte[] bytes = record.getBytes(i);
+        if (bytes == null) {
+          out.write(TypedBytes.NULL);
+        } else {
+          writeBytes(TypedBytes.STRING, bytes, bytes.length);
+        }
+      } else {
+        write(record.get(i));
+      }
+    }
+  }
+
+  private void writeBytes(int code, byte[] bytes, int length) throws IOException {
+    out.write(code);
+    out.writeInt(length);
+    out.write(bytes, 0, length);
+  }
+
+}
@@ -0,0 +1,74 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aliyun.odps.mapred.bridge.streaming.io;
+
+import java.io.DataInput;
+import java.io.EOFException;
+import java.io.IOException;
+
+import com.aliyun.odps.mapred.bridge.streaming.PipeMapRed;
+
+/**
+ * OutputReader that reads the client's output as typed bytes, a key object
+ * followed by a value object per output.
+ */
+public class TypedBytesOutputReader extends OutputReader<Object, Object> {
+
+  private TypedBytesInput typedIn;
+  private Object key;
+  private Object value;
+
+  @Override
+  public void initialize(PipeMapRed pipeMapRed) throws IOException {
+    super.initialize(pipeMapRed);
+    DataInput clientIn = pipeMapRed.getClientInput();
+    typedIn = new TypedBytesInput(clientIn);
+  }
+
+  @Override
+  public boolean readKeyValue() throws IOException {
+    int code = typedIn.readType();
+    if (code == -1) {
+      return false;
+    }
+    key = typedIn.read(code);
+    try {
+      value = typedIn.read();
+    } catch (EOFException e) {
+      throw new IOException("streaming output ends with a key but no value", e);
+    }
+    return true;
+  }
+
+  @Override
+  public Object getCurrentKey() throws IOException {
+    return key;
+  }
+
+  @Override
+  public Object getCurrentValue() throws IOException {
+    return value;
+  }
+
+  @Override
+  public String getLastOutput() {
+    return key + "\t" + value;
+  }
+
+}
@@ -112,6 +112,26 @@ public class BridgeJobConf extends JobConf {
     return getBoolean(COMBINER_OPTIMIZE_ENABLE, false);
   }
 
+  private final static String COMBINER_CACHE_BYTES = "odps.mapred.combiner.cache.bytes";
+  /**
+   * Memory budget in bytes of the mapper side combiner buffer when combiner optimize is enabled.
+   * The buffer is combined when it reaches either this budget or {@link #getCombinerCacheItems()}
+   * records.
+   */
+  public long getCombinerCacheBytes() {
+    return getLong(COMBINER_CACHE_BYTES, 32L * 1024 * 1024);
+  }
+
+  private final static String COMBINER_INCREMENTAL_ENABLE = "odps.mapred.combiner.incremental.enable";
+  /**
+   * Whether to combine the values of a key as soon as it has more than one, so associative
+   * combiners keep a single value per key in the buffer. Only effective when combiner optimize is
+   * enabled.
+   */
+  public boolean getCombinerIncrementalEnable() {
+    return getBoolean(COMBINER_INCREMENTAL_ENABLE, false);
+  }
+
   private final static String OUTPUT_KEY_COMPARATOR_CLASS = "odps.stage.mapred.output.key.comparator.class";
   public Class<? extends RecordComparator> getOutputKeyComparatorClass() {
     return getClass(OUTPUT_KEY_COMPARATOR_CLASS, null, RecordComparator.class);
@@ -25,7 +25,10 @@ import static org.junit.Assert.fail;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import org.apache.commons.lang.RandomStringUtils;
 import org.junit.Before;
@@ -37,6 +40,7 @@ import com.aliyun.odps.data.TableInfo.TableInfoBuilder;
 import com.aliyun.odps.io.LongWritable;
 import com.aliyun.odps.io.Text;
 import com.aliyun.odps.mapred.MapperBase;
+import com.aliyun.odps.mapred.Reducer;
 import com.aliyun.odps.mapred.conf.BridgeJobConf;
 import com.aliyun.odps.mapred.example.WordCount;
 import com.aliyun.odps.mapred.utils.InputUtils;
@@ -200,6 +204,118 @@ public class LotMapperUDTFTest {
     assertEquals(new LongWritable(1), forwarded.get(3)[1]);
   }
 
+  private List<Object[]> runOptimizedCombiner(Object[][] data, long cacheBytes,
+                                              boolean incremental) throws Exception {
+    return runOptimizedCombiner(data, cacheBytes, incremental, WordCount.SumCombiner.class);
+  }
+
+  private List<Object[]> runOptimizedCombiner(Object[][] data, long cacheBytes,
+                                              boolean incremental,
+                                              Class<? extends Reducer> combiner)
+      throws Exception {
+    conf.setCombinerOptimizeEnable(true);
+    conf.setLong("odps.mapred.combiner.cache.bytes", cacheBytes);
+    conf.setBoolean("odps.mapred.combiner.incremental.enable", incremental);
+    conf.setMapperClass(WordCount.TokenizerMapper.class);
+    conf.setCombinerClass(combiner);
+    conf.setMapOutputKeySchema(SchemaUtils.fromString("word:string"));
+    conf.setMapOutputValueSchema(SchemaUtils.fromString("count:bigint"));
+    MockMapperUDTF udtf = new MockMapperUDTF(conf, data);
+
+    udtf.setup(ctx);
+    udtf.run();
+    udtf.close();
+    return udtf.getForwarded();
+  }
+
+  private static Map<Text, Long> sum(List<Object[]> forwarded) {
+    Map<Text, Long> result = new HashMap<Text, Long>();
+    for (Object[] item : forwarded) {
+      Long count = result.get(item[0]);
+      result.put((Text) item[0], (count == null ? 0 : count) + ((LongWritable) item[1]).get());
+    }
+    return result;
+  }
+
+  @Test
+  public void testOptimizedCombiner() throws Exception {
+    for (boolean incremental : new boolean[]{false, true}) {
+      List<Object[]> forwarded = runOptimizedCombiner(testData, 1024 * 1024, incremental);
+      // one record per key, sorted by key
+      assertEquals(4, forwarded.size());
+      assertEquals(new Text("be"), forwarded.get(0)[0]);
+      assertEquals(new LongWritable(2), forwarded.get(0)[1]);
+      assertEquals(new Text("not"), forwarded.get(1)[0]);
+      assertEquals(new Text("or"), forwarded.get(2)[0]);
+      assertEquals(new Text("to"), forwarded.get(3)[0]);
+      assertEquals(new LongWritable(2), forwarded.get(3)[1]);
+
+      // records written by the combiner in cleanup are not lost
+      forwarded = runOptimizedCombiner(testData, 1024 * 1024, incremental,
+                                       CleanupCombiner.class);
+      assertEquals(5, forwarded.size());
+      assertEquals(new Text("to"), forwarded.get(3)[0]);
+      assertEquals(new LongWritable(2), forwarded.get(3)[1]);
+      assertEquals(new Text(CleanupCombiner.CLEANUP_KEY), forwarded.get(4)[0]);
+      assertEquals(new LongWritable(1), forwarded.get(4)[1]);
+    }
+  }
+
+  public static class CleanupCombiner extends WordCount.SumCombiner {
+
+    static final String CLEANUP_KEY = "~cleanup";
+
+    @Override
+    public void cleanup(TaskContext context) throws IOException {
+      Record key = context.createMapOutputKeyRecord();
+      Record value = context.createMapOutputValueRecord();
+      key.set(0, CLEANUP_KEY);
+      value.set(0, 1L);
+      context.write(key, value);
+    }
+  }
+
+  @Test
+  public void testOptimizedCombinerSpill() throws Exception {
+    Object[][] data = new Object[2000][1];
+    Map<Text, Long> expected = new HashMap<Text, Long>();
+    Random random = new Random(41);
+    for (int i = 0; i < data.length; i++) {
+      // a few hot words mixed with many cold ones
+      String word = "w" + (random.nextInt(4) == 0 ? random.nextInt(1000) : random.nextInt(10));
+      data[i] = new Object[]{new Text(word)};
+      Long count = expected.get(new Text(word));
+      expected.put(new Text(word), (count == null ? 0 : count) + 1);
+    }
+    for (boolean incremental : new boolean[]{false, true}) {
+      // a tiny memory budget forces many combine and spill rounds
+      List<Object[]> forwarded = runOptimizedCombiner(data, 8192, incremental);
+      assertTrue(forwarded.size() > expected.size());
+      assertTrue(forwarded.size() < data.length);
+      assertEquals(expected, sum(forwarded));
+    }
+  }
+
+  @Test
+  public void testOptimizedCombinerItemsLimit() throws Exception {
+    Object[][] data = new Object[200][1];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = new Object[]{new Text("w" + (i % 40))};
+    }
+    for (boolean incremental : new boolean[]{false, true}) {
+      List<Object[]> forwarded = runOptimizedCombiner(data, 64L * 1024 * 1024, incremental);
+      assertEquals(40, forwarded.size());
+
+      // the items limit still applies alongside the byte budget
+      conf.setCombinerCacheItems(16);
+      forwarded = runOptimizedCombiner(data, 64L * 1024 * 1024, incremental);
+      conf.setCombinerCacheItems(1024);
+      assertTrue(forwarded.size() > 40);
+      assertEquals(40, sum(forwarded).size());
+      assertEquals(Long.valueOf(5), sum(forwarded).get(new Text("w0")));
+    }
+  }
+
   @Test
   public void testEmptyInputWithCombiner() throws Exception {
     conf.setMapperClass(WordCount.TokenizerMapper.class);
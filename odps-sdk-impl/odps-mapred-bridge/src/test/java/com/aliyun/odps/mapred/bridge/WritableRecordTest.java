@@ -21,7 +21,9 @@ package com.aliyun.odps.mapred.bridge;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import java.io.UnsupportedEncodingException;
 
@@ -32,6 +34,9 @@ import org.junit.internal.ArrayComparisonFailure;
 import com.aliyun.odps.Column;
 import com.aliyun.odps.OdpsType;
 import com.aliyun.odps.data.Record;
+import com.aliyun.odps.io.LongWritable;
+import com.aliyun.odps.io.Text;
+import com.aliyun.odps.io.Writable;
 
 public class WritableRecordTest {
   
@@ -159,4 +164,75 @@ public class WritableRecordTest {
     WritableRecord record2 = (WritableRecord) record.clone();
     Assert.assertEquals(2, ((WritableRecord)record).getColumnAccessedNum());
   }
+
+  @Test
+  public void testReuseWritables() {
+    Column[] schema = new Column[]{new Column("l", OdpsType.BIGINT),
+                                   new Column("s", OdpsType.STRING)};
+    WritableRecord r = new WritableRecord(schema);
+    r.setBigint(0, 1L);
+    r.setString(1, "long value");
+    Writable l = r.toWritableArray()[0];
+    Writable s = r.toWritableArray()[1];
+
+    r.setBigint(0, Long.valueOf(2));
+    r.set(1, "v");
+    assertSame(l, r.toWritableArray()[0]);
+    assertSame(s, r.toWritableArray()[1]);
+    assertEquals(Long.valueOf(2), r.getBigint(0));
+    assertEquals("v", r.getString(1));
+    assertArrayEquals("v".getBytes(), r.getBytes(1));
+
+    // null 之后仍复用同一个对象
+    r.setBigint(0, null);
+    assertNull(r.getBigint(0));
+    r.set(0, 3);
+    assertSame(l, r.toWritableArray()[0]);
+    assertEquals(Long.valueOf(3), r.getBigint(0));
+  }
+
+  @Test
+  public void testDetach() {
+    WritableRecord r = new WritableRecord(new Column[]{new Column("l", OdpsType.BIGINT)});
+    r.setBigint(0, 1L);
+    Writable detached = r.detach()[0];
+    r.setBigint(0, 2L);
+    assertNotSame(detached, r.toWritableArray()[0]);
+    assertEquals(1L, ((LongWritable) detached).get());
+    assertEquals(Long.valueOf(2), r.getBigint(0));
+  }
+
+  @Test
+  public void testExternalWritableNotModified() {
+    WritableRecord r = new WritableRecord(new Column[]{new Column("l", OdpsType.BIGINT),
+                                                      new Column("s", OdpsType.STRING)});
+    LongWritable l = new LongWritable(1);
+    Text s = new Text("a");
+    r.set(new Object[]{l, s});
+    r.setBigint(0, 2L);
+    r.setString(1, "b");
+    assertEquals(1L, l.get());
+    assertEquals("a", s.toString());
+    assertEquals(Long.valueOf(2), r.getBigint(0));
+    assertEquals("b", r.getString(1));
+  }
+
+  @Test
+  public void testColumnNames() {
+    Column[] schema = new Column[]{new Column("Col1", OdpsType.BIGINT),
+                                   new Column("col2", OdpsType.DOUBLE)};
+    WritableRecord r1 = new WritableRecord(schema);
+    WritableRecord r2 = new WritableRecord(schema);
+    r1.set("COL1", 1L);
+    r2.setDouble("Col2", 2.0);
+    assertEquals(1L, r1.get("col1"));
+    assertNull(r1.getDouble("col2"));
+    assertEquals(2.0, r2.getDouble(1), 0);
+    try {
+      r1.get("col3");
+      Assert.fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
 }
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.mapred.bridge.streaming.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.aliyun.odps.Column;
+import com.aliyun.odps.OdpsType;
+import com.aliyun.odps.data.Record;
+import com.aliyun.odps.io.DataOutputBuffer;
+import com.aliyun.odps.io.Text;
+import com.aliyun.odps.mapred.bridge.WritableRecord;
+import com.aliyun.odps.mapred.utils.UTF8ByteArrayUtils;
+
+/**
+ * Compares the text and the typed bytes streaming protocols.
+ *
+ * <p>Usage: {@code TypedBytesBenchmark [recordCount] [rounds]}. Each round
+ * encodes the records as map input would be written to the pipe, then decodes
+ * the same number of records into typed column values the way streaming
+ * output is read back.</p>
+ */
+public class TypedBytesBenchmark {
+
+  private static final byte[] SEPARATOR = {'\t'};
+
+  private static final Column[] COLUMNS = {new Column("id", OdpsType.BIGINT),
+                                           new Column("category", OdpsType.STRING),
+                                           new Column("amount", OdpsType.DOUBLE),
+                                           new Column("valid", OdpsType.BOOLEAN),
+                                           new Column("comment", OdpsType.STRING)};
+
+  private static List<Record> sample(int count) {
+    Random random = new Random(0);
+    String[] categories = {"electronics", "books", "clothing", "grocery", "toys", "garden"};
+    List<Record> records = new ArrayList<Record>(count);
+    for (int i = 0; i < count; i++) {
+      Record r = new WritableRecord(COLUMNS);
+      r.setBigint(0, (long) i);
+      r.setString(1, categories[random.nextInt(categories.length)]);
+      r.setDouble(2, Math.round(random.nextDouble() * 100000) / 100.0);
+      r.setBoolean(3, random.nextBoolean());
+      r.setString(4, "order " + i + " shipped to region " + random.nextInt(32));
+      records.add(r);
+    }
+    return records;
+  }
+
+  private static byte[] writeText(List<Record> records) throws IOException {
+    DataOutputBuffer out = new DataOutputBuffer();
+    for (Record r : records) {
+      for (int col = 0; col < r.getColumnCount(); col++) {
+        if (col > 0) {
+          out.write(SEPARATOR);
+        }
+        TextInputWriter.writeUTF8(r.get(col), out);
+      }
+      out.write('\n');
+    }
+    return copy(out);
+  }
+
+  private static byte[] writeTyped(List<Record> records) throws IOException {
+    DataOutputBuffer out = new DataOutputBuffer();
+    TypedBytesOutput typedOut = new TypedBytesOutput(out);
+    for (Record r : records) {
+      typedOut.writeRecord(r);
+    }
+    return copy(out);
+  }
+
+  private static long readText(byte[] data) throws IOException {
+    LineReader reader = new LineReader(new ByteArrayInputStream(data));
+    Text line = new Text();
+    Object[] values = new Object[COLUMNS.length];
+    long count = 0;
+    while (reader.readLine(line) > 0) {
+      byte[] bytes = line.getBytes();
+      int start = 0;
+      for (int i = 0; i < COLUMNS.length; i++) {
+        int pos = UTF8ByteArrayUtils.findBytes(bytes, start, line.getLength(), SEPARATOR);
+        int end = pos == -1 ? line.getLength() : pos;
+        Text field = new Text();
+        field.set(bytes, start, end - start);
+        switch (COLUMNS[i].getType()) {
+          case BIGINT:
+            values[i] = Long.valueOf(field.toString());
+            break;
+          case DOUBLE:
+            values[i] = Double.valueOf(field.toString());
+            break;
+          case BOOLEAN:
+            values[i] = Boolean.valueOf(field.toString());
+            break;
+          default:
+            values[i] = field;
+        }
+        start = end + SEPARATOR.length;
+      }
+      count++;
+    }
+    return count;
+  }
+
+  private static long readTyped(byte[] data) throws IOException {
+    TypedBytesInput in = new TypedBytesInput(new DataInputStream(new ByteArrayInputStream(data)));
+    long count = 0;
+    for (int code = in.readType(); code != -1; code = in.readType()) {
+      in.read(code);
+      count++;
+    }
+    return count;
+  }
+
+  private static byte[] copy(DataOutputBuffer out) {
+    byte[] data = new byte[out.getLength()];
+    System.arraycopy(out.getData(), 0, data, 0, data.length);
+    return data;
+  }
+
+  public static void main(String[] args) throws IOException {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+    int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+    List<Record> records = sample(count);
+
+    System.out.printf("%-12s %10s %14s %14s%n", "protocol", "bytes", "write krec/s",
+                      "read krec/s");
+    for (String protocol : new String[]{"text", "typedbytes"}) {
+      boolean typed = protocol.equals("typedbytes");
+      byte[] data = typed ? writeTyped(records) : writeText(records);
+      // warm up
+      long read = typed ? readTyped(data) : readText(data);
+      if (read != count) {
+        throw new IllegalStateException("read " + read + " records, expected " + count);
+      }
+      long writeNanos = 0;
+      long readNanos = 0;
+      for (int i = 0; i < rounds; i++) {
+        long start = System.nanoTime();
+        data = typed ? writeTyped(records) : writeText(records);
+        writeNanos += System.nanoTime() - start;
+        start = System.nanoTime();
+        read = typed ? readTyped(data) : readText(data);
+        readNanos += System.nanoTime() - start;
+      }
+      double krec = (double) count * rounds / 1000;
+      System.out.printf("%-12s %10d %14.1f %14.1f%n", protocol, data.length,
+                        krec / (writeNanos / 1e9), krec / (readNanos / 1e9));
+    }
+  }
+}
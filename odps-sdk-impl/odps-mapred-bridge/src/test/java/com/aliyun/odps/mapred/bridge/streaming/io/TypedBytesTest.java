@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.mapred.bridge.streaming.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.aliyun.odps.Column;
+import com.aliyun.odps.OdpsType;
+import com.aliyun.odps.io.Text;
+import com.aliyun.odps.mapred.bridge.WritableRecord;
+
+public class TypedBytesTest {
+
+  private static byte[] write(Object... objs) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    TypedBytesOutput out = new TypedBytesOutput(new DataOutputStream(bos));
+    for (Object obj : objs) {
+      out.write(obj);
+    }
+    return bos.toByteArray();
+  }
+
+  private static TypedBytesInput input(byte[] data) {
+    return new TypedBytesInput(new DataInputStream(new ByteArrayInputStream(data)));
+  }
+
+  @Test
+  public void testWireFormat() throws Exception {
+    // same layout as Hadoop streaming typedbytes
+    Assert.assertArrayEquals(new byte[]{4, 0, 0, 0, 0, 0, 0, 0, 1}, write(1L));
+    Assert.assertArrayEquals(new byte[]{7, 0, 0, 0, 2, 'a', 'b'}, write("ab"));
+    Assert.assertArrayEquals(new byte[]{7, 0, 0, 0, 2, 'a', 'b'}, write(new Text("ab")));
+    Assert.assertArrayEquals(new byte[]{2, 1}, write(true));
+    Assert.assertArrayEquals(new byte[]{8, 0, 0, 0, 2, 3, 0, 0, 0, 5, 50},
+                             write(Arrays.asList(5, null)));
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    Map<String, Long> map = Collections.singletonMap("k", 3L);
+    byte[] data = write(new Text("中文"), 7L, 1.5, false, (byte) 2, 1.25f, new byte[]{0, 1},
+                        new Date(1000), new BigDecimal("1.10"), map, null);
+    TypedBytesInput in = input(data);
+    Assert.assertEquals(new Text("中文"), in.read());
+    Assert.assertEquals(7L, in.read());
+    Assert.assertEquals(1.5, in.read());
+    Assert.assertEquals(false, in.read());
+    Assert.assertEquals((byte) 2, in.read());
+    Assert.assertEquals(1.25f, in.read());
+    Assert.assertArrayEquals(new byte[]{0, 1}, (byte[]) in.read());
+    Assert.assertEquals(1000L, in.read());
+    Assert.assertEquals(new Text("1.10"), in.read());
+    Assert.assertEquals(Collections.singletonMap(new Text("k"), 3L), in.read());
+    Assert.assertNull(in.read());
+    Assert.assertEquals(-1, in.readType());
+  }
+
+  @Test
+  public void testRecordAndList() throws Exception {
+    Column[] columns = new Column[]{new Column("s", OdpsType.STRING),
+                                    new Column("l", OdpsType.BIGINT),
+                                    new Column("d", OdpsType.DOUBLE),
+                                    new Column("b", OdpsType.BOOLEAN),
+                                    new Column("t", OdpsType.DATETIME)};
+    WritableRecord record = new WritableRecord(columns);
+    record.setString(0, "abc");
+    record.setBigint(1, -1L);
+    record.setDouble(2, 0.5);
+    record.setDatetime(4, new Date(42));
+
+    // a LIST terminated by the marker, as written by dynamically typed clients
+    byte[] list = {9, 1, 3, 7, 0, 0, 0, 1, 'x', (byte) 255};
+    byte[] recordBytes = write(record);
+    byte[] data = Arrays.copyOf(recordBytes, recordBytes.length + list.length);
+    System.arraycopy(list, 0, data, recordBytes.length, list.length);
+
+    TypedBytesInput in = input(data);
+    List<?> fields = (List<?>) in.read();
+    Assert.assertEquals(Arrays.asList(new Text("abc"), -1L, 0.5, null, 42L), fields);
+    Assert.assertEquals(Arrays.asList((byte) 3, new Text("x")), in.read());
+  }
+
+  @Test
+  public void testShuffleColumn() throws Exception {
+    // typed keys are shuffled as their raw encoding in a string column
+    WritableRecord key = new WritableRecord(new Column[]{new Column("k", OdpsType.STRING)});
+    Object[] keys = {10L, 2.5, new byte[]{(byte) 0xff, 0}, Arrays.asList(1L, new Text("a")), null};
+    for (Object obj : keys) {
+      key.setString(0, write(obj));
+      Object read = input(key.getBytes(0)).read();
+      if (obj instanceof byte[]) {
+        Assert.assertArrayEquals((byte[]) obj, (byte[]) read);
+      } else {
+        Assert.assertEquals(obj, read);
+      }
+    }
+
+    // LONG keys keep their numeric order instead of the order of decimal strings
+    Assert.assertTrue(compare(write(2L), write(10L)) < 0);
+  }
+
+  private static int compare(byte[] l, byte[] r) {
+    for (int i = 0; i < Math.min(l.length, r.length); i++) {
+      int c = (l[i] & 0xff) - (r[i] & 0xff);
+      if (c != 0) {
+        return c;
+      }
+    }
+    return l.length - r.length;
+  }
+
+  @Test(expected = IOException.class)
+  public void testUnknownType() throws Exception {
+    input(new byte[]{100}).read();
+  }
+}
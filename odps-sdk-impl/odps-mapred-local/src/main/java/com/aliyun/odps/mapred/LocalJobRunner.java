@@ -33,6 +33,15 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
@@ -97,6 +106,20 @@ public class LocalJobRunner implements JobRunner {
   // pipe mode
   private Pipeline pipeline;
 
+  // 并发执行 task 的线程池, worker 数为 1 时为 null
+  private ExecutorService executor;
+
+  // 作业中开启溢写的 MapOutputBuffer, 作业结束时删除其中未被读取的溢写文件
+  private List<MapOutputBuffer> spillBuffers = new ArrayList<MapOutputBuffer>();
+
+  /**
+   * stage 中的一个 task, 使用传入的 Counters 和 MapOutputBuffer 运行
+   */
+  private interface LocalTask {
+
+    void run(Counters taskCounters, MapOutputBuffer taskOutput) throws IOException;
+  }
+
   public void initialize() {
     odps = SessionState.get().getOdps();
     String warehouseDir = System.getProperty("odps.runner.warehouseDir");
@@ -195,6 +218,11 @@ public class LocalJobRunner implements JobRunner {
     validator.validate();
     LOG.info("Finished validate configuration");
 
+    int workerNum = wareHouse.getLocalWorkerNum();
+    if (workerNum > 1) {
+      LOG.info("Run tasks in parallel, worker num: " + workerNum);
+      executor = createExecutor(workerNum);
+    }
     try {
       SecurityClient.open();
       if (pipeline != null) {
@@ -206,6 +234,14 @@ public class LocalJobRunner implements JobRunner {
       throw new OdpsException(ex);
     } finally {
       SecurityClient.close();
+      if (executor != null) {
+        executor.shutdownNow();
+        executor = null;
+      }
+      for (MapOutputBuffer buffer : spillBuffers) {
+        buffer.close();
+      }
+      spillBuffers.clear();
     }
 
     // copy output files from temporary directory to warehouse
@@ -249,24 +285,27 @@ public class LocalJobRunner implements JobRunner {
     stageStatic.setWorkerCount(mapCopyNum);
 
     MapOutputBuffer inputBuffer = new MapOutputBuffer(conf, pipeline, taskId.getTaskId(), reduceCopyNum);
+    enableSpill(inputBuffer);
 
-    for (int mapId = 0; mapId < mapCopyNum; mapId++) {
-      FileSplit split = inputs.size() > 0 ? inputs.get(mapId) : FileSplit.NullSplit;
-      taskId = new LocalTaskId("M1", 0, odps.getDefaultProject());
-      LOG.info(
-          "Start to run mapper, TaskId: " + taskId + ", Input: " + splitToTableInfo.get(split));
-
-      MapDriver mapDriver = new MapDriver(conf, split, taskId, inputBuffer, counters,
-                                          splitToTableInfo.get(split));
-      mapDriver.run();
+    int reduceNodeCount = pipeline.getNodeNum() - 1;
 
-      setInputOutputRecordCount(stageStatic);
-      LOG.info(
-          "Fininshed run mapper, TaskId: " + taskId + ", Input: " + splitToTableInfo.get(split));
+    List<LocalTask> mapTasks = new ArrayList<LocalTask>(mapCopyNum);
+    for (int mapId = 0; mapId < mapCopyNum; mapId++) {
+      final FileSplit split = inputs.size() > 0 ? inputs.get(mapId) : FileSplit.NullSplit;
+      // 所有 mapper 使用同一个 taskId
+      final TaskId mapTaskId = new LocalTaskId("M1", 0, odps.getDefaultProject());
+      mapTasks.add(new LocalTask() {
+        @Override
+        public void run(Counters taskCounters, MapOutputBuffer taskOutput) throws IOException {
+          runMapper(split, mapTaskId, taskOutput, taskCounters);
+        }
+      });
     }
+    // map only 时所有 mapper 写同一个输出文件, 只能串行执行
+    runTasks(mapTasks, inputBuffer, stageStatic, reduceNodeCount > 0);
+    finishOutput(inputBuffer, stageStatic);
     LOG.info("Fininshed run all mappers, num: " + mapCopyNum);
 
-    int reduceNodeCount = pipeline.getNodeNum() - 1;
     if (reduceNodeCount > 0) {
       LOG.info("Start to run reduces, num: " + reduceNodeCount);
 
@@ -287,17 +326,27 @@ public class LocalJobRunner implements JobRunner {
         int nextReduceCopyNum = computeReduceNum(reduceCopyNum, pipeline.getNode(i+1));
 
         MapOutputBuffer outputBuffer = new MapOutputBuffer(conf, pipeline, taskId.getTaskId(), nextReduceCopyNum);
+        enableSpill(outputBuffer);
 
+        List<LocalTask> reduceTasks = new ArrayList<LocalTask>(reduceCopyNum);
         for (int j = 0; j < reduceCopyNum; ++j) {
-          taskId = new LocalTaskId("R" + (i + 2) + "_" + (i + 1), j, odps.getDefaultProject());
-          ReduceDriver reduceDriver = new ReduceDriver(conf, inputBuffer, outputBuffer, taskId,
-                                                       counters, j);
-          reduceDriver.run();
-
-          setInputOutputRecordCount(stageStatic);
+          final TaskId reduceTaskId =
+              new LocalTaskId("R" + (i + 2) + "_" + (i + 1), j, odps.getDefaultProject());
+          final MapOutputBuffer reduceInput = inputBuffer;
+          final int partitionIndex = j;
+          reduceTasks.add(new LocalTask() {
+            @Override
+            public void run(Counters taskCounters, MapOutputBuffer taskOutput) throws IOException {
+              new ReduceDriver(conf, reduceInput, taskOutput, reduceTaskId, taskCounters,
+                               partitionIndex).run();
+            }
+          });
         }
+        runTasks(reduceTasks, outputBuffer, stageStatic, true);
+        finishOutput(outputBuffer, stageStatic);
 
         // 前一个节点的输出作为下一个节点的输入
+        inputBuffer.close();
         inputBuffer = outputBuffer;
         reduceCopyNum = nextReduceCopyNum;
 
@@ -325,7 +374,8 @@ public class LocalJobRunner implements JobRunner {
       mapCopyNum = conf.getInt("odps.stage.mapper.num", 1);
     }
     reduceCopyNum = computeReduceNum(mapCopyNum, null);
-    MapOutputBuffer buffer = new MapOutputBuffer(conf, reduceCopyNum);
+    final MapOutputBuffer buffer = new MapOutputBuffer(conf, reduceCopyNum);
+    enableSpill(buffer);
 
     LOG.info("Start to run mappers, num: " + mapCopyNum);
 
@@ -333,20 +383,19 @@ public class LocalJobRunner implements JobRunner {
     StageStatic stageStatic = createStageStatic(taskId);
     stageStatic.setWorkerCount(mapCopyNum);
 
+    List<LocalTask> mapTasks = new ArrayList<LocalTask>(mapCopyNum);
     for (int mapId = 0; mapId < mapCopyNum; mapId++) {
-      FileSplit split = inputs.size() > 0 ? inputs.get(mapId) : FileSplit.NullSplit;
-      taskId = new TaskId("M", mapId + 1);
-      LOG.info(
-          "Start to run mapper, TaskId: " + taskId + ", Input: " + splitToTableInfo.get(split));
-
-      MapDriver mapDriver = new MapDriver(conf, split, taskId, buffer, counters,
-                                          splitToTableInfo.get(split));
-      mapDriver.run();
-
-      setInputOutputRecordCount(stageStatic);
-      LOG.info(
-          "Fininshed run mapper, TaskId: " + taskId + ", Input: " + splitToTableInfo.get(split));
+      final FileSplit split = inputs.size() > 0 ? inputs.get(mapId) : FileSplit.NullSplit;
+      final TaskId mapTaskId = new TaskId("M", mapId + 1);
+      mapTasks.add(new LocalTask() {
+        @Override
+        public void run(Counters taskCounters, MapOutputBuffer taskOutput) throws IOException {
+          runMapper(split, mapTaskId, taskOutput, taskCounters);
+        }
+      });
     }
+    runTasks(mapTasks, buffer, stageStatic, true);
+    finishOutput(buffer, stageStatic);
 
     LOG.info("Fininshed run all mappers, num: " + mapCopyNum);
 
@@ -360,19 +409,20 @@ public class LocalJobRunner implements JobRunner {
       stageStatic = createStageStatic(taskId);
       stageStatic.setWorkerCount(reduceCopyNum);
 
+      List<LocalTask> reduceTasks = new ArrayList<LocalTask>(reduceCopyNum);
       for (int reduceId = 0; reduceId < reduceCopyNum; ++reduceId) {
-
-        taskId = new TaskId("R", reduceId);
-        LOG.info("Start to run reduce, taskId: " + taskId);
-
-        ReduceDriver
-            reduceDriver =
-            new ReduceDriver(conf, buffer, null, taskId, counters, reduceId);
-        reduceDriver.run();
-
-        setInputOutputRecordCount(stageStatic);
-        LOG.info("Finished run reduce, taskId: " + taskId);
+        final TaskId reduceTaskId = new TaskId("R", reduceId);
+        final int partitionIndex = reduceId;
+        reduceTasks.add(new LocalTask() {
+          @Override
+          public void run(Counters taskCounters, MapOutputBuffer taskOutput) throws IOException {
+            LOG.info("Start to run reduce, taskId: " + reduceTaskId);
+            new ReduceDriver(conf, buffer, null, reduceTaskId, taskCounters, partitionIndex).run();
+            LOG.info("Finished run reduce, taskId: " + reduceTaskId);
+          }
+        });
       }
+      runTasks(reduceTasks, null, stageStatic, true);
 
       stageStatic.setNextTaskId("R2_1FS_9");
 
@@ -385,6 +435,128 @@ public class LocalJobRunner implements JobRunner {
 
   }
 
+  private void runMapper(FileSplit split, TaskId taskId, MapOutputBuffer outputBuffer,
+                         Counters taskCounters) throws IOException {
+    TableInfo tableInfo = splitToTableInfo.get(split);
+    if (executor != null && tableInfo != null) {
+      // 同一张表的多个 split 共享 TableInfo, mapper 会设置其中的分区信息
+      tableInfo = new TableInfo(tableInfo);
+    }
+    LOG.info("Start to run mapper, TaskId: " + taskId + ", Input: " + tableInfo);
+
+    MapDriver mapDriver = new MapDriver(conf, split, taskId, outputBuffer, taskCounters,
+                                        tableInfo);
+    mapDriver.run();
+
+    LOG.info("Fininshed run mapper, TaskId: " + taskId + ", Input: " + tableInfo);
+  }
+
+  /**
+   * 运行一个 stage 的所有 task
+   *
+   * <p>
+   * 串行时 task 直接使用作业的 Counters 和 outputBuffer. 并发时每个 task 使用独立的 Counters 和
+   * {@link MapOutputBuffer#createTaskBuffer()}, 并按 task 顺序合并, 因此结果与串行执行一致.
+   * </p>
+   *
+   * @param parallel
+   *     stage 内的 task 是否可以并发执行
+   */
+  private void runTasks(List<LocalTask> tasks, MapOutputBuffer outputBuffer,
+                        StageStatic stageStatic, boolean parallel) throws IOException {
+    if (executor == null || !parallel || tasks.size() <= 1) {
+      for (LocalTask task : tasks) {
+        task.run(counters, outputBuffer);
+        setInputOutputRecordCount(stageStatic);
+      }
+      return;
+    }
+
+    final Odps taskOdps = wareHouse.getOdps();
+    final Configuration taskConf = wareHouse.getConfiguration();
+    List<Future<?>> futures = new ArrayList<Future<?>>(tasks.size());
+    List<Counters> taskCounters = new ArrayList<Counters>(tasks.size());
+    List<MapOutputBuffer> taskOutputs = new ArrayList<MapOutputBuffer>(tasks.size());
+    for (final LocalTask task : tasks) {
+      final Counters c = new Counters();
+      final MapOutputBuffer b = outputBuffer == null ? null : outputBuffer.createTaskBuffer();
+      taskCounters.add(c);
+      taskOutputs.add(b);
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          // WareHouse 中的 Odps 和 Configuration 是线程本地的
+          wareHouse.setOdps(taskOdps);
+          wareHouse.setConfiguration(taskConf);
+          task.run(c, b);
+          return null;
+        }
+      }));
+    }
+
+    try {
+      for (int i = 0; i < futures.size(); i++) {
+        futures.get(i).get();
+        counters.incrAllCounters(taskCounters.get(i));
+        if (outputBuffer != null) {
+          outputBuffer.merge(taskOutputs.get(i));
+        }
+        setInputOutputRecordCount(stageStatic);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      for (Future<?> future : futures) {
+        future.cancel(true);
+      }
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+
+  private static ExecutorService createExecutor(int workerNum) {
+    final AtomicInteger index = new AtomicInteger();
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(
+        workerNum, workerNum, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "local-task-worker-" + index.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+          }
+        });
+    // 在开启安全检查前创建线程, 子线程同时继承当前的 SessionState
+    pool.prestartAllCoreThreads();
+    return pool;
+  }
+
+  private void enableSpill(MapOutputBuffer buffer) {
+    buffer.enableSpill(jobDirecotry.getSpillDir(), wareHouse.getLocalSortBufferRecords());
+    spillBuffers.add(buffer);
+  }
+
+  /**
+   * stage 结束后对输出排序, 并记录溢写和排序的统计信息
+   */
+  private void finishOutput(MapOutputBuffer buffer, StageStatic stageStatic) {
+    buffer.sort();
+    stageStatic.setSpillCount(buffer.getSpillCount());
+    stageStatic.setSpilledRecords(buffer.getSpilledRecords());
+    stageStatic.setSortTime(buffer.getSortTime());
+    if (buffer.getSpillCount() > 0) {
+      counters.findCounter(JobCounter.MAP_SPILL_FILES).increment(buffer.getSpillCount());
+    }
+  }
+
   private StageStatic createStageStatic(TaskId taskId) {
     StageStatic stageStatic = new StageStatic();
     stageStaticList.add(stageStatic);
@@ -402,32 +574,15 @@ public class LocalJobRunner implements JobRunner {
   }
 
   private void processInput(TableInfo tableInfo) throws IOException, OdpsException {
-    if (tableInfo == null || StringUtils.isBlank(tableInfo.getTableName())) {
-      throw new RuntimeException("Invalid TableInfo: " + tableInfo);
-    }
-
-    if (StringUtils.isEmpty(tableInfo.getProjectName())) {
-      tableInfo.setProjectName(wareHouse.getOdps().getDefaultProject());
-    }
-
     String[] readCols = tableInfo.getCols();
 
     // 获取指定的MR需要处理的分区
     PartitionSpec expectParts = tableInfo.getPartitionSpec();
 
-    // 该部分逻辑只负责下载Table Scheme和数据，后续处理和本地一样
+    // 需要下载的表已经在 processInputs 中一起下载, 后续处理和本地一样
     if (!wareHouse
-        .existsPartition(tableInfo.getProjectName(), tableInfo.getTableName(), expectParts)
-        ||wareHouse.getDownloadMode()==DownloadMode.ALWAYS) {
-
-      DownloadUtils
-          .downloadTableSchemeAndData(odps, tableInfo, wareHouse.getLimitDownloadRecordCount(),
-                                      wareHouse.getInputColumnSeperator());
-
-      if (!wareHouse
-          .existsPartition(tableInfo.getProjectName(), tableInfo.getTableName(), expectParts)) {
-        throw new RuntimeException(LocalRunUtils.getDownloadErrorMsg(tableInfo.toString()));
-      }
+        .existsPartition(tableInfo.getProjectName(), tableInfo.getTableName(), expectParts)) {
+      throw new RuntimeException(LocalRunUtils.getDownloadErrorMsg(tableInfo.toString()));
     }
 
     // ////从warehouse _scheme_读出的信息，相当于服务器端数据表的信息////
@@ -506,6 +661,25 @@ public class LocalJobRunner implements JobRunner {
       return;
     }
 
+    // 本地不存在的输入表(分区)并发下载, 该部分逻辑只负责下载Table Scheme和数据
+    List<TableInfo> downloads = new ArrayList<TableInfo>();
+    for (TableInfo tableInfo : inputTableInfos) {
+      if (tableInfo == null || StringUtils.isBlank(tableInfo.getTableName())) {
+        throw new RuntimeException("Invalid TableInfo: " + tableInfo);
+      }
+      if (StringUtils.isEmpty(tableInfo.getProjectName())) {
+        tableInfo.setProjectName(wareHouse.getOdps().getDefaultProject());
+      }
+      if (!wareHouse.existsPartition(tableInfo.getProjectName(), tableInfo.getTableName(),
+                                     tableInfo.getPartitionSpec())
+          || wareHouse.getDownloadMode() == DownloadMode.ALWAYS) {
+        downloads.add(tableInfo);
+      }
+    }
+    DownloadUtils.downloadTablesSchemeAndData(odps, downloads,
+                                              wareHouse.getLimitDownloadRecordCount(),
+                                              wareHouse.getInputColumnSeperator());
+
     for (TableInfo tableInfo : inputTableInfos) {
       LOG.debug("Start to process input table: " + tableInfo);
       processInput(tableInfo);
@@ -851,6 +1025,17 @@ public class LocalJobRunner implements JobRunner {
       sb.append(", avg: ");
       sb.append(item.getAvgOutputRecords());
       sb.append(")");
+
+      if (item.getSpillCount() > 0 || item.getSortTime() > 0) {
+        sb.append("\n\tShuffle: ");
+        sb.append("\n\t\tspill files: ");
+        sb.append(item.getSpillCount());
+        sb.append(", spilled records: ");
+        sb.append(item.getSpilledRecords());
+        sb.append(", sort time: ");
+        sb.append(item.getSortTime());
+        sb.append(" ms");
+      }
     }
 
     System.err.println(sb.toString());
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.aliyun.odps.mapred.local;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.aliyun.odps.counter.Counter;
+import com.aliyun.odps.counter.Counters;
+import com.aliyun.odps.data.Record;
+import com.aliyun.odps.data.RecordReader;
+import com.aliyun.odps.local.common.FileSplit;
+import com.aliyun.odps.local.common.TableMeta;
+import com.aliyun.odps.local.common.utils.BinaryDataReader;
+import com.aliyun.odps.local.common.utils.LocalRunUtils;
+import com.aliyun.odps.local.common.utils.LocalWritableUtils;
+import com.aliyun.odps.mapred.bridge.WritableRecord;
+
+/**
+ * 读取 warehouse 二进制格式的数据文件, 不需要逐列解析文本
+ */
+public class BinaryRecordReader implements RecordReader {
+
+  private Counter recordCounter;
+  private BinaryDataReader reader;
+  private FileSplit split;
+  private Record record;
+  private Counters counters;
+
+  public BinaryRecordReader(FileSplit split, Counter recordCounter, Counter byteCounter,
+                            Counters counters) throws IOException {
+    this.split = split;
+    this.record = new WritableRecord(split.getSchema());
+    File file = split.getFile();
+    if (file != null) {
+      if (byteCounter != null) {
+        byteCounter.increment(file.length());
+      }
+      reader = new BinaryDataReader(file, split.getSchema(), null, true);
+      this.recordCounter = recordCounter;
+    }
+    this.counters = counters;
+  }
+
+  /**
+   * 按数据文件的格式创建 RecordReader
+   */
+  public static RecordReader create(FileSplit split, TableMeta tableMeta, Counter recordCounter,
+                                    Counter byteCounter, Counters counters,
+                                    char inputColumnSeperator)
+      throws IOException {
+    if (split.getFile() != null && LocalRunUtils.isBinaryDataFile(split.getFile())) {
+      return new BinaryRecordReader(split, recordCounter, byteCounter, counters);
+    }
+    return new CSVRecordReader(split, tableMeta, recordCounter, byteCounter, counters,
+                               inputColumnSeperator);
+  }
+
+  @Override
+  public Record read() throws IOException {
+    if (reader == null) {
+      return null;
+    }
+    Object[] vals = reader.read();
+    if (vals == null) {
+      return null;
+    }
+    if (recordCounter != null) {
+      recordCounter.increment(1);
+    }
+    Object[] value = new Object[vals.length];
+    for (int i = 0; i < vals.length; i++) {
+      value[i] = LocalWritableUtils.convert(vals[i], split.getSchema()[i].getTypeInfo());
+    }
+    record.set(value);
+
+    counters.findCounter(JobCounter.__EMPTY_INPUT_RECORD_COUNT).increment(1);
+
+    return record;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (reader != null) {
+      reader.close();
+    }
+  }
+}
@@ -391,7 +391,7 @@ public abstract class LocalTaskContext implements TaskContext {
 
           File f = datafiles.remove(0);
           reader =
-              new CSVRecordReader(new FileSplit(f, tableMeta.getCols(), 0, f.getTotalSpace()),
+              BinaryRecordReader.create(new FileSplit(f, tableMeta.getCols(), 0, f.getTotalSpace()),
                   tableMeta, LocalJobRunner.EMPTY_COUNTER, LocalJobRunner.EMPTY_COUNTER, counters,
                   WareHouse.getInstance().getInputColumnSeperator());
           current = reader.read();
@@ -403,7 +403,7 @@ public abstract class LocalTaskContext implements TaskContext {
         if (current == null && !datafiles.isEmpty()) {
           File f = datafiles.remove(0);
           reader =
-              new CSVRecordReader(new FileSplit(f, tableMeta.getCols(), 0, f.getTotalSpace()),
+              BinaryRecordReader.create(new FileSplit(f, tableMeta.getCols(), 0, f.getTotalSpace()),
                   tableMeta, LocalJobRunner.EMPTY_COUNTER, LocalJobRunner.EMPTY_COUNTER, counters,
                   WareHouse.getInstance().getInputColumnSeperator());
           current = reader.read();
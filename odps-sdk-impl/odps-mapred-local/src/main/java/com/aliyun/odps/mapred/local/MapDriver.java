@@ -22,7 +22,6 @@ package com.aliyun.odps.mapred.local;
 import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -134,7 +133,7 @@ public class MapDriver extends DriverBase {
     }
 
     @Override
-    public void write(Record key, Record value) {
+    public void write(Record key, Record value) throws IOException {
       if (getNumReduceTasks() == 0) {
         throw new UnsupportedOperationException(ErrorCode.UNEXPECTED_MAP_WRITE_INTER.toString());
       }
@@ -242,6 +241,13 @@ public class MapDriver extends DriverBase {
         combineOutputRecordCounter = counters.findCounter(JobCounter.COMBINE_OUTPUT_RECORDS);
       }
 
+      /**
+       * 开始合并下一批排好序的 map 输出
+       */
+      void reset() {
+        itr = null;
+      }
+
       @Override
       public boolean nextKeyValue() {
         if (itr == null) {
@@ -292,7 +298,7 @@ public class MapDriver extends DriverBase {
       }
 
       @Override
-      public void write(Record key, Record value) {
+      public void write(Record key, Record value) throws IOException {
         if (partitioner != null) {
           int part = partitioner.getPartition(key, value, this.getNumReduceTasks());
           if (part < 0 || part >= this.getNumReduceTasks()) {
@@ -367,38 +373,59 @@ public class MapDriver extends DriverBase {
     }
 
     private LinkedList<Object[]> queue = new LinkedList<Object[]>();
+    private int sortBufferRecords;
+    private CombinerContextImpl combineCtx;
 
     public ProxiedMapContextImpl(BridgeJobConf conf, TaskId taskid, Counters counters,
                                  RecordReader reader, TableInfo inputTableInfo) throws IOException {
       super(conf, taskid, counters, reader, inputTableInfo);
+      sortBufferRecords = WareHouse.getInstance().getLocalSortBufferRecords();
     }
 
     @Override
-    public void write(Record key, Record value) {
+    public void write(Record key, Record value) throws IOException {
       mapOutputRecordCounter.increment(1);
-      queue.add(ArrayUtils.addAll(((WritableRecord) key).toWritableArray(),
-                                  ((WritableRecord) value).toWritableArray()));
+      queue.add(ArrayUtils.addAll(((WritableRecord) key).detach(),
+                                  ((WritableRecord) value).detach()));
       counters.findCounter(JobCounter.__EMPTY_OUTPUT_RECORD_COUNT).increment(1);
+      if (queue.size() >= sortBufferRecords) {
+        combine();
+      }
     }
 
-    @Override
-    public void close() throws IOException {
-      Collections.sort(queue, outputBuffer.getComparator());
+    /**
+     * 对缓存的 map 输出排序并运行 combiner, 结果写入 outputBuffer. 缓存满时和 mapper 结束时各运行一次
+     */
+    private void combine() throws IOException {
+      if (queue.isEmpty() && combineCtx != null) {
+        return;
+      }
+      long start = System.nanoTime();
+      outputBuffer.sortRecords(queue);
+      outputBuffer.addSortTime(System.nanoTime() - start);
       Reducer combiner = ReflectionUtils.newInstance(getCombinerClass(), conf);
-      CombinerContextImpl combineCtx = new CombinerContextImpl(conf, taskId, counters);
+      if (combineCtx == null) {
+        combineCtx = new CombinerContextImpl(conf, taskId, counters);
+      }
+      combineCtx.reset();
 
-      LOG.info("Start to run Combiner, TaskId: " + taskId);
+      LOG.info("Start to run Combiner, TaskId: " + taskId + ", Records: " + queue.size());
 
       combiner.setup(combineCtx);
       while (combineCtx.nextKeyValue()) {
         combiner.reduce(combineCtx.getCurrentKey(), combineCtx.getValues(), combineCtx);
       }
       combiner.cleanup(combineCtx);
-
-      super.close();
+      queue.clear();
 
       LOG.info("Fininshed run Combiner, TaskId: " + taskId);
     }
+
+    @Override
+    public void close() throws IOException {
+      combine();
+      super.close();
+    }
   }
 
   public MapDriver(BridgeJobConf job, FileSplit split, TaskId id, final MapOutputBuffer buffer,
@@ -417,8 +444,8 @@ public class MapDriver extends DriverBase {
       tableMeta = new TableMeta(tableInfo.getProjectName(), tableInfo.getTableName(), null);
     }
     RecordReader reader =
-        new CSVRecordReader(split, tableMeta, mapInputRecordCounter, mapInputByteCounter, counters,
-            WareHouse.getInstance().getInputColumnSeperator());
+        BinaryRecordReader.create(split, tableMeta, mapInputRecordCounter, mapInputByteCounter,
+            counters, WareHouse.getInstance().getInputColumnSeperator());
     if (job.getCombinerClass() != null) {
       mapContext = new ProxiedMapContextImpl(job, taskId, counters, reader, tableInfo);
     } else {
@@ -19,13 +19,15 @@
 
 package com.aliyun.odps.mapred.local;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
 import java.util.Queue;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang.ArrayUtils;
 
@@ -35,15 +37,43 @@ import com.aliyun.odps.mapred.bridge.WritableRecord;
 import com.aliyun.odps.mapred.conf.JobConf;
 import com.aliyun.odps.mapred.conf.JobConf.SortOrder;
 import com.aliyun.odps.mapred.local.utils.LocalColumnBasedRecordComparator;
+import com.aliyun.odps.mapred.local.utils.SortKeyEncoder;
 import com.aliyun.odps.pipeline.Pipeline;
 import com.aliyun.odps.pipeline.Pipeline.TransformNode;
 
+/**
+ * Shuffle buffer between two stages of a local job.
+ *
+ * <p>
+ * Records of each partition are kept in insertion order. When spilling is enabled and the buffer
+ * holds too many records, every partition is sorted and the run is written to a spill file. A
+ * reducer reads its partition through {@link #getPartitionQueue(int)}, which merges the spilled
+ * runs with the records still in memory. Records with equal sort keys are returned in insertion
+ * order, whether or not anything was spilled.
+ * </p>
+ */
 public class MapOutputBuffer {
 
+  private static final AtomicLong SPILL_SEQUENCE = new AtomicLong();
+
   int[] partColIdxs;
   int numReduce;
-  private List<PriorityQueue<Object[]>> buffers;
+  // records in memory, in insertion order
+  private List<List<Object[]>> buffers;
+  private long memoryRecordCount;
+  private boolean sorted;
+  // sorted runs on disk, in the order they were written
+  private List<MapOutputSpill> spills = new ArrayList<MapOutputSpill>();
+  private Queue<Object[]>[] partitionQueues;
   Comparator<Object[]> comparator;
+  private SortKeyEncoder sortKeyEncoder;
+
+  private File spillDir;
+  private long maxMemoryRecords = Long.MAX_VALUE;
+
+  private long spillCount;
+  private long spilledRecords;
+  private long sortNanos;
 
   public MapOutputBuffer(JobConf conf, int reduceNum) {
 
@@ -66,10 +96,8 @@ public class MapOutputBuffer {
       String[] sortColumns = conf.getOutputKeySortColumns();
       SortOrder[] sortOrders = conf.getOutputKeySortOrder();
       comparator = new LocalColumnBasedRecordComparator(sortColumns, key, sortOrders);
-      buffers = new ArrayList<PriorityQueue<Object[]>>(numReduce);
-      for (i = 0; i < numReduce; i++) {
-        buffers.add(new PriorityQueue<Object[]>(16, comparator));
-      }
+      sortKeyEncoder = new SortKeyEncoder(sortColumns, key, sortOrders);
+      initBuffers();
     }
 
   }
@@ -97,14 +125,140 @@ public class MapOutputBuffer {
       String[] sortColumns = pipeNode.getOutputKeySortColumns();
       SortOrder[] sortOrders = pipeNode.getOutputKeySortOrder();
       comparator = new LocalColumnBasedRecordComparator(sortColumns, key, sortOrders);
-      buffers = new ArrayList<PriorityQueue<Object[]>>(numReduce);
-      for (i = 0; i < numReduce; i++) {
-        buffers.add(new PriorityQueue<Object[]>(16, comparator));
+      sortKeyEncoder = new SortKeyEncoder(sortColumns, key, sortOrders);
+      initBuffers();
+    }
+
+  }
+
+  private MapOutputBuffer(MapOutputBuffer parent) {
+    this.partColIdxs = parent.partColIdxs;
+    this.numReduce = parent.numReduce;
+    this.comparator = parent.comparator;
+    this.sortKeyEncoder = parent.sortKeyEncoder;
+    this.spillDir = parent.spillDir;
+    this.maxMemoryRecords = parent.maxMemoryRecords;
+    if (parent.buffers != null) {
+      initBuffers();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void initBuffers() {
+    buffers = new ArrayList<List<Object[]>>(numReduce);
+    for (int i = 0; i < numReduce; i++) {
+      buffers.add(new ArrayList<Object[]>());
+    }
+    partitionQueues = new Queue[numReduce];
+  }
+
+  /**
+   * Bound the number of records kept in memory. When it is reached, the records are sorted and
+   * spilled to a file under spillDir.
+   *
+   * @param spillDir
+   *     directory of spill files
+   * @param maxMemoryRecords
+   *     max number of records kept in memory
+   */
+  public void enableSpill(File spillDir, long maxMemoryRecords) {
+    if (maxMemoryRecords <= 0) {
+      throw new IllegalArgumentException("maxMemoryRecords should be positive");
+    }
+    this.spillDir = spillDir;
+    this.maxMemoryRecords = maxMemoryRecords;
+  }
+
+  /**
+   * Create a buffer private to one task, with the same partitioning, sort order and spill settings
+   * as this one. Merging the task buffers in task order with {@link #merge(MapOutputBuffer)}
+   * leaves this buffer exactly as a serial run would.
+   *
+   * @return task buffer
+   */
+  public MapOutputBuffer createTaskBuffer() {
+    return new MapOutputBuffer(this);
+  }
+
+  /**
+   * Move all records of a task buffer into this buffer.
+   *
+   * @param taskBuffer
+   *     buffer created by {@link #createTaskBuffer()}
+   */
+  public synchronized void merge(MapOutputBuffer taskBuffer) throws IOException {
+    if (buffers == null || taskBuffer.buffers == null) {
+      return;
+    }
+    if (!taskBuffer.spills.isEmpty()) {
+      // keep the runs in insertion order
+      if (memoryRecordCount > 0) {
+        spill();
       }
+      spills.addAll(taskBuffer.spills);
+    }
+    for (int i = 0; i < numReduce; i++) {
+      buffers.get(i).addAll(taskBuffer.buffers.get(i));
+    }
+    memoryRecordCount += taskBuffer.memoryRecordCount;
+    sorted = false;
+    spillCount += taskBuffer.spillCount;
+    spilledRecords += taskBuffer.spilledRecords;
+    sortNanos += taskBuffer.sortNanos;
+
+    taskBuffer.spills = new ArrayList<MapOutputSpill>();
+    taskBuffer.initBuffers();
+    taskBuffer.memoryRecordCount = 0;
+    if (memoryRecordCount >= maxMemoryRecords && spillDir != null) {
+      spill();
+    }
+  }
+
+  private void offer(int partition, Object[] record) throws IOException {
+    buffers.get(partition).add(record);
+    sorted = false;
+    if (++memoryRecordCount >= maxMemoryRecords && spillDir != null) {
+      spill();
     }
+  }
 
+  private void sortBuffers() {
+    if (sorted) {
+      return;
+    }
+    long start = System.nanoTime();
+    for (List<Object[]> records : buffers) {
+      sortRecords(records);
+    }
+    sortNanos += System.nanoTime() - start;
+    sorted = true;
   }
 
+  private void spill() throws IOException {
+    sortBuffers();
+    if (!spillDir.exists()) {
+      spillDir.mkdirs();
+    }
+    File file = new File(spillDir,
+                         String.format("spill_%06d.bin", SPILL_SEQUENCE.incrementAndGet()));
+    spills.add(MapOutputSpill.write(file, buffers));
+    spillCount++;
+    spilledRecords += memoryRecordCount;
+    memoryRecordCount = 0;
+    for (int i = 0; i < numReduce; i++) {
+      buffers.set(i, new ArrayList<Object[]>());
+    }
+  }
+
+  /**
+   * Sort the records in memory. Called when the stage writing this buffer finishes, so the sort
+   * time is accounted to that stage. {@link #getPartitionQueue(int)} sorts on demand otherwise.
+   */
+  public synchronized void sort() {
+    if (buffers != null) {
+      sortBuffers();
+    }
+  }
 
   /**
    * Hard coded partition strategy. Should be the same as FUXI hash function.
@@ -124,37 +278,96 @@ public class MapOutputBuffer {
     return Math.abs(partition) % numReduce;
   }
 
-  public void add(Record key, Record value) {
+  public void add(Record key, Record value) throws IOException {
     int partition = getPartition(key);
-    buffers.get(partition).offer(
-        ArrayUtils.addAll(((WritableRecord) key).toWritableArray().clone(),
-                          ((WritableRecord) value).toWritableArray().clone()));
+    offer(partition,
+          ArrayUtils.addAll(((WritableRecord) key).detach(),
+                            ((WritableRecord) value).detach()));
   }
 
-  public void add(Record key, Record value, int partition) {
-    buffers.get(partition).offer(
-        ArrayUtils.addAll(((WritableRecord) key).toWritableArray().clone(),
-                          ((WritableRecord) value).toWritableArray().clone()));
+  public void add(Record key, Record value, int partition) throws IOException {
+    offer(partition,
+          ArrayUtils.addAll(((WritableRecord) key).detach(),
+                            ((WritableRecord) value).detach()));
   }
 
-  public Queue<Object[]> getPartitionQueue(int partition) {
-    return buffers.get(partition);
+  /**
+   * Sorted records of a partition. The queue can only be polled, records are removed as they are
+   * read. Records read back from spill files reuse their arrays and writables: a polled record is
+   * still valid when the next record is polled, it must be copied to be kept longer.
+   */
+  public synchronized Queue<Object[]> getPartitionQueue(int partition) throws IOException {
+    Queue<Object[]> queue = partitionQueues[partition];
+    if (queue == null) {
+      sortBuffers();
+      List<SortedRunQueue.Run> runs = new ArrayList<SortedRunQueue.Run>(spills.size() + 1);
+      long size = 0;
+      for (MapOutputSpill spill : spills) {
+        SortedRunQueue.Run run = spill.open(partition);
+        if (run != null) {
+          runs.add(run);
+          size += spill.getRecordCount(partition);
+        }
+      }
+      List<Object[]> records = buffers.get(partition);
+      runs.add(new SortedRunQueue.ListRun(records));
+      size += records.size();
+      queue = new SortedRunQueue(runs, comparator, size);
+      memoryRecordCount -= buffers.get(partition).size();
+      buffers.set(partition, new ArrayList<Object[]>());
+      partitionQueues[partition] = queue;
+    }
+    return queue;
+  }
+
+  /**
+   * Stable sort of records by the output key sort columns. Sort keys are encoded once per record
+   * and compared as bytes, equal keys stay in their original order.
+   */
+  void sortRecords(List<Object[]> records) {
+    sortKeyEncoder.sort(records);
   }
 
   public Comparator<? super Object[]> getComparator() {
     return comparator;
   }
 
-  public long getTotalRecordCount() {
+  /**
+   * Record time spent sorting map output outside this buffer, e.g. before running the combiner.
+   */
+  synchronized void addSortTime(long nanos) {
+    sortNanos += nanos;
+  }
+
+  public synchronized long getSpillCount() {
+    return spillCount;
+  }
+
+  public synchronized long getSpilledRecords() {
+    return spilledRecords;
+  }
+
+  /**
+   * @return sort time in milliseconds
+   */
+  public synchronized long getSortTime() {
+    return sortNanos / 1000000;
+  }
+
+  public synchronized long getTotalRecordCount() {
     if (buffers == null) {
       return 0;
     }
     long totalCount = 0;
-    for (PriorityQueue<Object[]> item : buffers) {
-      if (item == null) {
+    for (int i = 0; i < numReduce; i++) {
+      if (partitionQueues[i] != null) {
+        totalCount += partitionQueues[i].size();
         continue;
       }
-      totalCount += item.size();
+      totalCount += buffers.get(i).size();
+      for (MapOutputSpill spill : spills) {
+        totalCount += spill.getRecordCount(i);
+      }
     }
     return totalCount;
   }
@@ -162,4 +375,16 @@ public class MapOutputBuffer {
   public void add(Record record, String label) {
     // do nothing
   }
+
+  /**
+   * Delete the spill files. Spills of partitions that were read are already deleted, this removes
+   * the ones whose partitions were never read, e.g. when a reducer failed. The buffer can not be
+   * read afterwards.
+   */
+  public synchronized void close() {
+    for (MapOutputSpill spill : spills) {
+      spill.delete();
+    }
+    spills = new ArrayList<MapOutputSpill>();
+  }
 }
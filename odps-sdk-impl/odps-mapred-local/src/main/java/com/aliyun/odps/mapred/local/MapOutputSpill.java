@@ -0,0 +1,235 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.mapred.local;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.aliyun.odps.io.Writable;
+import com.aliyun.odps.utils.ReflectionUtils;
+
+/**
+ * One sorted run of a {@link MapOutputBuffer} spilled to disk.
+ *
+ * <p>
+ * The file holds the sorted records of every partition one after another. Each column of a record
+ * is written as a one byte tag, 0 for null or the index of the writable class plus one, followed
+ * by {@link Writable#write}. Partitions are read independently and the file is deleted after the
+ * last non-empty partition has been read, or by {@link #delete()}.
+ * </p>
+ *
+ * <p>
+ * A partition reader keeps {@link #REUSE_DEPTH} records and their writables and fills them in turn,
+ * so a record it returns is overwritten when the reader returns the {@link #REUSE_DEPTH}-th record
+ * after it.
+ * </p>
+ */
+class MapOutputSpill {
+
+  private static final int MAX_CLASSES = 255;
+  private static final int BUFFER_SIZE = 64 * 1024;
+  // records a reader hands out before reusing one: the record being reduced, the next record
+  // polled to check the group and the head of the run
+  static final int REUSE_DEPTH = 3;
+
+  private final File file;
+  private final long[] offsets;
+  private final long[] counts;
+  private final List<Class<? extends Writable>> classes;
+  private final int columnCount;
+  private final AtomicInteger unread;
+
+  private MapOutputSpill(File file, long[] offsets, long[] counts,
+                         List<Class<? extends Writable>> classes, int columnCount) {
+    this.file = file;
+    this.columnCount = columnCount;
+    this.offsets = offsets;
+    this.counts = counts;
+    this.classes = classes;
+    int nonEmpty = 0;
+    for (long count : counts) {
+      if (count > 0) {
+        nonEmpty++;
+      }
+    }
+    this.unread = new AtomicInteger(nonEmpty);
+  }
+
+  /**
+   * Write sorted partitions to a new spill file.
+   *
+   * @param file
+   *     file to create
+   * @param partitions
+   *     records of each partition, already sorted
+   * @return the spill
+   */
+  static MapOutputSpill write(File file, List<List<Object[]>> partitions) throws IOException {
+    long[] offsets = new long[partitions.size()];
+    long[] counts = new long[partitions.size()];
+    List<Class<? extends Writable>> classes = new ArrayList<Class<? extends Writable>>();
+    int columnCount = -1;
+    FileOutputStream fos = new FileOutputStream(file);
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, BUFFER_SIZE));
+    try {
+      for (int p = 0; p < partitions.size(); p++) {
+        out.flush();
+        offsets[p] = fos.getChannel().position();
+        List<Object[]> records = partitions.get(p);
+        counts[p] = records.size();
+        for (Object[] record : records) {
+          if (columnCount < 0) {
+            columnCount = record.length;
+          } else if (columnCount != record.length) {
+            throw new IOException("Map output records have different column counts");
+          }
+          for (Object o : record) {
+            if (o == null) {
+              out.writeByte(0);
+              continue;
+            }
+            Writable w = (Writable) o;
+            int tag = classes.indexOf(w.getClass());
+            if (tag < 0) {
+              if (classes.size() == MAX_CLASSES) {
+                throw new IOException("Too many writable classes in map output");
+              }
+              tag = classes.size();
+              classes.add(w.getClass());
+            }
+            out.writeByte(tag + 1);
+            w.write(out);
+          }
+        }
+      }
+    } finally {
+      out.close();
+    }
+    return new MapOutputSpill(file, offsets, counts, classes, columnCount);
+  }
+
+  long getRecordCount(int partition) {
+    return counts[partition];
+  }
+
+  /**
+   * Open a reader over one partition.
+   *
+   * @param partition
+   *     partition index
+   * @return reader, null if the partition is empty
+   */
+  SortedRunQueue.Run open(int partition) throws IOException {
+    if (counts[partition] == 0) {
+      return null;
+    }
+    return new PartitionReader(partition);
+  }
+
+  /**
+   * Delete the spill file, even if some partitions have not been read.
+   */
+  void delete() {
+    unread.set(0);
+    file.delete();
+  }
+
+  private void release() {
+    if (unread.decrementAndGet() == 0) {
+      file.delete();
+    }
+  }
+
+  private class PartitionReader implements SortedRunQueue.Run {
+
+    private long remaining;
+    private DataInputStream in;
+    private final Object[][] records = new Object[REUSE_DEPTH][];
+    // writables of each record, one per column, allocated once and read into afterwards
+    private final Writable[][] writables = new Writable[REUSE_DEPTH][];
+    private int slot;
+
+    PartitionReader(int partition) throws IOException {
+      this.remaining = counts[partition];
+      FileInputStream fis = new FileInputStream(file);
+      try {
+        fis.getChannel().position(offsets[partition]);
+      } catch (IOException e) {
+        fis.close();
+        throw e;
+      }
+      this.in = new DataInputStream(new BufferedInputStream(fis, BUFFER_SIZE));
+    }
+
+    @Override
+    public Object[] next() throws IOException {
+      if (remaining == 0) {
+        close();
+        return null;
+      }
+      Object[] record = records[slot];
+      Writable[] columns = writables[slot];
+      if (record == null) {
+        record = records[slot] = new Object[columnCount];
+        columns = writables[slot] = new Writable[columnCount];
+      }
+      slot = (slot + 1) % REUSE_DEPTH;
+      for (int i = 0; i < columnCount; i++) {
+        int tag = in.read();
+        if (tag < 0) {
+          throw new EOFException("Unexpected end of spill file " + file);
+        }
+        if (tag == 0) {
+          record[i] = null;
+          continue;
+        }
+        Class<? extends Writable> cls = classes.get(tag - 1);
+        Writable w = columns[i];
+        if (w == null || w.getClass() != cls) {
+          w = ReflectionUtils.newInstance(cls, null);
+          columns[i] = w;
+        }
+        w.readFields(in);
+        record[i] = w;
+      }
+      remaining--;
+      return record;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (in != null) {
+        in.close();
+        in = null;
+        release();
+      }
+    }
+  }
+}
@@ -32,6 +32,8 @@ import com.aliyun.odps.counter.Counters;
 import com.aliyun.odps.data.Record;
 import com.aliyun.odps.data.TableInfo;
 import com.aliyun.odps.data.VolumeInfo;
+import com.aliyun.odps.io.Writable;
+import com.aliyun.odps.io.WritableUtils;
 import com.aliyun.odps.mapred.Partitioner;
 import com.aliyun.odps.mapred.Reducer;
 import com.aliyun.odps.mapred.Reducer.TaskContext;
@@ -48,6 +50,7 @@ public class ReduceDriver extends DriverBase {
   class ReduceContextImpl extends LocalTaskContext implements TaskContext {
 
     private Record key;
+    private Record value;
     private Comparator<Object[]> keyGroupingComparator;
     private LocalGroupingRecordIterator itr;
     private Queue<Object[]> queue;
@@ -103,7 +106,6 @@ public class ReduceDriver extends DriverBase {
         if (init == null) {
           return false;
         }
-        Record value;
         if (pipeMode) {
           value = new WritableRecord(pipeNode.getInputValueSchema());
         } else {
@@ -135,11 +137,19 @@ public class ReduceDriver extends DriverBase {
     }
 
     @Override
-    public void write(Record key, Record value) {
+    public void write(Record key, Record value) throws IOException {
       if (!pipeMode || pipeNode == null) {
         throw new UnsupportedOperationException(
             ErrorCode.INTERMEDIATE_OUTPUT_IN_REDUCER.toString());
       }
+      // the input key and value hold writables read back from spill files, which are reused for
+      // the following records, so copy them before they are kept by the output buffer
+      if (key == this.key) {
+        key = copyOf(key);
+      }
+      if (value == this.value) {
+        value = copyOf(value);
+      }
 
       if (partitioner != null) {
         int part = partitioner.getPartition(key, value, this.getNumReduceTasks());
@@ -154,6 +164,15 @@ public class ReduceDriver extends DriverBase {
       counters.findCounter(JobCounter.__EMPTY_OUTPUT_RECORD_COUNT).increment(1);
     }
 
+    private Record copyOf(Record record) {
+      WritableRecord copy = new WritableRecord(record.getColumns());
+      Writable[] values = ((WritableRecord) record).toWritableArray();
+      for (int i = 0; i < values.length; i++) {
+        copy.set(i, WritableUtils.clone(values[i], null));
+      }
+      return copy;
+    }
+
     public void close() throws IOException {
       closeWriters();
     }
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.mapred.local;
+
+import java.io.IOException;
+import java.util.AbstractQueue;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Read-only queue that k-way merges sorted runs of one partition.
+ *
+ * <p>
+ * Records comparing equal are returned in run order, so merging the runs of a buffer in the order
+ * they were written gives the same sequence as a stable sort of all records.
+ * </p>
+ */
+class SortedRunQueue extends AbstractQueue<Object[]> {
+
+  /**
+   * A sorted run.
+   */
+  interface Run {
+
+    /**
+     * @return next record, null at the end of the run
+     */
+    Object[] next() throws IOException;
+
+    void close() throws IOException;
+  }
+
+  /**
+   * Run over an in-memory sorted list, consumed records are released.
+   */
+  static class ListRun implements Run {
+
+    private List<Object[]> records;
+    private int pos;
+
+    ListRun(List<Object[]> records) {
+      this.records = records;
+    }
+
+    @Override
+    public Object[] next() {
+      if (records == null || pos == records.size()) {
+        records = null;
+        return null;
+      }
+      Object[] record = records.get(pos);
+      records.set(pos++, null);
+      return record;
+    }
+
+    @Override
+    public void close() {
+      records = null;
+    }
+  }
+
+  private static class Cursor {
+
+    final Run run;
+    final int index;
+    Object[] head;
+
+    Cursor(Run run, int index) {
+      this.run = run;
+      this.index = index;
+    }
+  }
+
+  private final PriorityQueue<Cursor> heap;
+  private long size;
+
+  SortedRunQueue(List<Run> runs, final Comparator<? super Object[]> comparator, long size)
+      throws IOException {
+    this.heap = new PriorityQueue<Cursor>(Math.max(1, runs.size()), new Comparator<Cursor>() {
+      @Override
+      public int compare(Cursor l, Cursor r) {
+        int c = comparator.compare(l.head, r.head);
+        return c != 0 ? c : l.index - r.index;
+      }
+    });
+    this.size = size;
+    for (int i = 0; i < runs.size(); i++) {
+      Cursor cursor = new Cursor(runs.get(i), i);
+      cursor.head = cursor.run.next();
+      if (cursor.head != null) {
+        heap.add(cursor);
+      }
+    }
+  }
+
+  @Override
+  public Object[] peek() {
+    Cursor cursor = heap.peek();
+    return cursor == null ? null : cursor.head;
+  }
+
+  @Override
+  public Object[] poll() {
+    Cursor cursor = heap.poll();
+    if (cursor == null) {
+      return null;
+    }
+    Object[] record = cursor.head;
+    try {
+      cursor.head = cursor.run.next();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    if (cursor.head != null) {
+      heap.add(cursor);
+    }
+    size--;
+    return record;
+  }
+
+  @Override
+  public boolean offer(Object[] record) {
+    throw new UnsupportedOperationException("Sorted runs are read only");
+  }
+
+  @Override
+  public int size() {
+    return (int) Math.min(size, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public Iterator<Object[]> iterator() {
+    throw new UnsupportedOperationException("Sorted runs can only be polled");
+  }
+}
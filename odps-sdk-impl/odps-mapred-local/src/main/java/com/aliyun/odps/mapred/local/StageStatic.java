@@ -32,6 +32,9 @@ public class StageStatic {
   private long minOutputRecords;
   private long avgOutputRecords;
   private String nextTaskId;
+  private long spillCount;
+  private long spilledRecords;
+  private long sortTime;
 
   public String getTaskId() {
     return taskId;
@@ -121,6 +124,33 @@ public class StageStatic {
     this.nextTaskId = nextTaskId;
   }
 
+  public long getSpillCount() {
+    return spillCount;
+  }
+
+  public void setSpillCount(long spillCount) {
+    this.spillCount = spillCount;
+  }
+
+  public long getSpilledRecords() {
+    return spilledRecords;
+  }
+
+  public void setSpilledRecords(long spilledRecords) {
+    this.spilledRecords = spilledRecords;
+  }
+
+  /**
+   * @return shuffle sort time in milliseconds
+   */
+  public long getSortTime() {
+    return sortTime;
+  }
+
+  public void setSortTime(long sortTime) {
+    this.sortTime = sortTime;
+  }
+
   public void setInputRecordCount(long recordCount) {
     if (recordCount <= 0) {
       return;
@@ -0,0 +1,300 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.mapred.local.utils;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+
+import com.aliyun.odps.Column;
+import com.aliyun.odps.OdpsType;
+import com.aliyun.odps.io.BooleanWritable;
+import com.aliyun.odps.io.DatetimeWritable;
+import com.aliyun.odps.io.DoubleWritable;
+import com.aliyun.odps.io.LongWritable;
+import com.aliyun.odps.io.RawComparator;
+import com.aliyun.odps.io.Text;
+import com.aliyun.odps.io.WritableComparator;
+import com.aliyun.odps.mapred.conf.JobConf.SortOrder;
+
+/**
+ * 将排序列编码为可按字节比较的排序键。
+ *
+ * <p>
+ * 两条记录排序键的无符号字典序与 {@link LocalColumnBasedRecordComparator} 的比较结果一致，排序时每条记录只需编码一次，
+ * 之后的比较都是字节比较。每列的编码为：
+ * <ul>
+ * <li>一个字节的 null 标记，null 为 0，否则为 1，null 排在最前</li>
+ * <li>BIGINT、DATETIME：翻转符号位后的 8 字节大端</li>
+ * <li>DOUBLE：8 字节大端，正数翻转符号位，负数按位取反；-0.0 视为 0.0，NaN 排在最后</li>
+ * <li>BOOLEAN：一个字节 0 或 1</li>
+ * <li>STRING：原始字节，其中 0x00 转义为 0x00 0xFF，以 0x00 0x00 结束</li>
+ * </ul>
+ * 降序列的编码逐字节取反。
+ * </p>
+ *
+ * <p>
+ * 排序键的前 8 个字节可以作为 long 前缀（{@link #prefix(byte[])}）先行比较，多数比较只需比较前缀。
+ * </p>
+ */
+public class SortKeyEncoder {
+
+  private static final int PREFIX_BYTES = 8;
+
+  /**
+   * 排序键的比较器，按无符号字典序比较
+   */
+  public static final RawComparator<byte[]> KEY_COMPARATOR = new KeyComparator();
+
+  private final int[] selIdxs;
+  private final OdpsType[] types;
+  private final boolean[] descs;
+
+  /**
+   * SortKeyEncoder的构造方法，指定排序列的列名，参数含义与 {@link LocalColumnBasedRecordComparator} 相同。
+   *
+   * @param selCols
+   *     排序列的列名
+   * @param schema
+   *     整个Record的行属性
+   * @param sortOrders
+   *     排序列的顺序，为 null 时全部升序
+   */
+  public SortKeyEncoder(String[] selCols, Column[] schema, SortOrder[] sortOrders) {
+    Map<String, Integer> reverseLookupMap = new HashMap<String, Integer>();
+    for (int i = 0; i < schema.length; i++) {
+      reverseLookupMap.put(schema[i].getName(), i);
+    }
+    selIdxs = new int[selCols.length];
+    types = new OdpsType[selCols.length];
+    descs = new boolean[selCols.length];
+    for (int i = 0; i < selCols.length; i++) {
+      selIdxs[i] = reverseLookupMap.get(selCols[i]);
+      types[i] = schema[selIdxs[i]].getType();
+      if (!isSupported(types[i])) {
+        throw new IllegalArgumentException("Unsupported type in sort key: " + types[i]);
+      }
+      // 与 LocalColumnBasedRecordComparator 一致，长度不匹配时忽略排序顺序
+      descs[i] = sortOrders != null && sortOrders.length == selCols.length
+                 && sortOrders[i] == SortOrder.DESC;
+    }
+  }
+
+  /**
+   * 判断类型能否编码为排序键
+   *
+   * @param type
+   *     列类型
+   * @return 支持时返回 true
+   */
+  public static boolean isSupported(OdpsType type) {
+    switch (type) {
+      case STRING:
+      case DOUBLE:
+      case BIGINT:
+      case BOOLEAN:
+      case DATETIME:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * 编码一条记录的排序键
+   *
+   * @param record
+   *     记录内容
+   * @return 排序键
+   */
+  public byte[] encode(Object[] record) {
+    int length = 0;
+    for (int i = 0; i < selIdxs.length; i++) {
+      length += encodedLength(types[i], record[selIdxs[i]]);
+    }
+    byte[] key = new byte[length];
+    int pos = 0;
+    for (int i = 0; i < selIdxs.length; i++) {
+      int start = pos;
+      pos = encode(types[i], record[selIdxs[i]], key, pos);
+      if (descs[i]) {
+        for (int j = start; j < pos; j++) {
+          key[j] = (byte) ~key[j];
+        }
+      }
+    }
+    return key;
+  }
+
+  private static int encodedLength(OdpsType type, Object value) {
+    if (value == null) {
+      return 1;
+    }
+    switch (type) {
+      case BOOLEAN:
+        return 2;
+      case STRING: {
+        Text text = (Text) value;
+        byte[] bytes = text.getBytes();
+        int length = text.getLength() + 3;
+        for (int i = 0; i < text.getLength(); i++) {
+          if (bytes[i] == 0) {
+            length++;
+          }
+        }
+        return length;
+      }
+      default:
+        return 9;
+    }
+  }
+
+  private static int encode(OdpsType type, Object value, byte[] key, int pos) {
+    if (value == null) {
+      key[pos++] = 0;
+      return pos;
+    }
+    key[pos++] = 1;
+    switch (type) {
+      case BIGINT:
+      case DATETIME: {
+        long v = type == OdpsType.BIGINT ? ((LongWritable) value).get()
+                                         : ((DatetimeWritable) value).get();
+        return putLong(v ^ Long.MIN_VALUE, key, pos);
+      }
+      case DOUBLE: {
+        double d = ((DoubleWritable) value).get();
+        // -0.0 与 0.0 相等，所有 NaN 视为同一个最大值
+        long bits = d == 0.0 ? 0L : Double.doubleToLongBits(d);
+        return putLong(bits < 0 ? ~bits : bits ^ Long.MIN_VALUE, key, pos);
+      }
+      case BOOLEAN:
+        key[pos++] = (byte) (((BooleanWritable) value).get() ? 1 : 0);
+        return pos;
+      case STRING: {
+        Text text = (Text) value;
+        byte[] bytes = text.getBytes();
+        for (int i = 0; i < text.getLength(); i++) {
+          key[pos++] = bytes[i];
+          if (bytes[i] == 0) {
+            key[pos++] = (byte) 0xFF;
+          }
+        }
+        key[pos++] = 0;
+        key[pos++] = 0;
+        return pos;
+      }
+      default:
+        throw new IllegalArgumentException("Unsupported type in sort key: " + type);
+    }
+  }
+
+  private static int putLong(long v, byte[] key, int pos) {
+    for (int shift = 56; shift >= 0; shift -= 8) {
+      key[pos++] = (byte) (v >>> shift);
+    }
+    return pos;
+  }
+
+  /**
+   * 取排序键的前 8 个字节作为 long 前缀，不足 8 字节时低位补 0。前缀按无符号比较的结果与排序键前 8 个字节的字典序一致。
+   *
+   * @param key
+   *     排序键
+   * @return 前缀
+   */
+  public static long prefix(byte[] key) {
+    long prefix = 0;
+    int n = Math.min(PREFIX_BYTES, key.length);
+    for (int i = 0; i < n; i++) {
+      prefix |= (key[i] & 0xFFL) << (56 - 8 * i);
+    }
+    return prefix;
+  }
+
+  /**
+   * 按排序键对记录稳定排序，排序键相同的记录保持原有顺序。
+   *
+   * @param records
+   *     待排序的记录
+   */
+  public void sort(List<Object[]> records) {
+    int size = records.size();
+    if (size < 2) {
+      return;
+    }
+    SortEntry[] entries = new SortEntry[size];
+    int i = 0;
+    for (Object[] record : records) {
+      byte[] key = encode(record);
+      entries[i++] = new SortEntry(prefix(key), key, record);
+    }
+    // Arrays.sort 对对象数组是稳定的
+    Arrays.sort(entries, ENTRY_COMPARATOR);
+    ListIterator<Object[]> it = records.listIterator();
+    for (SortEntry entry : entries) {
+      it.next();
+      it.set(entry.record);
+    }
+  }
+
+  private static class SortEntry {
+
+    final long prefix;
+    final byte[] key;
+    final Object[] record;
+
+    SortEntry(long prefix, byte[] key, Object[] record) {
+      this.prefix = prefix;
+      this.key = key;
+      this.record = record;
+    }
+  }
+
+  private static final Comparator<SortEntry> ENTRY_COMPARATOR = new Comparator<SortEntry>() {
+    @Override
+    public int compare(SortEntry l, SortEntry r) {
+      if (l.prefix != r.prefix) {
+        return Long.compare(l.prefix ^ Long.MIN_VALUE, r.prefix ^ Long.MIN_VALUE);
+      }
+      // 排序键互不为前缀，前缀相同时只需比较剩余部分
+      int ls = Math.min(PREFIX_BYTES, l.key.length);
+      int rs = Math.min(PREFIX_BYTES, r.key.length);
+      return WritableComparator.compareBytes(l.key, ls, l.key.length - ls,
+                                             r.key, rs, r.key.length - rs);
+    }
+  };
+
+  private static class KeyComparator implements RawComparator<byte[]> {
+
+    @Override
+    public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+      return WritableComparator.compareBytes(b1, s1, l1, b2, s2, l2);
+    }
+
+    @Override
+    public int compare(byte[] l, byte[] r) {
+      return compare(l, 0, l.length, r, 0, r.length);
+    }
+  }
+}
@@ -19,6 +19,7 @@
 
 package com.aliyun.odps.mapred.unittest;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -150,13 +151,13 @@ public class TaskOutput extends MapOutputBuffer {
   }
 
   @Override
-  public void add(Record key, Record value) {
+  public void add(Record key, Record value) throws IOException {
     int partition = getPartition(key);
     this.add(key, value, partition);
   }
 
   @Override
-  public void add(Record key, Record value, int partition) {
+  public void add(Record key, Record value, int partition) throws IOException {
     super.add(key, value, partition);
     KeyValue<Record, Record> kv = new KeyValue<Record, Record>(key.clone(), value.clone());
 
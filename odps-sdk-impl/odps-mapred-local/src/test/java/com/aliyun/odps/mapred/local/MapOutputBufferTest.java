@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.mapred.local;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.aliyun.odps.mapred.bridge.WritableRecord;
+import com.aliyun.odps.mapred.conf.JobConf;
+import com.aliyun.odps.mapred.utils.SchemaUtils;
+
+public class MapOutputBufferTest {
+
+  private static JobConf createJob() {
+    JobConf job = new JobConf();
+    job.setMapOutputKeySchema(SchemaUtils.fromString("word:string,id:bigint"));
+    job.setMapOutputValueSchema(SchemaUtils.fromString("score:double,tag:string"));
+    job.setPartitionColumns(new String[]{"word"});
+    job.setOutputKeySortColumns(new String[]{"word"});
+    return job;
+  }
+
+  private static void fill(MapOutputBuffer buffer, JobConf job, int start, int count)
+      throws IOException {
+    WritableRecord key = new WritableRecord(job.getMapOutputKeySchema());
+    WritableRecord value = new WritableRecord(job.getMapOutputValueSchema());
+    for (int i = start; i < start + count; i++) {
+      key.set(0, "w" + (i % 11));
+      key.set(1, i % 5 == 0 ? null : (long) i);
+      value.set(0, i / 3.0);
+      value.set(1, i % 7 == 0 ? null : "t" + i);
+      buffer.add(key, value);
+    }
+  }
+
+  private static List<String> drain(MapOutputBuffer buffer, int numReduce) throws IOException {
+    List<String> result = new ArrayList<String>();
+    for (int i = 0; i < numReduce; i++) {
+      Queue<Object[]> queue = buffer.getPartitionQueue(i);
+      Object[] record;
+      while ((record = queue.poll()) != null) {
+        result.add(i + ":" + Arrays.toString(record));
+      }
+      Assert.assertEquals(0, queue.size());
+    }
+    return result;
+  }
+
+  @Test
+  public void testSpill() throws Exception {
+    JobConf job = createJob();
+    File spillDir = new File("target/spill_test_" + System.nanoTime());
+    try {
+      MapOutputBuffer memory = new MapOutputBuffer(job, 3);
+      fill(memory, job, 0, 1000);
+
+      MapOutputBuffer spilled = new MapOutputBuffer(job, 3);
+      spilled.enableSpill(spillDir, 64);
+      fill(spilled, job, 0, 1000);
+      spilled.sort();
+
+      Assert.assertEquals(15, spilled.getSpillCount());
+      Assert.assertEquals(960, spilled.getSpilledRecords());
+      Assert.assertEquals(1000, spilled.getTotalRecordCount());
+      Assert.assertEquals(15, spillDir.listFiles().length);
+
+      // 相同排序键的记录按写入顺序返回, 与是否溢写无关
+      Assert.assertEquals(drain(memory, 3), drain(spilled, 3));
+      Assert.assertEquals(0, spilled.getTotalRecordCount());
+      Assert.assertEquals(0, spillDir.listFiles().length);
+    } finally {
+      FileUtils.deleteQuietly(spillDir);
+    }
+  }
+
+  @Test
+  public void testMergeSpilledTaskBuffers() throws Exception {
+    JobConf job = createJob();
+    File spillDir = new File("target/spill_test_" + System.nanoTime());
+    try {
+      MapOutputBuffer serial = new MapOutputBuffer(job, 2);
+      MapOutputBuffer parallel = new MapOutputBuffer(job, 2);
+      parallel.enableSpill(spillDir, 50);
+      List<MapOutputBuffer> taskBuffers = new ArrayList<MapOutputBuffer>();
+      int[] sizes = {30, 120, 10, 75};
+      int start = 0;
+      for (int size : sizes) {
+        fill(serial, job, start, size);
+        MapOutputBuffer taskBuffer = parallel.createTaskBuffer();
+        fill(taskBuffer, job, start, size);
+        taskBuffers.add(taskBuffer);
+        start += size;
+      }
+      for (MapOutputBuffer taskBuffer : taskBuffers) {
+        parallel.merge(taskBuffer);
+      }
+      parallel.sort();
+
+      Assert.assertTrue(parallel.getSpillCount() > 0);
+      Assert.assertEquals(start, parallel.getTotalRecordCount());
+      Assert.assertEquals(drain(serial, 2), drain(parallel, 2));
+    } finally {
+      FileUtils.deleteQuietly(spillDir);
+    }
+  }
+
+  @Test
+  public void testReuseSpilledRecords() throws Exception {
+    JobConf job = createJob();
+    File spillDir = new File("target/spill_test_" + System.nanoTime());
+    try {
+      MapOutputBuffer buffer = new MapOutputBuffer(job, 1);
+      buffer.enableSpill(spillDir, 10);
+      fill(buffer, job, 0, 10);
+
+      Queue<Object[]> queue = buffer.getPartitionQueue(0);
+      Object[] first = queue.poll();
+      String expected = Arrays.toString(first);
+      // 取出下一条记录时, 上一条记录仍然有效
+      Object[] second = queue.poll();
+      Assert.assertNotSame(first, second);
+      Assert.assertEquals(expected, Arrays.toString(first));
+      // 之后读取的记录复用数组和 Writable 对象
+      queue.poll();
+      Object[] fourth = queue.poll();
+      Assert.assertSame(first, fourth);
+      Assert.assertSame(first[0], fourth[0]);
+    } finally {
+      FileUtils.deleteQuietly(spillDir);
+    }
+  }
+
+  @Test
+  public void testCloseDeletesUnreadSpills() throws Exception {
+    JobConf job = createJob();
+    File spillDir = new File("target/spill_test_" + System.nanoTime());
+    try {
+      MapOutputBuffer buffer = new MapOutputBuffer(job, 3);
+      buffer.enableSpill(spillDir, 64);
+      fill(buffer, job, 0, 200);
+      Assert.assertEquals(3, spillDir.listFiles().length);
+
+      // 只读取一个分区, 其余分区的溢写文件在 close 时删除
+      Queue<Object[]> queue = buffer.getPartitionQueue(0);
+      while (queue.poll() != null) {
+      }
+      Assert.assertEquals(3, spillDir.listFiles().length);
+      buffer.close();
+      Assert.assertEquals(0, spillDir.listFiles().length);
+    } finally {
+      FileUtils.deleteQuietly(spillDir);
+    }
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.mapred.local;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.aliyun.odps.Odps;
+import com.aliyun.odps.account.AliyunAccount;
+import com.aliyun.odps.counter.Counters;
+import com.aliyun.odps.data.TableInfo;
+import com.aliyun.odps.local.common.Constants;
+import com.aliyun.odps.local.common.WareHouse;
+import com.aliyun.odps.mapred.JobClient;
+import com.aliyun.odps.mapred.RunningJob;
+import com.aliyun.odps.mapred.bridge.WritableRecord;
+import com.aliyun.odps.mapred.conf.JobConf;
+import com.aliyun.odps.mapred.conf.SessionState;
+import com.aliyun.odps.mapred.local.utils.TestUtils;
+import com.aliyun.odps.mapred.utils.InputUtils;
+import com.aliyun.odps.mapred.utils.OutputUtils;
+import com.aliyun.odps.mapred.utils.SchemaUtils;
+
+public class ParallelRunTest {
+
+  private static JobConf createJob(int workerNum, int sortBufferRecords) {
+    JobConf job = new JobConf();
+    job.setMapperClass(WordCount.TokenizerMapper.class);
+    job.setCombinerClass(WordCount.SumCombiner.class);
+    job.setReducerClass(WordCount.SumReducer.class);
+    job.setNumReduceTasks(3);
+    job.setInt(Constants.LOCAL_WORKER_NUM, workerNum);
+    job.setInt(Constants.LOCAL_SORT_BUFFER_RECORDS, sortBufferRecords);
+    job.set(Constants.LOCAL_TEMP_RETAIN, "false");
+
+    job.setMapOutputKeySchema(SchemaUtils.fromString("word:string"));
+    job.setMapOutputValueSchema(SchemaUtils.fromString("count:bigint"));
+    return job;
+  }
+
+  private static List<String> drain(MapOutputBuffer buffer, int numReduce) throws IOException {
+    List<String> result = new ArrayList<String>();
+    for (int i = 0; i < numReduce; i++) {
+      Queue<Object[]> queue = buffer.getPartitionQueue(i);
+      Object[] record;
+      while ((record = queue.poll()) != null) {
+        result.add(i + ":" + Arrays.toString(record));
+      }
+    }
+    return result;
+  }
+
+  @Test
+  public void testMergeTaskBuffer() throws Exception {
+    JobConf job = createJob(1, Constants.DEFAULT_SORT_BUFFER_RECORDS);
+    WritableRecord key = new WritableRecord(job.getMapOutputKeySchema());
+    WritableRecord value = new WritableRecord(job.getMapOutputValueSchema());
+
+    MapOutputBuffer serial = new MapOutputBuffer(job, 3);
+    MapOutputBuffer parallel = new MapOutputBuffer(job, 3);
+    List<MapOutputBuffer> taskBuffers = new ArrayList<MapOutputBuffer>();
+    for (int task = 0; task < 4; task++) {
+      taskBuffers.add(parallel.createTaskBuffer());
+    }
+    // 相同 key 的记录在排序时相等, 合并后的出队顺序也需要与串行一致
+    for (int task = 0; task < 4; task++) {
+      for (int i = 0; i < 50; i++) {
+        key.set(0, "w" + (i % 7));
+        value.set(0, (long) (task * 100 + i));
+        serial.add(key, value);
+        taskBuffers.get(3 - task).add(key, value);
+      }
+    }
+    Assert.assertEquals(0, parallel.getTotalRecordCount());
+    for (int task = 3; task >= 0; task--) {
+      parallel.merge(taskBuffers.get(task));
+    }
+    Assert.assertEquals(200, parallel.getTotalRecordCount());
+    Assert.assertEquals(0, taskBuffers.get(0).getTotalRecordCount());
+    Assert.assertEquals(drain(serial, 3), drain(parallel, 3));
+  }
+
+  @Test
+  public void testParallelJob() throws Exception {
+    WareHouse wareHouse = WareHouse.getInstance();
+    String project = TestUtils.odps_test_mrtask;
+    String outputTable = "parallel_wordcount_out";
+
+    // 输入表都在本地 warehouse 中, 不会访问服务端
+    Odps odps = new Odps(new AliyunAccount("access_id", "access_key"));
+    odps.setDefaultProject(project);
+    odps.setEndpoint("http://localhost");
+    SessionState.get().setOdps(odps);
+    SessionState.get().setLocalRun(true);
+
+    List<List<Object[]>> results = new ArrayList<List<Object[]>>();
+    List<Counters> counters = new ArrayList<Counters>();
+    // 串行, 并发, 以及并发且每两条记录溢写一次
+    int[][] modes = {{1, Constants.DEFAULT_SORT_BUFFER_RECORDS},
+                     {4, Constants.DEFAULT_SORT_BUFFER_RECORDS},
+                     {4, 2}};
+    for (int[] mode : modes) {
+      wareHouse.dropTableDataIfExists(project, outputTable, null);
+
+      JobConf job = createJob(mode[0], mode[1]);
+      InputUtils.addTable(TableInfo.builder().tableName("l_ss").build(), job);
+      InputUtils.addTable(TableInfo.builder().tableName("l_p_ss").build(), job);
+      OutputUtils.addTable(TableInfo.builder().tableName(outputTable).build(), job);
+      RunningJob rj = JobClient.runJob(job);
+
+      results.add(wareHouse.readData(project, outputTable, null, null, ','));
+      counters.add(rj.getCounters());
+    }
+
+    Assert.assertFalse(results.get(0).isEmpty());
+    for (int mode = 1; mode < modes.length; mode++) {
+      Assert.assertEquals(results.get(0).size(), results.get(mode).size());
+      for (int i = 0; i < results.get(0).size(); i++) {
+        Assert.assertArrayEquals(results.get(0).get(i), results.get(mode).get(i));
+      }
+    }
+    Assert.assertEquals(counters.get(0).toString(), counters.get(1).toString());
+    Assert.assertTrue(
+        counters.get(1).findCounter("MyCounters", "global_counts").getValue() > 0);
+    // 溢写时 combiner 按批运行, 合并的组数会变多
+    Assert.assertTrue(counters.get(2).findCounter(JobCounter.MAP_SPILL_FILES).getValue() > 0);
+    Assert.assertEquals(counters.get(0).findCounter(JobCounter.MAP_OUTPUT_RECORDS).getValue(),
+                        counters.get(2).findCounter(JobCounter.MAP_OUTPUT_RECORDS).getValue());
+  }
+}
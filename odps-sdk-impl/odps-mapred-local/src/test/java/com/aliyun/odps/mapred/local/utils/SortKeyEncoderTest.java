@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.mapred.local.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.aliyun.odps.Column;
+import com.aliyun.odps.io.BooleanWritable;
+import com.aliyun.odps.io.DatetimeWritable;
+import com.aliyun.odps.io.DoubleWritable;
+import com.aliyun.odps.io.LongWritable;
+import com.aliyun.odps.io.Text;
+import com.aliyun.odps.mapred.conf.JobConf.SortOrder;
+import com.aliyun.odps.mapred.utils.SchemaUtils;
+
+public class SortKeyEncoderTest {
+
+  private static final Column[] SCHEMA = SchemaUtils.fromString(
+      "s:string,l:bigint,d:double,b:boolean,t:datetime,v:bigint");
+  private static final String[] SORT_COLUMNS = {"s", "l", "d", "b", "t"};
+
+  private static Object[] randomRecord(Random random, int id) {
+    Object[] record = new Object[SCHEMA.length];
+    if (random.nextInt(8) != 0) {
+      // 短字符串且包含 0x00, 便于覆盖前缀和转义
+      byte[] bytes = new byte[random.nextInt(4)];
+      for (int i = 0; i < bytes.length; i++) {
+        bytes[i] = (byte) (random.nextInt(3) == 0 ? 0 : 'a' + random.nextInt(3));
+      }
+      Text text = new Text();
+      text.set(bytes);
+      record[0] = text;
+    }
+    if (random.nextInt(8) != 0) {
+      long[] candidates = {Long.MIN_VALUE, -1, 0, 1, Long.MAX_VALUE};
+      record[1] = new LongWritable(random.nextBoolean() ? candidates[random.nextInt(5)]
+                                                        : random.nextInt(5) - 2);
+    }
+    if (random.nextInt(8) != 0) {
+      double[] candidates = {Double.NEGATIVE_INFINITY, -1.5, -0.0, 0.0, Double.MIN_VALUE, 2.5,
+                             Double.POSITIVE_INFINITY};
+      record[2] = new DoubleWritable(candidates[random.nextInt(candidates.length)]);
+    }
+    if (random.nextInt(8) != 0) {
+      record[3] = new BooleanWritable(random.nextBoolean());
+    }
+    if (random.nextInt(8) != 0) {
+      record[4] = new DatetimeWritable(random.nextInt(3) - 1);
+    }
+    record[5] = new LongWritable(id);
+    return record;
+  }
+
+  private static void assertConsistent(SortOrder[] sortOrders) {
+    LocalColumnBasedRecordComparator comparator =
+        new LocalColumnBasedRecordComparator(SORT_COLUMNS, SCHEMA, sortOrders);
+    SortKeyEncoder encoder = new SortKeyEncoder(SORT_COLUMNS, SCHEMA, sortOrders);
+    Random random = new Random(20);
+    List<Object[]> records = new ArrayList<Object[]>();
+    for (int i = 0; i < 2000; i++) {
+      records.add(randomRecord(random, i));
+    }
+    for (int i = 0; i + 1 < records.size(); i++) {
+      Object[] l = records.get(i);
+      Object[] r = records.get(i + 1);
+      Assert.assertEquals(Integer.signum(comparator.compare(l, r)),
+                          Integer.signum(SortKeyEncoder.KEY_COMPARATOR.compare(
+                              encoder.encode(l), encoder.encode(r))));
+    }
+
+    List<Object[]> expected = new ArrayList<Object[]>(records);
+    Collections.sort(expected, comparator);
+    List<Object[]> actual = new LinkedList<Object[]>(records);
+    encoder.sort(actual);
+    Assert.assertEquals(expected.size(), actual.size());
+    int i = 0;
+    for (Object[] record : actual) {
+      // 排序键相同的记录保持原有顺序
+      Assert.assertSame(expected.get(i++), record);
+    }
+  }
+
+  @Test
+  public void testAscending() {
+    assertConsistent(null);
+  }
+
+  @Test
+  public void testMixedOrder() {
+    assertConsistent(new SortOrder[]{SortOrder.DESC, SortOrder.ASC, SortOrder.DESC,
+                                     SortOrder.ASC, SortOrder.DESC});
+  }
+
+  @Test
+  public void testSpecialDoubles() {
+    Column[] schema = SchemaUtils.fromString("d:double");
+    SortKeyEncoder encoder = new SortKeyEncoder(new String[]{"d"}, schema, null);
+    byte[] nan = encoder.encode(new Object[]{new DoubleWritable(Double.NaN)});
+    byte[] inf = encoder.encode(new Object[]{new DoubleWritable(Double.POSITIVE_INFINITY)});
+    byte[] negZero = encoder.encode(new Object[]{new DoubleWritable(-0.0)});
+    byte[] zero = encoder.encode(new Object[]{new DoubleWritable(0.0)});
+    byte[] nul = encoder.encode(new Object[]{null});
+    Assert.assertTrue(SortKeyEncoder.KEY_COMPARATOR.compare(nan, inf) > 0);
+    Assert.assertEquals(0, SortKeyEncoder.KEY_COMPARATOR.compare(negZero, zero));
+    Assert.assertTrue(SortKeyEncoder.KEY_COMPARATOR.compare(nul, negZero) < 0);
+  }
+
+  @Test
+  public void testPrefix() {
+    byte[] key = {1, 2, 3, 4, 5, 6, 7, 8, 9};
+    Assert.assertEquals(0x0102030405060708L, SortKeyEncoder.prefix(key));
+    Assert.assertEquals(0xFF00000000000000L, SortKeyEncoder.prefix(new byte[]{(byte) 0xFF}));
+    Assert.assertEquals(0L, SortKeyEncoder.prefix(new byte[0]));
+  }
+}
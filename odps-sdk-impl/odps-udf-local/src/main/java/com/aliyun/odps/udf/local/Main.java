@@ -22,7 +22,6 @@ package com.aliyun.odps.udf.local;
 import com.aliyun.odps.data.TableInfo;
 import com.aliyun.odps.local.common.utils.PartitionUtils;
 import java.io.IOException;
-import java.util.List;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.HelpFormatter;
@@ -37,10 +36,13 @@ import com.aliyun.odps.account.AliyunAccount;
 import com.aliyun.odps.local.common.utils.SchemaUtils;
 import com.aliyun.odps.local.common.WareHouse;
 import com.aliyun.odps.udf.UDFException;
+import com.aliyun.odps.udf.UDTFCollector;
 import com.aliyun.odps.udf.local.datasource.InputSource;
 import com.aliyun.odps.udf.local.datasource.TableInputSource;
 import com.aliyun.odps.udf.local.runner.BaseRunner;
 import com.aliyun.odps.udf.local.runner.RunnerFactory;
+import com.aliyun.odps.udf.local.runner.RunnerStats;
+import com.aliyun.odps.udf.local.runner.UDFRunner;
 
 import static com.aliyun.odps.local.common.utils.LocalRunUtils.validateTunnelEndpoint;
 
@@ -52,7 +54,7 @@ public class Main {
   public Main() {
     options = new Options();
 
-    options.addOption("c", "classname", true, "UDF,UDTF or UDAF class name");
+    options.addOption("c", "classname", true, "UDF,UDTF,UDAF or vectorized UDF class name");
     options.addOption("i", "input", true,
                       "input table: table.p(p1=1,p2=2).c(c1,c2)");
 
@@ -64,6 +66,11 @@ public class Main {
     options.addOption("w", "warehouse-dir", true, "Warehouse Dir");
     options.addOption(null, "record-limit", true, "download record num limit");
     options.addOption(null, "column-separator", true, "column separator for data input");
+    options.addOption(null, "batch-size", true, "records processed per batch, default "
+                                                + BaseRunner.DEFAULT_BATCH_SIZE);
+    options.addOption(null, "threads", true,
+                      "threads evaluating a stateless UDF concurrently, default 1");
+    options.addOption(null, "stats", false, "print throughput and latency to stderr");
     options.addOption("h", "help", false, "print this help information");
   }
 
@@ -102,15 +109,25 @@ public class Main {
       TableInfo tableInfo = getTableInfo(cmdl);
       BaseRunner runner = RunnerFactory.getRunner(cmdl, odps, tableInfo);
       InputSource inputSource = new TableInputSource(tableInfo);
+      runner.addInputSource(inputSource);
 
-      Object[] data;
-      while ((data = inputSource.getNextRow()) != null) {
-        runner.feed(data);
+      UDTFCollector collector = new UDTFCollector() {
+        @Override
+        public void collect(Object[] record) {
+          System.out.println(StringUtils.join(record, ","));
+        }
+      };
+      int batchSize = Integer.parseInt(
+          cmdl.getOptionValue("batch-size", String.valueOf(BaseRunner.DEFAULT_BATCH_SIZE)));
+      int threads = Integer.parseInt(cmdl.getOptionValue("threads", "1"));
+      RunnerStats stats;
+      if (runner instanceof UDFRunner) {
+        stats = ((UDFRunner) runner).stream(collector, batchSize, threads);
+      } else {
+        stats = runner.stream(collector, batchSize);
       }
-
-      List<Object[]> result = runner.yield();
-      for (Object[] record : result) {
-        System.out.println(StringUtils.join(record, ","));
+      if (cmdl.hasOption("stats")) {
+        System.err.println(stats);
       }
     } catch (ParseException e) {
       throw new LocalRunException(e);
@@ -118,8 +135,6 @@ public class Main {
       throw e;
     } catch (UDFException e) {
       throw new LocalRunException(e);
-    } catch (IOException e) {
-      throw new LocalRunException(e);
     }
 
   }
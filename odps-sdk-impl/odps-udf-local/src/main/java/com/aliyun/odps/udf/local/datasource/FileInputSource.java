@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.aliyun.odps.udf.local.datasource;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+import com.aliyun.odps.utils.StringUtils;
+
+/**
+ * 从本地文本文件逐行读取输入, 每行按列分隔符切分为 String 类型的列
+ */
+public class FileInputSource extends InputSource {
+
+  private File file;
+  private char separator;
+  private BufferedReader reader;
+
+  public FileInputSource(File file) {
+    this(file, ',');
+  }
+
+  public FileInputSource(File file, char separator) {
+    this.file = file;
+    this.separator = separator;
+  }
+
+  @Override
+  public void setup() throws IOException {
+    reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+  }
+
+  @Override
+  public Object[] getNextRow() throws IOException {
+    String line = reader.readLine();
+    if (line == null) {
+      return null;
+    }
+    return StringUtils.split(line, separator);
+  }
+
+  @Override
+  public void close() {
+    if (reader != null) {
+      try {
+        reader.close();
+      } catch (IOException e) {
+        // ignore
+      }
+      reader = null;
+    }
+  }
+
+}
@@ -19,8 +19,7 @@
 package com.aliyun.odps.udf.local.datasource;
 
 import java.io.IOException;
-import java.util.Date;
-import java.util.List;
+import java.util.Iterator;
 
 import com.aliyun.odps.utils.StringUtils;
 import com.aliyun.odps.OdpsException;
@@ -32,9 +31,8 @@ import com.aliyun.odps.udf.local.LocalRunException;
 
 public class TableInputSource extends InputSource {
 
-  private List<Object[]> dataList;
-  private int totalCount;
-  private int index = 0;
+  // 逐条读取数据文件, 不会把整张表读入内存
+  private Iterator<Object[]> iterator;
 
   public TableInputSource(TableInfo tableInfo) {
     if (tableInfo == null) {
@@ -50,20 +48,15 @@ public class TableInputSource extends InputSource {
     }
 
     try {
-      dataList =
-          WareHouse.getInstance().readData(tableInfo.getProjectName(), tableInfo.getTableName(),
-              tableInfo.getPartitionSpec(), tableInfo.getCols(), WareHouse.getInstance().getInputColumnSeperator());
+      iterator =
+          WareHouse.getInstance().readDataIterator(tableInfo.getProjectName(),
+              tableInfo.getTableName(), tableInfo.getPartitionSpec(), tableInfo.getCols(),
+              WareHouse.getInstance().getInputColumnSeperator());
     } catch (OdpsException e) {
       throw new LocalRunError(e.getMessage());
     } catch (IOException e) {
       throw new LocalRunError(e.getMessage());
     }
-    if (dataList == null || dataList.size() == 0) {
-      totalCount = 0;
-    } else {
-      totalCount = dataList.size();
-    }
-
   }
 
   /**
@@ -82,12 +75,17 @@ public class TableInputSource extends InputSource {
 
   @Override
   public Object[] getNextRow() throws IOException {
-
-    if (totalCount == 0 || index >= totalCount) {
-      return null;
+    try {
+      if (iterator == null || !iterator.hasNext()) {
+        return null;
+      }
+    } catch (RuntimeException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw e;
     }
-    return dataList.get(index++);
-
+    return iterator.next();
   }
 
 }
@@ -32,11 +32,18 @@ import com.aliyun.odps.local.common.WareHouse;
 import com.aliyun.odps.local.common.security.ApplicatitionType;
 import com.aliyun.odps.local.common.security.SecurityClient;
 import com.aliyun.odps.udf.UDF;
+import com.aliyun.odps.udf.UDTFCollector;
 import com.aliyun.odps.udf.local.LocalExecutionContext;
 import com.aliyun.odps.udf.local.LocalRunException;
 import com.aliyun.odps.udf.local.datasource.InputSource;
 
 public abstract class BaseRunner {
+
+  /**
+   * 流式运行时每批处理的默认记录数
+   */
+  public static final int DEFAULT_BATCH_SIZE = 1024;
+
   boolean hasClosed = false;
 
   public BaseRunner(Odps odps) {
@@ -253,6 +260,103 @@ public abstract class BaseRunner {
   
   protected abstract List<Object[]> internalYield() throws LocalRunException;
 
+  /**
+   * 以流式方式运行，与 {@link #yield()} 不同，输出结果不会全部保存在内存中，
+   * 而是按批交给 collector，内存占用只与批大小有关，适合较大的输入表或文件。
+   * 调用此方法后将不能再次调用feed及feedAll
+   *
+   * <pre>
+   * BaseRunner runner = new UDFRunner(odps, new UdfExample());
+   * runner.addInputSource(new TableInputSource(project, table, partitions, columns));
+   * RunnerStats stats = runner.stream(new UDTFCollector() {
+   *   public void collect(Object[] args) {
+   *     System.out.println(StringUtils.join(args, ","));
+   *   }
+   * });
+   * System.err.println(stats);
+   * </pre>
+   *
+   * @param collector
+   *     接收每一条输出记录
+   * @return 吞吐和延迟统计
+   * @throws LocalRunException
+   */
+  public RunnerStats stream(UDTFCollector collector) throws LocalRunException {
+    return stream(collector, DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * 以流式方式运行，每次从输入源读取 batchSize 条记录进行处理
+   *
+   * @see #stream(UDTFCollector)
+   */
+  public RunnerStats stream(UDTFCollector collector, int batchSize) throws LocalRunException {
+    if (collector == null) {
+      throw new IllegalArgumentException("Missing arguments:collector");
+    }
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("Invalid batch size:" + batchSize);
+    }
+    RunnerStats stats = new RunnerStats(getFunctionName());
+    try {
+      // 先输出通过feed和feedAll加入的数据的结果
+      drain(collector, stats);
+      List<Object[]> batch = new ArrayList<Object[]>(batchSize);
+      for (InputSource inputSource : inputSources) {
+        boolean eof = false;
+        while (!eof) {
+          try {
+            Object[] data = null;
+            while (batch.size() < batchSize && (data = inputSource.getNextRow()) != null) {
+              batch.add(data);
+            }
+            eof = data == null;
+          } catch (IOException e) {
+            throw new LocalRunException(e);
+          }
+          if (batch.isEmpty()) {
+            break;
+          }
+          long start = System.nanoTime();
+          processBatch(batch);
+          stats.addBatch(batch.size(), System.nanoTime() - start);
+          drain(collector, stats);
+          batch.clear();
+        }
+      }
+      internalYield();
+      drain(collector, stats);
+      stats.finish();
+      return stats;
+    } finally {
+      close();
+    }
+  }
+
+  /**
+   * 处理一批输入，结果写入 buffer，子类可以覆盖以减少逐条处理的开销
+   */
+  protected void processBatch(List<Object[]> batch) throws LocalRunException {
+    for (Object[] input : batch) {
+      internalFeed(input);
+    }
+  }
+
+  /**
+   * 统计中使用的函数名
+   */
+  protected String getFunctionName() {
+    return getClass().getSimpleName();
+  }
+
+  private void drain(UDTFCollector collector, RunnerStats stats) {
+    for (Object[] output : buffer) {
+      collector.collect(output);
+    }
+    stats.addOutput(buffer.size());
+    buffer.clear();
+  }
+
   /**
    * 将输出结果与用户期望值进行比较，
    * 调用此方法后将不能再次调用feed及feedAll,
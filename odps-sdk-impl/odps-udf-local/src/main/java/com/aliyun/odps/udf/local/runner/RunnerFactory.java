@@ -27,6 +27,7 @@ import com.aliyun.odps.udf.Aggregator;
 import com.aliyun.odps.udf.UDF;
 import com.aliyun.odps.udf.UDFException;
 import com.aliyun.odps.udf.UDTF;
+import com.aliyun.odps.udf.VectorizedUDF;
 import com.aliyun.odps.udf.local.LocalRunError;
 import com.aliyun.odps.udf.local.LocalRunException;
 import com.aliyun.odps.udf.local.util.ClassUtils;
@@ -51,12 +52,15 @@ public class RunnerFactory {
       return new UDTFRunner(odps, className);
     } else if (obj instanceof Aggregator) {
       return new AggregatorRunner(odps, className);
+    } else if (obj instanceof VectorizedUDF) {
+      return new VectorizedUDFRunner(odps, className);
     }
 
     throw new LocalRunError("Unsupported class:" + className
                             + ", it must extends from one of the following:\n"
                             + "com.aliyun.odps.udf.UDF\n"
-                            + "com.aliyun.odps.udf.UDTF\n" + "com.aliyun.odps.udf.Aggregator\n");
+                            + "com.aliyun.odps.udf.UDTF\n" + "com.aliyun.odps.udf.Aggregator\n"
+                            + "com.aliyun.odps.udf.VectorizedUDF\n");
   }
 
 }
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.aliyun.odps.udf.local.runner;
+
+/**
+ * 流式运行 {@link BaseRunner#stream} 时每个函数的吞吐和延迟统计
+ *
+ * <p>
+ * 处理时间只统计函数本身在各批数据上的执行时间, 不包括读取输入和写出结果的时间; 总耗时为整个流式运行的时间
+ * </p>
+ */
+public class RunnerStats {
+
+  private final String functionName;
+  private long inputCount;
+  private long outputCount;
+  private long batchCount;
+  private long processNanos;
+  private long maxBatchNanos;
+  private final long startNanos;
+  private long elapsedNanos;
+
+  RunnerStats(String functionName) {
+    this.functionName = functionName;
+    this.startNanos = System.nanoTime();
+  }
+
+  void addBatch(int rows, long nanos) {
+    inputCount += rows;
+    batchCount++;
+    processNanos += nanos;
+    maxBatchNanos = Math.max(maxBatchNanos, nanos);
+  }
+
+  void addOutput(int rows) {
+    outputCount += rows;
+  }
+
+  void finish() {
+    elapsedNanos = System.nanoTime() - startNanos;
+  }
+
+  public String getFunctionName() {
+    return functionName;
+  }
+
+  public long getInputCount() {
+    return inputCount;
+  }
+
+  public long getOutputCount() {
+    return outputCount;
+  }
+
+  public long getBatchCount() {
+    return batchCount;
+  }
+
+  public long getProcessNanos() {
+    return processNanos;
+  }
+
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  /**
+   * @return 单批数据的最大处理时间, 单位纳秒
+   */
+  public long getMaxBatchNanos() {
+    return maxBatchNanos;
+  }
+
+  /**
+   * @return 平均每条输入的处理时间, 单位纳秒
+   */
+  public double getAverageLatencyNanos() {
+    return inputCount == 0 ? 0 : (double) processNanos / inputCount;
+  }
+
+  /**
+   * @return 每秒处理的输入条数, 按总耗时计算
+   */
+  public double getThroughput() {
+    return elapsedNanos == 0 ? 0 : inputCount * 1e9 / elapsedNanos;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s: input=%d, output=%d, batches=%d, elapsed=%.3fms, "
+                         + "throughput=%.1f rows/s, avgLatency=%.1fns, maxBatch=%.3fms",
+                         functionName, inputCount, outputCount, batchCount, elapsedNanos / 1e6,
+                         getThroughput(), getAverageLatencyNanos(), maxBatchNanos / 1e6);
+  }
+}
@@ -23,10 +23,21 @@ import com.aliyun.odps.data.TableInfo;
 import com.aliyun.odps.local.common.WareHouse;
 
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.aliyun.odps.utils.StringUtils;
 
@@ -34,6 +45,7 @@ import com.aliyun.odps.Odps;
 import com.aliyun.odps.local.common.security.SecurityClient;
 import com.aliyun.odps.udf.UDF;
 import com.aliyun.odps.udf.UDFException;
+import com.aliyun.odps.udf.UDTFCollector;
 import com.aliyun.odps.udf.local.LocalRunException;
 import com.aliyun.odps.udf.local.util.ClassUtils;
 
@@ -42,6 +54,11 @@ public class UDFRunner extends BaseRunner {
   private UDF udf;
   private TableInfo tableInfo;
   private Method evalMethod;
+  // evaluate 绑定到 udf 实例后的调用句柄, 按输入列数缓存, 类型均为 (Object[])Object
+  private MethodHandle[] invokers = new MethodHandle[0];
+  // 并发执行 evaluate 的线程池, 只在 stream(collector, batchSize, threadNum) 期间存在
+  private ExecutorService executor;
+  private int threadNum = 1;
 
   public UDFRunner(Odps odps, UDF udf) throws UDFException {
     super(odps);
@@ -89,22 +106,155 @@ public class UDFRunner extends BaseRunner {
   public BaseRunner internalFeed(Object[] input) throws LocalRunException {
     try {
       SecurityClient.open();
-      if (evalMethod == null) {
-        evalMethod = findMethod(udf.getClass(), input);
+      buffer.add(new Object[] {evaluate(getInvoker(input), input)});
+    } finally {
+      SecurityClient.close();
+    }
+    return this;
+  }
+
+  /**
+   * 以流式方式运行，并把每批输入切分给 threadNum 个线程并发执行 evaluate，输出顺序与输入顺序一致。
+   * 所有线程共享同一个 UDF 实例，因此只适用于无状态的 UDF，即 evaluate 的结果只依赖于当前输入行
+   *
+   * @see BaseRunner#stream(UDTFCollector)
+   */
+  public RunnerStats stream(UDTFCollector collector, int batchSize, int threadNum)
+      throws LocalRunException {
+    if (threadNum <= 0) {
+      throw new IllegalArgumentException("Invalid thread number:" + threadNum);
+    }
+    if (threadNum == 1) {
+      return stream(collector, batchSize);
+    }
+    this.threadNum = threadNum;
+    executor = Executors.newFixedThreadPool(threadNum, new ThreadFactory() {
+      private final AtomicInteger count = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "local-udf-worker-" + count.getAndIncrement());
+        t.setDaemon(true);
+        return t;
       }
-      input = ClassUtils.adaptVarargMethodDataIfNecessary(evalMethod, input);
-      Object result = evalMethod.invoke(udf, input);
+    });
+    try {
+      return stream(collector, batchSize);
+    } finally {
+      executor.shutdownNow();
+      executor = null;
+      this.threadNum = 1;
+    }
+  }
+
+  @Override
+  protected void processBatch(final List<Object[]> batch) throws LocalRunException {
+    // 在当前线程中绑定调用句柄, 工作线程只读
+    final MethodHandle[] rowInvokers = new MethodHandle[batch.size()];
+    for (int i = 0; i < rowInvokers.length; i++) {
+      rowInvokers[i] = getInvoker(batch.get(i));
+    }
+    final Object[] results = new Object[batch.size()];
+    int partitions = executor == null ? 1 : Math.min(threadNum, batch.size());
+    try {
+      SecurityClient.open();
+      if (partitions <= 1) {
+        evaluate(batch, rowInvokers, results, 0, results.length);
+      } else {
+        evaluateParallel(batch, rowInvokers, results, partitions);
+      }
+    } finally {
+      SecurityClient.close();
+    }
+    for (Object result : results) {
       buffer.add(new Object[] {result});
-    } catch (InvocationTargetException e) {
+    }
+  }
+
+  private void evaluateParallel(final List<Object[]> batch, final MethodHandle[] rowInvokers,
+                                final Object[] results, int partitions)
+      throws LocalRunException {
+    try {
+      List<Future<Void>> futures = new ArrayList<Future<Void>>(partitions);
+      for (int p = 0; p < partitions; p++) {
+        final int from = (int) ((long) results.length * p / partitions);
+        final int to = (int) ((long) results.length * (p + 1) / partitions);
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws LocalRunException {
+            evaluate(batch, rowInvokers, results, from, to);
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
       throw new LocalRunException(e);
-    } catch (IllegalArgumentException e) {
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof LocalRunException) {
+        throw (LocalRunException) e.getCause();
+      }
+      throw new LocalRunException(e.getCause());
+    }
+  }
+
+  private void evaluate(List<Object[]> batch, MethodHandle[] rowInvokers, Object[] results,
+                        int from, int to) throws LocalRunException {
+    for (int i = from; i < to; i++) {
+      results[i] = evaluate(rowInvokers[i], batch.get(i));
+    }
+  }
+
+  private Object evaluate(MethodHandle invoker, Object[] input) throws LocalRunException {
+    try {
+      return (Object) invoker.invokeExact(input);
+    } catch (Throwable e) {
       throw new LocalRunException(e);
+    }
+  }
+
+  /**
+   * 第一次调用时查找 evaluate 方法, 之后按输入列数返回缓存的调用句柄, 变长参数在句柄中收集为数组,
+   * 不需要逐条转换输入
+   */
+  private MethodHandle getInvoker(Object[] input) throws LocalRunException {
+    if (evalMethod == null) {
+      evalMethod = findMethod(udf.getClass(), input);
+    }
+    int arity = input.length;
+    if (arity < invokers.length && invokers[arity] != null) {
+      return invokers[arity];
+    }
+    MethodHandle handle;
+    try {
+      handle = MethodHandles.publicLookup().unreflect(evalMethod).bindTo(udf);
     } catch (IllegalAccessException e) {
       throw new LocalRunException(e);
-    } finally {
-      SecurityClient.close();
     }
-    return this;
+    Class<?>[] parameterTypes = evalMethod.getParameterTypes();
+    int firstVarargIndex = parameterTypes.length - 1;
+    if (arity >= parameterTypes.length && firstVarargIndex >= 0
+        && parameterTypes[firstVarargIndex].isArray()) {
+      handle = handle.asCollector(parameterTypes[firstVarargIndex], arity - firstVarargIndex);
+    } else if (arity != parameterTypes.length) {
+      throw new LocalRunException("Input column count expected:" + parameterTypes.length
+                                  + ", while is:" + arity);
+    }
+    handle = handle.asSpreader(Object[].class, arity)
+        .asType(MethodType.methodType(Object.class, Object[].class));
+    if (arity >= invokers.length) {
+      invokers = Arrays.copyOf(invokers, arity + 1);
+    }
+    invokers[arity] = handle;
+    return handle;
+  }
+
+  @Override
+  protected String getFunctionName() {
+    return udf.getClass().getName();
   }
 
   @Override
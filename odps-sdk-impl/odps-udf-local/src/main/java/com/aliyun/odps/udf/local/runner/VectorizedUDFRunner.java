@@ -0,0 +1,258 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.aliyun.odps.udf.local.runner;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.aliyun.odps.Odps;
+import com.aliyun.odps.local.common.security.SecurityClient;
+import com.aliyun.odps.udf.OdpsType;
+import com.aliyun.odps.udf.UDFException;
+import com.aliyun.odps.udf.VectorizedUDF;
+import com.aliyun.odps.udf.impl.AnnotationParser;
+import com.aliyun.odps.udf.local.LocalRunException;
+import com.aliyun.odps.udf.local.util.ClassUtils;
+import com.aliyun.odps.udf.vector.ColumnVector;
+import com.aliyun.odps.utils.StringUtils;
+
+/**
+ * {@link VectorizedUDF} 的本地运行器
+ * <p>
+ * 通过 feed 加入的数据攒够一批后统一计算，通过 addInputSource 加入的数据在 {@link #stream} 时按批计算，
+ * 每批数据按列填入列向量后调用一次 evaluate。
+ * </p>
+ */
+public class VectorizedUDFRunner extends BaseRunner {
+
+  private VectorizedUDF udf;
+  private Method evalMethod;
+  private MethodHandle invoker;
+  private ColumnVector[] vectors;
+  private List<Object[]> pending = new ArrayList<Object[]>();
+
+  public VectorizedUDFRunner(Odps odps, VectorizedUDF udf) throws UDFException {
+    super(odps);
+    if (udf == null) {
+      throw new IllegalArgumentException("Missing arguments:udf");
+    }
+    this.udf = udf;
+
+    try {
+      SecurityClient.open();
+      udf.setup(context);
+    } catch (Exception ex) {
+      throw new UDFException(ex);
+    } finally {
+      SecurityClient.close();
+    }
+  }
+
+  public VectorizedUDFRunner(Odps odps, String className) throws LocalRunException {
+    super(odps);
+    if (StringUtils.isBlank(className)) {
+      throw new IllegalArgumentException("Missing arguments:className");
+    }
+    try {
+      udf = (VectorizedUDF) ClassUtils.newInstance(VectorizedUDFRunner.class.getClassLoader(),
+                                                   className);
+      SecurityClient.open();
+      udf.setup(context);
+    } catch (LocalRunException e) {
+      throw e;
+    } catch (UDFException e) {
+      throw new LocalRunException(e);
+    } catch (IOException e) {
+      throw new LocalRunException(e);
+    } finally {
+      SecurityClient.close();
+    }
+  }
+
+  @Override
+  public BaseRunner internalFeed(Object[] input) throws LocalRunException {
+    pending.add(input);
+    if (pending.size() >= DEFAULT_BATCH_SIZE) {
+      flushPending();
+    }
+    return this;
+  }
+
+  @Override
+  protected void processBatch(List<Object[]> batch) throws LocalRunException {
+    // 保持与输入相同的顺序, 先计算通过 feed 加入的数据
+    flushPending();
+    evaluate(batch);
+  }
+
+  @Override
+  public List<Object[]> internalYield() throws LocalRunException {
+    flushPending();
+    try {
+      SecurityClient.open();
+      udf.close();
+    } catch (UDFException e) {
+      throw new LocalRunException(e);
+    } catch (IOException e) {
+      throw new LocalRunException(e);
+    } finally {
+      SecurityClient.close();
+    }
+    // avoid user to call function again
+    udf = null;
+    return buffer;
+  }
+
+  @Override
+  protected String getFunctionName() {
+    return udf.getClass().getName();
+  }
+
+  private void flushPending() throws LocalRunException {
+    if (!pending.isEmpty()) {
+      evaluate(pending);
+      pending.clear();
+    }
+  }
+
+  private void evaluate(List<Object[]> batch) throws LocalRunException {
+    if (batch.isEmpty()) {
+      return;
+    }
+    if (evalMethod == null) {
+      bind(batch.get(0));
+    }
+    int rows = batch.size();
+    if (vectors[0].capacity() < rows) {
+      vectors = newVectors(evalMethod, rows);
+    }
+    for (Object[] row : batch) {
+      if (row.length != vectors.length) {
+        throw new LocalRunException("Input column count expected:" + vectors.length
+                                    + ", while is:" + row.length);
+      }
+    }
+    for (int col = 0; col < vectors.length; col++) {
+      ColumnVector vector = vectors[col];
+      vector.reset(rows);
+      for (int i = 0; i < rows; i++) {
+        Object[] row = batch.get(i);
+        try {
+          vector.set(i, row[col]);
+        } catch (ClassCastException e) {
+          throw new LocalRunException("Column " + col + " expected type:"
+                                      + vector.getType().name().toLowerCase() + ", while is:"
+                                      + row[col].getClass().getName());
+        }
+      }
+    }
+
+    ColumnVector result;
+    try {
+      SecurityClient.open();
+      result = (ColumnVector) (Object) invoker.invokeExact((Object[]) vectors);
+    } catch (Throwable e) {
+      throw new LocalRunException(e);
+    } finally {
+      SecurityClient.close();
+    }
+    if (result == null || result.size() != rows) {
+      throw new LocalRunException("'evaluate' must return a vector of " + rows + " rows, while is:"
+                                  + (result == null ? null : result.size()));
+    }
+    for (int i = 0; i < rows; i++) {
+      buffer.add(new Object[]{result.get(i)});
+    }
+  }
+
+  /**
+   * 按第一行数据的列数和类型选择 evaluate 方法, 空值可以匹配任何类型
+   */
+  private void bind(Object[] row) throws LocalRunException {
+    Method found = null;
+    for (Method method : udf.getClass().getMethods()) {
+      if (!method.getName().equals("evaluate") || method.isBridge()
+          || Modifier.isStatic(method.getModifiers())
+          || method.getParameterTypes().length != row.length) {
+        continue;
+      }
+      OdpsType[] types;
+      try {
+        types = AnnotationParser.parseVectorizedMethod(method).getArguments();
+      } catch (AnnotationParser.ParseError e) {
+        throw new LocalRunException(e);
+      }
+      boolean match = true;
+      for (int i = 0; i < row.length && match; i++) {
+        match = row[i] == null || getJavaType(types[i]).isInstance(row[i]);
+      }
+      if (match) {
+        found = method;
+        break;
+      }
+    }
+    if (found == null) {
+      throw new LocalRunException("No matching vectorized 'evaluate' method found in "
+                                  + udf.getClass().getName());
+    }
+    try {
+      invoker = MethodHandles.publicLookup().unreflect(found).bindTo(udf)
+          .asSpreader(Object[].class, row.length)
+          .asType(MethodType.methodType(Object.class, Object[].class));
+    } catch (IllegalAccessException e) {
+      throw new LocalRunException(e);
+    }
+    evalMethod = found;
+    vectors = newVectors(found, DEFAULT_BATCH_SIZE);
+  }
+
+  private static ColumnVector[] newVectors(Method method, int capacity) throws LocalRunException {
+    Class<?>[] parameterTypes = method.getParameterTypes();
+    ColumnVector[] result = new ColumnVector[parameterTypes.length];
+    for (int i = 0; i < parameterTypes.length; i++) {
+      try {
+        result[i] = (ColumnVector) parameterTypes[i].getConstructor(int.class)
+            .newInstance(capacity);
+      } catch (Exception e) {
+        throw new LocalRunException(e);
+      }
+    }
+    return result;
+  }
+
+  private static Class<?> getJavaType(OdpsType type) {
+    switch (type) {
+      case BIGINT:
+        return Long.class;
+      case DOUBLE:
+        return Double.class;
+      case BOOLEAN:
+        return Boolean.class;
+      default:
+        return String.class;
+    }
+  }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.aliyun.odps.udf.local.examples;
+
+import com.aliyun.odps.udf.VectorizedUDF;
+import com.aliyun.odps.udf.vector.DoubleColumnVector;
+import com.aliyun.odps.udf.vector.LongColumnVector;
+import com.aliyun.odps.udf.vector.StringColumnVector;
+
+public class VectorizedUdfExample extends VectorizedUDF {
+
+  private LongColumnVector longResult = new LongColumnVector(1024);
+
+  public LongColumnVector evaluate(LongColumnVector a, LongColumnVector b) {
+    int n = a.size();
+    if (longResult.capacity() < n) {
+      longResult = new LongColumnVector(n);
+    }
+    longResult.reset(n);
+    for (int i = 0; i < n; i++) {
+      longResult.vector[i] = a.vector[i] + b.vector[i];
+    }
+    if (!a.noNulls || !b.noNulls) {
+      for (int i = 0; i < n; i++) {
+        if (a.isNullAt(i) || b.isNullAt(i)) {
+          longResult.setNull(i);
+        }
+      }
+    }
+    return longResult;
+  }
+
+  public DoubleColumnVector evaluate(DoubleColumnVector a, DoubleColumnVector b) {
+    int n = a.size();
+    DoubleColumnVector result = new DoubleColumnVector(n);
+    result.reset(n);
+    for (int i = 0; i < n; i++) {
+      if (a.isNullAt(i) || b.isNullAt(i)) {
+        result.setNull(i);
+      } else {
+        result.vector[i] = a.vector[i] + b.vector[i];
+      }
+    }
+    return result;
+  }
+
+  public StringColumnVector evaluate(StringColumnVector a, StringColumnVector b) {
+    int n = a.size();
+    StringColumnVector result = new StringColumnVector(n);
+    result.reset(n);
+    for (int i = 0; i < n; i++) {
+      result.vector[i] = "ss2s:" + a.vector[i] + "," + b.vector[i];
+    }
+    return result;
+  }
+
+}
@@ -24,6 +24,7 @@ import static org.junit.Assert.fail;
 import com.aliyun.odps.local.common.Constants;
 import com.aliyun.odps.local.common.utils.LocalRunUtils;
 import com.aliyun.odps.udf.local.examples.UdfComplex;
+import java.io.File;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.sql.Timestamp;
@@ -36,13 +37,16 @@ import com.aliyun.odps.utils.StringUtils;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.apache.commons.io.FileUtils;
 
 import com.aliyun.odps.Odps;
 import com.aliyun.odps.account.Account;
 import com.aliyun.odps.account.AliyunAccount;
 import com.aliyun.odps.data.TableInfo;
 import com.aliyun.odps.udf.UDFException;
+import com.aliyun.odps.udf.UDTFCollector;
 import com.aliyun.odps.udf.local.LocalRunException;
+import com.aliyun.odps.udf.local.datasource.FileInputSource;
 import com.aliyun.odps.udf.local.datasource.InputSource;
 import com.aliyun.odps.udf.local.datasource.TableInputSource;
 import com.aliyun.odps.udf.local.examples.UdfExample;
@@ -553,4 +557,86 @@ public class UDFRunnerTest {
 
   }
 
-}
\ No newline at end of file
+  private static class ListCollector implements UDTFCollector {
+
+    List<Object[]> rows = new ArrayList<Object[]>();
+
+    @Override
+    public void collect(Object[] args) {
+      rows.add(args);
+    }
+  }
+
+  @Test
+  public void testStream() throws LocalRunException, UDFException {
+    BaseRunner runner = new UDFRunner(odps, new UdfExample());
+    runner.feed(new Object[]{"one", "one"});
+    runner.addInputSource(new TableInputSource("project_name", "wc_in1", null,
+                                                 new String[]{"col2", "col3"}));
+    ListCollector collector = new ListCollector();
+    // 批大小小于输入条数, 输入分多批处理
+    RunnerStats stats = runner.stream(collector, 3);
+
+    Assert.assertEquals(5, collector.rows.size());
+    Assert.assertEquals("ss2s:one,one", StringUtils.join(collector.rows.get(0), ","));
+    Assert.assertEquals("ss2s:A12,A13", StringUtils.join(collector.rows.get(1), ","));
+    Assert.assertEquals("ss2s:A42,A43", StringUtils.join(collector.rows.get(4), ","));
+    Assert.assertEquals(4, stats.getInputCount());
+    Assert.assertEquals(5, stats.getOutputCount());
+    Assert.assertEquals(2, stats.getBatchCount());
+    Assert.assertEquals(UdfExample.class.getName(), stats.getFunctionName());
+  }
+
+  @Test
+  public void testStreamParallel() throws Exception {
+    File file = new File("target/udf_stream_input.txt");
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      sb.append("a").append(i).append(",b").append(i).append("\n");
+    }
+    FileUtils.writeStringToFile(file, sb.toString(), "UTF-8");
+    try {
+      UDFRunner runner = new UDFRunner(odps, new UdfExample());
+      runner.addInputSource(new FileInputSource(file));
+      ListCollector collector = new ListCollector();
+      RunnerStats stats = runner.stream(collector, 64, 4);
+
+      // 并发执行时输出顺序与输入顺序一致
+      Assert.assertEquals(1000, collector.rows.size());
+      for (int i = 0; i < 1000; i++) {
+        Assert.assertEquals("ss2s:a" + i + ",b" + i, collector.rows.get(i)[0]);
+      }
+      Assert.assertEquals(1000, stats.getInputCount());
+      Assert.assertEquals(16, stats.getBatchCount());
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testStreamVarargs() throws LocalRunException, UDFException {
+    BaseRunner runner = new UDFRunner(odps, new UdfExample());
+    runner.addInputSource(new InputSource() {
+      int count = 0;
+
+      @Override
+      public Object[] getNextRow() {
+        if (count++ == 3) {
+          return null;
+        }
+        // 同一个变长参数方法, 每行的输入列数不同
+        Object[] row = new Object[count];
+        Arrays.fill(row, BigDecimal.ONE);
+        return row;
+      }
+    });
+    ListCollector collector = new ListCollector();
+    runner.stream(collector);
+
+    Assert.assertEquals(3, collector.rows.size());
+    Assert.assertEquals("1", StringUtils.join(collector.rows.get(0), ","));
+    Assert.assertEquals("2", StringUtils.join(collector.rows.get(1), ","));
+    Assert.assertEquals("3", StringUtils.join(collector.rows.get(2), ","));
+  }
+
+}
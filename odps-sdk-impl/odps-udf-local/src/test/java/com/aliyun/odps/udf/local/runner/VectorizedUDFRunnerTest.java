@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.aliyun.odps.udf.local.runner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.aliyun.odps.Odps;
+import com.aliyun.odps.account.Account;
+import com.aliyun.odps.account.AliyunAccount;
+import com.aliyun.odps.udf.UDTFCollector;
+import com.aliyun.odps.udf.impl.AnnotationParser;
+import com.aliyun.odps.udf.local.LocalRunException;
+import com.aliyun.odps.udf.local.datasource.TableInputSource;
+import com.aliyun.odps.udf.local.examples.VectorizedUdfExample;
+
+public class VectorizedUDFRunnerTest {
+
+  static Odps odps;
+
+  @BeforeClass
+  public static void setupBeforeClass() {
+    Account account = new AliyunAccount("accessId", "accessKey");
+    odps = new Odps(account);
+    odps.setEndpoint("endpoint");
+    odps.setDefaultProject("project_name");
+  }
+
+  @Test
+  public void testFeed() throws Exception {
+    BaseRunner runner = new VectorizedUDFRunner(odps, new VectorizedUdfExample());
+    runner.feed(new Object[]{1L, 2L}).feed(new Object[]{null, 4L}).feed(new Object[]{5L, 6L});
+    List<Object[]> out = runner.yield();
+
+    Assert.assertEquals(3, out.size());
+    Assert.assertEquals(3L, out.get(0)[0]);
+    Assert.assertNull(out.get(1)[0]);
+    Assert.assertEquals(11L, out.get(2)[0]);
+  }
+
+  @Test
+  public void testStreamFromTable() throws Exception {
+    VectorizedUDFRunner runner = new VectorizedUDFRunner(odps, new VectorizedUdfExample());
+    runner.feed(new Object[]{100L, 200L});
+    runner.addInputSource(new TableInputSource("project_name", "ii", null, null));
+    final List<Object[]> out = new ArrayList<Object[]>();
+    RunnerStats stats = runner.stream(new UDTFCollector() {
+      @Override
+      public void collect(Object[] args) {
+        out.add(args);
+      }
+    }, 2);
+
+    // 与逐行执行的 UdfExample 结果相同, 通过 feed 加入的数据在最前面
+    Assert.assertEquals(6, out.size());
+    long[] expected = {300L, 3L, 7L, 11L, 15L, 19L};
+    for (int i = 0; i < expected.length; i++) {
+      Assert.assertEquals(expected[i], out.get(i)[0]);
+    }
+    Assert.assertEquals(5, stats.getInputCount());
+    Assert.assertEquals(3, stats.getBatchCount());
+  }
+
+  @Test
+  public void testOverload() throws Exception {
+    BaseRunner runner = new VectorizedUDFRunner(odps, new VectorizedUdfExample());
+    List<Object[]> out = runner.feed(new Object[]{"one", "two"}).yield();
+    Assert.assertEquals("ss2s:one,two", out.get(0)[0]);
+
+    runner = new VectorizedUDFRunner(odps, new VectorizedUdfExample());
+    out = runner.feed(new Object[]{1.5D, 2D}).yield();
+    Assert.assertEquals(3.5D, (Double) out.get(0)[0], 0.0000001D);
+  }
+
+  @Test
+  public void testTypeMismatch() throws Exception {
+    BaseRunner runner = new VectorizedUDFRunner(odps, new VectorizedUdfExample());
+    runner.feed(new Object[]{1L, 2L}).feed(new Object[]{"one", 2L});
+    try {
+      runner.yield();
+      Assert.fail("should throw exception,but not");
+    } catch (LocalRunException e) {
+      Assert.assertTrue(e.getMessage().contains("expected type:bigint"));
+    }
+  }
+
+  @Test
+  public void testParseSignature() throws Exception {
+    AnnotationParser.ParseResult result = AnnotationParser.parse(VectorizedUdfExample.class);
+    Assert.assertTrue(result.isVectorized());
+    List<String> signatures = new ArrayList<String>();
+    for (AnnotationParser.Prototype prototype : result.getProtoTypes()) {
+      signatures.add(prototype.getArgumentsString() + "->" + prototype.getReturnsString());
+    }
+    Assert.assertEquals(3, signatures.size());
+    Assert.assertTrue(signatures.contains("bigint,bigint->bigint"));
+    Assert.assertTrue(signatures.contains("double,double->double"));
+    Assert.assertTrue(signatures.contains("string,string->string"));
+  }
+
+}
@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 
+import com.aliyun.odps.data.ColumnIndex;
 import com.aliyun.odps.type.TypeInfoFactory;
 
 /**
@@ -36,6 +37,8 @@ public class TableSchema {
   private HashMap<String, Integer> nameMap = new HashMap<String, Integer>();
   private HashMap<String, Integer> partitionNameMap = new HashMap<String, Integer>();
 
+  private transient volatile Column[] columnArray;
+
   /**
    * 创建TableSchema对象
    */
@@ -72,6 +75,7 @@ public class TableSchema {
     nameMap.put(c.getName(), columns.size());
 
     columns.add(c);
+    columnArray = null;
   }
 
   /**
@@ -148,6 +152,7 @@ public class TableSchema {
   public void setColumns(List<Column> columns) {
     this.nameMap.clear();
     this.columns.clear();
+    this.columnArray = null;
     for (Column column : columns) {
       addColumn(column);
     }
@@ -168,6 +173,27 @@ public class TableSchema {
     return (List<Column>) columns.clone();
   }
 
+  /**
+   * 获得列定义数组
+   *
+   * <p>
+   * 返回的数组在 TableSchema 的列不变时被共享, 由此 schema 构造的 {@link com.aliyun.odps.data.ArrayRecord}
+   * 共享同一个列名映射, 但各自持有数组的副本. 数组是只读的, 调用方不能修改数组内容,
+   * 需要修改时请使用 {@link #getColumns()} 的副本. 数组不包含分区列。
+   * </p>
+   *
+   * @return 只读的{@link Column}数组
+   */
+  public Column[] getColumnArray() {
+    Column[] array = columnArray;
+    if (array == null) {
+      array = columns.toArray(new Column[0]);
+      ColumnIndex.share(array);
+      columnArray = array;
+    }
+    return array;
+  }
+
   public void setPartitionColumns(ArrayList<Column> partitionColumns) {
     this.partitionNameMap.clear();
     this.partitionColumns.clear();
@@ -41,6 +41,7 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -204,6 +205,12 @@ public class Configuration implements Iterable<Map.Entry<String, String>>, Writa
   private Properties overlay;
   private ClassLoader classLoader;
 
+  /**
+   * 配置项的只读快照，读取时无锁。任何修改都会增加 {@link #modCount}，下次读取时重新生成快照。
+   */
+  private volatile Snapshot snapshot;
+  private volatile int modCount;
+
   {
     classLoader = Thread.currentThread().getContextClassLoader();
     if (classLoader == null) {
@@ -324,6 +331,7 @@ public class Configuration implements Iterable<Map.Entry<String, String>>, Writa
   public synchronized void reloadConfiguration() {
     properties = null; // trigger reload
     finalParameters.clear(); // clear site-limits
+    modCount++;
   }
 
   private synchronized void addResourceObject(Object resource) {
@@ -335,8 +343,8 @@ public class Configuration implements Iterable<Map.Entry<String, String>>, Writa
   private static int MAX_SUBST = 20;
 
   private String substituteVars(String expr) {
-    if (expr == null) {
-      return null;
+    if (expr == null || expr.indexOf("${") < 0) {
+      return expr;
     }
     Matcher match = varPat.matcher("");
     String eval = expr;
@@ -374,7 +382,7 @@ public class Configuration implements Iterable<Map.Entry<String, String>>, Writa
    * @return 参数<code>name</code>的字符串值, 如果不存在，返回<code>null</code>。
    */
   public String get(String name) {
-    return substituteVars(getProps().getProperty(name));
+    return substituteVars(getSnapshot().values.get(name));
   }
 
   /**
@@ -385,7 +393,7 @@ public class Configuration implements Iterable<Map.Entry<String, String>>, Writa
    * @return 参数<code>name</code>的值, 如果不存在，返回<code>null</code>。
    */
   public String getRaw(String name) {
-    return getProps().getProperty(name);
+    return getSnapshot().values.get(name);
   }
 
   /**
@@ -400,6 +408,7 @@ public class Configuration implements Iterable<Map.Entry<String, String>>, Writa
     checkState(name);
     getOverlay().setProperty(name, value);
     getProps().setProperty(name, value);
+    modCount++;
   }
 
   /**
@@ -433,7 +442,8 @@ public class Configuration implements Iterable<Map.Entry<String, String>>, Writa
    * @return 参数<code>name</code>的字符串值，如果不存在，返回<code>defaultValue</code>。
    */
   public String get(String name, String defaultValue) {
-    return substituteVars(getProps().getProperty(name, defaultValue));
+    String value = getSnapshot().values.get(name);
+    return substituteVars(value == null ? defaultValue : value);
   }
 
   /**
@@ -446,21 +456,32 @@ public class Configuration implements Iterable<Map.Entry<String, String>>, Writa
    * @return 参数<code>name</code>的整形值，如果不存在，返回<code>defaultValue</code>。
    */
   public int getInt(String name, int defaultValue) {
+    Snapshot snap = getSnapshot();
+    Object cached = snap.parsed.get(name);
+    if (cached instanceof Integer) {
+      return (Integer) cached;
+    }
     String valueString = get(name);
     if (valueString == null) {
       return defaultValue;
     }
     try {
-      String hexString = getHexDigits(valueString);
-      if (hexString != null) {
-        return Integer.parseInt(hexString, 16);
-      }
-      return Integer.parseInt(valueString);
+      int value = parseInt(valueString);
+      snap.cache(name, valueString, value);
+      return value;
     } catch (NumberFormatException e) {
       return defaultValue;
     }
   }
 
+  private int parseInt(String valueString) {
+    String hexString = getHexDigits(valueString);
+    if (hexString != null) {
+      return Integer.parseInt(hexString, 16);
+    }
+    return Integer.parseInt(valueString);
+  }
+
   /**
    * 设定参数 <code>name</code> 的整形值
    *
@@ -483,21 +504,32 @@ public class Configuration implements Iterable<Map.Entry<String, String>>, Writa
    * @return 参数<code>name</code>的长整型值，如果不存在，返回<code>defaultValue</code>。
    */
   public long getLong(String name, long defaultValue) {
+    Snapshot snap = getSnapshot();
+    Object cached = snap.parsed.get(name);
+    if (cached instanceof Long) {
+      return (Long) cached;
+    }
     String valueString = get(name);
     if (valueString == null) {
       return defaultValue;
     }
     try {
-      String hexString = getHexDigits(valueString);
-      if (hexString != null) {
-        return Long.parseLong(hexString, 16);
-      }
-      return Long.parseLong(valueString);
+      long value = parseLong(valueString);
+      snap.cache(name, valueString, value);
+      return value;
     } catch (NumberFormatException e) {
       return defaultValue;
     }
   }
 
+  private long parseLong(String valueString) {
+    String hexString = getHexDigits(valueString);
+    if (hexString != null) {
+      return Long.parseLong(hexString, 16);
+    }
+    return Long.parseLong(valueString);
+  }
+
   private String getHexDigits(String value) {
     boolean negative = false;
     String str = value;
@@ -733,8 +765,7 @@ public class Configuration implements Iterable<Map.Entry<String, String>>, Writa
    * @return 参数<code>name</code>的字符数组值，如果不存在，返回<code>null</code>。
    */
   public String[] getStrings(String name) {
-    String valueString = get(name);
-    return StringUtils.getStrings(valueString);
+    return getStrings(name, (String[]) null);
   }
 
   /**
@@ -747,12 +778,21 @@ public class Configuration implements Iterable<Map.Entry<String, String>>, Writa
    * @return 参数<code>name</code>的字符数组值，如果不存在，返回<code>defaultValue</code>。
    */
   public String[] getStrings(String name, String... defaultValue) {
+    Snapshot snap = getSnapshot();
+    Object cached = snap.parsed.get(name);
+    if (cached instanceof String[]) {
+      return ((String[]) cached).clone();
+    }
     String valueString = get(name);
     if (valueString == null) {
       return defaultValue;
-    } else {
-      return StringUtils.getStrings(valueString);
     }
+    String[] values = StringUtils.getStrings(valueString);
+    if (values == null) {
+      return null;
+    }
+    snap.cache(name, valueString, values);
+    return values.clone();
   }
 
   /**
@@ -956,6 +996,51 @@ public class Configuration implements Iterable<Map.Entry<String, String>>, Writa
     }
   }
 
+  private Snapshot getSnapshot() {
+    Snapshot snap = snapshot;
+    int version = modCount;
+    if (snap != null && snap.version == version) {
+      return snap;
+    }
+    // 生成过程中如果有修改, modCount 会变化, 下次读取时再重新生成
+    Properties props = getProps();
+    Map<String, String> values = new HashMap<String, String>();
+    synchronized (props) {
+      for (Map.Entry<Object, Object> item : props.entrySet()) {
+        if (item.getKey() instanceof String && item.getValue() instanceof String) {
+          values.put((String) item.getKey(), (String) item.getValue());
+        }
+      }
+    }
+    snap = new Snapshot(version, values);
+    snapshot = snap;
+    return snap;
+  }
+
+  /**
+   * 某一时刻全部配置项的不可变副本，以及按需缓存的类型转换结果。
+   */
+  private static final class Snapshot {
+
+    final int version;
+    final Map<String, String> values;
+    final ConcurrentHashMap<String, Object> parsed = new ConcurrentHashMap<String, Object>();
+
+    Snapshot(int version, Map<String, String> values) {
+      this.version = version;
+      this.values = values;
+    }
+
+    /**
+     * 缓存类型转换的结果。取值经过变量展开时不缓存, 因为展开结果依赖系统属性。
+     */
+    void cache(String name, String resolved, Object value) {
+      if (values.get(name) == resolved) {
+        parsed.put(name, value);
+      }
+    }
+  }
+
   private synchronized Properties getProps() {
     if (properties == null) {
       properties = new Properties();
@@ -982,6 +1067,7 @@ public class Configuration implements Iterable<Map.Entry<String, String>>, Writa
   public void clear() {
     getProps().clear();
     getOverlay().clear();
+    modCount++;
   }
 
   /**
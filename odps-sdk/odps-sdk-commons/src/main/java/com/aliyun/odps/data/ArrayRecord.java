@@ -59,7 +59,7 @@ public class ArrayRecord implements Record {
 
   private Column[] columns;
   private final Object[] values;
-  private HashMap<String, Integer> nameMap = new HashMap<>();
+  private final ColumnIndex columnIndex;
 
   /**
    * When strictTypeValidation is enabled, max length of string and range of datetime are
@@ -80,6 +80,24 @@ public class ArrayRecord implements Record {
   }
 
   public ArrayRecord(Column[] columns, boolean strictTypeValidation, Long fieldMaxSize) {
+    this(columns, null, strictTypeValidation, fieldMaxSize);
+  }
+
+  /**
+   * 使用已有的列名映射构造记录
+   *
+   * @param columns
+   *     记录的列定义数组
+   * @param columnIndex
+   *     与 columns 列名相同的列数组的映射, 例如 {@link ColumnIndex#of(Column[])} 对共享列数组返回的映射,
+   *     为 null 时按 columns 构造
+   * @param strictTypeValidation
+   *     是否限制字符串长度和日期范围
+   * @param fieldMaxSize
+   *     字段最大长度, 为 null 时使用默认值
+   */
+  public ArrayRecord(Column[] columns, ColumnIndex columnIndex, boolean strictTypeValidation,
+                     Long fieldMaxSize) {
     if (columns == null) {
       throw new IllegalArgumentException();
     }
@@ -91,16 +109,26 @@ public class ArrayRecord implements Record {
     }
 
     values = new Object[columns.length];
-
-    for (int i = 0; i < columns.length; i++) {
-      nameMap.put(columns[i].getName(), i);
-    }
+    this.columnIndex = columnIndex != null ? columnIndex : ColumnIndex.of(columns);
   }
 
   public ArrayRecord(Column[] columns, Object[] values) {
     this(columns, values, true);
   }
 
+  /**
+   * 供不在本对象中保存数据的只读子类使用, 例如列存批次上的行视图. 不分配 values 数组,
+   * 子类需覆盖所有读取数据的方法.
+   */
+  protected ArrayRecord(Column[] columns, ColumnIndex columnIndex) {
+    if (columns == null || columnIndex == null) {
+      throw new IllegalArgumentException();
+    }
+    this.columns = columns;
+    this.columnIndex = columnIndex;
+    this.values = null;
+  }
+
   public ArrayRecord(Column[] columns, Object[] values, boolean strictTypeValidation){
     this(columns, strictTypeValidation);
     if (values.length != columns.length) {
@@ -116,7 +144,9 @@ public class ArrayRecord implements Record {
   }
 
   public ArrayRecord(TableSchema schema, boolean strictTypeValidation) {
-    this(schema.getColumns().toArray(new Column[0]), strictTypeValidation);
+    // 每条记录持有自己的列数组, 列名映射在同一 schema 的记录间共享
+    this(schema.getColumnArray().clone(), ColumnIndex.of(schema.getColumnArray()),
+         strictTypeValidation, DEFAULT_FIELD_MAX_SIZE);
   }
 
   @Override
@@ -135,6 +165,9 @@ public class ArrayRecord implements Record {
   }
 
   private void set(int idx, Object value, Calendar calendar) {
+    if (values == null) {
+      throw new UnsupportedOperationException("Record is read only");
+    }
     values[idx] = transformAndValidate(
             value,
             columns[idx].getTypeInfo(),
@@ -397,14 +430,18 @@ public class ArrayRecord implements Record {
     return values;
   }
 
-  private int getColumnIndex(String name) {
-    Integer idx = nameMap.get(name);
-    if (idx == null) {
+  protected int getColumnIndex(String name) {
+    int idx = columnIndex.indexOf(name);
+    if (idx < 0) {
       throw new IllegalArgumentException("No such column:" + name);
     }
     return idx;
   }
 
+  ColumnIndex getColumnIndexMap() {
+    return columnIndex;
+  }
+
   public void clear() {
     for (int i = 0; i < values.length; i++) {
       values[i] = null;
@@ -1118,7 +1155,9 @@ public class ArrayRecord implements Record {
 
   @Override
   public Record clone() {
-    ArrayRecord record = new ArrayRecord(getColumns());
+    Column[] cols = getColumns();
+    ArrayRecord record = new ArrayRecord(cols, cols == columns ? columnIndex : null, true,
+                                         DEFAULT_FIELD_MAX_SIZE);
     record.set(values);
     return record;
   }
@@ -1172,7 +1211,9 @@ public class ArrayRecord implements Record {
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder();
-    for (Object o : values) {
+    // 通过 get 读取, 子类视图不在 values 中保存数据
+    for (int i = 0; i < getColumnCount(); i++) {
+      Object o = get(i);
       if (o == null) {
         sb.append("null").append(",");
       } else if (o instanceof byte[]) {
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.data;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.aliyun.odps.Column;
+
+/**
+ * 列名到列下标的不可变映射
+ *
+ * <p>
+ * 以开放寻址的数组实现, 查找时不产生任何对象. 列名大小写敏感, 同名列以最后一列为准.
+ * 通过 {@link #share(Column[])} 登记的列数组 (例如 {@link com.aliyun.odps.TableSchema#getColumnArray()})
+ * 由 {@link #of(Column[])} 无锁地返回同一个映射, 同一 schema 的 {@link ArrayRecord} 不必每条记录重新建表;
+ * 未登记的列数组每次构造新的映射, 不进入缓存.
+ * </p>
+ */
+public final class ColumnIndex {
+
+  private static final int SHARED_SLOTS = 64;
+
+  /**
+   * 直接映射的共享缓存, 按列数组的 identityHashCode 选槽, 冲突时后登记者覆盖; 只弱引用列数组
+   */
+  private static final AtomicReferenceArray<SharedEntry> SHARED =
+      new AtomicReferenceArray<SharedEntry>(SHARED_SLOTS);
+
+  private static final class SharedEntry extends WeakReference<Column[]> {
+
+    final ColumnIndex index;
+
+    SharedEntry(Column[] columns, ColumnIndex index) {
+      super(columns);
+      this.index = index;
+    }
+  }
+
+  private final String[] names;
+  private final int[] indexes;
+  private final int mask;
+
+  private ColumnIndex(Column[] columns) {
+    int capacity = Integer.highestOneBit(Math.max(columns.length, 1) * 2 - 1) << 1;
+    mask = capacity - 1;
+    names = new String[capacity];
+    indexes = new int[capacity];
+    for (int i = 0; i < columns.length; i++) {
+      String name = columns[i].getName();
+      if (name != null) {
+        // 同名列以最后一列为准
+        put(name, i);
+      }
+    }
+  }
+
+  /**
+   * 获取列数组对应的映射
+   *
+   * @param columns
+   *     列数组, 构造后不应再修改
+   * @return 列数组已通过 {@link #share(Column[])} 登记时返回共享的映射, 否则返回新建的映射
+   */
+  public static ColumnIndex of(Column[] columns) {
+    ColumnIndex index = lookup(slotOf(columns), columns);
+    return index != null ? index : new ColumnIndex(columns);
+  }
+
+  /**
+   * 登记会被多条记录共享的列数组, 之后 {@link #of(Column[])} 对同一个数组对象返回同一个映射
+   *
+   * @param columns
+   *     只读的列数组, 登记后不能再修改
+   * @return 列名映射
+   */
+  public static ColumnIndex share(Column[] columns) {
+    int slot = slotOf(columns);
+    ColumnIndex index = lookup(slot, columns);
+    if (index == null) {
+      index = new ColumnIndex(columns);
+      SHARED.set(slot, new SharedEntry(columns, index));
+    }
+    return index;
+  }
+
+  /**
+   * 取得列下标
+   *
+   * @param name
+   *     列名, 大小写敏感
+   * @return 列下标, 列不存在时返回 -1
+   */
+  public int indexOf(String name) {
+    if (name == null) {
+      return -1;
+    }
+    int slot = slot(name);
+    String current;
+    while ((current = names[slot]) != null) {
+      if (current.equals(name)) {
+        return indexes[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  private void put(String name, int idx) {
+    int slot = slot(name);
+    while (names[slot] != null && !names[slot].equals(name)) {
+      slot = (slot + 1) & mask;
+    }
+    names[slot] = name;
+    indexes[slot] = idx;
+  }
+
+  private int slot(String name) {
+    int h = name.hashCode();
+    return (h ^ (h >>> 16)) & mask;
+  }
+
+  private static ColumnIndex lookup(int slot, Column[] columns) {
+    SharedEntry entry = SHARED.get(slot);
+    if (entry != null && columns != null && entry.get() == columns) {
+      return entry.index;
+    }
+    return null;
+  }
+
+  private static int slotOf(Column[] columns) {
+    int h = System.identityHashCode(columns);
+    return (h ^ (h >>> 16)) & (SHARED_SLOTS - 1);
+  }
+}
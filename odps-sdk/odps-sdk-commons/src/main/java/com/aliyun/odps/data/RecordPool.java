@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.data;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.aliyun.odps.Column;
+import com.aliyun.odps.TableSchema;
+
+/**
+ * 同一 schema 的 {@link ArrayRecord} 对象池
+ *
+ * <p>
+ * 用于生产者/消费者循环: 生产者 {@link #borrow()} 记录并填充, 消费者处理完后 {@link #release(Record)}
+ * 归还, 归还时记录会被清空. 池是线程安全的, 空闲记录数超过容量时归还的记录直接丢弃.
+ * </p>
+ *
+ * <pre>
+ * RecordPool pool = new RecordPool(schema, 1024);
+ * ArrayRecord r = pool.borrow();
+ * r.setBigint(0, 1L);
+ * queue.put(r);
+ * ...
+ * pool.release(queue.take());
+ * </pre>
+ */
+public class RecordPool {
+
+  private final Column[] columns;
+  private final ColumnIndex columnIndex;
+  private final boolean strictTypeValidation;
+  private final int capacity;
+  private final ConcurrentLinkedQueue<ArrayRecord> idle = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger idleCount = new AtomicInteger();
+
+  public RecordPool(TableSchema schema, int capacity) {
+    this(schema.getColumnArray(), true, capacity);
+  }
+
+  public RecordPool(Column[] columns, int capacity) {
+    this(columns, true, capacity);
+  }
+
+  public RecordPool(Column[] columns, boolean strictTypeValidation, int capacity) {
+    if (columns == null || capacity < 0) {
+      throw new IllegalArgumentException();
+    }
+    this.columns = columns;
+    this.columnIndex = ColumnIndex.of(columns);
+    this.strictTypeValidation = strictTypeValidation;
+    this.capacity = capacity;
+  }
+
+  /**
+   * 取得一条空记录, 池中没有空闲记录时新建
+   *
+   * @return 所有列均为 null 的记录
+   */
+  public ArrayRecord borrow() {
+    ArrayRecord record = idle.poll();
+    if (record != null) {
+      idleCount.decrementAndGet();
+      return record;
+    }
+    return new ArrayRecord(columns.clone(), columnIndex, strictTypeValidation, null);
+  }
+
+  /**
+   * 归还记录, 归还后调用方不应再使用该记录
+   *
+   * @param record
+   *     由本池 {@link #borrow()} 得到的记录, 其他记录将被忽略
+   */
+  public void release(Record record) {
+    if (record == null || record.getClass() != ArrayRecord.class
+        || ((ArrayRecord) record).getColumnIndexMap() != columnIndex) {
+      return;
+    }
+    ArrayRecord arrayRecord = (ArrayRecord) record;
+    if (idleCount.incrementAndGet() > capacity) {
+      idleCount.decrementAndGet();
+      return;
+    }
+    arrayRecord.clear();
+    idle.offer(arrayRecord);
+  }
+
+  /**
+   * @return 当前空闲记录数
+   */
+  public int getIdleCount() {
+    return idleCount.get();
+  }
+}
@@ -74,25 +74,40 @@ public class BigDecimalWritable implements WritableComparable<BigDecimalWritable
   }
 
   /** A Comparator optimized for BigDecimalWritable. */
-  //TODO consider trying to do something a big more optimizied
   public static class Comparator extends WritableComparator {
-    private BigDecimalWritable thisValue = new BigDecimalWritable();
-    private BigDecimalWritable thatValue = new BigDecimalWritable();
 
     public Comparator() {
       super(BigDecimalWritable.class);
     }
 
+    /**
+     * 直接从序列化的字符串构造 BigDecimal 进行比较, 不经过 DataInput 和 String 解码.
+     *
+     * <p>
+     * toPlainString 的结果只包含 ASCII 字符, 二进制内容相同时直接返回 0。
+     */
     @Override
     public int compare(byte[] b1, int s1, int l1,
         byte[] b2, int s2, int l2) {
+      if (l1 == l2 && compareBytes(b1, s1, l1, b2, s2, l2) == 0) {
+        return 0;
+      }
+      return decode(b1, s1).compareTo(decode(b2, s2));
+    }
+
+    private static BigDecimal decode(byte[] b, int s) {
+      int n = WritableUtils.decodeVIntSize(b[s]);
+      int len;
       try {
-        thisValue.readFields(new DataInputStream(new ByteArrayInputStream(b1,s1,l1)));
-        thatValue.readFields(new DataInputStream(new ByteArrayInputStream(b2,s2,l2)));
+        len = readVInt(b, s);
       } catch (IOException e) {
         throw new RuntimeException("Unable to read field from byte array: " + e);
       }
-      return thisValue.compareTo(thatValue);
+      char[] chars = new char[len];
+      for (int i = 0; i < len; i++) {
+        chars[i] = (char) b[s + n + i];
+      }
+      return new BigDecimal(chars);
     }
   }
 
@@ -0,0 +1,83 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aliyun.odps.io;
+
+/**
+ * 按无符号字典序比较两段二进制数据.
+ *
+ * <p>
+ * 每次把 8 个字节按大端序拼成一个 long 比较, 大端序下 long 的无符号大小与字节的字典序一致,
+ * 找到第一个不同的 long 后再定位不同的字节, 剩余不足 8 个字节的部分逐字节比较。比较过程不分配对象,
+ * 返回值与 {@link #compareByteByByte} 相同, 都是第一个不同字节的差值, 或者在一方是另一方前缀时返回长度差。
+ */
+final class FastByteComparisons {
+
+  private FastByteComparisons() {
+  }
+
+  static int compareTo(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+    if (b1 == b2 && s1 == s2 && l1 == l2) {
+      return 0;
+    }
+    int minLength = Math.min(l1, l2);
+    int strideLimit = minLength & ~7;
+    int i;
+    for (i = 0; i < strideLimit; i += 8) {
+      long lw = readLong(b1, s1 + i);
+      long rw = readLong(b2, s2 + i);
+      if (lw != rw) {
+        // 大端序下靠前的字节是 long 的高位
+        int shift = 56 - (Long.numberOfLeadingZeros(lw ^ rw) & ~7);
+        return (int) ((lw >>> shift) & 0xff) - (int) ((rw >>> shift) & 0xff);
+      }
+    }
+    for (; i < minLength; i++) {
+      int a = b1[s1 + i] & 0xff;
+      int b = b2[s2 + i] & 0xff;
+      if (a != b) {
+        return a - b;
+      }
+    }
+    return l1 - l2;
+  }
+
+  private static long readLong(byte[] b, int off) {
+    return ((long) b[off] << 56)
+           | ((long) (b[off + 1] & 0xff) << 48)
+           | ((long) (b[off + 2] & 0xff) << 40)
+           | ((long) (b[off + 3] & 0xff) << 32)
+           | ((long) (b[off + 4] & 0xff) << 24)
+           | ((b[off + 5] & 0xff) << 16)
+           | ((b[off + 6] & 0xff) << 8)
+           | (b[off + 7] & 0xff);
+  }
+
+  static int compareByteByByte(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+    int end1 = s1 + l1;
+    int end2 = s2 + l2;
+    for (int i = s1, j = s2; i < end1 && j < end2; i++, j++) {
+      int a = (b1[i] & 0xff);
+      int b = (b2[j] & 0xff);
+      if (a != b) {
+        return a - b;
+      }
+    }
+    return l1 - l2;
+  }
+}
@@ -21,7 +21,7 @@ package com.aliyun.odps.io;
 import java.io.DataInput;
 import java.io.IOException;
 import java.util.Comparator;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.aliyun.odps.utils.ReflectionUtils;
 
@@ -38,9 +38,9 @@ import com.aliyun.odps.utils.ReflectionUtils;
 @SuppressWarnings("rawtypes")
 public class WritableComparator implements RawComparator {
 
-  private static HashMap<Class, WritableComparator>
+  private static ConcurrentHashMap<Class, WritableComparator>
       comparators =
-      new HashMap<Class, WritableComparator>();
+      new ConcurrentHashMap<Class, WritableComparator>();
       // registry
 
   /**
@@ -55,15 +55,28 @@ public class WritableComparator implements RawComparator {
    * @return WritableComparator 实现
    * @see JobConf#getOutputKeyComparator()
    */
-  public static synchronized WritableComparator get(
+  public static WritableComparator get(
       Class<? extends WritableComparable> c) {
     WritableComparator comparator = comparators.get(c);
     if (comparator == null) {
-      comparator = new WritableComparator(c, true);
+      // 比较器在类的静态初始化中注册, 仅引用 Class 对象不会触发初始化
+      forceInit(c);
+      comparator = comparators.get(c);
+      if (comparator == null) {
+        comparator = new WritableComparator(c, true);
+      }
     }
     return comparator;
   }
 
+  private static void forceInit(Class<?> c) {
+    try {
+      Class.forName(c.getName(), true, c.getClassLoader());
+    } catch (ClassNotFoundException e) {
+      throw new IllegalArgumentException("Can't initialize class " + c, e);
+    }
+  }
+
   /**
    * 此静态方法用于为指定类型注册更高效的 WritableComparator 实现，否则默认使用本实现.
    *
@@ -186,7 +199,10 @@ public class WritableComparator implements RawComparator {
   }
 
   /**
-   * 逐字节比较两组二进制数据.
+   * 按无符号字典序比较两组二进制数据.
+   *
+   * <p>
+   * 每 8 个字节拼成一个 long 比较，返回第一个不同字节的差值，一方是另一方的前缀时返回长度差。
    *
    * @param b1
    * @param s1
@@ -199,16 +215,7 @@ public class WritableComparator implements RawComparator {
    */
   public static int compareBytes(byte[] b1, int s1, int l1, byte[] b2, int s2,
                                  int l2) {
-    int end1 = s1 + l1;
-    int end2 = s2 + l2;
-    for (int i = s1, j = s2; i < end1 && j < end2; i++, j++) {
-      int a = (b1[i] & 0xff);
-      int b = (b2[j] & 0xff);
-      if (a != b) {
-        return a - b;
-      }
-    }
-    return l1 - l2;
+    return FastByteComparisons.compareTo(b1, s1, l1, b2, s2, l2);
   }
 
   /**
@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aliyun.odps.conf;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConfigurationTest {
+
+  @Test
+  public void testSetInvalidatesCachedValues() {
+    Configuration conf = new Configuration(false);
+    Assert.assertEquals(7, conf.getInt("a", 7));
+    conf.set("a", "0x10");
+    Assert.assertEquals(16, conf.getInt("a", 7));
+    Assert.assertEquals(16L, conf.getLong("a", 7L));
+    conf.setInt("a", 3);
+    Assert.assertEquals(3, conf.getInt("a", 7));
+    conf.set("a", "x");
+    Assert.assertEquals(7, conf.getInt("a", 7));
+    Assert.assertEquals("x", conf.get("a"));
+    conf.clear();
+    Assert.assertNull(conf.get("a"));
+    Assert.assertEquals("d", conf.get("a", "d"));
+  }
+
+  @Test
+  public void testGetStrings() {
+    Configuration conf = new Configuration(false);
+    Assert.assertNull(conf.getStrings("s"));
+    Assert.assertArrayEquals(new String[]{"x"}, conf.getStrings("s", "x"));
+    conf.setStrings("s", "a", "b");
+    String[] values = conf.getStrings("s");
+    Assert.assertArrayEquals(new String[]{"a", "b"}, values);
+    // 返回的是副本, 修改不影响缓存
+    values[0] = "c";
+    Assert.assertArrayEquals(new String[]{"a", "b"}, conf.getStrings("s"));
+    conf.set("s", "");
+    Assert.assertNull(conf.getStrings("s", "x"));
+  }
+
+  @Test
+  public void testVariableSubstitution() {
+    Configuration conf = new Configuration(false);
+    conf.set("base", "10");
+    conf.set("ref", "${base}");
+    Assert.assertEquals("10", conf.get("ref"));
+    Assert.assertEquals(10, conf.getInt("ref", 0));
+    conf.set("base", "20");
+    Assert.assertEquals(20, conf.getInt("ref", 0));
+    Assert.assertEquals("${base}", conf.getRaw("ref"));
+
+    // 依赖系统属性的取值不缓存
+    conf.set("sys", "${odps.conf.test.value}");
+    System.setProperty("odps.conf.test.value", "1");
+    try {
+      Assert.assertEquals(1, conf.getInt("sys", 0));
+      System.setProperty("odps.conf.test.value", "2");
+      Assert.assertEquals(2, conf.getInt("sys", 0));
+    } finally {
+      System.clearProperty("odps.conf.test.value");
+    }
+  }
+
+  @Test
+  public void testCopy() {
+    Configuration conf = new Configuration(false);
+    conf.set("a", "1");
+    Assert.assertEquals(1, conf.getInt("a", 0));
+    Configuration copy = new Configuration(conf);
+    copy.set("a", "2");
+    Assert.assertEquals(1, conf.getInt("a", 0));
+    Assert.assertEquals(2, copy.getInt("a", 0));
+  }
+}
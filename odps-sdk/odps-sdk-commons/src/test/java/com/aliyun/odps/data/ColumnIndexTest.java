@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.data;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.aliyun.odps.Column;
+import com.aliyun.odps.OdpsType;
+import com.aliyun.odps.TableSchema;
+
+public class ColumnIndexTest {
+
+  private static Column[] columns(String... names) {
+    Column[] columns = new Column[names.length];
+    for (int i = 0; i < names.length; i++) {
+      columns[i] = new Column(names[i], OdpsType.STRING);
+    }
+    return columns;
+  }
+
+  @Test
+  public void testCaseSensitiveLookup() {
+    ColumnIndex index = ColumnIndex.of(columns("id", "UserName", "AGE"));
+    Assert.assertEquals(0, index.indexOf("id"));
+    Assert.assertEquals(-1, index.indexOf("ID"));
+    Assert.assertEquals(1, index.indexOf("UserName"));
+    Assert.assertEquals(-1, index.indexOf("username"));
+    Assert.assertEquals(2, index.indexOf("AGE"));
+
+    index = ColumnIndex.of(columns("Col", "col", "Col"));
+    Assert.assertEquals(2, index.indexOf("Col"));
+    Assert.assertEquals(1, index.indexOf("col"));
+    Assert.assertEquals(-1, index.indexOf("COL"));
+
+    ArrayRecord record = new ArrayRecord(columns("Name"));
+    record.setString("Name", "v");
+    Assert.assertEquals("v", record.getString("Name"));
+    try {
+      record.getString("name");
+      Assert.fail();
+    } catch (IllegalArgumentException e) {
+      Assert.assertEquals("No such column:name", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testMissingColumn() {
+    ColumnIndex index = ColumnIndex.of(columns("a", "B"));
+    Assert.assertEquals(-1, index.indexOf("c"));
+    Assert.assertEquals(-1, index.indexOf(""));
+    Assert.assertEquals(-1, index.indexOf(null));
+    Assert.assertEquals(-1, ColumnIndex.of(new Column[0]).indexOf("a"));
+
+    try {
+      new ArrayRecord(columns("a")).getString("b");
+      Assert.fail();
+    } catch (IllegalArgumentException e) {
+      Assert.assertEquals("No such column:b", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testSharing() {
+    Column[] unshared = columns("a", "b");
+    Assert.assertNotSame(ColumnIndex.of(unshared), ColumnIndex.of(unshared));
+
+    Column[] shared = columns("a", "b");
+    ColumnIndex index = ColumnIndex.share(shared);
+    Assert.assertSame(index, ColumnIndex.share(shared));
+    Assert.assertSame(index, ColumnIndex.of(shared));
+    Assert.assertNotSame(index, ColumnIndex.of(columns("a", "b")));
+
+    TableSchema schema = new TableSchema();
+    schema.addColumn(new Column("a", OdpsType.BIGINT));
+    Column[] schemaColumns = schema.getColumnArray();
+    Assert.assertSame(ColumnIndex.of(schemaColumns), ColumnIndex.of(schemaColumns));
+    // 每条记录持有自己的列数组, 修改一条记录的列数组不影响其它记录
+    ArrayRecord record = new ArrayRecord(schema);
+    ArrayRecord other = new ArrayRecord(schema);
+    Assert.assertNotSame(schemaColumns, record.getColumns());
+    Assert.assertNotSame(record.getColumns(), other.getColumns());
+    record.getColumns()[0] = new Column("b", OdpsType.BIGINT);
+    Assert.assertEquals("a", schemaColumns[0].getName());
+    Assert.assertEquals("a", other.getColumns()[0].getName());
+    other.setBigint("a", 1L);
+    Assert.assertEquals(Long.valueOf(1), other.clone().getBigint("a"));
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.data;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.aliyun.odps.Column;
+import com.aliyun.odps.OdpsType;
+import com.aliyun.odps.TableSchema;
+
+public class RecordPoolTest {
+
+  private static TableSchema schema(int columnCount) {
+    TableSchema schema = new TableSchema();
+    for (int i = 0; i < columnCount; i++) {
+      schema.addColumn(new Column("c" + i, OdpsType.BIGINT));
+    }
+    return schema;
+  }
+
+  @Test
+  public void testColumnIndex() {
+    TableSchema schema = schema(100);
+    Column[] columns = schema.getColumnArray();
+    Assert.assertSame(columns, schema.getColumnArray());
+    Assert.assertSame(ColumnIndex.of(columns), ColumnIndex.of(columns));
+
+    ColumnIndex index = ColumnIndex.of(columns);
+    for (int i = 0; i < 100; i++) {
+      Assert.assertEquals(i, index.indexOf("c" + i));
+    }
+    Assert.assertEquals(-1, index.indexOf("c100"));
+    Assert.assertEquals(-1, index.indexOf(null));
+
+    Column[] empty = new Column[0];
+    Assert.assertEquals(-1, ColumnIndex.of(empty).indexOf("c0"));
+
+    schema.addColumn(new Column("c100", OdpsType.STRING));
+    Assert.assertEquals(101, schema.getColumnArray().length);
+    ArrayRecord record = new ArrayRecord(schema);
+    record.setString("c100", "v");
+    Assert.assertEquals("v", record.getString(100));
+  }
+
+  @Test
+  public void testBorrowAndRelease() {
+    TableSchema schema = schema(3);
+    RecordPool pool = new RecordPool(schema, 1);
+
+    ArrayRecord first = pool.borrow();
+    ArrayRecord second = pool.borrow();
+    Assert.assertNotSame(first, second);
+    first.setBigint("c1", 1L);
+
+    pool.release(first);
+    pool.release(second);
+    Assert.assertEquals(1, pool.getIdleCount());
+
+    ArrayRecord reused = pool.borrow();
+    Assert.assertSame(first, reused);
+    Assert.assertNull(reused.get(1));
+    Assert.assertEquals(0, pool.getIdleCount());
+
+    // records of other schemas are ignored
+    pool.release(new ArrayRecord(schema(3)));
+    Assert.assertEquals(0, pool.getIdleCount());
+  }
+}
@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aliyun.odps.io;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class WritableComparatorTest {
+
+  private static byte[] randomBytes(Random random, int length) {
+    byte[] bytes = new byte[length];
+    // 取值范围很小, 以便产生较长的相同前缀
+    for (int i = 0; i < length; i++) {
+      bytes[i] = (byte) (random.nextInt(3) == 0 ? 0x80 + random.nextInt(2) : random.nextInt(2));
+    }
+    return bytes;
+  }
+
+  @Test
+  public void testCompareBytes() {
+    Random random = new Random(42);
+    for (int round = 0; round < 20000; round++) {
+      byte[] b1 = randomBytes(random, random.nextInt(40));
+      byte[] b2 = random.nextInt(4) == 0 ? b1.clone() : randomBytes(random, random.nextInt(40));
+      int s1 = b1.length == 0 ? 0 : random.nextInt(b1.length);
+      int s2 = b2.length == 0 ? 0 : random.nextInt(b2.length);
+      int l1 = random.nextInt(b1.length - s1 + 1);
+      int l2 = random.nextInt(b2.length - s2 + 1);
+      Assert.assertEquals(FastByteComparisons.compareByteByByte(b1, s1, l1, b2, s2, l2),
+                          WritableComparator.compareBytes(b1, s1, l1, b2, s2, l2));
+    }
+    byte[] b = {1, 2, 3, 4, 5, 6, 7, 8, 9};
+    Assert.assertEquals(0, WritableComparator.compareBytes(b, 0, 9, b, 0, 9));
+    Assert.assertEquals(-1, WritableComparator.compareBytes(b, 0, 8, b, 0, 9));
+    Assert.assertEquals(-1, WritableComparator.compareBytes(b, 0, 9, b, 1, 8));
+  }
+
+  @Test
+  public void testRegisteredComparator() {
+    // 没有触发过类初始化时也能拿到注册的比较器
+    Assert.assertSame(TimestampWritable.Comparator.class,
+                      WritableComparator.get(TimestampWritable.class).getClass());
+    Assert.assertSame(BigDecimalWritable.Comparator.class,
+                      WritableComparator.get(BigDecimalWritable.class).getClass());
+  }
+
+  private static byte[] serialize(Writable w) throws IOException {
+    DataOutputBuffer out = new DataOutputBuffer();
+    w.write(out);
+    byte[] bytes = new byte[out.getLength() + 2];
+    System.arraycopy(out.getData(), 0, bytes, 1, out.getLength());
+    return bytes;
+  }
+
+  @Test
+  public void testBigDecimalComparator() throws IOException {
+    String[] values = {"0", "-1.5", "10", "9.99", "-100", "1E+3", "1000.000", "0.0001"};
+    WritableComparator comparator = WritableComparator.get(BigDecimalWritable.class);
+    for (String l : values) {
+      for (String r : values) {
+        BigDecimalWritable lw = new BigDecimalWritable(new BigDecimal(l));
+        BigDecimalWritable rw = new BigDecimalWritable(new BigDecimal(r));
+        byte[] lb = serialize(lw);
+        byte[] rb = serialize(rw);
+        Assert.assertEquals(Integer.signum(lw.compareTo(rw)),
+                            Integer.signum(comparator.compare(lb, 1, lb.length - 2,
+                                                              rb, 1, rb.length - 2)));
+      }
+    }
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.aliyun.odps;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import com.aliyun.odps.commons.util.IOUtils;
+
+/**
+ * 资源文件的本地磁盘缓存.
+ *
+ * <p>
+ * 缓存文件以 project、schema、资源名和资源版本（MD5，没有时使用最后修改时间）的摘要命名，资源更新后自然失效。
+ * 命中时更新文件的修改时间，缓存总大小超过上限时按修改时间从旧到新删除，即 LRU 淘汰。
+ */
+class ResourceCache {
+
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  interface Source {
+
+    InputStream open() throws OdpsException, IOException;
+  }
+
+  private final File dir;
+  private final long maxBytes;
+
+  ResourceCache(File dir, long maxBytes) {
+    this.dir = dir;
+    this.maxBytes = maxBytes;
+  }
+
+  File getDir() {
+    return dir;
+  }
+
+  long getMaxBytes() {
+    return maxBytes;
+  }
+
+  static String key(String project, String schema, String name, String version) {
+    return DigestUtils.sha1Hex(project + "/" + schema + "/" + name + "@" + version);
+  }
+
+  /**
+   * 获取缓存的资源文件，不存在时从 source 下载
+   *
+   * @param key
+   *     缓存键，见 {@link #key(String, String, String, String)}
+   * @param size
+   *     资源大小，用于校验缓存和下载的文件
+   */
+  File get(String key, long size, Source source) throws OdpsException, IOException {
+    File file = new File(dir, key);
+    if (file.isFile() && file.length() == size) {
+      file.setLastModified(System.currentTimeMillis());
+      return file;
+    }
+
+    dir.mkdirs();
+    File tmp = File.createTempFile("download-" + key + ".", TEMP_SUFFIX, dir);
+    try {
+      InputStream in = source.open();
+      try {
+        OutputStream out = new FileOutputStream(tmp);
+        try {
+          IOUtils.copyLarge(in, out, new byte[64 << 10]);
+        } finally {
+          out.close();
+        }
+      } finally {
+        in.close();
+      }
+      if (tmp.length() != size) {
+        throw new IOException("Downloaded " + tmp.length() + " bytes, expected " + size);
+      }
+      Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                 StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      tmp.delete();
+    }
+    evict(file);
+    return file;
+  }
+
+  /**
+   * 淘汰最久未使用的文件, 直到缓存大小不超过上限, 刚写入的文件除外
+   */
+  private synchronized void evict(File keep) {
+    File[] files = dir.listFiles();
+    if (files == null) {
+      return;
+    }
+    long total = 0;
+    for (File f : files) {
+      if (!f.getName().endsWith(TEMP_SUFFIX)) {
+        total += f.length();
+      }
+    }
+    if (total <= maxBytes) {
+      return;
+    }
+    Arrays.sort(files, new Comparator<File>() {
+      @Override
+      public int compare(File o1, File o2) {
+        return Long.compare(o1.lastModified(), o2.lastModified());
+      }
+    });
+    for (File f : files) {
+      if (total <= maxBytes) {
+        break;
+      }
+      if (f.equals(keep) || f.getName().endsWith(TEMP_SUFFIX)) {
+        continue;
+      }
+      long length = f.length();
+      if (f.delete()) {
+        total -= length;
+      }
+    }
+  }
+}
@@ -2,14 +2,24 @@ package com.aliyun.odps;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayDeque;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.aliyun.odps.commons.transport.Connection;
 import com.aliyun.odps.commons.transport.Headers;
 import com.aliyun.odps.commons.transport.Params;
 import com.aliyun.odps.commons.transport.Response;
 import com.aliyun.odps.commons.util.IOUtils;
+import com.aliyun.odps.commons.util.RetryExceedLimitException;
+import com.aliyun.odps.commons.util.RetryStrategy;
 import com.aliyun.odps.rest.RestClient;
 import com.aliyun.odps.utils.NameSpaceSchemaUtils;
 
@@ -17,6 +27,9 @@ import com.aliyun.odps.utils.NameSpaceSchemaUtils;
 /**
  * A wrapper class. All the method calls are passed directly to the class member 'inputStream'. This
  * class ensures the {@link Connection} will be closed.
+ *
+ * <p>When the resource size is known, the stream can instead read ahead: several ranged GETs run
+ * concurrently and the chunks are handed out in order.
  */
 public class ResourceInputStream extends InputStream {
 
@@ -30,6 +43,16 @@ public class ResourceInputStream extends InputStream {
 
   private long chunkSize;
   private static final long MAX_SKIP_BUFFER_SIZE = 2048;
+  private static final int FETCH_RETRY_TIMES = 3;
+
+  // read ahead mode, used when totalSize >= 0
+  private final long totalSize;
+  private int prefetch;
+  private ExecutorService pool;
+  private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+  private long nextFetchOffset;
+  private byte[] chunk;
+  private int chunkPos;
 
   ResourceInputStream(
       RestClient client,
@@ -42,6 +65,7 @@ public class ResourceInputStream extends InputStream {
     this.resource = String.format("/projects/%s/resources/%s", projectName, resourceName);
     this.schemaName = schemaName;
     this.chunkSize = 64L << 20;  // default 64M
+    this.totalSize = -1;
 
     try {
       resetInputStream(true);
@@ -50,8 +74,41 @@ public class ResourceInputStream extends InputStream {
     }
   }
 
+  /**
+   * Read ahead a resource of the given size, keeping up to {@code prefetch} ranged GETs of
+   * {@code chunkSize} bytes in flight.
+   */
+  ResourceInputStream(
+      RestClient client,
+      String projectName,
+      String schemaName,
+      String resourceName,
+      long totalSize,
+      int prefetch,
+      long chunkSize) {
+    this.client = client;
+    this.resource = String.format("/projects/%s/resources/%s", projectName, resourceName);
+    this.schemaName = schemaName;
+    this.totalSize = totalSize;
+    this.prefetch = Math.max(1, prefetch);
+    this.chunkSize = chunkSize;
+    this.pool = Executors.newFixedThreadPool(this.prefetch, new ThreadFactory() {
+      private final AtomicInteger index = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread t = new Thread(runnable, "resource-range-fetch-" + index.getAndIncrement());
+        t.setDaemon(true);
+        return t;
+      }
+    });
+  }
+
   @Override
   public int available() throws IOException {
+    if (totalSize >= 0) {
+      return chunk == null ? 0 : chunk.length - chunkPos;
+    }
     return inputStream.available();
   }
 
@@ -74,6 +131,9 @@ public class ResourceInputStream extends InputStream {
 
   @Override
   public int read(byte[] b, int off, int len) throws IOException {
+    if (totalSize >= 0) {
+      return readAhead(b, off, len);
+    }
     int readSize = inputStream.read(b, off, len);
     if (readSize == -1 && hasRemainingContentToFetch) {
       resetInputStream(false);
@@ -111,10 +171,110 @@ public class ResourceInputStream extends InputStream {
   @Override
   public void close() throws IOException {
     super.close();
+    if (totalSize >= 0) {
+      for (Future<byte[]> future : pending) {
+        future.cancel(true);
+      }
+      pending.clear();
+      pool.shutdownNow();
+      chunk = null;
+      return;
+    }
     inputStream.close();
     conn.disconnect();
   }
 
+  private int readAhead(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (chunk == null || chunkPos == chunk.length) {
+      while (pending.size() < prefetch && nextFetchOffset < totalSize) {
+        final long fetchOffset = nextFetchOffset;
+        final int fetchSize = (int) Math.min(chunkSize, totalSize - fetchOffset);
+        pending.add(pool.submit(new Callable<byte[]>() {
+          @Override
+          public byte[] call() throws Exception {
+            return fetchRange(fetchOffset, fetchSize);
+          }
+        }));
+        nextFetchOffset += fetchSize;
+      }
+      Future<byte[]> next = pending.poll();
+      if (next == null) {
+        return -1;
+      }
+      try {
+        chunk = next.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException(e);
+      } catch (ExecutionException e) {
+        throw e.getCause() instanceof IOException ? (IOException) e.getCause()
+                                                  : new IOException(e.getCause());
+      }
+      chunkPos = 0;
+    }
+    int readSize = Math.min(len, chunk.length - chunkPos);
+    System.arraycopy(chunk, chunkPos, b, off, readSize);
+    chunkPos += readSize;
+    offset += readSize;
+    return readSize;
+  }
+
+  /**
+   * Fetch {@code size} bytes starting from {@code start}, issuing more ranged GETs if the server
+   * returns less than asked.
+   */
+  private byte[] fetchRange(long start, int size) throws IOException {
+    byte[] data = new byte[size];
+    int filled = 0;
+    RetryStrategy retryStrategy = new RetryStrategy(FETCH_RETRY_TIMES, 1,
+                                                    RetryStrategy.BackoffStrategy.EXPONENTIAL_BACKOFF);
+    while (filled < size) {
+      Connection connection = null;
+      try {
+        Map<String, String> headers = new HashMap<>();
+        headers.put(Headers.CONTENT_TYPE, "application/octet-stream");
+        Map<String, String> params = NameSpaceSchemaUtils.initParamsWithSchema(schemaName);
+        params.put(Params.ODPS_RESOURCE_FETCH_OFFSET, String.valueOf(start + filled));
+        params.put(Params.ODPS_RESOURCE_FETCH_READ_SIZE, String.valueOf(size - filled));
+
+        connection = client.connect(resource, "GET", params, headers);
+        Response resp = connection.getResponse();
+        InputStream in = connection.getInputStream();
+        if (!resp.isOK()) {
+          throw new OdpsException(new String(IOUtils.readFully(in)));
+        }
+        int received = 0;
+        int n;
+        while (filled < size && (n = in.read(data, filled, size - filled)) != -1) {
+          filled += n;
+          received += n;
+        }
+        if (received == 0) {
+          throw new IOException("Unexpected end of resource " + resource + " at offset "
+                                + (start + filled) + ", expected size " + totalSize);
+        }
+        retryStrategy.reset();
+      } catch (IOException | OdpsException e) {
+        try {
+          retryStrategy.onFailure(e);
+        } catch (RetryExceedLimitException | InterruptedException ignore) {
+          throw e instanceof IOException ? (IOException) e : new IOException(e);
+        }
+      } finally {
+        if (connection != null) {
+          try {
+            connection.disconnect();
+          } catch (IOException ignore) {
+          }
+        }
+      }
+    }
+    return data;
+  }
+
   private void resetInputStream(boolean init) throws IOException {
     if (!init) {
       close();
@@ -34,6 +34,16 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.codec.digest.DigestUtils;
 
@@ -42,6 +52,8 @@ import com.aliyun.odps.Resource.Type;
 import com.aliyun.odps.commons.transport.Headers;
 import com.aliyun.odps.commons.transport.Params;
 import com.aliyun.odps.commons.util.IOUtils;
+import com.aliyun.odps.commons.util.RetryExceedLimitException;
+import com.aliyun.odps.commons.util.RetryStrategy;
 import com.aliyun.odps.rest.ResourceBuilder;
 import com.aliyun.odps.rest.RestClient;
 import com.aliyun.odps.rest.SimpleXmlUtils;
@@ -94,14 +106,23 @@ public class Resources implements Iterable<Resource> {
 
   }
 
+  private static final int PART_RETRY_TIMES = 3;
+  private static final long DOWNLOAD_CHUNK_SIZE = 8L << 20;
+
   private final RestClient client;
   private Odps odps;
   private int chunkSize;
+  private int uploadThreads;
+  private int downloadThreads;
+  private ResourceCache cache;
 
   Resources(Odps odps) {
     this.odps = odps;
     this.client = odps.getRestClient();
     this.chunkSize = 64 << 20;
+    this.uploadThreads = 4;
+    // Read-ahead needs an extra meta request for the size, so it is opt-in
+    this.downloadThreads = 1;
   }
 
   /**
@@ -391,6 +412,36 @@ public class Resources implements Iterable<Resource> {
       String projectName,
       String schemaName,
       String resourceName) throws OdpsException {
+    return getResourceAsStream(projectName, schemaName, resourceName, cache);
+  }
+
+  /**
+   * 获得资源文件的字节流，使用指定的本地磁盘缓存，不影响 {@link #setLocalCache(File, long)} 的设置
+   *
+   * @param projectName
+   *     资源所在{@link Project}名称
+   * @param resourceName
+   *     资源名称
+   * @param cacheDir
+   *     缓存目录，为 null 时不使用缓存
+   * @param maxCacheBytes
+   *     缓存的总大小上限
+   * @throws OdpsException
+   */
+  public InputStream getResourceAsStream(
+      String projectName,
+      String resourceName,
+      File cacheDir,
+      long maxCacheBytes) throws OdpsException {
+    return getResourceAsStream(projectName, odps.getCurrentSchema(), resourceName,
+                               cacheDir == null ? null : new ResourceCache(cacheDir, maxCacheBytes));
+  }
+
+  private InputStream getResourceAsStream(
+      String projectName,
+      String schemaName,
+      String resourceName,
+      ResourceCache cache) throws OdpsException {
     if (StringUtils.isNullOrEmpty(projectName)) {
       throw new IllegalArgumentException("Argument 'projectName' cannot be null or empty");
     }
@@ -398,7 +449,53 @@ public class Resources implements Iterable<Resource> {
       throw new IllegalArgumentException("Argument 'resourceName' cannot be null or empty");
     }
 
-    return new ResourceInputStream(client, projectName, schemaName, resourceName);
+    if (downloadThreads <= 1 && cache == null) {
+      return new ResourceInputStream(client, projectName, schemaName, resourceName);
+    }
+
+    Resource meta = get(projectName, schemaName, resourceName);
+    try {
+      meta.reload();
+    } catch (OdpsException | ReloadException e) {
+      // Without the size, fall back to the sequential stream
+      return new ResourceInputStream(client, projectName, schemaName, resourceName);
+    }
+    Long size = meta.model.size;
+    if (size == null) {
+      return new ResourceInputStream(client, projectName, schemaName, resourceName);
+    }
+    if (cache == null) {
+      return openResourceStream(projectName, schemaName, resourceName, size);
+    }
+
+    String version = meta.model.contentMD5;
+    if (StringUtils.isNullOrEmpty(version) && meta.model.lastModifiedTime != null) {
+      version = String.valueOf(meta.model.lastModifiedTime.getTime());
+    }
+    if (StringUtils.isNullOrEmpty(version)) {
+      return openResourceStream(projectName, schemaName, resourceName, size);
+    }
+    String key = ResourceCache.key(projectName, schemaName, resourceName, version);
+    try {
+      File file = cache.get(key, size,
+                            () -> openResourceStream(projectName, schemaName, resourceName, size));
+      return new FileInputStream(file);
+    } catch (IOException e) {
+      throw new OdpsException("Failed to cache resource " + resourceName + ": " + e.getMessage(),
+                              e);
+    }
+  }
+
+  private InputStream openResourceStream(
+      String projectName,
+      String schemaName,
+      String resourceName,
+      long size) throws OdpsException {
+    if (downloadThreads <= 1 || size <= DOWNLOAD_CHUNK_SIZE) {
+      return new ResourceInputStream(client, projectName, schemaName, resourceName);
+    }
+    return new ResourceInputStream(client, projectName, schemaName, resourceName, size,
+                                   downloadThreads, DOWNLOAD_CHUNK_SIZE);
   }
 
   private void createTableResource(
@@ -464,34 +561,94 @@ public class Resources implements Iterable<Resource> {
     }
 
     MessageDigest digest = DigestUtils.getMd5Digest();
-    byte[] tmpContent = new byte[chunkSize];
     long totalBytes = 0L;
-    int readSize;
     int cnt = 0;
     List<String> tmpFiles = new ArrayList<>();
-    while ((readSize = in.read(tmpContent)) != -1) {
-      digest.update(tmpContent, 0, readSize);
-      InputStream input = new ByteArrayInputStream(tmpContent, 0, readSize);
-      FileResource tmp = new FileResource();
-      String tmpName;
-
-      // Using a deterministic temp resource name instead of a random UUID has 2 benefits:
-      // 1. Human readable, much easier to debug
-      // 2. Temp resources that has been uploaded could be reused if the MD5 matches.
-      if (NameSpaceSchemaUtils.isSchemaEnabled(schema)) {
-        tmpName = String.format("%s.%s.part.tmp.%06d", schema, r.getName(), cnt);
-      } else {
-        tmpName = String.format("%s.part.tmp.%06d", r.getName(), cnt);
-      }
 
-      tmp.setIsTempResource(true);
-      tmp.setName(tmpName);
-      tmpFiles.add(tmpName);
-      createTempPartFile(project, schema, tmp, input);
+    // Parts are uploaded by a bounded pool. Each part owns one of a few recycled buffers, so
+    // reading the next chunk from the stream overlaps with the uploads in flight.
+    int threads = Math.max(1, uploadThreads);
+    BlockingQueue<byte[]> freeBuffers = new LinkedBlockingQueue<>();
+    int maxBuffers = maxUploadBuffers(threads, chunkSize, Runtime.getRuntime().maxMemory());
+    int allocatedBuffers = 0;
+    ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      private final AtomicInteger index = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread t = new Thread(runnable, "resource-part-upload-" + index.getAndIncrement());
+        t.setDaemon(true);
+        return t;
+      }
+    });
+    TempPartStore store = new TempPartStore() {
+      @Override
+      public boolean isUploaded(String tmpName, String md5, int length) {
+        return isTempPartUploaded(project, schema, tmpName, md5, length);
+      }
 
-      cnt++;
-      totalBytes += readSize;
-      input.close();
+      @Override
+      public void create(String tmpName, byte[] content, int length)
+          throws OdpsException, IOException {
+        FileResource tmp = new FileResource();
+        tmp.setIsTempResource(true);
+        tmp.setName(tmpName);
+        createTempPartFile(project, schema, tmp, new ByteArrayInputStream(content, 0, length));
+      }
+    };
+    List<Future<?>> futures = new ArrayList<>();
+    try {
+      while (true) {
+        byte[] buffer = freeBuffers.poll();
+        if (buffer == null) {
+          if (allocatedBuffers < maxBuffers) {
+            buffer = new byte[chunkSize];
+            allocatedBuffers++;
+          } else {
+            buffer = takeBuffer(freeBuffers, futures);
+          }
+        }
+        int readSize = readChunk(in, buffer);
+        if (readSize <= 0) {
+          break;
+        }
+        digest.update(buffer, 0, readSize);
+
+        // Using a deterministic temp resource name instead of a random UUID has 2 benefits:
+        // 1. Human readable, much easier to debug
+        // 2. Temp resources that has been uploaded could be reused if the MD5 matches.
+        String tmpName;
+        if (NameSpaceSchemaUtils.isSchemaEnabled(schema)) {
+          tmpName = String.format("%s.%s.part.tmp.%06d", schema, r.getName(), cnt);
+        } else {
+          tmpName = String.format("%s.part.tmp.%06d", r.getName(), cnt);
+        }
+        tmpFiles.add(tmpName);
+
+        final byte[] content = buffer;
+        final int length = readSize;
+        futures.add(pool.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            try {
+              RetryStrategy retryStrategy = new RetryStrategy(
+                  PART_RETRY_TIMES, 1, RetryStrategy.BackoffStrategy.EXPONENTIAL_BACKOFF);
+              uploadTempPart(store, retryStrategy, tmpName, content, length);
+            } finally {
+              freeBuffers.add(content);
+            }
+            return null;
+          }
+        }));
+
+        cnt++;
+        totalBytes += readSize;
+      }
+      for (Future<?> future : futures) {
+        waitPart(future);
+      }
+    } finally {
+      pool.shutdownNow();
     }
 
     byte[] md5Bytes = digest.digest();
@@ -765,11 +922,137 @@ public class Resources implements Iterable<Resource> {
     return createTempFileResource(projectName, odps.getCurrentSchema(), filePath, type);
   }
 
-  private String toHexString(byte[] bytes) {
+  private static String toHexString(byte[] bytes) {
     String md5 = new java.math.BigInteger(1, bytes).toString(16);
     return new String(new char[32 - md5.length()]).replace("\0", "0") + md5;
   }
 
+  /**
+   * Buffers in use at the same time, at most one per upload thread plus the one being filled,
+   * and no more than a quarter of the max heap. With a single buffer the parts are read and
+   * uploaded one after another.
+   */
+  static int maxUploadBuffers(int threads, int chunkSize, long maxMemory) {
+    long budget = maxMemory / 4;
+    return (int) Math.max(1, Math.min(threads + 1, budget / chunkSize));
+  }
+
+  static int readChunk(InputStream in, byte[] buffer) throws IOException {
+    // Fill the whole buffer, so that part boundaries only depend on the content
+    int offset = 0;
+    while (offset < buffer.length) {
+      int n = in.read(buffer, offset, buffer.length - offset);
+      if (n == -1) {
+        break;
+      }
+      offset += n;
+    }
+    return offset;
+  }
+
+  private static byte[] takeBuffer(BlockingQueue<byte[]> freeBuffers, List<Future<?>> futures)
+      throws OdpsException, IOException {
+    try {
+      while (true) {
+        byte[] buffer = freeBuffers.poll(100, TimeUnit.MILLISECONDS);
+        if (buffer != null) {
+          return buffer;
+        }
+        // Fail fast instead of reading the rest of the stream after a part failed
+        for (Future<?> future : futures) {
+          if (future.isDone()) {
+            waitPart(future);
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new OdpsException("Interrupted while uploading resource parts", e);
+    }
+  }
+
+  private static void waitPart(Future<?> future) throws OdpsException, IOException {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new OdpsException("Interrupted while uploading resource parts", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof OdpsException) {
+        throw (OdpsException) cause;
+      } else if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new OdpsException(cause.getMessage(), cause);
+    }
+  }
+
+  /**
+   * Server side of the temp parts of one file resource.
+   */
+  interface TempPartStore {
+
+    /**
+     * @return whether a part with the same name, size and MD5 is already on the server
+     */
+    boolean isUploaded(String tmpName, String md5, int length);
+
+    void create(String tmpName, byte[] content, int length) throws OdpsException, IOException;
+  }
+
+  /**
+   * Upload one temp part, unless a part with the same name, size and MD5 is already on the server.
+   * The check is repeated before every retry, since a failed request may still have created the
+   * part, e.g. when only the response was lost.
+   */
+  static void uploadTempPart(
+      TempPartStore store,
+      RetryStrategy retryStrategy,
+      String tmpName,
+      byte[] content,
+      int length) throws OdpsException, IOException {
+    MessageDigest digest = DigestUtils.getMd5Digest();
+    digest.update(content, 0, length);
+    String md5 = toHexString(digest.digest());
+    while (true) {
+      if (store.isUploaded(tmpName, md5, length)) {
+        return;
+      }
+      try {
+        store.create(tmpName, content, length);
+        return;
+      } catch (OdpsException e) {
+        try {
+          retryStrategy.onFailure(e);
+        } catch (RetryExceedLimitException ignore) {
+          throw e;
+        } catch (InterruptedException ignore) {
+          throw e;
+        }
+      }
+    }
+  }
+
+  private boolean isTempPartUploaded(
+      String project,
+      String schema,
+      String tmpName,
+      String md5,
+      int length) {
+    try {
+      Resource part = get(project, schema, tmpName);
+      part.reload();
+      return part.model.size != null && part.model.size == length
+             && md5.equalsIgnoreCase(part.model.contentMD5);
+    } catch (OdpsException | ReloadException e) {
+      // Not uploaded yet, or the meta is unavailable. Upload it anyway.
+      return false;
+    }
+  }
+
   private void createTempPartFile(
       String project,
       String schema,
@@ -1037,4 +1320,44 @@ public class Resources implements Iterable<Resource> {
   protected void setChunkSize(int chunkSize) {
     this.chunkSize = chunkSize;
   }
+
+  protected void setUploadThreads(int uploadThreads) {
+    this.uploadThreads = uploadThreads;
+  }
+
+  /**
+   * 设置下载资源时并发的分段请求数，默认为 1，即按顺序分段下载。
+   *
+   * <p>
+   * 大于 1 时，{@link #getResourceAsStream(String, String, String)} 会先多发一次请求获取资源大小，
+   * 再对超过一个分段的资源并发读取后续分段。适合较大的资源，读取大量小资源时建议保持默认值。
+   *
+   * @param downloadThreads
+   *     并发请求数
+   */
+  public void setDownloadThreads(int downloadThreads) {
+    this.downloadThreads = downloadThreads;
+  }
+
+  /**
+   * 设置资源文件的本地磁盘缓存，{@link #getResourceAsStream(String, String, String)} 会优先读取缓存。
+   *
+   * <p>
+   * 缓存按资源的 MD5 或最后修改时间区分版本，总大小超过上限时淘汰最久未使用的文件。
+   *
+   * @param cacheDir
+   *     缓存目录，为 null 时关闭缓存
+   * @param maxBytes
+   *     缓存的总大小上限
+   */
+  public void setLocalCache(File cacheDir, long maxBytes) {
+    this.cache = cacheDir == null ? null : new ResourceCache(cacheDir, maxBytes);
+  }
+
+  /**
+   * @return 资源缓存目录，没有设置时返回 null
+   */
+  public File getLocalCacheDir() {
+    return cache == null ? null : cache.getDir();
+  }
 }
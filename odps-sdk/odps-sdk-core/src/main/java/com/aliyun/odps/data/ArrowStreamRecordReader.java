@@ -104,6 +104,8 @@ public class ArrowStreamRecordReader extends DefaultRecordReader {
   private final ArrowReader arrowReader;
   private final Deque<Record> records;
   private List<Column> columns;
+  private Column[] columnArray;
+  private ColumnIndex columnIndex;
 
   /**
    * 旧接口的默认时区为"Asia/Shanghai"时区
@@ -141,6 +143,8 @@ public class ArrowStreamRecordReader extends DefaultRecordReader {
         throw new IllegalArgumentException("zero available columns selected, please check your column filter.");
       }
     }
+    columnArray = columns.toArray(new Column[0]);
+    columnIndex = ColumnIndex.share(columnArray);
   }
 
   public void setTimeZone(ZoneId timeZone) {
@@ -188,7 +192,7 @@ public class ArrowStreamRecordReader extends DefaultRecordReader {
   private void convertToRecord(VectorSchemaRoot vectorSchemaRoot)
       throws IOException {
     for (int rowId = 0; rowId < vectorSchemaRoot.getRowCount(); rowId++) {
-      ArrayRecord arrayRecord = new ArrayRecord(columns.toArray(new Column[0]));
+      ArrayRecord arrayRecord = new ArrayRecord(columnArray.clone(), columnIndex, true, null);
       for (Column column : columns) {
         FieldVector vector = vectorSchemaRoot.getVector(column.getName());
         TypeInfo typeInfo = column.getTypeInfo();
@@ -0,0 +1,287 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.table.record;
+
+import java.io.IOException;
+
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+
+import com.aliyun.odps.Column;
+import com.aliyun.odps.data.AbstractChar;
+import com.aliyun.odps.data.ArrayRecord;
+import com.aliyun.odps.data.Binary;
+import com.aliyun.odps.data.ColumnIndex;
+import com.aliyun.odps.data.Record;
+import com.aliyun.odps.table.arrow.accessor.ArrowBigIntAccessor;
+import com.aliyun.odps.table.arrow.accessor.ArrowBitAccessor;
+import com.aliyun.odps.table.arrow.accessor.ArrowFloat4Accessor;
+import com.aliyun.odps.table.arrow.accessor.ArrowFloat8Accessor;
+import com.aliyun.odps.table.arrow.accessor.ArrowIntAccessor;
+import com.aliyun.odps.table.arrow.accessor.ArrowSmallIntAccessor;
+import com.aliyun.odps.table.arrow.accessor.ArrowTinyIntAccessor;
+import com.aliyun.odps.table.arrow.accessor.ArrowVectorAccessor;
+import com.aliyun.odps.table.record.accessor.ArrowToRecordConverter;
+import com.aliyun.odps.type.TypeInfo;
+
+/**
+ * {@link VectorSchemaRoot} 上某一行的只读 {@link Record} 视图
+ *
+ * <p>
+ * 不复制数据, 读取时直接访问 Arrow 向量. 列按列名与批次中的向量对应, 批次可以包含视图不需要的列.
+ * 同一组列的视图共享列名映射, {@link #reset(VectorSchemaRoot)} 可将视图重新绑定到下一个批次,
+ * {@link #setRowId(int)} 切换行. 基本类型提供不装箱的 getXxxValue 方法, 调用前需先用
+ * {@link #isNull(int)} 判断空值.
+ * </p>
+ *
+ * <p>
+ * 视图随批次失效, 需要保留数据时使用 {@link #clone()} 复制为 {@link ArrayRecord}.
+ * </p>
+ */
+public class ArrowRecordView extends ArrayRecord {
+
+    private final TypeInfo[] typeInfos;
+    private final ArrowVectorAccessor[] accessors;
+    private VectorSchemaRoot root;
+    private int rowId;
+
+    public ArrowRecordView(VectorSchemaRoot root, Column[] columns) {
+        super(columns, ColumnIndex.of(columns));
+        this.typeInfos = new TypeInfo[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            typeInfos[i] = columns[i].getTypeInfo();
+        }
+        this.accessors = new ArrowVectorAccessor[columns.length];
+        reset(root);
+    }
+
+    /**
+     * 绑定到新的批次, 行号置为 0
+     */
+    public void reset(VectorSchemaRoot root) {
+        Column[] columns = getColumns();
+        for (int i = 0; i < columns.length; i++) {
+            FieldVector vector = root.getVector(columns[i].getName());
+            if (vector == null) {
+                throw new IllegalArgumentException(
+                    "Required column is missing in arrow batch. Col: " + columns[i].getName());
+            }
+            accessors[i] = ArrowToRecordConverter.createColumnVectorAccessor(vector, typeInfos[i]);
+        }
+        this.root = root;
+        this.rowId = 0;
+    }
+
+    public VectorSchemaRoot getRoot() {
+        return root;
+    }
+
+    public int getRowId() {
+        return rowId;
+    }
+
+    public void setRowId(int rowId) {
+        this.rowId = rowId;
+    }
+
+    /**
+     * 关闭当前绑定的批次
+     */
+    public void close() {
+        if (root != null) {
+            root.close();
+            root = null;
+        }
+        this.rowId = 0;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return accessors.length;
+    }
+
+    @Override
+    public boolean isNull(int idx) {
+        return accessors[idx].isNullAt(rowId);
+    }
+
+    @Override
+    public Object get(int idx) {
+        return getInternal(idx);
+    }
+
+    @Override
+    public Object get(String columnName) {
+        return get(getColumnIndex(columnName));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected <T> T getInternal(int idx) {
+        try {
+            return (T) ArrowToRecordConverter.getData(accessors[idx], typeInfos[idx], rowId);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 读取 BIGINT/INT/SMALLINT/TINYINT 列, 不装箱
+     */
+    public long getLongValue(int idx) {
+        ArrowVectorAccessor accessor = accessors[idx];
+        if (accessor instanceof ArrowBigIntAccessor) {
+            return ((ArrowBigIntAccessor) accessor).getLong(rowId);
+        } else if (accessor instanceof ArrowIntAccessor) {
+            return ((ArrowIntAccessor) accessor).getInt(rowId);
+        } else if (accessor instanceof ArrowSmallIntAccessor) {
+            return ((ArrowSmallIntAccessor) accessor).getShort(rowId);
+        } else if (accessor instanceof ArrowTinyIntAccessor) {
+            return ((ArrowTinyIntAccessor) accessor).getByte(rowId);
+        }
+        throw new ClassCastException(
+            "Column " + getColumns()[idx].getName() + " is " + typeInfos[idx].getTypeName());
+    }
+
+    /**
+     * 读取 INT/SMALLINT/TINYINT 列, 不装箱
+     */
+    public int getIntValue(int idx) {
+        ArrowVectorAccessor accessor = accessors[idx];
+        if (accessor instanceof ArrowIntAccessor) {
+            return ((ArrowIntAccessor) accessor).getInt(rowId);
+        } else if (accessor instanceof ArrowSmallIntAccessor) {
+            return ((ArrowSmallIntAccessor) accessor).getShort(rowId);
+        } else if (accessor instanceof ArrowTinyIntAccessor) {
+            return ((ArrowTinyIntAccessor) accessor).getByte(rowId);
+        }
+        throw new ClassCastException(
+            "Column " + getColumns()[idx].getName() + " is " + typeInfos[idx].getTypeName());
+    }
+
+    /**
+     * 读取 DOUBLE/FLOAT 列, 不装箱
+     */
+    public double getDoubleValue(int idx) {
+        ArrowVectorAccessor accessor = accessors[idx];
+        if (accessor instanceof ArrowFloat8Accessor) {
+            return ((ArrowFloat8Accessor) accessor).getDouble(rowId);
+        } else if (accessor instanceof ArrowFloat4Accessor) {
+            return ((ArrowFloat4Accessor) accessor).getFloat(rowId);
+        }
+        throw new ClassCastException(
+            "Column " + getColumns()[idx].getName() + " is " + typeInfos[idx].getTypeName());
+    }
+
+    /**
+     * 读取 FLOAT 列, 不装箱
+     */
+    public float getFloatValue(int idx) {
+        return ((ArrowFloat4Accessor) accessors[idx]).getFloat(rowId);
+    }
+
+    /**
+     * 读取 BOOLEAN 列, 不装箱
+     */
+    public boolean getBooleanValue(int idx) {
+        return ((ArrowBitAccessor) accessors[idx]).getBoolean(rowId);
+    }
+
+    @Override
+    public String getString(int idx) {
+        Object obj = getInternal(idx);
+        if (obj == null) {
+            return null;
+        }
+        if (obj instanceof byte[]) {
+            return bytesToString((byte[]) obj);
+        }
+        return (String) obj;
+    }
+
+    @Override
+    public byte[] getBytes(int idx) {
+        Object obj = getInternal(idx);
+        if (obj == null) {
+            return null;
+        }
+        if (obj instanceof byte[]) {
+            return (byte[]) obj;
+        } else if (obj instanceof String) {
+            return stringToBytes((String) obj);
+        } else if (obj instanceof Binary) {
+            return ((Binary) obj).data();
+        } else if (obj instanceof AbstractChar) {
+            return stringToBytes(((AbstractChar) obj).getValue());
+        } else {
+            throw new RuntimeException(
+                "Does not support getBytes for type other than String/Binary/Char/VarChar, sees "
+                + obj.getClass());
+        }
+    }
+
+    /**
+     * 复制当前行为 {@link ArrayRecord}, 与视图共享列定义及列名映射
+     */
+    @Override
+    public Record clone() {
+        ArrayRecord record = new ArrayRecord(getColumns());
+        for (int i = 0; i < accessors.length; i++) {
+            if (!isNull(i)) {
+                record.set(i, getInternal(i));
+            }
+        }
+        return record;
+    }
+
+    @Override
+    public void set(int idx, Object value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void set(String columnName, Object value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void set(Object[] values) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setWithoutValidation(int idx, Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Object[] toArray() {
+        Object[] values = new Object[accessors.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = getInternal(i);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.table.record;
+
+import java.io.IOException;
+
+import org.apache.arrow.vector.VectorSchemaRoot;
+
+import com.aliyun.odps.Column;
+import com.aliyun.odps.data.ArrowRecordReader;
+import com.aliyun.odps.data.Record;
+import com.aliyun.odps.data.RecordReader;
+
+/**
+ * 将 {@link ArrowRecordReader} 按行读取的 {@link RecordReader}
+ *
+ * <p>
+ * 每次 {@link #read()} 返回同一个 {@link ArrowRecordView} 对象, 只移动行号, 读完一个批次后关闭该批次并
+ * 绑定下一个批次. 返回的记录在下一次 read 之前有效, 需要保留时调用 {@link Record#clone()}.
+ * </p>
+ */
+public class ArrowRecordViewReader implements RecordReader {
+
+    private final ArrowRecordReader reader;
+    private final Column[] columns;
+    private ArrowRecordView view;
+    private int rowCount;
+    private int nextRow;
+
+    public ArrowRecordViewReader(ArrowRecordReader reader, Column[] columns) {
+        this.reader = reader;
+        this.columns = columns;
+    }
+
+    @Override
+    public Record read() throws IOException {
+        while (view == null || nextRow >= rowCount) {
+            VectorSchemaRoot root = reader.read();
+            if (root == null) {
+                return null;
+            }
+            if (view == null) {
+                view = new ArrowRecordView(root, columns);
+            } else {
+                view.close();
+                view.reset(root);
+            }
+            rowCount = root.getRowCount();
+            nextRow = 0;
+        }
+        view.setRowId(nextRow++);
+        return view;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (view != null) {
+            view.close();
+            view = null;
+        }
+        reader.close();
+    }
+}
@@ -60,6 +60,7 @@ import com.aliyun.odps.data.ArrayRecord;
 import com.aliyun.odps.data.ArrowRecordReader;
 import com.aliyun.odps.data.ArrowRecordWriter;
 import com.aliyun.odps.data.ArrowStreamRecordReader;
+import com.aliyun.odps.data.ColumnIndex;
 import com.aliyun.odps.data.Record;
 import com.aliyun.odps.data.RecordPack;
 import com.aliyun.odps.data.RecordReader;
@@ -77,6 +78,7 @@ import com.aliyun.odps.tunnel.io.ProtobufRecordPack;
 import com.aliyun.odps.tunnel.io.TunnelBufferedWriter;
 import com.aliyun.odps.tunnel.io.TunnelRecordReader;
 import com.aliyun.odps.tunnel.io.TunnelRecordWriter;
+import com.aliyun.odps.tunnel.streams.ArrowUpsertStream;
 import com.aliyun.odps.tunnel.streams.UpsertStream;
 import com.aliyun.odps.utils.ColumnUtils;
 import com.aliyun.odps.utils.ConnectionWatcher;
@@ -1259,6 +1261,11 @@ public class TableTunnel {
 
     UpsertStream.Builder buildUpsertStream();
 
+    /**
+     * 创建以 Arrow 列存批次写入的 upsert 流
+     */
+    ArrowUpsertStream.Builder buildArrowUpsertStream();
+
     interface Builder {
       String getUpsertId();
 
@@ -1826,6 +1833,10 @@ public class TableTunnel {
           headers.put(Headers.CONTENT_ENCODING, "x-lz4-frame");
           break;
         }
+        case ODPS_ZSTD: {
+          headers.put(Headers.CONTENT_ENCODING, "zstd");
+          break;
+        }
         case ODPS_ARROW_LZ4_FRAME: {
           headers.put(Headers.CONTENT_ENCODING, "x-odps-lz4-frame");
           break;
@@ -2018,8 +2029,10 @@ public class TableTunnel {
      * @return
      */
     public Record newRecord() {
+      Column[] columns = getSchema().getColumnArray();
       return new ArrayRecord(
-          getSchema().getColumns().toArray(new Column[0]),
+          columns.clone(),
+          ColumnIndex.of(columns),
           true,
           fieldMaxSize);
     }
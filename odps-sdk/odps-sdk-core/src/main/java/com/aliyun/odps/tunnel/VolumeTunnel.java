@@ -19,15 +19,18 @@
 
 package com.aliyun.odps.tunnel;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.aliyun.odps.Odps;
 import com.aliyun.odps.OdpsException;
@@ -38,6 +41,8 @@ import com.aliyun.odps.commons.util.IOUtils;
 import com.aliyun.odps.rest.RestClient;
 import com.aliyun.odps.tunnel.impl.ConfigurationImpl;
 import com.aliyun.odps.tunnel.io.CompressOption;
+import com.aliyun.odps.tunnel.io.ParallelFileUploader;
+import com.aliyun.odps.tunnel.io.ParallelRangeInputStream;
 import com.aliyun.odps.tunnel.io.VolumeInputStream;
 import com.aliyun.odps.tunnel.io.VolumeOutputStream;
 import com.google.gson.JsonArray;
@@ -441,6 +446,43 @@ public class VolumeTunnel {
       completeUpload();
     }
 
+    /**
+     * 并发上传多个本地文件并提交本次上传
+     *
+     * <p>
+     * 每个文件使用一个连接，失败时重新上传该文件。全部上传成功后提交，提交的文件列表即 files 的所有文件名
+     *
+     * @param files
+     *     上传的文件名到本地文件的映射
+     * @param threads
+     *     同时上传的文件数
+     */
+    public void uploadAndCommit(Map<String, File> files, int threads)
+        throws TunnelException, IOException {
+      if (files == null || files.isEmpty()) {
+        throw new IllegalArgumentException("Invalid argument: files.");
+      }
+      ParallelFileUploader.upload(files, new ParallelFileUploader.StreamOpener() {
+        @Override
+        public OutputStream open(String fileName) throws TunnelException, IOException {
+          return openOutputStream(fileName);
+        }
+      }, threads, tunnelServiceClient.getRetryTimes());
+      commit(files.keySet().toArray(new String[0]));
+    }
+
+    /**
+     * 并发上传目录下的所有文件并提交本次上传，文件名为相对于 dir 的路径
+     *
+     * @param dir
+     *     本地目录
+     * @param threads
+     *     同时上传的文件数
+     */
+    public void uploadAndCommit(File dir, int threads) throws TunnelException, IOException {
+      uploadAndCommit(ParallelFileUploader.listFiles(dir), threads);
+    }
+
     private String formatFileName(String fileName) throws TunnelException {
       StringBuilder sb = new StringBuilder();
 
@@ -887,6 +929,49 @@ public class VolumeTunnel {
       return vin;
     }
 
+    /**
+     * 把File切分为多个区间并发下载，按顺序输出为一个{@link java.io.InputStream}。
+     *
+     * <p>
+     * 同时占用的内存约为 (threads + 1) * rangeSize 字节，每个区间失败时单独重试。
+     *
+     * @param threads
+     *     并发下载的区间数
+     * @param rangeSize
+     *     每个区间的字节数
+     */
+    public InputStream openParallelInputStream(int threads, int rangeSize)
+        throws TunnelException {
+      return new ParallelRangeInputStream(rangeOpener(), getKnownFileLength(), threads, rangeSize,
+                                          tunnelServiceClient.getRetryTimes());
+    }
+
+    /**
+     * 把File切分为多个区间并发下载，各个区间直接按位置写入{@link FileChannel}。
+     *
+     * @param channel
+     *     写入的文件，从位置 0 开始写入
+     * @param threads
+     *     并发下载的区间数
+     * @param rangeSize
+     *     每个区间的字节数
+     */
+    public void download(FileChannel channel, int threads, int rangeSize)
+        throws TunnelException, IOException {
+      ParallelRangeInputStream.download(rangeOpener(), getKnownFileLength(), channel, threads,
+                                        rangeSize, tunnelServiceClient.getRetryTimes());
+    }
+
+    private ParallelRangeInputStream.RangeOpener rangeOpener() {
+      return (start, length) -> openInputStream(start, length, false);
+    }
+
+    private long getKnownFileLength() throws TunnelException {
+      if (fileLength < 0) {
+        throw new TunnelException("File length of download session " + id + " is unknown.");
+      }
+      return fileLength;
+    }
 
     /**
      * 获取当前{@link DownloadSession}操作的File的长度。
@@ -52,6 +52,16 @@ class DefaultHashFactory implements HasherFactory {
     return factoryMap.get(type);
   }
 
+  @Override
+  public int hashLong(long val) {
+    return basicLongHasher(val);
+  }
+
+  @Override
+  public int hashUtf8(byte[] bytes, int offset, int length) {
+    return basicUtf8Hasher(bytes, offset, length);
+  }
+
   public String getName() {
     return "default";
   }
@@ -70,6 +80,25 @@ class DefaultHashFactory implements HasherFactory {
     return (int) (l);
   }
 
+  /*
+   * basic hash function for utf-8 bytes of a string
+   */
+  static int basicUtf8Hasher(byte[] bytes, int offset, int length) {
+    int end = offset + length;
+    int hashVal = 0;
+    for (int i = offset; i < end; ++i) {
+      hashVal += bytes[i];
+      hashVal += (hashVal << 10);
+      hashVal ^= (hashVal >> 6);
+    }
+
+    hashVal += (hashVal << 3);
+    hashVal ^= (hashVal >> 11);
+    hashVal += (hashVal << 15);
+
+    return hashVal;
+  }
+
   /**
    * tinyint type hash
    */
@@ -189,18 +218,7 @@ class DefaultHashFactory implements HasherFactory {
       }
 
       byte[] chars = val.getBytes(UTF8);
-      int hashVal = 0;
-      for (int i = 0; i < chars.length; ++i) {
-        hashVal += chars[i];
-        hashVal += (hashVal << 10);
-        hashVal ^= (hashVal >> 6);
-      }
-
-      hashVal += (hashVal << 3);
-      hashVal ^= (hashVal >> 11);
-      hashVal += (hashVal << 15);
-
-      return hashVal;
+      return basicUtf8Hasher(chars, 0, chars.length);
     }
   }
 
@@ -12,4 +12,20 @@ interface HasherFactory {
    * @return haser
    */
   OdpsHasher getHasher(OdpsType type);
+
+  /**
+   * hash of a TINYINT/SMALLINT/INT/BIGINT value, widened to long
+   * @param val
+   * @return hash
+   */
+  int hashLong(long val);
+
+  /**
+   * hash of a STRING/VARCHAR/CHAR value given as its utf-8 bytes
+   * @param bytes
+   * @param offset
+   * @param length
+   * @return hash
+   */
+  int hashUtf8(byte[] bytes, int offset, int length);
 }
@@ -47,6 +47,16 @@ class LegacyHashFactory implements HasherFactory {
     return factoryMap.get(type);
   }
 
+  @Override
+  public int hashLong(long val) {
+    return basicLongHasher(val);
+  }
+
+  @Override
+  public int hashUtf8(byte[] bytes, int offset, int length) {
+    return basicUtf8Hasher(bytes, offset, length);
+  }
+
   public String getName() {
     return "legacy";
   }
@@ -60,6 +70,18 @@ class LegacyHashFactory implements HasherFactory {
     return (int) (l);
   }
 
+  /*
+   * basic hash function for utf-8 bytes of a string
+   */
+  static int basicUtf8Hasher(byte[] bytes, int offset, int length) {
+    int end = offset + length;
+    int hashVal = 0;
+    for (int i = offset; i < end; i++) {
+      hashVal = hashVal * 31 + bytes[i];
+    }
+    return hashVal;
+  }
+
   /**
    * tinyint type hash
    */
@@ -179,11 +201,7 @@ class LegacyHashFactory implements HasherFactory {
       }
 
       byte[] chars = val.getBytes(UTF8);
-      int hashVal = 0;
-      for (int i = 0; i < chars.length; i++) {
-        hashVal = hashVal * 31 + chars[i];
-      }
-      return hashVal;
+      return basicUtf8Hasher(chars, 0, chars.length);
     }
   }
 
@@ -71,6 +71,14 @@ public class TypeHasher {
     }
     static OdpsHasher getHasher(OdpsType type, String version) {
 
+        OdpsHasher hasher = getFactory(version).getHasher(type);
+        if (hasher == null) {
+            throw new RuntimeException("Not supported hash function type:" + type.name());
+        }
+        return hasher;
+    }
+
+    private static HasherFactory getFactory(String version) {
         if (version == null || version.isEmpty()) {
             version = defaultVersion;
         }
@@ -79,12 +87,32 @@ public class TypeHasher {
         if (factory == null) {
             throw new RuntimeException("Not supported hash function version:" + version);
         }
+        return factory;
+    }
 
-        OdpsHasher hasher = factory.getHasher(type);
-        if (hasher == null) {
-            throw new RuntimeException("Not supported hash function type:" + type.name());
-        }
-        return hasher;
+    /**
+     * 计算 TINYINT/SMALLINT/INT/BIGINT 值的 hash 值, 结果与 {@link #hash(OdpsType, Object, String)} 一致,
+     * 供按列计算 hash 的场景直接使用原始类型
+     *
+     * @param value 数据值
+     * @param version 版本，包括 legacy 和 default
+     * @return hash 值
+     */
+    public static int hashLong(long value, String version) {
+        return getFactory(version).hashLong(value);
+    }
+
+    /**
+     * 计算 STRING/VARCHAR/CHAR 值的 hash 值, 结果与 {@link #hash(OdpsType, Object, String)} 一致
+     *
+     * @param utf8 数据值的 utf-8 编码
+     * @param offset 起始位置
+     * @param length 字节数
+     * @param version 版本，包括 legacy 和 default
+     * @return hash 值
+     */
+    public static int hashUtf8(byte[] utf8, int offset, int length, String version) {
+        return getFactory(version).hashUtf8(utf8, offset, length);
     }
 
     /**
@@ -97,7 +125,7 @@ public class TypeHasher {
         for (int hashVal : hashVals) {
             combineHashVal += hashVal;
         }
-        return (combineHashVal ^ (combineHashVal >> 8));
+        return CombineHashVal(combineHashVal);
     }
 
     public static int CombineHashVal(List<Integer> hashVals) {
@@ -105,6 +133,16 @@ public class TypeHasher {
         for (int hashVal : hashVals) {
             combineHashVal += hashVal;
         }
+        return CombineHashVal(combineHashVal);
+    }
+
+    /**
+     * Get the final hash val from the sum of the field hash vals of one row, so that
+     * columnar writers can accumulate the sum column by column
+     * @param: the sum of the hashvals for all field of one row
+     * @return: the final combine hash val for the row
+     */
+    public static int CombineHashVal(int combineHashVal) {
         return (combineHashVal ^ (combineHashVal >> 8));
     }
 }
@@ -0,0 +1,366 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.tunnel.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.TinyIntVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.VectorUnloader;
+import org.apache.arrow.vector.ipc.WriteChannel;
+import org.apache.arrow.vector.ipc.message.ArrowRecordBatch;
+import org.apache.arrow.vector.ipc.message.MessageSerializer;
+
+import com.aliyun.odps.Column;
+import com.aliyun.odps.table.arrow.accessor.ArrowVectorAccessor;
+import com.aliyun.odps.table.record.accessor.ArrowToRecordConverter;
+import com.aliyun.odps.tunnel.TunnelConstants;
+import com.aliyun.odps.tunnel.TunnelException;
+import com.aliyun.odps.tunnel.io.ArrowHttpOutputStream;
+import com.aliyun.odps.tunnel.io.CompressOption;
+import com.aliyun.odps.tunnel.streams.ArrowUpsertStream;
+import com.aliyun.odps.tunnel.streams.UpsertStream.Listener;
+
+/**
+ * {@link ArrowUpsertStream} 的实现
+ *
+ * 先由 {@link UpsertBucketer} 按列计算每行的 bucket, 再按 bucket 重排批次并切片;
+ * 服务端支持 Arrow 时每个切片附加操作列后以 Arrow IPC 格式写入对应 bucket 的缓冲区,
+ * 否则直接从向量读取数据, 复用同一个 {@link UpsertRecord} 编码为 protobuf.
+ * 缓冲与发送交给内部的 {@link UpsertStreamImpl}, 其按记录写入的接口不对外暴露.
+ */
+public class ArrowUpsertStreamImpl implements ArrowUpsertStream {
+
+  private final UpsertStreamImpl stream;
+  private final UpsertBucketer bucketer;
+  private final Column[] columns;
+  private final int bucketNum;
+  private final UpsertRecord reuse;
+
+  public static class Builder implements ArrowUpsertStream.Builder {
+    private UpsertSessionImpl session;
+    private long maxBufferSize = 64 * 1024 * 1024;
+    private long slotBufferSize = 1024 * 1024;
+    private CompressOption compressOption = new CompressOption();
+    private Listener listener = null;
+
+    public Builder setSession(UpsertSessionImpl session) {
+      this.session = session;
+      return this;
+    }
+
+    public UpsertSessionImpl getSession() {
+      return session;
+    }
+
+    @Override
+    public long getMaxBufferSize() {
+      return maxBufferSize;
+    }
+
+    @Override
+    public Builder setMaxBufferSize(long maxBufferSize) {
+      this.maxBufferSize = maxBufferSize;
+      return this;
+    }
+
+    @Override
+    public long getSlotBufferSize() {
+      return slotBufferSize;
+    }
+
+    @Override
+    public Builder setSlotBufferSize(long slotBufferSize) {
+      this.slotBufferSize = slotBufferSize;
+      return this;
+    }
+
+    @Override
+    public CompressOption getCompressOption() {
+      return compressOption;
+    }
+
+    @Override
+    public Builder setCompressOption(CompressOption compressOption) {
+      this.compressOption = compressOption;
+      return this;
+    }
+
+    @Override
+    public Listener getListener() {
+      return listener;
+    }
+
+    @Override
+    public Builder setListener(Listener listener) {
+      this.listener = listener;
+      return this;
+    }
+
+    @Override
+    public ArrowUpsertStream build() throws IOException, TunnelException {
+      return new ArrowUpsertStreamImpl(this);
+    }
+  }
+
+  public ArrowUpsertStreamImpl(Builder builder) throws IOException, TunnelException {
+    UpsertSessionImpl session = builder.getSession();
+    this.stream = new UpsertStreamImpl(session, builder.getCompressOption(),
+                                       builder.getMaxBufferSize(), builder.getSlotBufferSize(),
+                                       builder.getListener(), session.supportArrow());
+    List<Column> recordColumns = session.getRecordSchema().getColumns();
+    // 去掉末尾 5 个元数据列
+    this.columns = recordColumns.subList(0, recordColumns.size() - 5).toArray(new Column[0]);
+    this.bucketNum = session.getBuckets().size();
+    this.bucketer =
+        new UpsertBucketer(columns, session.getHashKeys(), session.getHasher(), bucketNum);
+    this.reuse = (UpsertRecord) session.newRecord();
+    this.reuse.setValueCols(Collections.emptyList());
+  }
+
+  @Override
+  public void upsert(VectorSchemaRoot root) throws IOException, TunnelException {
+    write(root, null, OPERATION_UPSERT);
+  }
+
+  @Override
+  public void delete(VectorSchemaRoot root) throws IOException, TunnelException {
+    write(root, null, OPERATION_DELETE);
+  }
+
+  @Override
+  public void write(VectorSchemaRoot root, TinyIntVector operations)
+      throws IOException, TunnelException {
+    if (operations == null) {
+      throw new IllegalArgumentException("Operation vector is null");
+    }
+    if (operations.getValueCount() != root.getRowCount()) {
+      throw new IllegalArgumentException(
+          "Operation vector has " + operations.getValueCount() + " rows, but batch has "
+          + root.getRowCount());
+    }
+    write(root, operations, OPERATION_UPSERT);
+  }
+
+  @Override
+  public void flush() throws IOException, TunnelException {
+    stream.flush();
+  }
+
+  @Override
+  public void close() throws IOException, TunnelException {
+    stream.close();
+  }
+
+  @Override
+  public void reset() throws IOException {
+    stream.reset();
+  }
+
+  private void write(VectorSchemaRoot root, TinyIntVector operations, byte defaultOperation)
+      throws IOException, TunnelException {
+    stream.checkStatus();
+    int rowCount = root.getRowCount();
+    if (rowCount == 0) {
+      return;
+    }
+
+    FieldVector[] vectors = new FieldVector[columns.length];
+    for (int i = 0; i < columns.length; i++) {
+      vectors[i] = root.getVector(columns[i].getName());
+      if (vectors[i] == null) {
+        throw new TunnelException(
+            "Column '" + columns[i].getName() + "' is missing in VectorSchemaRoot");
+      }
+    }
+
+    byte[] ops = new byte[rowCount];
+    for (int row = 0; row < rowCount; row++) {
+      if (operations == null) {
+        ops[row] = defaultOperation;
+      } else if (operations.isNull(row)
+                 || (operations.get(row) != OPERATION_UPSERT
+                     && operations.get(row) != OPERATION_DELETE)) {
+        throw new TunnelException("Invalid operation at row " + row);
+      } else {
+        ops[row] = operations.get(row);
+      }
+    }
+
+    int[] bucketOfRow = bucketer.bucketsOf(vectors, rowCount);
+
+    // 按 bucket 做计数排序, 同一 bucket 的行在 order 中连续且保持原有顺序
+    int[] offsets = new int[bucketNum + 1];
+    for (int bucket : bucketOfRow) {
+      stream.getBucketBuffer(bucket);
+      offsets[bucket + 1]++;
+    }
+    for (int i = 0; i < bucketNum; i++) {
+      offsets[i + 1] += offsets[i];
+    }
+    int[] order = new int[rowCount];
+    int[] cursor = offsets.clone();
+    for (int row = 0; row < rowCount; row++) {
+      order[cursor[bucketOfRow[row]]++] = row;
+    }
+
+    if (stream.isArrow()) {
+      writeArrow(root.getFieldVectors().get(0).getAllocator(), vectors, ops, order, offsets);
+    } else {
+      writeProtobuf(vectors, ops, order, offsets);
+    }
+  }
+
+  private void writeProtobuf(FieldVector[] vectors, byte[] ops, int[] order, int[] offsets)
+      throws IOException, TunnelException {
+    ArrowVectorAccessor[] accessors = new ArrowVectorAccessor[columns.length];
+    for (int i = 0; i < columns.length; i++) {
+      accessors[i] =
+          ArrowToRecordConverter.createColumnVectorAccessor(vectors[i], columns[i].getTypeInfo());
+    }
+    for (int bucket = 0; bucket < offsets.length - 1; bucket++) {
+      if (offsets[bucket] == offsets[bucket + 1]) {
+        continue;
+      }
+      UpsertStreamImpl.ProtobufBucketBuffer buffer =
+          (UpsertStreamImpl.ProtobufBucketBuffer) stream.getBucketBuffer(bucket);
+      for (int i = offsets[bucket]; i < offsets[bucket + 1]; i++) {
+        int row = order[i];
+        for (int c = 0; c < columns.length; c++) {
+          reuse.set(c, ArrowToRecordConverter.getData(accessors[c], columns[c].getTypeInfo(), row));
+        }
+        reuse.setOperation(ops[row]);
+        long bytes = buffer.getTotalBytes();
+        buffer.append(reuse.getRecord());
+        stream.appended(buffer, buffer.getTotalBytes() - bytes);
+      }
+    }
+  }
+
+  private void writeArrow(BufferAllocator allocator, FieldVector[] vectors, byte[] ops,
+                          int[] order, int[] offsets) throws IOException, TunnelException {
+    int rowCount = order.length;
+    List<FieldVector> sorted = new ArrayList<>(vectors.length + 1);
+    try {
+      for (FieldVector vector : vectors) {
+        FieldVector target = vector.getField().createVector(allocator);
+        sorted.add(target);
+        target.setInitialCapacity(rowCount);
+        target.allocateNew();
+        for (int i = 0; i < rowCount; i++) {
+          target.copyFromSafe(order[i], i, vector);
+        }
+        target.setValueCount(rowCount);
+      }
+      TinyIntVector operation = new TinyIntVector(TunnelConstants.META_FIELD_OPERATION, allocator);
+      sorted.add(operation);
+      operation.allocateNew(rowCount);
+      for (int i = 0; i < rowCount; i++) {
+        operation.set(i, ops[order[i]]);
+      }
+      operation.setValueCount(rowCount);
+
+      try (VectorSchemaRoot batch = new VectorSchemaRoot(sorted)) {
+        sorted.clear();
+        for (int bucket = 0; bucket < offsets.length - 1; bucket++) {
+          int length = offsets[bucket + 1] - offsets[bucket];
+          if (length == 0) {
+            continue;
+          }
+          ArrowBucketBuffer buffer = (ArrowBucketBuffer) stream.getBucketBuffer(bucket);
+          long bytes = buffer.getTotalBytes();
+          if (length == rowCount) {
+            buffer.append(batch);
+          } else {
+            try (VectorSchemaRoot slice = batch.slice(offsets[bucket], length)) {
+              buffer.append(slice);
+            }
+          }
+          stream.appended(buffer, buffer.getTotalBytes() - bytes);
+        }
+      }
+    } finally {
+      for (FieldVector vector : sorted) {
+        vector.close();
+      }
+    }
+  }
+
+  /**
+   * 以 Arrow IPC 格式缓存单个 bucket 的数据, 分块及压缩方式与 Arrow 批量上传一致
+   */
+  static class ArrowBucketBuffer implements UpsertStreamImpl.BucketBuffer {
+
+    private final CompressOption compressOption;
+    private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+    private ArrowHttpOutputStream out;
+    private long size;
+
+    ArrowBucketBuffer(CompressOption compressOption) {
+      this.compressOption = compressOption;
+    }
+
+    void append(VectorSchemaRoot root) throws IOException {
+      if (out == null) {
+        out = new ArrowHttpOutputStream(content, compressOption);
+      }
+      try (ArrowRecordBatch batch = new VectorUnloader(root).getRecordBatch()) {
+        MessageSerializer.serialize(new WriteChannel(out), batch);
+      }
+      size += root.getRowCount();
+    }
+
+    @Override
+    public long getSize() {
+      return size;
+    }
+
+    @Override
+    public long getTotalBytes() {
+      return content.size();
+    }
+
+    @Override
+    public void complete() throws IOException {
+      if (out != null) {
+        out.close();
+      }
+    }
+
+    @Override
+    public ByteArrayOutputStream getContent() {
+      return content;
+    }
+
+    @Override
+    public void reset() throws IOException {
+      complete();
+      out = null;
+      content.reset();
+      size = 0;
+    }
+  }
+}
@@ -414,7 +414,7 @@ public class StreamUploadSessionImpl extends StreamSessionBase implements TableT
 
     @Override
     public Record newRecord() {
-        return new ArrayRecord(schema.getColumns().toArray(new Column[0]));
+        return new ArrayRecord(schema);
     }
 
     public void abort() throws TunnelException {
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.tunnel.impl;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.SmallIntVector;
+import org.apache.arrow.vector.TinyIntVector;
+import org.apache.arrow.vector.VarCharVector;
+
+import com.aliyun.odps.Column;
+import com.aliyun.odps.data.Record;
+import com.aliyun.odps.table.arrow.accessor.ArrowVectorAccessor;
+import com.aliyun.odps.table.record.accessor.ArrowToRecordConverter;
+import com.aliyun.odps.tunnel.TunnelException;
+import com.aliyun.odps.tunnel.hasher.TypeHasher;
+
+/**
+ * 按主键列计算 upsert 数据所属的 bucket
+ *
+ * <p>
+ * {@link UpsertStreamImpl} 按行计算, {@link ArrowUpsertStreamImpl} 按列累加主键列的 hash 值后统一混淆,
+ * 两者结果一致. 按列计算时整数, 浮点和字符串类型直接从向量读取原始值计算 hash, 其余类型转换为记录的值后计算.
+ * </p>
+ */
+final class UpsertBucketer {
+
+  private final Column[] columns;
+  private final int[] hashKeys;
+  private final String hasher;
+  private final int bucketNum;
+
+  private byte[] scratch = new byte[64];
+
+  /**
+   * @param columns   记录的列, 主键列下标基于此数组
+   * @param hashKeys  主键列下标
+   * @param hasher    hash 函数版本
+   * @param bucketNum bucket 数
+   */
+  UpsertBucketer(Column[] columns, List<Integer> hashKeys, String hasher, int bucketNum) {
+    this.columns = columns;
+    this.hashKeys = new int[hashKeys.size()];
+    for (int i = 0; i < this.hashKeys.length; i++) {
+      this.hashKeys[i] = hashKeys.get(i);
+    }
+    this.hasher = hasher;
+    this.bucketNum = bucketNum;
+  }
+
+  /**
+   * 计算单条记录的 bucket
+   */
+  int bucketOf(Record record) throws TunnelException {
+    int hashValue = 0;
+    for (int key : hashKeys) {
+      Object value = record.get(key);
+      if (value == null) {
+        throw missingKey(columns[key]);
+      }
+      hashValue += TypeHasher.hash(columns[key].getTypeInfo().getOdpsType(), value, hasher);
+    }
+    return TypeHasher.CombineHashVal(hashValue) % bucketNum;
+  }
+
+  /**
+   * 计算一个批次中每行的 bucket
+   *
+   * @param vectors  与记录的列一一对应的向量
+   * @param rowCount 行数
+   * @return 每行的 bucket
+   */
+  int[] bucketsOf(FieldVector[] vectors, int rowCount) throws IOException, TunnelException {
+    int[] hashValues = new int[rowCount];
+    for (int key : hashKeys) {
+      Column column = columns[key];
+      FieldVector vector = vectors[key];
+      for (int row = 0; row < rowCount; row++) {
+        if (vector.isNull(row)) {
+          throw missingKey(column);
+        }
+      }
+      if (!addTypedHashes(column, vector, hashValues, rowCount)) {
+        addHashes(column, vector, hashValues, rowCount);
+      }
+    }
+    for (int row = 0; row < rowCount; row++) {
+      hashValues[row] = TypeHasher.CombineHashVal(hashValues[row]) % bucketNum;
+    }
+    return hashValues;
+  }
+
+  private boolean addTypedHashes(Column column, FieldVector vector, int[] hashValues,
+                                 int rowCount) {
+    switch (column.getTypeInfo().getOdpsType()) {
+      case TINYINT:
+        TinyIntVector tinyInts = (TinyIntVector) vector;
+        for (int row = 0; row < rowCount; row++) {
+          hashValues[row] += TypeHasher.hashLong(tinyInts.get(row), hasher);
+        }
+        return true;
+      case SMALLINT:
+        SmallIntVector smallInts = (SmallIntVector) vector;
+        for (int row = 0; row < rowCount; row++) {
+          hashValues[row] += TypeHasher.hashLong(smallInts.get(row), hasher);
+        }
+        return true;
+      case INT:
+        IntVector ints = (IntVector) vector;
+        for (int row = 0; row < rowCount; row++) {
+          hashValues[row] += TypeHasher.hashLong(ints.get(row), hasher);
+        }
+        return true;
+      case BIGINT:
+        BigIntVector bigints = (BigIntVector) vector;
+        for (int row = 0; row < rowCount; row++) {
+          hashValues[row] += TypeHasher.hashLong(bigints.get(row), hasher);
+        }
+        return true;
+      case FLOAT:
+        Float4Vector floats = (Float4Vector) vector;
+        for (int row = 0; row < rowCount; row++) {
+          hashValues[row] +=
+              TypeHasher.hashLong(Float.floatToIntBits(floats.get(row)), hasher);
+        }
+        return true;
+      case DOUBLE:
+        Float8Vector doubles = (Float8Vector) vector;
+        for (int row = 0; row < rowCount; row++) {
+          hashValues[row] +=
+              TypeHasher.hashLong(Double.doubleToLongBits(doubles.get(row)), hasher);
+        }
+        return true;
+      case STRING:
+      case VARCHAR:
+      case CHAR:
+        VarCharVector strings = (VarCharVector) vector;
+        for (int row = 0; row < rowCount; row++) {
+          int length = strings.getValueLength(row);
+          if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+          }
+          strings.getDataBuffer().getBytes(strings.getStartOffset(row), scratch, 0, length);
+          hashValues[row] += TypeHasher.hashUtf8(scratch, 0, length, hasher);
+        }
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private void addHashes(Column column, FieldVector vector, int[] hashValues, int rowCount)
+      throws IOException {
+    ArrowVectorAccessor accessor =
+        ArrowToRecordConverter.createColumnVectorAccessor(vector, column.getTypeInfo());
+    for (int row = 0; row < rowCount; row++) {
+      Object value = ArrowToRecordConverter.getData(accessor, column.getTypeInfo(), row);
+      hashValues[row] += TypeHasher.hash(column.getTypeInfo().getOdpsType(), value, hasher);
+    }
+  }
+
+  private static TunnelException missingKey(Column column) {
+    return new TunnelException(
+        " UpsertRecord must have primary key value, consider provide values for column '"
+        + column.getName() + "'");
+  }
+}
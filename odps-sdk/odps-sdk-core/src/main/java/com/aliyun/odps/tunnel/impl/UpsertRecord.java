@@ -8,13 +8,11 @@ import com.aliyun.odps.tunnel.TunnelConstants;
 import java.math.BigDecimal;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 
 public class UpsertRecord extends ArrayRecord {
     private Column [] columns;
     ArrayRecord record;
-    private HashMap<String, Integer> nameMap = new HashMap<>();
 
     public UpsertRecord(Column[] columns) {
         this(columns, null);
@@ -49,9 +47,6 @@ public class UpsertRecord extends ArrayRecord {
         for (int i  = 0; i < columns.length - 5; ++i) {
             this.columns[i] = columns[i];
         }
-        for (int i = 0; i < columns.length; i++) {
-            nameMap.put(columns[i].getName(), i);
-        }
         if (values == null) {
             record = new ArrayRecord(columns);
         } else {
@@ -301,12 +296,4 @@ public class UpsertRecord extends ArrayRecord {
             throw new IllegalArgumentException("index out of range");
         }
     }
-
-    private int getColumnIndex(String name) {
-        Integer idx = nameMap.get(name);
-        if (idx == null) {
-            throw new IllegalArgumentException("No such column:" + name);
-        }
-        return idx;
-    }
 }
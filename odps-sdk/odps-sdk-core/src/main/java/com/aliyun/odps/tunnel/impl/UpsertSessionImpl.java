@@ -25,6 +25,7 @@ import com.aliyun.odps.tunnel.TunnelConstants;
 import com.aliyun.odps.tunnel.TunnelException;
 import com.aliyun.odps.tunnel.TunnelTableSchema;
 import com.aliyun.odps.tunnel.io.CompressOption;
+import com.aliyun.odps.tunnel.streams.ArrowUpsertStream;
 import com.aliyun.odps.tunnel.streams.UpsertStream;
 import com.aliyun.odps.type.TypeInfoFactory;
 import com.aliyun.odps.utils.FixedNettyChannelPool;
@@ -59,6 +60,7 @@ public class UpsertSessionImpl extends SessionBase implements TableTunnel.Upsert
     private long connectTimeout;
     private long readTimeout;
     private boolean supportPartialUpdate = false;
+    private boolean supportArrow = false;
 
     // netty
     private EventLoopGroup group;
@@ -105,7 +107,7 @@ public class UpsertSessionImpl extends SessionBase implements TableTunnel.Upsert
 
     @Override
     public Record newRecord() {
-        return new UpsertRecord(this.recordSchema.getColumns().toArray(new Column[0]));
+        return new UpsertRecord(this.recordSchema.getColumnArray());
     }
 
     @Override
@@ -113,6 +115,11 @@ public class UpsertSessionImpl extends SessionBase implements TableTunnel.Upsert
         return new UpsertStreamImpl.Builder().setSession(this);
     }
 
+    @Override
+    public ArrowUpsertStream.Builder buildArrowUpsertStream() {
+        return new ArrowUpsertStreamImpl.Builder().setSession(this);
+    }
+
     @Override
     public String getId() {
         return id;
@@ -145,6 +152,13 @@ public class UpsertSessionImpl extends SessionBase implements TableTunnel.Upsert
         return supportPartialUpdate;
     }
 
+    /**
+     * 服务端是否接受 Arrow 格式的 upsert 数据
+     */
+    public boolean supportArrow() {
+        return supportArrow;
+    }
+
     public void commit(boolean async) throws TunnelException {
         HashMap<String, String> params = getCommonParams();
         params.put(TunnelConstants.UPSERT_ID, id);
@@ -274,6 +288,9 @@ public class UpsertSessionImpl extends SessionBase implements TableTunnel.Upsert
                     if (tree.has(TunnelConstants.ENABLE_PARTIAL_UPDATE)) {
                         supportPartialUpdate = tree.get(TunnelConstants.ENABLE_PARTIAL_UPDATE).getAsBoolean();
                     }
+                    if (tree.has(TunnelConstants.ENABLE_ARROW_UPSERT)) {
+                        supportArrow = tree.get(TunnelConstants.ENABLE_ARROW_UPSERT).getAsBoolean();
+                    }
                 }
             } else {
                 throw new TunnelException(requestId, "Incomplete session info: '" + tree.toString() + "'");
@@ -390,6 +407,16 @@ public class UpsertSessionImpl extends SessionBase implements TableTunnel.Upsert
                                 long contentLength,
                                 long recordCount,
                                 CompressOption compressOption) throws TunnelException {
+        return buildRequest(method, bucket, slot, contentLength, recordCount, compressOption, false);
+    }
+
+    Request buildRequest(String method,
+                         int bucket,
+                         Slot slot,
+                         long contentLength,
+                         long recordCount,
+                         CompressOption compressOption,
+                         boolean isArrow) throws TunnelException {
         if (slot.getServer().isEmpty()) {
             throw new TunnelException("slot addr is empty");
         }
@@ -402,6 +429,9 @@ public class UpsertSessionImpl extends SessionBase implements TableTunnel.Upsert
         headers.put(Headers.CONTENT_LENGTH, String.valueOf(contentLength));
         headers.put(HttpHeaders.HEADER_ODPS_ROUTED_SERVER, slot.getServer());
         params.put(TunnelConstants.RECORD_COUNT, String.valueOf(recordCount));
+        if (isArrow) {
+            params.put(TunnelConstants.PARAM_ARROW, "");
+        }
 
         switch (compressOption.algorithm) {
             case ODPS_RAW: {
@@ -415,6 +445,13 @@ public class UpsertSessionImpl extends SessionBase implements TableTunnel.Upsert
                 headers.put(Headers.CONTENT_ENCODING, "x-snappy-framed");
                 break;
             }
+            case ODPS_ARROW_LZ4_FRAME: {
+                if (!isArrow) {
+                    throw new TunnelException("unsupported compression option.");
+                }
+                headers.put(Headers.CONTENT_ENCODING, "x-odps-lz4-frame");
+                break;
+            }
             default: {
                 throw new TunnelException("unsupported compression option.");
             }
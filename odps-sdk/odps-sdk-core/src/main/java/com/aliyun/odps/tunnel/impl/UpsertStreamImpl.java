@@ -18,7 +18,6 @@ import com.aliyun.odps.data.Record;
 import com.aliyun.odps.tunnel.HttpHeaders;
 import com.aliyun.odps.tunnel.TunnelException;
 import com.aliyun.odps.tunnel.TunnelTableSchema;
-import com.aliyun.odps.tunnel.hasher.TypeHasher;
 import com.aliyun.odps.tunnel.io.Checksum;
 import com.aliyun.odps.tunnel.io.CompressOption;
 import com.aliyun.odps.tunnel.io.ProtobufRecordPack;
@@ -53,11 +52,12 @@ public class UpsertStreamImpl implements UpsertStream {
 
   // meta
   private Map<Integer, Slot> buckets;
-  private List<Integer> hashKeys = new ArrayList<>();
   private TunnelTableSchema schema;
+  private final UpsertBucketer bucketer;
+  private final boolean arrow;
 
   // buffer
-  private final Map<Integer, ProtobufRecordPack> bucketBuffer = new HashMap<>();
+  private final Map<Integer, BucketBuffer> bucketBuffer = new HashMap<>();
   private long totalBufferSize = 0;
 
   // netty
@@ -83,6 +83,61 @@ public class UpsertStreamImpl implements UpsertStream {
     CLOSED
   }
 
+  /**
+   * 单个 bucket 的发送缓冲区
+   */
+  interface BucketBuffer {
+
+    long getSize();
+
+    long getTotalBytes();
+
+    void complete() throws IOException;
+
+    ByteArrayOutputStream getContent() throws IOException;
+
+    void reset() throws IOException;
+  }
+
+  static class ProtobufBucketBuffer implements BucketBuffer {
+
+    private final ProtobufRecordPack pack;
+
+    ProtobufBucketBuffer(ProtobufRecordPack pack) {
+      this.pack = pack;
+    }
+
+    void append(Record record) throws IOException {
+      pack.append(record);
+    }
+
+    @Override
+    public long getSize() {
+      return pack.getSize();
+    }
+
+    @Override
+    public long getTotalBytes() {
+      return pack.getTotalBytes();
+    }
+
+    @Override
+    public void complete() throws IOException {
+      pack.checkTransConsistency(false);
+      pack.complete();
+    }
+
+    @Override
+    public ByteArrayOutputStream getContent() throws IOException {
+      return pack.getProtobufStream();
+    }
+
+    @Override
+    public void reset() throws IOException {
+      pack.reset();
+    }
+  }
+
   public static class Builder implements UpsertStream.Builder {
     private UpsertSessionImpl session;
     private long maxBufferSize = 64 * 1024 * 1024;
@@ -146,28 +201,56 @@ public class UpsertStreamImpl implements UpsertStream {
   }
 
   public UpsertStreamImpl(Builder builder) throws IOException, TunnelException {
-    this.compressOption = builder.getCompressOption();
-    this.slotBufferSize = builder.getSlotBufferSize();
-    this.maxBufferSize = builder.getMaxBufferSize();
-    this.session = builder.session;
+    this(builder.getSession(), builder.getCompressOption(), builder.getMaxBufferSize(),
+         builder.getSlotBufferSize(), builder.getListener(), false);
+  }
+
+  /**
+   * @param arrow 为 true 时各 bucket 以 Arrow IPC 格式缓存数据, 此时只能通过
+   *              {@link #getBucketBuffer(int)} 写入, 供 {@link ArrowUpsertStreamImpl} 使用
+   */
+  UpsertStreamImpl(UpsertSessionImpl session, CompressOption compressOption, long maxBufferSize,
+                   long slotBufferSize, Listener listener, boolean arrow)
+      throws IOException, TunnelException {
+    this.compressOption = compressOption;
+    this.slotBufferSize = slotBufferSize;
+    this.maxBufferSize = maxBufferSize;
+    this.session = session;
     this.endpoint = session.getEndpoint();
     this.buckets = session.getBuckets();
     this.schema = session.getRecordSchema();
-    this.hashKeys = session.getHashKeys();
+    this.arrow = arrow;
+    this.bucketer = new UpsertBucketer(schema.getColumnArray(), session.getHashKeys(),
+                                       session.getHasher(), buckets.size());
     this.bootstrap = session.getBootstrap();
     this.channelPool = session.getChannelPool();
     this.connectTimeout = session.getConnectTimeout();
     this.readTimeout = session.getReadTimeout();
-    this.listener = builder.getListener();
+    this.listener = listener;
 
     newBucketBuffer();
   }
 
   private void newBucketBuffer() throws IOException {
     for (Integer slot : this.buckets.keySet()) {
-      this.bucketBuffer.put(slot, new ProtobufRecordPack(this.schema, new Checksum(), 0, new CompressOption()));
+      this.bucketBuffer.put(slot, newBucketBuffer(slot));
     }
   }
+
+  private BucketBuffer newBucketBuffer(int bucket) throws IOException {
+    if (arrow) {
+      return new ArrowUpsertStreamImpl.ArrowBucketBuffer(compressOption);
+    }
+    return new ProtobufBucketBuffer(
+        new ProtobufRecordPack(this.schema, new Checksum(), 0, new CompressOption()));
+  }
+
+  /**
+   * 数据是否以 Arrow 格式发送
+   */
+  boolean isArrow() {
+    return arrow;
+  }
   @Override
   public void upsert(Record record) throws IOException, TunnelException {
     write(record, UpsertStreamImpl.Operation.UPSERT, null);
@@ -213,8 +296,8 @@ public class UpsertStreamImpl implements UpsertStream {
   @Override
   public void reset() throws IOException {
     if (!bucketBuffer.isEmpty()) {
-      for (ProtobufRecordPack pack : bucketBuffer.values()) {
-        pack.reset();
+      for (BucketBuffer buffer : bucketBuffer.values()) {
+        buffer.reset();
       }
     }
 
@@ -226,26 +309,9 @@ public class UpsertStreamImpl implements UpsertStream {
           throws TunnelException, IOException {
     checkStatus();
 
-    List<Integer> hashValues = new ArrayList<>();
-    for (int key : hashKeys) {
-      Object value = record.get(key);
-      if (value == null) {
-        throw new TunnelException(
-            " UpsertRecord must have primary key value, consider provide values for column '"
-            + schema.getColumn(key).getName() + "'");
-      }
-      hashValues.add(TypeHasher.hash(schema.getColumn(key).getTypeInfo().getOdpsType(), value,
-                                     session.getHasher()));
-    }
+    int bucket = bucketer.bucketOf(record);
 
-    int bucket = TypeHasher.CombineHashVal(hashValues) % buckets.size();
-
-    if (!bucketBuffer.containsKey(bucket)) {
-      throw new TunnelException(
-              "Tunnel internal error! Do not have bucket for hash key " + bucket);
-    }
-
-    ProtobufRecordPack pack = bucketBuffer.get(bucket);
+    ProtobufBucketBuffer buffer = (ProtobufBucketBuffer) getBucketBuffer(bucket);
     UpsertRecord r = (UpsertRecord) record;
     r.setOperation(op == UpsertStreamImpl.Operation.UPSERT ? (byte)'U' : (byte)'D');
     ArrayList<Long> valueCols = new ArrayList<>();
@@ -255,11 +321,23 @@ public class UpsertStreamImpl implements UpsertStream {
       }
     }
     r.setValueCols(valueCols);
-    long bytes = pack.getTotalBytes();
-    pack.append(r.getRecord());
-    bytes = pack.getTotalBytes() - bytes;
+    long bytes = buffer.getTotalBytes();
+    buffer.append(r.getRecord());
+    appended(buffer, buffer.getTotalBytes() - bytes);
+  }
+
+  BucketBuffer getBucketBuffer(int bucket) throws TunnelException {
+    BucketBuffer buffer = bucketBuffer.get(bucket);
+    if (buffer == null) {
+      throw new TunnelException(
+              "Tunnel internal error! Do not have bucket for hash key " + bucket);
+    }
+    return buffer;
+  }
+
+  void appended(BucketBuffer buffer, long bytes) throws TunnelException, IOException {
     totalBufferSize += bytes;
-    if (pack.getTotalBytes() > slotBufferSize) {
+    if (buffer.getTotalBytes() > slotBufferSize) {
       flush(false);
     } else if (totalBufferSize > maxBufferSize) {
       flush(true);
@@ -285,26 +363,25 @@ public class UpsertStreamImpl implements UpsertStream {
       try {
         checkStatus();
         latch = new CountDownLatch(bucketBuffer.size());
-        for (Map.Entry<Integer, ProtobufRecordPack> entry : bucketBuffer.entrySet()) {
-          ProtobufRecordPack pack = entry.getValue();
+        for (Map.Entry<Integer, BucketBuffer> entry : bucketBuffer.entrySet()) {
+          BucketBuffer pack = entry.getValue();
           if (pack.getSize() > 0) {
             if (pack.getTotalBytes() > slotBufferSize || flushAll) {
               int k = entry.getKey();
               long bytes = pack.getTotalBytes();
-              pack.checkTransConsistency(false);
               pack.complete();
               bytes = pack.getTotalBytes() - bytes;
               if (!flushAll) {
                 totalBufferSize += bytes;
               }
-              Request request = session.buildRequest("PUT", k, buckets.get(k), pack.getTotalBytes(), pack.getSize(), compressOption);
+              Request request = session.buildRequest("PUT", k, buckets.get(k), pack.getTotalBytes(), pack.getSize(), compressOption, isArrow());
               channel = channelPool.acquire();
               FlushResultHandler handler = new FlushResultHandler(pack, latch, listener, retry);
               channel.pipeline().addLast(handler);
               handlers.add(handler);
               ChannelFuture
                   channelFuture =
-                  channel.writeAndFlush(buildFullHttpRequest(request, pack.getProtobufStream()));
+                  channel.writeAndFlush(buildFullHttpRequest(request, pack.getContent()));
               channelFuture.addListener((ChannelFutureListener) future -> {
                 if (!future.isSuccess()) {
                   latch.countDown();
@@ -359,7 +436,7 @@ public class UpsertStreamImpl implements UpsertStream {
     }
   }
 
-  private void checkStatus() throws TunnelException {
+  void checkStatus() throws TunnelException {
     if (Status.CLOSED == status) {
       throw new TunnelException("Stream is closed!");
     } else if (Status.ERROR == status) {
@@ -379,7 +456,7 @@ public class UpsertStreamImpl implements UpsertStream {
   private class FlushResultHandler extends ChannelInboundHandlerAdapter {
 
     private UpsertStream.FlushResult flushResult = new UpsertStream.FlushResult();
-    private ProtobufRecordPack pack;
+    private BucketBuffer pack;
     private TunnelException exception = null;
     CountDownLatch latch;
     long start;
@@ -398,7 +475,7 @@ public class UpsertStreamImpl implements UpsertStream {
       this.exception = exception;
     }
 
-    FlushResultHandler(ProtobufRecordPack pack, CountDownLatch latch, Listener listener, int retry) {
+    FlushResultHandler(BucketBuffer pack, CountDownLatch latch, Listener listener, int retry) {
       this.flushResult.recordCount = pack.getSize();
       this.pack = pack;
       this.flushResult.flushSize = pack.getTotalBytes();
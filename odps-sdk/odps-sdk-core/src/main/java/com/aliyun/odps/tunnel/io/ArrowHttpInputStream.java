@@ -28,12 +28,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.ReadableByteChannel;
+import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
 
 public class ArrowHttpInputStream implements ReadableByteChannel {
 
     private InputStream in;
     private CompressOption compress;
+    private Inflater inf;
     private byte buf[] = new byte[0];
 
     private PureJavaCrc32C chunkCrc = new PureJavaCrc32C();
@@ -62,7 +64,8 @@ public class ArrowHttpInputStream implements ReadableByteChannel {
         this.compress = compress;
         if (compress != null && !compress.algorithm.equals(CompressOption.CompressAlgorithm.ODPS_RAW)) {
             if (compress.algorithm.equals(CompressOption.CompressAlgorithm.ODPS_ZLIB)) {
-                this.in = new InflaterInputStream(inputStream);
+                this.inf = CompressionContextPool.borrowInflater();
+                this.in = new InflaterInputStream(inputStream, inf);
             } else if (compress.algorithm.equals(CompressOption.CompressAlgorithm.ODPS_SNAPPY)) {
                 this.in = new SnappyFramedInputStream(inputStream);
             } else if (compress.algorithm.equals(CompressOption.CompressAlgorithm.ODPS_ARROW_LZ4_FRAME)) {
@@ -82,7 +85,7 @@ public class ArrowHttpInputStream implements ReadableByteChannel {
             if (in.read(temp) != -1) {
                 crcChunkSize = bytesToInt(temp);
                 bufCapacity = crcChunkSize + 4;
-                buf = new byte[bufCapacity];
+                buf = CompressionContextPool.borrowBuffer(bufCapacity);
             }
         }
         bufSize = 0;
@@ -140,7 +143,18 @@ public class ArrowHttpInputStream implements ReadableByteChannel {
     public void close() throws IOException {
         if (isOpen) {
             this.isOpen = false;
-            this.in.close();
+            try {
+                this.in.close();
+            } finally {
+                if (buf.length > 0) {
+                    CompressionContextPool.returnBuffer(buf);
+                    buf = new byte[0];
+                }
+                if (inf != null) {
+                    CompressionContextPool.returnInflater(inf);
+                    inf = null;
+                }
+            }
         }
     }
 }
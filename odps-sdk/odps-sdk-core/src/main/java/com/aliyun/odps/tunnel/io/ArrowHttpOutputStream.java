@@ -19,16 +19,21 @@
 
 package com.aliyun.odps.tunnel.io;
 
+import net.jpountz.lz4.LZ4FrameOutputStream;
 import org.xerial.snappy.PureJavaCrc32C;
+import org.xerial.snappy.SnappyFramedOutputStream;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.WritableByteChannel;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 
 public class ArrowHttpOutputStream implements WritableByteChannel {
 
     private OutputStream out;
+    private Deflater def;
 
     private byte buf[] = new byte[0];
     private final int CHUNK_SIZE;
@@ -48,6 +53,22 @@ public class ArrowHttpOutputStream implements WritableByteChannel {
         this.CHUNK_SIZE = chunkSize;
     }
 
+    public ArrowHttpOutputStream(OutputStream outputStream, CompressOption compress) throws IOException {
+        this(outputStream, 65536);
+        if (compress != null && !compress.algorithm.equals(CompressOption.CompressAlgorithm.ODPS_RAW)) {
+            if (compress.algorithm.equals(CompressOption.CompressAlgorithm.ODPS_ZLIB)) {
+                this.def = CompressionContextPool.borrowDeflater(compress.level, compress.strategy);
+                this.out = new DeflaterOutputStream(outputStream, def);
+            } else if (compress.algorithm.equals(CompressOption.CompressAlgorithm.ODPS_SNAPPY)) {
+                this.out = new SnappyFramedOutputStream(outputStream);
+            } else if (compress.algorithm.equals(CompressOption.CompressAlgorithm.ODPS_ARROW_LZ4_FRAME)) {
+                this.out = new LZ4FrameOutputStream(outputStream);
+            } else {
+                throw new IOException("invalid compression option.");
+            }
+        }
+    }
+
     private void writeChunk(ByteBuffer src, int length) throws IOException {
         src.get(buf, currentPosition, length);
         out.write(buf, currentPosition, length);
@@ -88,7 +109,7 @@ public class ArrowHttpOutputStream implements WritableByteChannel {
             throw new IOException("Operation forbidden on closed BufferReader");
         if (!isWriteChunkSize) {
             writeUInt32(CHUNK_SIZE);
-            buf = new byte[CHUNK_SIZE];
+            buf = CompressionContextPool.borrowBuffer(CHUNK_SIZE);
             isWriteChunkSize = true;
         }
         int len = src.remaining();
@@ -109,9 +130,20 @@ public class ArrowHttpOutputStream implements WritableByteChannel {
     @Override
     public void close() throws IOException {
         if (isOpen) {
-            this.flush();
             this.isOpen = false;
-            this.out.close();
+            try {
+                this.flush();
+                this.out.close();
+            } finally {
+                if (buf.length > 0) {
+                    CompressionContextPool.returnBuffer(buf);
+                    buf = new byte[0];
+                }
+                if (def != null) {
+                    CompressionContextPool.returnDeflater(def);
+                    def = null;
+                }
+            }
         }
     }
 }
@@ -21,13 +21,16 @@ package com.aliyun.odps.tunnel.io;
 
 import com.aliyun.odps.Column;
 import com.aliyun.odps.OdpsException;
+import com.aliyun.odps.TableSchema;
 import com.aliyun.odps.commons.transport.Connection;
 import com.aliyun.odps.commons.transport.Headers;
 import com.aliyun.odps.commons.transport.Response;
 import com.aliyun.odps.commons.util.ArrowUtils;
 import com.aliyun.odps.data.ArrowRecordReader;
+import com.aliyun.odps.data.RecordReader;
 import com.aliyun.odps.rest.ResourceBuilder;
 import com.aliyun.odps.rest.RestClient;
+import com.aliyun.odps.table.record.ArrowRecordViewReader;
 import com.aliyun.odps.tunnel.*;
 import com.aliyun.odps.utils.StringUtils;
 import org.apache.arrow.memory.BufferAllocator;
@@ -130,6 +133,25 @@ public class ArrowTunnelRecordReader implements ArrowRecordReader {
         return root;
     }
 
+    /**
+     * 以 {@link RecordReader} 方式逐行读取, 记录为批次上的只读视图, 不逐行复制数据
+     *
+     * @see ArrowRecordViewReader
+     */
+    public RecordReader toRecordReader() {
+        TableSchema schema = tableSession.getSchema();
+        Column[] columns;
+        if (columnList == null) {
+            columns = schema.getColumnArray().clone();
+        } else {
+            columns = new Column[columnList.size()];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = schema.getColumn(columnList.get(i).getName());
+            }
+        }
+        return new ArrowRecordViewReader(this, columns);
+    }
+
     @Override
     public long bytesRead() {
         if (messageReader != null) {
@@ -24,18 +24,13 @@ import com.aliyun.odps.commons.transport.Response;
 import com.aliyun.odps.data.ArrowRecordWriter;
 import com.aliyun.odps.tunnel.TableTunnel;
 import com.aliyun.odps.tunnel.TunnelException;
-import net.jpountz.lz4.LZ4FrameOutputStream;
 import org.apache.arrow.vector.VectorSchemaRoot;
 import org.apache.arrow.vector.VectorUnloader;
 import org.apache.arrow.vector.ipc.WriteChannel;
 import org.apache.arrow.vector.ipc.message.ArrowRecordBatch;
 import org.apache.arrow.vector.ipc.message.MessageSerializer;
-import org.xerial.snappy.SnappyFramedOutputStream;
 
 import java.io.IOException;
-import java.io.OutputStream;
-import java.util.zip.Deflater;
-import java.util.zip.DeflaterOutputStream;
 
 import static com.aliyun.odps.tunnel.HttpHeaders.HEADER_ODPS_REQUEST_ID;
 
@@ -62,22 +57,7 @@ public class ArrowTunnelRecordWriter implements ArrowRecordWriter {
             throw new IOException("Arrow writer is closed");
         }
         if (outputStream == null) {
-            OutputStream wr = this.connection.getOutputStream();
-            if (compress != null && !compress.algorithm.equals(CompressOption.CompressAlgorithm.ODPS_RAW)) {
-                if (compress.algorithm.equals(CompressOption.CompressAlgorithm.ODPS_ZLIB)) {
-                    Deflater def = new Deflater();
-                    def.setLevel(compress.level);
-                    def.setStrategy(compress.strategy);
-                    wr = new DeflaterOutputStream(wr, def);
-                } else if (compress.algorithm.equals(CompressOption.CompressAlgorithm.ODPS_SNAPPY)) {
-                    wr = new SnappyFramedOutputStream(wr);
-                } else if (compress.algorithm.equals(CompressOption.CompressAlgorithm.ODPS_ARROW_LZ4_FRAME)) {
-                    wr = new LZ4FrameOutputStream(wr);
-                } else {
-                    throw new IOException("invalid compression option.");
-                }
-            }
-            outputStream = new ArrowHttpOutputStream(wr);
+            outputStream = new ArrowHttpOutputStream(this.connection.getOutputStream(), compress);
         }
         if (root.getRowCount() == 0) {
             return;
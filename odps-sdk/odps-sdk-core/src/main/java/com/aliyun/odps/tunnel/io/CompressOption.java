@@ -20,7 +20,11 @@
 package com.aliyun.odps.tunnel.io;
 
 /**
- * 设置压缩算法、压缩级别、压缩策略。 当前只支持deflate算法，压缩级别和策略请参照zlib的定义
+ * 设置压缩算法、压缩级别、压缩策略。
+ *
+ * <p>压缩级别对 {@link CompressAlgorithm#ODPS_ZLIB} 与 {@link CompressAlgorithm#ODPS_ZSTD} 生效：
+ * zlib 取值 0-9（-1 为 zlib 默认级别），zstd 取值 1-22（0 为 zstd 默认级别，负数为快速模式）。
+ * 压缩策略仅对 zlib 生效，请参照 zlib 的定义。</p>
  */
 public class CompressOption {
 
@@ -31,6 +35,7 @@ public class CompressOption {
     ODPS_LZ4_FRAME,
     ODPS_ARROW_LZ4_FRAME,
     ODPS_ARROW_ZSTD,
+    ODPS_ZSTD,
   }
 
   public CompressOption() {
@@ -49,6 +54,6 @@ public class CompressOption {
 
   //因为我们有网络富裕
   //所以默认选用低压缩率，高速度的算法
-  public int level; // 0-9, zlibdefault=-1, we use 1 for default
+  public int level; // zlib: 0-9, zlibdefault=-1, we use 1 for default; zstd: 1-22, zstddefault=3
   public int strategy; // 1-4, default=0
 }
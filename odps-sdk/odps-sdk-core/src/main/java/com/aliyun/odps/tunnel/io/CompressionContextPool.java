@@ -0,0 +1,453 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.tunnel.io;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.github.luben.zstd.BufferPool;
+
+/**
+ * 进程内共享的压缩上下文池
+ *
+ * <p>{@link Deflater}、{@link Inflater} 持有 native 内存，zstd 流与 Arrow 分块流持有较大的堆内缓冲区，
+ * 每个数据流新建一份代价较高。tunnel 的 protobuf 读写与 {@link ArrowHttpInputStream}、
+ * {@link ArrowHttpOutputStream} 在 close() 时将其归还，供后续的 reader/writer 复用。</p>
+ *
+ * <p>每类对象空闲数量的上限由 {@link #setMaxIdle(int)} 设置，超出上限的对象会被直接释放。
+ * 开启 {@link #setLeakDetection(boolean)} 后，借出但未归还就被回收的对象会连同借出时的调用栈一起打印到日志。</p>
+ */
+public final class CompressionContextPool {
+
+  private static final Logger LOG = Logger.getLogger(CompressionContextPool.class.getName());
+
+  /**
+   * 池化对象的类别
+   */
+  public enum ContextType {
+    DEFLATER,
+    INFLATER,
+    BUFFER
+  }
+
+  /**
+   * 池的统计信息快照
+   */
+  public static final class Stats {
+
+    private final long hits;
+    private final long misses;
+    private final long returns;
+    private final long discards;
+    private final long leaks;
+    private final long outstanding;
+    private final int idle;
+
+    private Stats(long hits, long misses, long returns, long discards, long leaks,
+                  long outstanding, int idle) {
+      this.hits = hits;
+      this.misses = misses;
+      this.returns = returns;
+      this.discards = discards;
+      this.leaks = leaks;
+      this.outstanding = outstanding;
+      this.idle = idle;
+    }
+
+    /**
+     * 从池中直接取得空闲对象的次数
+     */
+    public long getHits() {
+      return hits;
+    }
+
+    /**
+     * 池为空，新建对象的次数
+     */
+    public long getMisses() {
+      return misses;
+    }
+
+    /**
+     * 归还的次数
+     */
+    public long getReturns() {
+      return returns;
+    }
+
+    /**
+     * 归还时超出空闲上限而被释放的次数
+     */
+    public long getDiscards() {
+      return discards;
+    }
+
+    /**
+     * 检测到的泄漏次数，仅在开启泄漏检测时统计
+     */
+    public long getLeaks() {
+      return leaks;
+    }
+
+    /**
+     * 当前借出未归还的数量
+     */
+    public long getOutstanding() {
+      return outstanding;
+    }
+
+    /**
+     * 当前池中空闲的数量
+     */
+    public int getIdle() {
+      return idle;
+    }
+
+    public double getHitRate() {
+      long total = hits + misses;
+      return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+      return "hits=" + hits + ", misses=" + misses + ", hitRate=" + getHitRate()
+             + ", returns=" + returns + ", discards=" + discards + ", leaks=" + leaks
+             + ", outstanding=" + outstanding + ", idle=" + idle;
+    }
+  }
+
+  private static final class Pool<T> {
+
+    private final Queue<T> idle = new ConcurrentLinkedQueue<T>();
+    private final AtomicInteger idleCount = new AtomicInteger(0);
+
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong returns = new AtomicLong(0);
+    private final AtomicLong discards = new AtomicLong(0);
+    private final AtomicLong leaks = new AtomicLong(0);
+
+    /**
+     * @return 空闲对象，池为空时返回 null
+     */
+    T poll() {
+      T t = idle.poll();
+      if (t == null) {
+        misses.incrementAndGet();
+      } else {
+        idleCount.decrementAndGet();
+        hits.incrementAndGet();
+      }
+      return t;
+    }
+
+    /**
+     * @return 对象是否被池接收，返回 false 时调用方负责释放
+     */
+    boolean offer(T t) {
+      returns.incrementAndGet();
+      if (idleCount.incrementAndGet() > maxIdle) {
+        idleCount.decrementAndGet();
+        discards.incrementAndGet();
+        return false;
+      }
+      idle.offer(t);
+      return true;
+    }
+
+    void clear() {
+      while (idle.poll() != null) {
+        idleCount.decrementAndGet();
+      }
+    }
+
+    Stats stats() {
+      long h = hits.get();
+      long m = misses.get();
+      long r = returns.get();
+      long l = leaks.get();
+      return new Stats(h, m, r, discards.get(), l, h + m - r - l, idleCount.get());
+    }
+  }
+
+  private static final class LeakTracker extends WeakReference<Object> {
+
+    private final Pool<?> pool;
+    private final Throwable allocation;
+
+    LeakTracker(Object referent, Pool<?> pool, ReferenceQueue<Object> queue) {
+      super(referent, queue);
+      this.pool = pool;
+      this.allocation = new Throwable("Compression context allocated at");
+    }
+  }
+
+  private static volatile int maxIdle = 64;
+  private static volatile boolean leakDetection = false;
+
+  private static final Pool<Deflater> DEFLATERS = new Pool<Deflater>();
+  private static final Pool<Inflater> INFLATERS = new Pool<Inflater>();
+  private static final ConcurrentHashMap<Integer, Pool<byte[]>> BUFFERS =
+      new ConcurrentHashMap<Integer, Pool<byte[]>>();
+
+  private static final ReferenceQueue<Object> LEAK_QUEUE = new ReferenceQueue<Object>();
+  private static final Map<Object, LeakTracker> TRACKED =
+      Collections.synchronizedMap(new WeakHashMap<Object, LeakTracker>());
+  private static final Set<LeakTracker> TRACKERS =
+      Collections.newSetFromMap(new ConcurrentHashMap<LeakTracker, Boolean>());
+
+  private static final BufferPool ZSTD_BUFFER_POOL = new BufferPool() {
+    @Override
+    public ByteBuffer get(int capacity) {
+      return ByteBuffer.wrap(borrowBuffer(capacity));
+    }
+
+    @Override
+    public void release(ByteBuffer buffer) {
+      returnBuffer(buffer.array());
+    }
+  };
+
+  private CompressionContextPool() {
+  }
+
+  /**
+   * 设置每类对象（缓冲区按大小区分）空闲数量的上限，默认 64
+   */
+  public static void setMaxIdle(int max) {
+    if (max < 0) {
+      throw new IllegalArgumentException("Max idle should not be negative: " + max);
+    }
+    maxIdle = max;
+  }
+
+  public static int getMaxIdle() {
+    return maxIdle;
+  }
+
+  /**
+   * 开启或关闭泄漏检测，开启后每次借出都会记录调用栈，有一定开销
+   */
+  public static void setLeakDetection(boolean enabled) {
+    leakDetection = enabled;
+  }
+
+  public static boolean isLeakDetection() {
+    return leakDetection;
+  }
+
+  /**
+   * 获取一个 {@link Deflater}，并设置压缩级别和压缩策略
+   *
+   * @param level
+   *     zlib 压缩级别
+   * @param strategy
+   *     zlib 压缩策略
+   */
+  public static Deflater borrowDeflater(int level, int strategy) {
+    Deflater def = DEFLATERS.poll();
+    if (def == null) {
+      def = new Deflater();
+    }
+    def.setLevel(level);
+    def.setStrategy(strategy);
+    track(def, DEFLATERS);
+    return def;
+  }
+
+  /**
+   * 归还 {@link Deflater}，归还后调用方不能再使用该对象
+   */
+  public static void returnDeflater(Deflater def) {
+    if (def == null) {
+      return;
+    }
+    untrack(def);
+    def.reset();
+    if (!DEFLATERS.offer(def)) {
+      def.end();
+    }
+  }
+
+  /**
+   * 获取一个 {@link Inflater}
+   */
+  public static Inflater borrowInflater() {
+    Inflater inf = INFLATERS.poll();
+    if (inf == null) {
+      inf = new Inflater();
+    }
+    track(inf, INFLATERS);
+    return inf;
+  }
+
+  /**
+   * 归还 {@link Inflater}，归还后调用方不能再使用该对象
+   */
+  public static void returnInflater(Inflater inf) {
+    if (inf == null) {
+      return;
+    }
+    untrack(inf);
+    inf.reset();
+    if (!INFLATERS.offer(inf)) {
+      inf.end();
+    }
+  }
+
+  /**
+   * 获取一个长度恰好为 size 的缓冲区，内容未清零
+   */
+  public static byte[] borrowBuffer(int size) {
+    Pool<byte[]> pool = bufferPool(size);
+    byte[] buf = pool.poll();
+    if (buf == null) {
+      buf = new byte[size];
+    }
+    track(buf, pool);
+    return buf;
+  }
+
+  /**
+   * 归还缓冲区，归还后调用方不能再使用该缓冲区
+   */
+  public static void returnBuffer(byte[] buf) {
+    if (buf == null) {
+      return;
+    }
+    untrack(buf);
+    bufferPool(buf.length).offer(buf);
+  }
+
+  /**
+   * 供 zstd 流使用的 {@link BufferPool}，缓冲区与 {@link #borrowBuffer(int)} 共享
+   */
+  public static BufferPool zstdBufferPool() {
+    return ZSTD_BUFFER_POOL;
+  }
+
+  /**
+   * 获取某类对象的统计信息，缓冲区的统计为所有大小之和
+   */
+  public static Stats getStats(ContextType type) {
+    drainLeaks();
+    switch (type) {
+      case DEFLATER:
+        return DEFLATERS.stats();
+      case INFLATER:
+        return INFLATERS.stats();
+      case BUFFER: {
+        long hits = 0, misses = 0, returns = 0, discards = 0, leaks = 0, outstanding = 0;
+        int idle = 0;
+        for (Pool<byte[]> pool : BUFFERS.values()) {
+          Stats s = pool.stats();
+          hits += s.getHits();
+          misses += s.getMisses();
+          returns += s.getReturns();
+          discards += s.getDiscards();
+          leaks += s.getLeaks();
+          outstanding += s.getOutstanding();
+          idle += s.getIdle();
+        }
+        return new Stats(hits, misses, returns, discards, leaks, outstanding, idle);
+      }
+      default:
+        throw new IllegalArgumentException("Unknown context type: " + type);
+    }
+  }
+
+  /**
+   * 释放所有空闲对象，统计信息保留
+   */
+  public static void clear() {
+    Deflater def;
+    while ((def = DEFLATERS.poll()) != null) {
+      def.end();
+    }
+    Inflater inf;
+    while ((inf = INFLATERS.poll()) != null) {
+      inf.end();
+    }
+    for (Pool<byte[]> pool : BUFFERS.values()) {
+      pool.clear();
+    }
+  }
+
+  private static Pool<byte[]> bufferPool(int size) {
+    Pool<byte[]> pool = BUFFERS.get(size);
+    if (pool == null) {
+      Pool<byte[]> created = new Pool<byte[]>();
+      pool = BUFFERS.putIfAbsent(size, created);
+      if (pool == null) {
+        pool = created;
+      }
+    }
+    return pool;
+  }
+
+  private static void track(Object context, Pool<?> pool) {
+    drainLeaks();
+    if (!leakDetection) {
+      return;
+    }
+    LeakTracker tracker = new LeakTracker(context, pool, LEAK_QUEUE);
+    TRACKERS.add(tracker);
+    TRACKED.put(context, tracker);
+  }
+
+  private static void untrack(Object context) {
+    if (TRACKED.isEmpty()) {
+      return;
+    }
+    LeakTracker tracker = TRACKED.remove(context);
+    if (tracker != null) {
+      TRACKERS.remove(tracker);
+      tracker.clear();
+    }
+  }
+
+  private static void drainLeaks() {
+    Reference<?> ref;
+    while ((ref = LEAK_QUEUE.poll()) != null) {
+      LeakTracker tracker = (LeakTracker) ref;
+      if (TRACKERS.remove(tracker)) {
+        tracker.pool.leaks.incrementAndGet();
+        LOG.log(Level.WARNING, "Compression context was garbage collected before being "
+                               + "returned to pool, close() was not called on its stream",
+                tracker.allocation);
+      }
+    }
+  }
+}
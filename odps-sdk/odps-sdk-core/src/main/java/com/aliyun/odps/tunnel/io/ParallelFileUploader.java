@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.tunnel.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.aliyun.odps.commons.util.RetryExceedLimitException;
+import com.aliyun.odps.commons.util.RetryStrategy;
+import com.aliyun.odps.tunnel.TunnelException;
+
+/**
+ * 通过同一个上传会话并发上传多个本地文件.
+ *
+ * <p>
+ * 每个文件使用一个连接，最多同时上传 threads 个文件。单个文件失败时重新上传整个文件，重试次数用完后取消其余文件并抛出异常。
+ */
+public class ParallelFileUploader {
+
+  /**
+   * 打开指定文件名的上传流，关闭流时完成该文件的上传
+   */
+  public interface StreamOpener {
+
+    OutputStream open(String fileName) throws TunnelException, IOException;
+  }
+
+  private ParallelFileUploader() {
+  }
+
+  /**
+   * 列出目录下的所有文件，以相对路径（用 '/' 分隔）作为上传的文件名
+   */
+  public static Map<String, File> listFiles(File dir) throws IOException {
+    if (!dir.isDirectory()) {
+      throw new IOException("Not a directory: " + dir);
+    }
+    Map<String, File> files = new LinkedHashMap<String, File>();
+    listFiles(dir, "", files);
+    return files;
+  }
+
+  private static void listFiles(File dir, String prefix, Map<String, File> files)
+      throws IOException {
+    File[] children = dir.listFiles();
+    if (children == null) {
+      throw new IOException("Failed to list directory: " + dir);
+    }
+    Arrays.sort(children);
+    for (File child : children) {
+      if (child.isDirectory()) {
+        listFiles(child, prefix + child.getName() + "/", files);
+      } else {
+        files.put(prefix + child.getName(), child);
+      }
+    }
+  }
+
+  /**
+   * 并发上传文件
+   *
+   * @param files
+   *     上传的文件名到本地文件的映射
+   * @param opener
+   *     打开上传流的方法
+   * @param threads
+   *     同时上传的文件数
+   * @param retryTimes
+   *     每个文件的重试次数
+   */
+  public static void upload(Map<String, File> files, final StreamOpener opener, int threads,
+                            final int retryTimes) throws TunnelException, IOException {
+    if (threads <= 0 || retryTimes < 0) {
+      throw new IllegalArgumentException("Invalid parallel upload options");
+    }
+    if (files.isEmpty()) {
+      return;
+    }
+    ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, files.size()),
+                                                        new ThreadFactory() {
+      private final AtomicInteger index = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread t = new Thread(runnable, "volume-file-upload-" + index.getAndIncrement());
+        t.setDaemon(true);
+        return t;
+      }
+    });
+    List<Future<?>> futures = new ArrayList<Future<?>>();
+    try {
+      for (final Map.Entry<String, File> entry : files.entrySet()) {
+        futures.add(pool.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            uploadFile(entry.getKey(), entry.getValue(), opener, retryTimes);
+            return null;
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        try {
+          future.get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException(e);
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (cause instanceof TunnelException) {
+            throw (TunnelException) cause;
+          }
+          throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private static void uploadFile(String fileName, File file, StreamOpener opener,
+                                 int retryTimes) throws TunnelException, IOException {
+    RetryStrategy retry = new RetryStrategy(retryTimes, 1,
+                                            RetryStrategy.BackoffStrategy.EXPONENTIAL_BACKOFF);
+    byte[] buffer = new byte[64 << 10];
+    while (true) {
+      try {
+        InputStream in = new FileInputStream(file);
+        try {
+          OutputStream out = opener.open(fileName);
+          boolean done = false;
+          try {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+              out.write(buffer, 0, n);
+            }
+            done = true;
+          } finally {
+            if (done) {
+              out.close();
+            } else {
+              closeQuietly(out);
+            }
+          }
+        } finally {
+          in.close();
+        }
+        return;
+      } catch (IOException | TunnelException e) {
+        try {
+          retry.onFailure(e);
+        } catch (RetryExceedLimitException ignore) {
+          throw e;
+        } catch (InterruptedException ignore) {
+          Thread.currentThread().interrupt();
+          throw e;
+        }
+      }
+    }
+  }
+
+  private static void closeQuietly(OutputStream out) {
+    try {
+      out.close();
+    } catch (IOException ignore) {
+    }
+  }
+}
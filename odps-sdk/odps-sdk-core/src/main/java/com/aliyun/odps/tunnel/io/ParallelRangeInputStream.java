@@ -0,0 +1,345 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.aliyun.odps.tunnel.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.aliyun.odps.commons.util.RetryExceedLimitException;
+import com.aliyun.odps.commons.util.RetryStrategy;
+import com.aliyun.odps.tunnel.TunnelException;
+
+/**
+ * 把一个文件切分为多个区间并发下载, 按顺序输出为一个 {@link InputStream}.
+ *
+ * <p>
+ * 同时下载的区间数等于线程数, 每个区间下载到一个缓冲区中, 缓冲区读完后归还给下一个区间使用。
+ * 区间下载失败时从已经读到的位置重新打开, 重试次数用完后抛出异常。
+ * {@link #download(RangeOpener, long, FileChannel, int, int, int)} 则由各个线程直接按位置写入文件。
+ */
+public class ParallelRangeInputStream extends InputStream {
+
+  /**
+   * 打开文件的一个区间
+   */
+  public interface RangeOpener {
+
+    InputStream open(long start, long length) throws TunnelException, IOException;
+  }
+
+  private final RangeOpener opener;
+  private final long totalLength;
+  private final int rangeSize;
+  private final int threads;
+  private final int retryTimes;
+  private final ExecutorService pool;
+  private final BlockingQueue<byte[]> freeBuffers = new LinkedBlockingQueue<byte[]>();
+  private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<Future<byte[]>>();
+  private final ArrayDeque<Integer> pendingLengths = new ArrayDeque<Integer>();
+  private int allocatedBuffers;
+  private long nextRangeStart;
+  private byte[] current;
+  private int currentLength;
+  private int currentPos;
+  private boolean closed;
+
+  /**
+   * @param opener
+   *     打开区间的方法
+   * @param totalLength
+   *     文件长度
+   * @param threads
+   *     并发下载的区间数
+   * @param rangeSize
+   *     每个区间的字节数, 也是缓冲区的大小
+   * @param retryTimes
+   *     每个区间的重试次数
+   */
+  public ParallelRangeInputStream(RangeOpener opener, long totalLength, int threads,
+                                  int rangeSize, int retryTimes) {
+    if (totalLength < 0 || threads <= 0 || rangeSize <= 0 || retryTimes < 0) {
+      throw new IllegalArgumentException("Invalid parallel download options");
+    }
+    this.opener = opener;
+    this.totalLength = totalLength;
+    this.threads = threads;
+    this.rangeSize = rangeSize;
+    this.retryTimes = retryTimes;
+    this.pool = newPool(threads);
+  }
+
+  @Override
+  public int read() throws IOException {
+    byte[] b = new byte[1];
+    int n = read(b, 0, 1);
+    return n == -1 ? -1 : b[0] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+    if (len == 0) {
+      return 0;
+    }
+    if (current == null || currentPos == currentLength) {
+      if (!nextRange()) {
+        return -1;
+      }
+    }
+    int n = Math.min(len, currentLength - currentPos);
+    System.arraycopy(current, currentPos, b, off, n);
+    currentPos += n;
+    return n;
+  }
+
+  @Override
+  public int available() {
+    return current == null ? 0 : currentLength - currentPos;
+  }
+
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    for (Future<byte[]> future : pending) {
+      future.cancel(true);
+    }
+    pending.clear();
+    pendingLengths.clear();
+    pool.shutdownNow();
+    current = null;
+    freeBuffers.clear();
+  }
+
+  private boolean nextRange() throws IOException {
+    if (current != null) {
+      freeBuffers.add(current);
+      current = null;
+    }
+    // 缓冲区个数等于线程数加上正在读的一个
+    while (pending.size() < threads && nextRangeStart < totalLength) {
+      byte[] buffer = freeBuffers.poll();
+      if (buffer == null) {
+        if (allocatedBuffers > threads) {
+          // 不会发生: 正在下载的区间少于线程数时总有空闲的缓冲区
+          break;
+        }
+        buffer = new byte[(int) Math.min(rangeSize, totalLength)];
+        allocatedBuffers++;
+      }
+      final byte[] target = buffer;
+      final long start = nextRangeStart;
+      final int length = (int) Math.min(rangeSize, totalLength - start);
+      pending.add(pool.submit(new Callable<byte[]>() {
+        @Override
+        public byte[] call() throws Exception {
+          fetch(opener, start, target, length, retryTimes);
+          return target;
+        }
+      }));
+      pendingLengths.add(length);
+      nextRangeStart += length;
+    }
+
+    Future<byte[]> future = pending.poll();
+    if (future == null) {
+      return false;
+    }
+    currentLength = pendingLengths.poll();
+    current = await(future);
+    currentPos = 0;
+    return true;
+  }
+
+  /**
+   * 下载整个文件, 各个线程按位置直接写入 channel, 不经过额外的缓冲区排序.
+   *
+   * @param opener
+   *     打开区间的方法
+   * @param totalLength
+   *     文件长度
+   * @param channel
+   *     写入的文件
+   * @param threads
+   *     并发下载的区间数
+   * @param rangeSize
+   *     每个区间的字节数
+   * @param retryTimes
+   *     每个区间的重试次数
+   */
+  public static void download(final RangeOpener opener, long totalLength,
+                              final FileChannel channel, int threads, int rangeSize,
+                              final int retryTimes) throws TunnelException, IOException {
+    if (totalLength < 0 || threads <= 0 || rangeSize <= 0 || retryTimes < 0) {
+      throw new IllegalArgumentException("Invalid parallel download options");
+    }
+    ExecutorService pool = newPool(threads);
+    List<Future<?>> futures = new ArrayList<Future<?>>();
+    try {
+      for (long start = 0; start < totalLength; start += rangeSize) {
+        final long rangeStart = start;
+        final long length = Math.min(rangeSize, totalLength - start);
+        futures.add(pool.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            transfer(opener, rangeStart, length, channel, retryTimes);
+            return null;
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        try {
+          future.get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException(e);
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof TunnelException) {
+            throw (TunnelException) e.getCause();
+          }
+          throw e.getCause() instanceof IOException ? (IOException) e.getCause()
+                                                    : new IOException(e.getCause());
+        }
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private static void fetch(RangeOpener opener, long start, byte[] buffer, int length,
+                            int retryTimes) throws TunnelException, IOException {
+    RetryStrategy retry = new RetryStrategy(retryTimes, 1,
+                                            RetryStrategy.BackoffStrategy.EXPONENTIAL_BACKOFF);
+    int filled = 0;
+    while (true) {
+      try {
+        InputStream in = opener.open(start + filled, length - filled);
+        try {
+          int n;
+          while (filled < length && (n = in.read(buffer, filled, length - filled)) != -1) {
+            filled += n;
+          }
+        } finally {
+          in.close();
+        }
+        if (filled < length) {
+          throw new IOException("Unexpected end of range at " + (start + filled));
+        }
+        return;
+      } catch (IOException | TunnelException e) {
+        onFailure(retry, e);
+      }
+    }
+  }
+
+  private static void transfer(RangeOpener opener, long start, long length, FileChannel channel,
+                               int retryTimes) throws TunnelException, IOException {
+    RetryStrategy retry = new RetryStrategy(retryTimes, 1,
+                                            RetryStrategy.BackoffStrategy.EXPONENTIAL_BACKOFF);
+    byte[] buffer = new byte[(int) Math.min(64 << 10, length)];
+    long written = 0;
+    while (true) {
+      try {
+        InputStream in = opener.open(start + written, length - written);
+        try {
+          int n;
+          while (written < length
+                 && (n = in.read(buffer, 0, (int) Math.min(buffer.length, length - written)))
+                    != -1) {
+            ByteBuffer bb = ByteBuffer.wrap(buffer, 0, n);
+            while (bb.hasRemaining()) {
+              channel.write(bb, start + written + (n - bb.remaining()));
+            }
+            written += n;
+          }
+        } finally {
+          in.close();
+        }
+        if (written < length) {
+          throw new IOException("Unexpected end of range at " + (start + written));
+        }
+        return;
+      } catch (IOException | TunnelException e) {
+        onFailure(retry, e);
+      }
+    }
+  }
+
+  private static void onFailure(RetryStrategy retry, Exception e)
+      throws TunnelException, IOException {
+    try {
+      retry.onFailure(e);
+      return;
+    } catch (RetryExceedLimitException ignore) {
+      // rethrow below
+    } catch (InterruptedException ignore) {
+      Thread.currentThread().interrupt();
+    }
+    if (e instanceof TunnelException) {
+      throw (TunnelException) e;
+    }
+    throw (IOException) e;
+  }
+
+  private static <T> T await(Future<T> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw new IOException(cause.getMessage(), cause);
+    }
+  }
+
+  private static ExecutorService newPool(int threads) {
+    return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      private final AtomicInteger index = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread t = new Thread(runnable, "volume-range-download-" + index.getAndIncrement());
+        t.setDaemon(true);
+        return t;
+      }
+    });
+  }
+}
@@ -0,0 +1,80 @@
+package com.aliyun.odps.tunnel.streams;
+
+import java.io.IOException;
+
+import org.apache.arrow.vector.TinyIntVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+
+import com.aliyun.odps.tunnel.TunnelException;
+import com.aliyun.odps.tunnel.io.CompressOption;
+
+/**
+ * 以 Arrow 列存批次写入的 {@link UpsertStream}
+ *
+ * 批次中的列按列名与表结构对应, 必须包含表的全部列; 写入时按列计算 bucket 并按 bucket 切分批次,
+ * 服务端支持时以 Arrow IPC 格式发送, 否则退化为 protobuf 编码发送
+ */
+public interface ArrowUpsertStream {
+
+  byte OPERATION_UPSERT = 'U';
+  byte OPERATION_DELETE = 'D';
+
+  /**
+   * 按upsert操作，写入一个批次的数据到缓冲区
+   *
+   * @param root - 数据批次
+   */
+  public void upsert(VectorSchemaRoot root) throws IOException, TunnelException;
+
+  /**
+   * 按delete操作，写入一个批次的数据到缓冲区
+   *
+   * @param root - 数据批次
+   */
+  public void delete(VectorSchemaRoot root) throws IOException, TunnelException;
+
+  /**
+   * 按行指定操作，写入一个批次的数据到缓冲区
+   *
+   * @param root       - 数据批次
+   * @param operations - 每行的操作, 取值为 {@link #OPERATION_UPSERT} 或 {@link #OPERATION_DELETE},
+   *                   行数需与 root 一致
+   */
+  public void write(VectorSchemaRoot root, TinyIntVector operations)
+      throws IOException, TunnelException;
+
+  /**
+   * 发送缓冲区数据到服务端
+   */
+  public void flush() throws IOException, TunnelException;
+
+  /**
+   * 关闭ArrowUpsertStream, 调用后写入和flush接口均不可用
+   */
+  public void close() throws IOException, TunnelException;
+
+  /**
+   * 关闭ArrowUpsertStream, 调用后数据和状态将被清空重置
+   */
+  public void reset() throws IOException;
+
+  interface Builder {
+    public long getMaxBufferSize();
+
+    public Builder setMaxBufferSize(long maxBufferSize);
+
+    public long getSlotBufferSize();
+
+    public Builder setSlotBufferSize(long slotBufferSize);
+
+    public CompressOption getCompressOption();
+
+    public Builder setCompressOption(CompressOption compressOption);
+
+    public UpsertStream.Listener getListener();
+
+    public Builder setListener(UpsertStream.Listener listener);
+
+    public ArrowUpsertStream build() throws IOException, TunnelException;
+  }
+}
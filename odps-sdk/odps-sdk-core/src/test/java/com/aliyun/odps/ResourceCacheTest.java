@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ResourceCacheTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static ResourceCache.Source source(final byte[] content, final AtomicInteger opened) {
+    return () -> {
+      opened.incrementAndGet();
+      return new ByteArrayInputStream(content);
+    };
+  }
+
+  @Test
+  public void testHitAndVersion() throws Exception {
+    ResourceCache cache = new ResourceCache(folder.getRoot(), 1 << 20);
+    AtomicInteger opened = new AtomicInteger();
+    byte[] v1 = "version 1".getBytes();
+    String key1 = ResourceCache.key("p", null, "r.jar", "md5-1");
+
+    File file = cache.get(key1, v1.length, source(v1, opened));
+    Assert.assertArrayEquals(v1, Files.readAllBytes(file.toPath()));
+    Assert.assertEquals(file, cache.get(key1, v1.length, source(v1, opened)));
+    Assert.assertEquals(1, opened.get());
+
+    // 资源更新后版本不同, 重新下载
+    byte[] v2 = "version 2!".getBytes();
+    String key2 = ResourceCache.key("p", null, "r.jar", "md5-2");
+    Assert.assertNotEquals(key1, key2);
+    Assert.assertArrayEquals(v2, Files.readAllBytes(
+        cache.get(key2, v2.length, source(v2, opened)).toPath()));
+    Assert.assertEquals(2, opened.get());
+  }
+
+  @Test
+  public void testEvictLeastRecentlyUsed() throws Exception {
+    ResourceCache cache = new ResourceCache(folder.getRoot(), 25);
+    AtomicInteger opened = new AtomicInteger();
+    byte[] content = new byte[10];
+    File a = cache.get("a", 10, source(content, opened));
+    File b = cache.get("b", 10, source(content, opened));
+    a.setLastModified(System.currentTimeMillis() - 20000);
+    b.setLastModified(System.currentTimeMillis() - 10000);
+    // 命中后 a 成为最近使用的文件
+    cache.get("a", 10, source(content, opened));
+    File c = cache.get("c", 10, source(content, opened));
+    Assert.assertTrue(a.exists());
+    Assert.assertFalse(b.exists());
+    Assert.assertTrue(c.exists());
+    Assert.assertEquals(3, opened.get());
+  }
+
+  @Test
+  public void testSizeMismatch() throws Exception {
+    ResourceCache cache = new ResourceCache(folder.getRoot(), 1 << 20);
+    try {
+      cache.get("a", 100, source(new byte[10], new AtomicInteger()));
+      Assert.fail();
+    } catch (IOException e) {
+      // expected
+    }
+    Assert.assertEquals(0, folder.getRoot().list().length);
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.aliyun.odps.commons.util.RetryStrategy;
+import com.aliyun.odps.commons.util.backoff.BackOffStrategy;
+
+public class ResourcePartUploadTest {
+
+  /**
+   * Keeps parts in memory. The first failures creates throw, the first lost of them still store
+   * the part, as if only the response was lost.
+   */
+  private static class Store implements Resources.TempPartStore {
+
+    final List<String> calls = new ArrayList<>();
+    final List<String> names = new ArrayList<>();
+    final List<String> md5s = new ArrayList<>();
+    final List<byte[]> contents = new ArrayList<>();
+    int failures;
+    int lost;
+
+    Store(int failures, int lost) {
+      this.failures = failures;
+      this.lost = lost;
+    }
+
+    void put(String tmpName, String md5, byte[] content) {
+      names.add(tmpName);
+      md5s.add(md5);
+      contents.add(content);
+    }
+
+    @Override
+    public boolean isUploaded(String tmpName, String md5, int length) {
+      calls.add("get");
+      for (int i = 0; i < names.size(); i++) {
+        if (names.get(i).equals(tmpName) && md5s.get(i).equals(md5)
+            && contents.get(i).length == length) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public void create(String tmpName, byte[] content, int length) throws OdpsException {
+      calls.add("create");
+      byte[] part = Arrays.copyOf(content, length);
+      if (failures > 0) {
+        failures--;
+        if (lost > 0) {
+          lost--;
+          put(tmpName, md5(part), part);
+        }
+        throw new OdpsException("connection reset");
+      }
+      put(tmpName, md5(part), part);
+    }
+  }
+
+  private static String md5(byte[] content) {
+    return DigestUtils.md5Hex(content);
+  }
+
+  private static RetryStrategy retry(int limit) {
+    // retry without backing off
+    return new RetryStrategy(limit, new BackOffStrategy(1) {
+      @Override
+      public long next() {
+        return 0;
+      }
+
+      @Override
+      public void reset() {
+      }
+    });
+  }
+
+  @Test
+  public void testReadChunk() throws IOException {
+    byte[] content = new byte[10];
+    for (int i = 0; i < content.length; i++) {
+      content[i] = (byte) i;
+    }
+    // a stream that returns at most 3 bytes per read still fills whole chunks
+    InputStream in = new FilterInputStream(new ByteArrayInputStream(content)) {
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        return super.read(b, off, Math.min(len, 3));
+      }
+    };
+    byte[] buffer = new byte[4];
+    Assert.assertEquals(4, Resources.readChunk(in, buffer));
+    Assert.assertArrayEquals(new byte[]{0, 1, 2, 3}, buffer);
+    Assert.assertEquals(4, Resources.readChunk(in, buffer));
+    Assert.assertArrayEquals(new byte[]{4, 5, 6, 7}, buffer);
+    Assert.assertEquals(2, Resources.readChunk(in, buffer));
+    Assert.assertEquals(8, buffer[0]);
+    Assert.assertEquals(9, buffer[1]);
+    Assert.assertEquals(0, Resources.readChunk(in, buffer));
+  }
+
+  @Test
+  public void testSkipUploadedPart() throws Exception {
+    byte[] content = "part content".getBytes("UTF-8");
+    Store store = new Store(0, 0);
+    store.put("r.part.tmp.000000", md5(content), content);
+
+    Resources.uploadTempPart(store, retry(3), "r.part.tmp.000000", content, content.length);
+    Assert.assertEquals(Arrays.asList("get"), store.calls);
+
+    // same name with other content is uploaded again
+    byte[] changed = "other content".getBytes("UTF-8");
+    Resources.uploadTempPart(store, retry(3), "r.part.tmp.000000", changed, changed.length);
+    Assert.assertEquals(Arrays.asList("get", "get", "create"), store.calls);
+
+    // only the valid bytes of the buffer count
+    byte[] buffer = Arrays.copyOf(content, 100);
+    Resources.uploadTempPart(store, retry(3), "r.part.tmp.000000", buffer, content.length);
+    Assert.assertEquals(Arrays.asList("get", "get", "create", "get"), store.calls);
+  }
+
+  @Test
+  public void testRetry() throws Exception {
+    byte[] content = new byte[1000];
+    Store store = new Store(2, 0);
+    Resources.uploadTempPart(store, retry(3), "p", content, content.length);
+    Assert.assertEquals(Arrays.asList("get", "create", "get", "create", "get", "create"),
+                        store.calls);
+    Assert.assertEquals(1, store.contents.size());
+  }
+
+  @Test
+  public void testNoRetryAfterLostResponse() throws Exception {
+    byte[] content = new byte[1000];
+    // the first create reaches the server but fails on the client
+    Store store = new Store(1, 1);
+    Resources.uploadTempPart(store, retry(3), "p", content, content.length);
+    Assert.assertEquals(Arrays.asList("get", "create", "get"), store.calls);
+    Assert.assertEquals(1, store.contents.size());
+  }
+
+  @Test
+  public void testAbort() throws Exception {
+    byte[] content = new byte[10];
+    Store store = new Store(Integer.MAX_VALUE, 0);
+    try {
+      Resources.uploadTempPart(store, retry(2), "p", content, content.length);
+      Assert.fail();
+    } catch (OdpsException e) {
+      Assert.assertEquals("connection reset", e.getMessage());
+    }
+    // the first attempt and 2 retries
+    Assert.assertEquals(6, store.calls.size());
+    Assert.assertEquals(0, store.contents.size());
+  }
+
+  @Test
+  public void testMaxUploadBuffers() {
+    int chunk = 64 << 20;
+    Assert.assertEquals(5, Resources.maxUploadBuffers(4, chunk, 4096L << 20));
+    Assert.assertEquals(2, Resources.maxUploadBuffers(4, chunk, 512L << 20));
+    // the heap only fits one chunk, or not even that
+    Assert.assertEquals(1, Resources.maxUploadBuffers(4, chunk, 256L << 20));
+    Assert.assertEquals(1, Resources.maxUploadBuffers(4, chunk, 64L << 20));
+  }
+}
@@ -0,0 +1,135 @@
+package com.aliyun.odps.table.record;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.aliyun.odps.Column;
+import com.aliyun.odps.OdpsType;
+import com.aliyun.odps.data.ArrayRecord;
+import com.aliyun.odps.data.ArrowRecordReader;
+import com.aliyun.odps.data.Record;
+
+public class ArrowRecordViewTest {
+
+  private static VectorSchemaRoot batch(BufferAllocator allocator, int start, int count) {
+    BigIntVector id = new BigIntVector("id", allocator);
+    Float8Vector score = new Float8Vector("score", allocator);
+    VarCharVector name = new VarCharVector("name", allocator);
+    id.allocateNew(count);
+    score.allocateNew(count);
+    name.allocateNew(count);
+    for (int i = 0; i < count; i++) {
+      id.set(i, start + i);
+      if ((start + i) % 3 == 0) {
+        score.setNull(i);
+      } else {
+        score.set(i, (start + i) / 2.0);
+      }
+      name.setSafe(i, ("name" + (start + i)).getBytes(StandardCharsets.UTF_8));
+    }
+    id.setValueCount(count);
+    score.setValueCount(count);
+    name.setValueCount(count);
+    return VectorSchemaRoot.of(id, score, name);
+  }
+
+  @Test
+  public void testProjectedView() {
+    try (BufferAllocator allocator = new RootAllocator()) {
+      // 只读取其中两列, 且与批次中的顺序不同
+      Column[] columns = new Column[] {new Column("name", OdpsType.STRING),
+                                       new Column("id", OdpsType.BIGINT)};
+      ArrowRecordView view = new ArrowRecordView(batch(allocator, 0, 10), columns);
+      Assert.assertEquals(2, view.getColumnCount());
+      for (int i = 0; i < 10; i++) {
+        view.setRowId(i);
+        Assert.assertEquals(i, view.getLongValue(1));
+        Assert.assertEquals(Long.valueOf(i), view.getBigint("id"));
+        Assert.assertEquals("name" + i, view.getString(0));
+      }
+
+      Record copy = view.clone();
+      Assert.assertTrue(copy instanceof ArrayRecord);
+      view.setRowId(0);
+      Assert.assertEquals(Long.valueOf(9), copy.getBigint(1));
+      Assert.assertEquals("name9", copy.getString("name"));
+
+      try {
+        view.setBigint(1, 1L);
+        Assert.fail();
+      } catch (UnsupportedOperationException ignore) {
+      }
+      view.close();
+    }
+  }
+
+  @Test
+  public void testToString() {
+    try (BufferAllocator allocator = new RootAllocator()) {
+      Column[] columns = new Column[] {new Column("id", OdpsType.BIGINT),
+                                       new Column("score", OdpsType.DOUBLE),
+                                       new Column("name", OdpsType.STRING)};
+      ArrowRecordView view = new ArrowRecordView(batch(allocator, 0, 2), columns);
+      Assert.assertEquals("0,null,name0", view.toString());
+      view.setRowId(1);
+      Assert.assertEquals("1,0.5,name1", view.toString());
+      Assert.assertEquals(view.toString(), view.clone().toString());
+      view.close();
+    }
+  }
+
+  @Test
+  public void testViewReader() throws IOException {
+    try (BufferAllocator allocator = new RootAllocator()) {
+      Deque<VectorSchemaRoot> batches = new ArrayDeque<>();
+      batches.add(batch(allocator, 0, 5));
+      batches.add(batch(allocator, 5, 0));
+      batches.add(batch(allocator, 5, 7));
+      ArrowRecordReader arrowReader = new ArrowRecordReader() {
+        @Override
+        public VectorSchemaRoot read() {
+          return batches.poll();
+        }
+
+        @Override
+        public long bytesRead() {
+          return 0;
+        }
+
+        @Override
+        public void close() {
+        }
+      };
+
+      Column[] columns = new Column[] {new Column("id", OdpsType.BIGINT),
+                                       new Column("score", OdpsType.DOUBLE)};
+      ArrowRecordViewReader reader = new ArrowRecordViewReader(arrowReader, columns);
+      Record record;
+      int count = 0;
+      while ((record = reader.read()) != null) {
+        ArrowRecordView view = (ArrowRecordView) record;
+        Assert.assertEquals(count, view.getLongValue(0));
+        if (count % 3 == 0) {
+          Assert.assertTrue(view.isNull(1));
+          Assert.assertNull(view.getDouble("score"));
+        } else {
+          Assert.assertEquals(count / 2.0, view.getDoubleValue(1), 0);
+        }
+        count++;
+      }
+      Assert.assertEquals(12, count);
+      reader.close();
+    }
+  }
+}
@@ -196,4 +196,14 @@ public class TypeHasherTest {
     int[] hashVals4 = {-1111111111};
     System.out.println(TypeHasher.CombineHashVal(hashVals4));
   }
+
+  @Test
+  public void testCombineHashValOfSum() {
+    int[] hashVals = {357654460, 715307540, 1072960876, 357654460, -2140438327, 1469401250};
+    int sum = 0;
+    for (int hashVal : hashVals) {
+      sum += hashVal;
+    }
+    Assert.assertEquals(TypeHasher.CombineHashVal(hashVals), TypeHasher.CombineHashVal(sum));
+  }
 }
@@ -0,0 +1,85 @@
+package com.aliyun.odps.tunnel.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.TinyIntVector;
+import org.apache.arrow.vector.VectorLoader;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ReadChannel;
+import org.apache.arrow.vector.ipc.message.ArrowRecordBatch;
+import org.apache.arrow.vector.ipc.message.MessageSerializer;
+import org.apache.arrow.vector.util.ByteArrayReadableSeekableByteChannel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.aliyun.odps.tunnel.io.ArrowHttpInputStream;
+import com.aliyun.odps.tunnel.io.CompressOption;
+
+public class ArrowUpsertStreamImplTest {
+
+  @Test
+  public void testArrowBucketBuffer() throws IOException {
+    CompressOption option = new CompressOption(CompressOption.CompressAlgorithm.ODPS_ZLIB, 1, 0);
+    try (BufferAllocator allocator = new RootAllocator();
+         BigIntVector key = new BigIntVector("key", allocator);
+         TinyIntVector op = new TinyIntVector("__operation", allocator)) {
+      int rowCount = 100;
+      key.allocateNew(rowCount);
+      op.allocateNew(rowCount);
+      for (int i = 0; i < rowCount; i++) {
+        key.set(i, i);
+        op.set(i, i % 2 == 0 ? 'U' : 'D');
+      }
+      key.setValueCount(rowCount);
+      op.setValueCount(rowCount);
+
+      ArrowUpsertStreamImpl.ArrowBucketBuffer buffer =
+          new ArrowUpsertStreamImpl.ArrowBucketBuffer(option);
+      try (VectorSchemaRoot root = VectorSchemaRoot.of(key, op);
+           VectorSchemaRoot first = root.slice(0, 30);
+           VectorSchemaRoot second = root.slice(30, 70)) {
+        buffer.append(first);
+        buffer.append(second);
+        Assert.assertEquals(rowCount, buffer.getSize());
+        buffer.complete();
+
+        ArrowHttpInputStream in = new ArrowHttpInputStream(
+            new ByteArrayInputStream(buffer.getContent().toByteArray()), option);
+        ByteBuffer decoded = ByteBuffer.allocate(1024 * 1024);
+        while (in.read(decoded) > 0) {
+        }
+        in.close();
+
+        ReadChannel channel = new ReadChannel(new ByteArrayReadableSeekableByteChannel(
+            Arrays.copyOf(decoded.array(), decoded.position())));
+        try (VectorSchemaRoot result = VectorSchemaRoot.create(root.getSchema(), allocator)) {
+          VectorLoader loader = new VectorLoader(result);
+          int row = 0;
+          for (int batchIndex = 0; batchIndex < 2; batchIndex++) {
+            try (ArrowRecordBatch batch = MessageSerializer.deserializeRecordBatch(channel,
+                                                                                   allocator)) {
+              loader.load(batch);
+            }
+            BigIntVector keys = (BigIntVector) result.getVector("key");
+            TinyIntVector ops = (TinyIntVector) result.getVector("__operation");
+            for (int i = 0; i < result.getRowCount(); i++, row++) {
+              Assert.assertEquals(row, keys.get(i));
+              Assert.assertEquals(row % 2 == 0 ? 'U' : 'D', ops.get(i));
+            }
+          }
+          Assert.assertEquals(rowCount, row);
+        }
+
+        buffer.reset();
+        Assert.assertEquals(0, buffer.getSize());
+        Assert.assertEquals(0, buffer.getTotalBytes());
+      }
+    }
+  }
+}
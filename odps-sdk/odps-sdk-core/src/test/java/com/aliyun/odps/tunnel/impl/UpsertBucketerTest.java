@@ -0,0 +1,114 @@
+package com.aliyun.odps.tunnel.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.aliyun.odps.Column;
+import com.aliyun.odps.OdpsType;
+import com.aliyun.odps.data.ArrayRecord;
+import com.aliyun.odps.tunnel.TunnelException;
+import com.aliyun.odps.tunnel.hasher.TypeHasher;
+import com.aliyun.odps.type.TypeInfoFactory;
+
+public class UpsertBucketerTest {
+
+  private static final Column[] COLUMNS = new Column[]{
+      new Column("id", OdpsType.BIGINT),
+      new Column("k", OdpsType.INT),
+      new Column("name", OdpsType.STRING),
+      new Column("score", OdpsType.DOUBLE),
+      new Column("day", TypeInfoFactory.DATE)
+  };
+
+  @Test
+  public void testArrowAndRecordBucketsAgree() throws Exception {
+    for (String version : Arrays.asList(TypeHasher.getDefaultVersion(),
+                                        TypeHasher.getLegacyVersion())) {
+      assertAgree(version, Arrays.asList(0, 1, 2, 3, 4));
+      assertAgree(version, Arrays.asList(2));
+      assertAgree(version, Arrays.asList(4, 0));
+    }
+  }
+
+  @Test
+  public void testNullKey() throws Exception {
+    UpsertBucketer bucketer =
+        new UpsertBucketer(COLUMNS, Arrays.asList(0), TypeHasher.getDefaultVersion(), 4);
+    try (BufferAllocator allocator = new RootAllocator();
+         BigIntVector ids = new BigIntVector("id", allocator)) {
+      ids.allocateNew(2);
+      ids.set(0, 1L);
+      ids.setNull(1);
+      ids.setValueCount(2);
+      FieldVector[] vectors = new FieldVector[COLUMNS.length];
+      vectors[0] = ids;
+      bucketer.bucketsOf(vectors, 2);
+      Assert.fail();
+    } catch (TunnelException e) {
+      Assert.assertTrue(e.getMessage().contains("'id'"));
+    }
+  }
+
+  private void assertAgree(String version, List<Integer> keys) throws Exception {
+    int rowCount = 200;
+    int bucketNum = 7;
+    UpsertBucketer bucketer = new UpsertBucketer(COLUMNS, keys, version, bucketNum);
+    try (BufferAllocator allocator = new RootAllocator();
+         BigIntVector ids = new BigIntVector("id", allocator);
+         IntVector ks = new IntVector("k", allocator);
+         VarCharVector names = new VarCharVector("name", allocator);
+         Float8Vector scores = new Float8Vector("score", allocator);
+         DateDayVector days = new DateDayVector("day", allocator)) {
+      ids.allocateNew(rowCount);
+      ks.allocateNew(rowCount);
+      names.allocateNew(rowCount);
+      scores.allocateNew(rowCount);
+      days.allocateNew(rowCount);
+      ArrayRecord[] records = new ArrayRecord[rowCount];
+      for (int i = 0; i < rowCount; i++) {
+        long id = i * 7919L - 100000L;
+        int k = -i * 31;
+        String name = "name_" + i + (i % 3 == 0 ? "_中文" : "");
+        double score = i / 3.0;
+        int day = 19000 + i;
+        ids.set(i, id);
+        ks.set(i, k);
+        names.setSafe(i, name.getBytes(StandardCharsets.UTF_8));
+        scores.set(i, score);
+        days.set(i, day);
+
+        records[i] = new ArrayRecord(COLUMNS);
+        records[i].setBigint(0, id);
+        records[i].set(1, k);
+        records[i].setString(2, name);
+        records[i].setDouble(3, score);
+        records[i].setDateAsLocalDate(4, LocalDate.ofEpochDay(day));
+      }
+      ids.setValueCount(rowCount);
+      ks.setValueCount(rowCount);
+      names.setValueCount(rowCount);
+      scores.setValueCount(rowCount);
+      days.setValueCount(rowCount);
+
+      int[] buckets = bucketer.bucketsOf(new FieldVector[]{ids, ks, names, scores, days},
+                                         rowCount);
+      for (int i = 0; i < rowCount; i++) {
+        Assert.assertEquals(version + " " + keys + " row " + i,
+                            bucketer.bucketOf(records[i]), buckets[i]);
+      }
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package com.aliyun.odps.tunnel.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.aliyun.odps.Column;
+import com.aliyun.odps.OdpsType;
+import com.aliyun.odps.TableSchema;
+import com.aliyun.odps.commons.proto.ProtobufRecordStreamReader;
+import com.aliyun.odps.commons.proto.ProtobufRecordStreamWriter;
+import com.aliyun.odps.data.ArrayRecord;
+import com.aliyun.odps.data.Record;
+
+/**
+ * Round trip records through the protobuf stream with every supported compression
+ */
+public class CompressOptionTest {
+
+  private static TableSchema schema() {
+    TableSchema schema = new TableSchema();
+    schema.addColumn(new Column("c_bigint", OdpsType.BIGINT));
+    schema.addColumn(new Column("c_double", OdpsType.DOUBLE));
+    schema.addColumn(new Column("c_string", OdpsType.STRING));
+    return schema;
+  }
+
+  private static byte[] write(TableSchema schema, CompressOption option, int count)
+      throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    ProtobufRecordStreamWriter writer = new ProtobufRecordStreamWriter(schema, bos, option);
+    Record record = new ArrayRecord(schema);
+    for (int i = 0; i < count; i++) {
+      record.setBigint(0, (long) i);
+      record.setDouble(1, i / 3.0);
+      record.setString(2, "value_" + (i % 100));
+      writer.write(record);
+    }
+    writer.close();
+    return bos.toByteArray();
+  }
+
+  private static void verify(TableSchema schema, CompressOption option, byte[] data, int count)
+      throws IOException {
+    ProtobufRecordStreamReader reader =
+        new ProtobufRecordStreamReader(schema, new ByteArrayInputStream(data), option);
+    Record record;
+    int i = 0;
+    while ((record = reader.read()) != null) {
+      Assert.assertEquals(Long.valueOf(i), record.getBigint(0));
+      Assert.assertEquals(i / 3.0, record.getDouble(1), 0);
+      Assert.assertEquals("value_" + (i % 100), record.getString(2));
+      i++;
+    }
+    reader.close();
+    Assert.assertEquals(count, i);
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    TableSchema schema = schema();
+    int count = 10000;
+    byte[] raw = write(schema, new CompressOption(CompressOption.CompressAlgorithm.ODPS_RAW, 0, 0),
+                       count);
+
+    CompressOption[] options = new CompressOption[] {
+        new CompressOption(CompressOption.CompressAlgorithm.ODPS_ZLIB, 1, 0),
+        new CompressOption(CompressOption.CompressAlgorithm.ODPS_ZLIB, 9, 0),
+        new CompressOption(CompressOption.CompressAlgorithm.ODPS_SNAPPY, 0, 0),
+        new CompressOption(CompressOption.CompressAlgorithm.ODPS_LZ4_FRAME, 0, 0),
+        new CompressOption(CompressOption.CompressAlgorithm.ODPS_ZSTD, 1, 0),
+        new CompressOption(CompressOption.CompressAlgorithm.ODPS_ZSTD, 19, 0),
+    };
+    for (CompressOption option : options) {
+      byte[] data = write(schema, option, count);
+      Assert.assertTrue(option.algorithm + " " + option.level, data.length < raw.length);
+      verify(schema, option, data, count);
+    }
+  }
+
+  @Test
+  public void testZstdLevel() throws IOException {
+    TableSchema schema = schema();
+    byte[] fast = write(schema, new CompressOption(CompressOption.CompressAlgorithm.ODPS_ZSTD, 1, 0),
+                        10000);
+    byte[] strong =
+        write(schema, new CompressOption(CompressOption.CompressAlgorithm.ODPS_ZSTD, 19, 0), 10000);
+    Assert.assertTrue(strong.length <= fast.length);
+  }
+}
@@ -0,0 +1,125 @@
+package com.aliyun.odps.tunnel.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.aliyun.odps.Column;
+import com.aliyun.odps.OdpsType;
+import com.aliyun.odps.TableSchema;
+import com.aliyun.odps.commons.proto.ProtobufRecordStreamReader;
+import com.aliyun.odps.commons.proto.ProtobufRecordStreamWriter;
+import com.aliyun.odps.data.ArrayRecord;
+import com.aliyun.odps.data.Record;
+
+/**
+ * Reports compression ratio against throughput of every protobuf stream codec.
+ *
+ * <p>Usage: {@code CompressionBenchmark [recordCount] [rounds]}. Sample records mix
+ * sequential ids, low cardinality strings and random doubles, which is close to what a
+ * typical fact table looks like on the wire.</p>
+ */
+public class CompressionBenchmark {
+
+  private static TableSchema schema() {
+    TableSchema schema = new TableSchema();
+    schema.addColumn(new Column("id", OdpsType.BIGINT));
+    schema.addColumn(new Column("category", OdpsType.STRING));
+    schema.addColumn(new Column("amount", OdpsType.DOUBLE));
+    schema.addColumn(new Column("comment", OdpsType.STRING));
+    return schema;
+  }
+
+  private static List<Record> sample(TableSchema schema, int count) {
+    Random random = new Random(0);
+    String[] categories = {"electronics", "books", "clothing", "grocery", "toys", "garden"};
+    List<Record> records = new ArrayList<Record>(count);
+    for (int i = 0; i < count; i++) {
+      Record r = new ArrayRecord(schema);
+      r.setBigint(0, (long) i);
+      r.setString(1, categories[random.nextInt(categories.length)]);
+      r.setDouble(2, Math.round(random.nextDouble() * 100000) / 100.0);
+      r.setString(3, "order " + i + " shipped to region " + random.nextInt(32));
+      records.add(r);
+    }
+    return records;
+  }
+
+  private static byte[] write(TableSchema schema, List<Record> records, CompressOption option)
+      throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    ProtobufRecordStreamWriter writer = new ProtobufRecordStreamWriter(schema, bos, option);
+    for (Record r : records) {
+      writer.write(r);
+    }
+    writer.close();
+    return bos.toByteArray();
+  }
+
+  private static long read(TableSchema schema, byte[] data, CompressOption option)
+      throws IOException {
+    ProtobufRecordStreamReader reader =
+        new ProtobufRecordStreamReader(schema, new ByteArrayInputStream(data), option);
+    Record reuse = null;
+    long count = 0;
+    while ((reuse = reader.read(reuse)) != null) {
+      count++;
+    }
+    reader.close();
+    return count;
+  }
+
+  public static void main(String[] args) throws IOException {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+    int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+    TableSchema schema = schema();
+    List<Record> records = sample(schema, count);
+
+    CompressOption[] options = new CompressOption[] {
+        new CompressOption(CompressOption.CompressAlgorithm.ODPS_RAW, 0, 0),
+        new CompressOption(CompressOption.CompressAlgorithm.ODPS_ZLIB, 1, 0),
+        new CompressOption(CompressOption.CompressAlgorithm.ODPS_ZLIB, 6, 0),
+        new CompressOption(CompressOption.CompressAlgorithm.ODPS_ZLIB, 9, 0),
+        new CompressOption(CompressOption.CompressAlgorithm.ODPS_SNAPPY, 0, 0),
+        new CompressOption(CompressOption.CompressAlgorithm.ODPS_LZ4_FRAME, 0, 0),
+        new CompressOption(CompressOption.CompressAlgorithm.ODPS_ZSTD, 1, 0),
+        new CompressOption(CompressOption.CompressAlgorithm.ODPS_ZSTD, 3, 0),
+        new CompressOption(CompressOption.CompressAlgorithm.ODPS_ZSTD, 9, 0),
+        new CompressOption(CompressOption.CompressAlgorithm.ODPS_ZSTD, 19, 0),
+    };
+
+    long rawSize = write(schema, records, options[0]).length;
+    System.out.println(String.format("%d records, %d bytes uncompressed", count, rawSize));
+    System.out.println(String.format("%-16s %6s %12s %8s %12s %12s",
+                                     "codec", "level", "bytes", "ratio", "write MB/s",
+                                     "read MB/s"));
+
+    for (CompressOption option : options) {
+      // warm up
+      byte[] data = write(schema, records, option);
+      read(schema, data, option);
+
+      long writeNanos = 0;
+      long readNanos = 0;
+      for (int i = 0; i < rounds; i++) {
+        long start = System.nanoTime();
+        data = write(schema, records, option);
+        writeNanos += System.nanoTime() - start;
+
+        start = System.nanoTime();
+        read(schema, data, option);
+        readNanos += System.nanoTime() - start;
+      }
+
+      double mb = rawSize * (double) rounds / (1024 * 1024);
+      System.out.println(String.format("%-16s %6d %12d %8.2f %12.1f %12.1f",
+                                       option.algorithm, option.level, data.length,
+                                       rawSize / (double) data.length,
+                                       mb / (writeNanos / 1e9), mb / (readNanos / 1e9)));
+    }
+  }
+}
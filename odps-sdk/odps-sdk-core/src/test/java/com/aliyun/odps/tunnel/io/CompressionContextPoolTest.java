@@ -0,0 +1,106 @@
+package com.aliyun.odps.tunnel.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.aliyun.odps.tunnel.io.CompressionContextPool.ContextType;
+import com.aliyun.odps.tunnel.io.CompressionContextPool.Stats;
+
+/**
+ * The pool is process wide and other tests may use it concurrently, so buffers of unusual
+ * sizes are used and statistics are only compared by their deltas.
+ */
+public class CompressionContextPoolTest {
+
+  @Test
+  public void testBufferReuse() {
+    Stats before = CompressionContextPool.getStats(ContextType.BUFFER);
+    byte[] buf = CompressionContextPool.borrowBuffer(12347);
+    Assert.assertEquals(12347, buf.length);
+    CompressionContextPool.returnBuffer(buf);
+    Assert.assertSame(buf, CompressionContextPool.borrowBuffer(12347));
+    CompressionContextPool.returnBuffer(buf);
+
+    Stats after = CompressionContextPool.getStats(ContextType.BUFFER);
+    Assert.assertTrue(after.getHits() >= before.getHits() + 1);
+    Assert.assertTrue(after.getReturns() >= before.getReturns() + 2);
+    Assert.assertTrue(after.getHitRate() > 0);
+  }
+
+  @Test
+  public void testMaxIdle() {
+    int maxIdle = CompressionContextPool.getMaxIdle();
+    CompressionContextPool.setMaxIdle(1);
+    try {
+      Stats before = CompressionContextPool.getStats(ContextType.BUFFER);
+      byte[] first = CompressionContextPool.borrowBuffer(12349);
+      byte[] second = CompressionContextPool.borrowBuffer(12349);
+      CompressionContextPool.returnBuffer(first);
+      CompressionContextPool.returnBuffer(second);
+      Stats after = CompressionContextPool.getStats(ContextType.BUFFER);
+      Assert.assertTrue(after.getDiscards() >= before.getDiscards() + 1);
+
+      Assert.assertSame(first, CompressionContextPool.borrowBuffer(12349));
+      Assert.assertNotSame(second, CompressionContextPool.borrowBuffer(12349));
+    } finally {
+      CompressionContextPool.setMaxIdle(maxIdle);
+    }
+  }
+
+  @Test
+  public void testLeakDetection() throws InterruptedException {
+    CompressionContextPool.setLeakDetection(true);
+    try {
+      long before = CompressionContextPool.getStats(ContextType.BUFFER).getLeaks();
+      CompressionContextPool.borrowBuffer(12351);
+      for (int i = 0; i < 50; i++) {
+        System.gc();
+        Thread.sleep(20);
+        if (CompressionContextPool.getStats(ContextType.BUFFER).getLeaks() > before) {
+          return;
+        }
+      }
+      Assert.fail("leak is not detected");
+    } finally {
+      CompressionContextPool.setLeakDetection(false);
+    }
+  }
+
+  @Test
+  public void testZstdBufferPool() {
+    ByteBuffer buffer = CompressionContextPool.zstdBufferPool().get(12353);
+    Assert.assertTrue(buffer.hasArray());
+    Assert.assertEquals(12353, buffer.capacity());
+    CompressionContextPool.zstdBufferPool().release(buffer);
+    Assert.assertSame(buffer.array(), CompressionContextPool.borrowBuffer(12353));
+  }
+
+  @Test
+  public void testArrowHttpStreamRoundTrip() throws IOException {
+    CompressOption option = new CompressOption(CompressOption.CompressAlgorithm.ODPS_ZLIB, 1, 0);
+    byte[] data = new byte[200000];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) (i % 97);
+    }
+
+    for (int round = 0; round < 3; round++) {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      ArrowHttpOutputStream out = new ArrowHttpOutputStream(bos, option);
+      out.write(ByteBuffer.wrap(data));
+      out.close();
+
+      ArrowHttpInputStream in =
+          new ArrowHttpInputStream(new ByteArrayInputStream(bos.toByteArray()), option);
+      ByteBuffer result = ByteBuffer.allocate(data.length);
+      while (result.hasRemaining() && in.read(result) > 0) {
+      }
+      in.close();
+      Assert.assertArrayEquals(data, result.array());
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package com.aliyun.odps.tunnel.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ParallelFileUploaderTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private File createFile(String path, int length) throws IOException {
+    File file = new File(folder.getRoot(), path);
+    file.getParentFile().mkdirs();
+    byte[] content = new byte[length];
+    new Random(length).nextBytes(content);
+    Files.write(file.toPath(), content);
+    return file;
+  }
+
+  /**
+   * Collects uploaded files in memory. The stream of a file fails on close in the first
+   * failures attempts.
+   */
+  private static ParallelFileUploader.StreamOpener opener(final Map<String, byte[]> uploaded,
+                                                          final int failures,
+                                                          final AtomicInteger opened) {
+    return fileName -> {
+      final int attempt = opened.getAndIncrement();
+      return new ByteArrayOutputStream() {
+        @Override
+        public void close() throws IOException {
+          if (attempt < failures) {
+            throw new IOException("connection reset");
+          }
+          uploaded.put(fileName, toByteArray());
+        }
+      };
+    };
+  }
+
+  @Test
+  public void testUploadDirectory() throws Exception {
+    createFile("a", 0);
+    createFile("b/c", 100000);
+    createFile("b/d/e", 10);
+    Map<String, File> files = ParallelFileUploader.listFiles(folder.getRoot());
+    Assert.assertEquals(Arrays.asList("a", "b/c", "b/d/e"), new ArrayList<>(files.keySet()));
+
+    Map<String, byte[]> uploaded = new ConcurrentHashMap<>();
+    ParallelFileUploader.upload(files, opener(uploaded, 0, new AtomicInteger()), 2, 0);
+    Assert.assertEquals(files.size(), uploaded.size());
+    for (Map.Entry<String, File> entry : files.entrySet()) {
+      Assert.assertArrayEquals(Files.readAllBytes(entry.getValue().toPath()),
+                               uploaded.get(entry.getKey()));
+    }
+  }
+
+  @Test
+  public void testRetryFile() throws Exception {
+    File file = createFile("x", 1000);
+    Map<String, File> files = ParallelFileUploader.listFiles(folder.getRoot());
+    Map<String, byte[]> uploaded = new ConcurrentHashMap<>();
+    AtomicInteger opened = new AtomicInteger();
+    // the first attempt fails on close, the second one uploads the whole file again
+    ParallelFileUploader.upload(files, opener(uploaded, 1, opened), 1, 1);
+    Assert.assertEquals(2, opened.get());
+    Assert.assertArrayEquals(Files.readAllBytes(file.toPath()), uploaded.get("x"));
+  }
+
+  @Test
+  public void testRetryExceeded() throws Exception {
+    createFile("x", 10);
+    createFile("y", 10);
+    Map<String, File> files = ParallelFileUploader.listFiles(folder.getRoot());
+    try {
+      ParallelFileUploader.upload(files, fileName -> {
+        if (fileName.equals("y")) {
+          throw new IOException("no space");
+        }
+        return new ByteArrayOutputStream();
+      }, 2, 0);
+      Assert.fail();
+    } catch (IOException e) {
+      Assert.assertEquals("no space", e.getMessage());
+    }
+  }
+}
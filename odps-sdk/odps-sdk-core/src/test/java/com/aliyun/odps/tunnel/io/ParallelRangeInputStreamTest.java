@@ -0,0 +1,121 @@
+package com.aliyun.odps.tunnel.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ParallelRangeInputStreamTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static byte[] randomContent(int length) {
+    byte[] content = new byte[length];
+    new Random(46).nextBytes(content);
+    return content;
+  }
+
+  /**
+   * Serves ranges of the content in small reads. The first range starting at failAt breaks in
+   * the middle, so that the range has to be resumed.
+   */
+  private static ParallelRangeInputStream.RangeOpener opener(final byte[] content,
+                                                              final long failAt,
+                                                              final AtomicInteger opened) {
+    return (start, length) -> {
+      opened.incrementAndGet();
+      int end = (int) Math.min(content.length, start + length);
+      InputStream in = new ByteArrayInputStream(content, (int) start, end - (int) start);
+      final boolean fail = start == failAt;
+      return new FilterInputStream(in) {
+        private int read;
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+          if (fail && read > 10) {
+            throw new IOException("broken connection");
+          }
+          int n = super.read(b, off, Math.min(len, 7));
+          read += Math.max(n, 0);
+          return n;
+        }
+      };
+    };
+  }
+
+  private static byte[] readAll(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[13];
+    int n;
+    while ((n = in.read(buffer)) != -1) {
+      out.write(buffer, 0, n);
+    }
+    return out.toByteArray();
+  }
+
+  @Test
+  public void testOrderedStream() throws IOException {
+    byte[] content = randomContent(1000);
+    for (int threads : new int[]{1, 3}) {
+      AtomicInteger opened = new AtomicInteger();
+      ParallelRangeInputStream in = new ParallelRangeInputStream(
+          opener(content, -1, opened), content.length, threads, 64, 0);
+      Assert.assertArrayEquals(content, readAll(in));
+      Assert.assertEquals(-1, in.read());
+      in.close();
+      Assert.assertEquals(16, opened.get());
+    }
+
+    ParallelRangeInputStream empty = new ParallelRangeInputStream(
+        opener(content, -1, new AtomicInteger()), 0, 2, 64, 0);
+    Assert.assertEquals(-1, empty.read());
+    empty.close();
+  }
+
+  @Test
+  public void testRetryRange() throws IOException {
+    byte[] content = randomContent(500);
+    AtomicInteger opened = new AtomicInteger();
+    ParallelRangeInputStream in = new ParallelRangeInputStream(
+        opener(content, 128, opened), content.length, 2, 64, 1);
+    Assert.assertArrayEquals(content, readAll(in));
+    in.close();
+    // the broken range is reopened from where it stopped
+    Assert.assertEquals(9, opened.get());
+
+    in = new ParallelRangeInputStream(opener(content, 128, opened), content.length, 2, 64, 0);
+    try {
+      readAll(in);
+      Assert.fail();
+    } catch (IOException e) {
+      Assert.assertEquals("broken connection", e.getMessage());
+    } finally {
+      in.close();
+    }
+  }
+
+  @Test
+  public void testDownloadToChannel() throws Exception {
+    byte[] content = randomContent(1000);
+    File file = folder.newFile();
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+         FileChannel channel = raf.getChannel()) {
+      ParallelRangeInputStream.download(opener(content, 192, new AtomicInteger()),
+                                        content.length, channel, 4, 64, 1);
+    }
+    Assert.assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+  }
+}
@@ -70,12 +70,13 @@ public class SplitRecordReaderImpl implements SplitReader<ArrayRecord> {
 
     protected int fillRows() {
         VectorSchemaRoot root = arrowBatchReader.get();
-        if (batchRecord == null || !readerOptions.isReuseBatch()) {
-            if (batchRecord != null) {
-                batchRecord.close();
-            }
+        if (batchRecord == null) {
             batchRecord = new ColumnarBatchRecord(root,
                     readSchema.getColumns().toArray(new Column[0]));
+        } else if (batchRecord.getRoot() != root) {
+            // 不复用批次时关闭上一个批次, 视图重新绑定到新批次
+            batchRecord.close();
+            batchRecord.reset(root);
         }
         return root.getRowCount();
     }
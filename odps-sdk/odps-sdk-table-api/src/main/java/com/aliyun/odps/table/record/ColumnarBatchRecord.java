@@ -20,30 +20,16 @@
 package com.aliyun.odps.table.record;
 
 import com.aliyun.odps.Column;
-import com.aliyun.odps.data.AbstractChar;
-import com.aliyun.odps.data.ArrayRecord;
-import com.aliyun.odps.data.Binary;
-import com.aliyun.odps.data.Record;
-import com.aliyun.odps.table.arrow.accessor.ArrowVectorAccessor;
-import com.aliyun.odps.table.record.accessor.ArrowToRecordConverter;
-import org.apache.arrow.vector.FieldVector;
 import org.apache.arrow.vector.VectorSchemaRoot;
 import org.apache.arrow.vector.types.pojo.Field;
 import org.apache.arrow.vector.types.pojo.Schema;
 
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
-public class ColumnarBatchRecord extends ArrayRecord {
-
-    private final VectorSchemaRoot root;
-    private int rowId;
-    private ArrowVectorAccessor[] columnAccessors;
-    private Map<String, Integer> nameMap = new HashMap<>();
+/**
+ * 列与批次字段按位置一一对应的 {@link ArrowRecordView}
+ */
+public class ColumnarBatchRecord extends ArrowRecordView {
 
-    private void checkSchema(Schema schema, Column[] columns)  {
+    private static void checkSchema(Schema schema, Column[] columns)  {
         if (columns.length != schema.getFields().size()) {
             throw new RuntimeException(
                     "The quality of field type is incompatible with the request schema!");
@@ -59,151 +45,7 @@ public class ColumnarBatchRecord extends ArrayRecord {
 
     public ColumnarBatchRecord(VectorSchemaRoot root,
                                Column[] columns) {
-        this(root, columns, 0);
+        super(root, columns);
         checkSchema(root.getSchema(), columns);
-
-        columnAccessors = new ArrowVectorAccessor[columns.length];
-        nameMap = new HashMap<>();
-
-        List<FieldVector> fieldVectors = root.getFieldVectors();
-        for (int i = 0; i < fieldVectors.size(); i++) {
-            columnAccessors[i] = ArrowToRecordConverter.
-                    createColumnVectorAccessor(fieldVectors.get(i), columns[i].getTypeInfo());
-            nameMap.put(columns[i].getName(), i);
-        }
-    }
-
-    private ColumnarBatchRecord(VectorSchemaRoot root,
-                                Column[] columns,
-                                int rowId) {
-        super(columns);
-        this.root = root;
-        this.rowId = rowId;
-    }
-
-    public void close() {
-        if (root != null) {
-            root.close();
-        }
-        this.rowId = 0;
-    }
-
-    public void setRowId(int rowId) {
-        this.rowId = rowId;
-    }
-
-    @Override
-    public int getColumnCount() {
-        return columnAccessors.length;
-    }
-
-    @Override
-    public void set(int idx, Object value) {
-        throw new UnsupportedOperationException();
-    }
-
-    @Override
-    public Object get(int idx) {
-        try {
-            return ArrowToRecordConverter.getData(columnAccessors[idx],
-                    this.getColumns()[idx].getTypeInfo(),
-                    rowId);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
-    }
-
-    @Override
-    public Object get(String columnName) {
-        return get(getColumnIndex(columnName));
-    }
-
-    @Override
-    public boolean isNull(int idx) {
-        return columnAccessors[idx].isNullAt(rowId);
-    }
-
-    @Override
-    protected <T> T getInternal(int idx) {
-        try {
-            return (T) ArrowToRecordConverter.getData(columnAccessors[idx],
-                    this.getColumns()[idx].getTypeInfo(),
-                    rowId);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
-    }
-
-    @Override
-    public String getString(int idx) {
-        Object obj = getInternal(idx);
-
-        if (obj == null) {
-            return null;
-        }
-
-        if (obj instanceof byte []) {
-            return bytesToString((byte []) obj);
-        }
-
-        return (String)obj;
-    }
-
-    @Override
-    public byte[] getBytes(int idx) {
-        Object obj = getInternal(idx);
-
-        if (obj == null) {
-            return null;
-        }
-        if (obj instanceof  byte[]) {
-            return (byte[]) obj;
-        } else if (obj instanceof String) {
-            return stringToBytes((String) obj);
-        } else if (obj instanceof Binary) {
-            return ((Binary) obj).data();
-        } else if (obj instanceof AbstractChar) {
-            return stringToBytes(((AbstractChar)obj).getValue());
-        }
-        else {
-            throw new RuntimeException("Does not support getBytes for type other than String/Binary/Char/VarChar, sees "
-                    + obj.getClass());
-        }
-    }
-
-    @Override
-    public Record clone() {
-        ArrayRecord record = new ArrayRecord(getColumns());
-        for (int i = 0; i < getColumnCount(); i++) {
-            if (isNull(i)) {
-                record.set(i, null);
-            } else {
-                record.set(i, getInternal(i));
-            }
-        }
-        return record;
-    }
-
-    @Override
-    public void set(String columnName, Object value) {
-        throw new UnsupportedOperationException();
-    }
-
-    @Override
-    public void set(Object[] values) {
-        throw new UnsupportedOperationException();
-    }
-
-    @Override
-    public Object[] toArray() {
-        throw new UnsupportedOperationException();
-    }
-
-    private int getColumnIndex(String name) {
-        Integer idx = nameMap.get(name);
-        if (idx == null) {
-            throw new IllegalArgumentException("No such column:" + name);
-        }
-        return idx;
     }
 }
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.udf;
+
+import java.io.IOException;
+
+/**
+ * 向量化 UDF 基类
+ * <p>
+ * 与 {@link UDF} 一样，输入输出是一对一的关系，但 evaluate 每次处理一批数据：
+ * 参数为每个输入列的列向量（{@link com.aliyun.odps.udf.vector} 包中的类），返回值为输出列的列向量，
+ * 其有效行数必须与输入相同。列向量用基本类型数组保存数据，在紧凑的循环中处理可以避免逐行装箱和方法调用的开销。
+ * </p>
+ * <p>
+ * 输入输出类型由 evaluate 的签名确定，不需要 {@link com.aliyun.odps.udf.annotation.Resolve} 标注：
+ * {@link com.aliyun.odps.udf.vector.LongColumnVector} 对应 bigint，
+ * {@link com.aliyun.odps.udf.vector.DoubleColumnVector} 对应 double，
+ * {@link com.aliyun.odps.udf.vector.BooleanColumnVector} 对应 boolean，
+ * {@link com.aliyun.odps.udf.vector.StringColumnVector} 对应 string。
+ * 可以重载多个 evaluate 方法。
+ * </p>
+ * <p>
+ * 框架在下一次调用 evaluate 之前会读取完返回的列向量，因此实现可以在多次调用之间复用同一个输出列向量。
+ * </p>
+ * 例如:
+ * <pre>
+ *   public class VectorPlus extends VectorizedUDF {
+ *     private LongColumnVector result = new LongColumnVector(1024);
+ *
+ *     public LongColumnVector evaluate(LongColumnVector a, LongColumnVector b) {
+ *       int n = a.size();
+ *       if (result.capacity() &lt; n) {
+ *         result = new LongColumnVector(n);
+ *       }
+ *       result.reset(n);
+ *       for (int i = 0; i &lt; n; i++) {
+ *         result.vector[i] = a.vector[i] + b.vector[i];
+ *       }
+ *       if (!a.noNulls || !b.noNulls) {
+ *         for (int i = 0; i &lt; n; i++) {
+ *           if (a.isNullAt(i) || b.isNullAt(i)) {
+ *             result.setNull(i);
+ *           }
+ *         }
+ *       }
+ *       return result;
+ *     }
+ *   }
+ * </pre>
+ */
+public abstract class VectorizedUDF implements ContextFunction {
+
+  @Override
+  public void setup(ExecutionContext ctx) throws UDFException, IOException {
+  }
+
+  @Override
+  public void close() throws UDFException, IOException {
+  }
+}
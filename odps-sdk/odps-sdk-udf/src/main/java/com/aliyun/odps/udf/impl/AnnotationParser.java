@@ -19,6 +19,8 @@
 
 package com.aliyun.odps.udf.impl;
 
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -28,8 +30,13 @@ import com.aliyun.odps.utils.StringUtils;
 
 import com.aliyun.odps.udf.OdpsType;
 import com.aliyun.odps.udf.UDFException;
+import com.aliyun.odps.udf.VectorizedUDF;
 import com.aliyun.odps.udf.annotation.PreferWritable;
 import com.aliyun.odps.udf.annotation.Resolve;
+import com.aliyun.odps.udf.vector.BooleanColumnVector;
+import com.aliyun.odps.udf.vector.DoubleColumnVector;
+import com.aliyun.odps.udf.vector.LongColumnVector;
+import com.aliyun.odps.udf.vector.StringColumnVector;
 
 /**
  * UDF SDK中用于内部实现的功能，这部分不属于API，接口随时可能改变，不推荐使用。
@@ -104,6 +111,14 @@ public class AnnotationParser {
       this.prototypes = tp;
     }
 
+    public boolean isVectorized() {
+      return vectorized;
+    }
+
+    public void setVectorized(boolean val) {
+      this.vectorized = val;
+    }
+
     public boolean isWriable() {
       return writable;
     }
@@ -113,6 +128,7 @@ public class AnnotationParser {
     }
 
     private boolean writable = false;
+    private boolean vectorized = false;
     private boolean variadic = false;
     private List<Prototype> prototypes = new ArrayList<Prototype>();
   }
@@ -120,6 +136,9 @@ public class AnnotationParser {
   public static ParseResult parse(Class<?> clz) throws ParseError {
     ParseResult result = new ParseResult();
     Resolve r = clz.getAnnotation(Resolve.class);
+    if (r == null && VectorizedUDF.class.isAssignableFrom(clz)) {
+      return parseVectorized(clz);
+    }
     if (r == null) {
       throw new ParseError("@Resolve annotation not found.");
     }
@@ -166,6 +185,72 @@ public class AnnotationParser {
     return result;
   }
 
+  /**
+   * 从 {@link VectorizedUDF} 的 evaluate 方法签名中解析输入输出类型，每个 evaluate 方法对应一个 Prototype
+   */
+  public static ParseResult parseVectorized(Class<?> clz) throws ParseError {
+    if (!VectorizedUDF.class.isAssignableFrom(clz)) {
+      throw new ParseError(clz.getName() + " is not a " + VectorizedUDF.class.getName());
+    }
+    ParseResult result = new ParseResult();
+    result.setVectorized(true);
+    for (Method method : clz.getMethods()) {
+      if (!method.getName().equals("evaluate") || method.isBridge()
+          || Modifier.isStatic(method.getModifiers())) {
+        continue;
+      }
+      result.getProtoTypes().add(parseVectorizedMethod(method));
+    }
+    if (result.getProtoTypes().isEmpty()) {
+      throw new ParseError("No public evaluate method found in " + clz.getName());
+    }
+    return result;
+  }
+
+  /**
+   * 解析向量化 evaluate 方法的签名，参数和返回值必须都是列向量
+   */
+  public static Prototype parseVectorizedMethod(Method method) throws ParseError {
+    String errMsg = "Vectorized evaluate method '" + method + "' ";
+    Class<?>[] parameterTypes = method.getParameterTypes();
+    if (parameterTypes.length == 0) {
+      throw new ParseError(errMsg + "must have at least one argument");
+    }
+    OdpsType[] args = new OdpsType[parameterTypes.length];
+    for (int i = 0; i < parameterTypes.length; i++) {
+      args[i] = getVectorType(parameterTypes[i]);
+      if (args[i] == null) {
+        throw new ParseError(errMsg + "has unsupported argument type "
+                             + parameterTypes[i].getName());
+      }
+    }
+    OdpsType ret = getVectorType(method.getReturnType());
+    if (ret == null) {
+      throw new ParseError(errMsg + "has unsupported return type "
+                           + method.getReturnType().getName());
+    }
+    Prototype proto = new Prototype();
+    proto.setArguments(args);
+    proto.setReturns(new OdpsType[]{ret});
+    return proto;
+  }
+
+  /**
+   * @return 列向量类对应的 ODPS 类型，不是支持的列向量类时返回 null
+   */
+  public static OdpsType getVectorType(Class<?> clz) {
+    if (clz == LongColumnVector.class) {
+      return OdpsType.BIGINT;
+    } else if (clz == DoubleColumnVector.class) {
+      return OdpsType.DOUBLE;
+    } else if (clz == BooleanColumnVector.class) {
+      return OdpsType.BOOLEAN;
+    } else if (clz == StringColumnVector.class) {
+      return OdpsType.STRING;
+    }
+    return null;
+  }
+
   private static Set<String> registeredTypes = new HashSet<String>();
 
   static {
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.udf.vector;
+
+import java.util.Arrays;
+
+import com.aliyun.odps.udf.OdpsType;
+
+/**
+ * 列向量基类，保存一批数据中的一列。
+ * <p>
+ * 数据保存在子类的基本类型数组中，只有前 {@link #size()} 个元素有效。
+ * noNulls 为 true 时表示这一批数据中没有空值，此时不需要访问 isNull 数组；
+ * 否则 isNull[i] 为 true 表示第 i 行为空，空值对应的数组元素没有意义。
+ * </p>
+ */
+public abstract class ColumnVector {
+
+  protected int size;
+
+  /**
+   * 这一批数据中没有空值
+   */
+  public boolean noNulls = true;
+
+  /**
+   * 每行是否为空，只有 noNulls 为 false 时才有意义
+   */
+  public boolean[] isNull;
+
+  protected ColumnVector(int capacity) {
+    isNull = new boolean[capacity];
+  }
+
+  /**
+   * @return 列向量对应的 ODPS 类型
+   */
+  public abstract OdpsType getType();
+
+  /**
+   * @return 数组容量，即一批数据的最大行数
+   */
+  public int capacity() {
+    return isNull.length;
+  }
+
+  /**
+   * @return 有效行数
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * 清空所有空值标记，并设置有效行数
+   *
+   * @param size
+   *     有效行数，不能超过容量
+   */
+  public void reset(int size) {
+    if (size < 0 || size > capacity()) {
+      throw new IllegalArgumentException("Invalid size:" + size + ", capacity:" + capacity());
+    }
+    if (!noNulls) {
+      Arrays.fill(isNull, 0, capacity(), false);
+      noNulls = true;
+    }
+    this.size = size;
+  }
+
+  public boolean isNullAt(int i) {
+    return !noNulls && isNull[i];
+  }
+
+  public void setNull(int i) {
+    isNull[i] = true;
+    noNulls = false;
+  }
+
+  /**
+   * 以对象形式读取第 i 行，空值返回 null，供运行框架在行和列向量之间转换数据
+   */
+  public abstract Object get(int i);
+
+  /**
+   * 以对象形式设置第 i 行，value 为 null 时设置为空值，供运行框架在行和列向量之间转换数据
+   */
+  public abstract void set(int i, Object value);
+}
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.udf.vector;
+
+import com.aliyun.odps.udf.OdpsType;
+
+/**
+ * STRING 类型的列向量
+ */
+public class StringColumnVector extends ColumnVector {
+
+  public String[] vector;
+
+  public StringColumnVector(int capacity) {
+    super(capacity);
+    vector = new String[capacity];
+  }
+
+  @Override
+  public OdpsType getType() {
+    return OdpsType.STRING;
+  }
+
+  @Override
+  public Object get(int i) {
+    return isNullAt(i) ? null : vector[i];
+  }
+
+  @Override
+  public void set(int i, Object value) {
+    if (value == null) {
+      setNull(i);
+    } else {
+      isNull[i] = false;
+      vector[i] = (String) value;
+    }
+  }
+}
@@ -17,6 +17,9 @@ package com.aliyun.odps.fs;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
@@ -25,8 +28,10 @@ import org.apache.hadoop.fs.FileAlreadyExistsException;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.FsStatus;
+import org.apache.hadoop.fs.LocatedFileStatus;
 import org.apache.hadoop.fs.ParentNotDirectoryException;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
 import org.apache.hadoop.fs.permission.FsPermission;
 import org.apache.hadoop.util.Progressable;
 import org.slf4j.Logger;
@@ -295,6 +300,49 @@ public class VolumeFileSystem extends FileSystem {
     return VolumeFSUtil.transferFiles(files);
   }
 
+  /**
+   * Recursive listing fetches the sub directories concurrently.
+   */
+  @Override
+  public RemoteIterator<LocatedFileStatus> listFiles(Path f, boolean recursive)
+      throws FileNotFoundException, IOException {
+    if (!recursive) {
+      return super.listFiles(f, false);
+    }
+    FileStatus status = getFileStatus(f);
+    final List<LocatedFileStatus> result = new ArrayList<LocatedFileStatus>();
+    if (!status.isDirectory()) {
+      result.add(new LocatedFileStatus(status, getFileBlockLocations(status, 0, status.getLen())));
+    } else {
+      statistics.incrementReadOps(1);
+      String filePath = getPathName(fixRelativePart(f));
+      VolumeFSFile[] files;
+      try {
+        files = volumeClient.getFileInfosRecursively(filePath);
+      } catch (VolumeException e) {
+        logException(e);
+        throw wrapExceptions(filePath, e);
+      }
+      for (FileStatus file : VolumeFSUtil.transferFiles(files)) {
+        if (file.isFile()) {
+          result.add(new LocatedFileStatus(file, getFileBlockLocations(file, 0, file.getLen())));
+        }
+      }
+    }
+    final Iterator<LocatedFileStatus> it = result.iterator();
+    return new RemoteIterator<LocatedFileStatus>() {
+      @Override
+      public boolean hasNext() {
+        return it.hasNext();
+      }
+
+      @Override
+      public LocatedFileStatus next() {
+        return it.next();
+      }
+    };
+  }
+
 
   @Override
   public void setWorkingDirectory(Path new_dir) {
@@ -366,6 +414,17 @@ public class VolumeFileSystem extends FileSystem {
     return new FsStatus(0, 0, 0);
   }
 
+  @Override
+  public void close() throws IOException {
+    try {
+      super.close();
+    } finally {
+      if (volumeClient != null) {
+        volumeClient.close();
+      }
+    }
+  }
+
   private IOException wrapExceptions(String path, VolumeException e) {
     if (VolumeFSErrorCode.NoSuchPath.equalsIgnoreCase(e.getErrCode())) {
       return new FileNotFoundException(VolumeFSErrorMessageGenerator.noSuchFileOrDirectory(path));
@@ -41,4 +41,7 @@ public class VolumeFileSystemConfigKeys extends CommonConfigurationKeys {
       "odps.volume.seek.optimization.enabled";
   public static final String DFS_REPLICATION_KEY = "dfs.replication";
   public static final String ODPS_RESTCLIENT_RETRYTIME = "odps.restclient.retrytime";
+  public static final String ODPS_VOLUME_META_CACHE_TTL = "odps.volume.meta.cache.ttl";
+  public static final String ODPS_VOLUME_META_CACHE_SIZE = "odps.volume.meta.cache.size";
+  public static final String ODPS_VOLUME_LIST_THREADS = "odps.volume.list.threads";
 }
@@ -23,11 +23,20 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -75,6 +84,10 @@ public class VolumeFSClient {
 
   private RestClient client;
 
+  private VolumeFSMetaCache metaCache;
+
+  private ExecutorService listExecutor;
+
   public VolumeFSClient(Odps odps, String project, String serviceEndpoint, String tunnelEndpoint,
       Configuration conf) {
     this.odps = odps;
@@ -83,15 +96,44 @@ public class VolumeFSClient {
     this.tunnelEndpoint = tunnelEndpoint;
     this.conf = conf;
     client = odps.getRestClient();
+    metaCache = new VolumeFSMetaCache(
+        conf.getLong(VolumeFileSystemConfigKeys.ODPS_VOLUME_META_CACHE_TTL,
+            VolumeFSConstants.DEFAULT_META_CACHE_TTL),
+        conf.getInt(VolumeFileSystemConfigKeys.ODPS_VOLUME_META_CACHE_SIZE,
+            VolumeFSConstants.DEFAULT_META_CACHE_SIZE));
+  }
+
+  /**
+   * Get the meta cache, which also holds the cache statistics
+   */
+  public VolumeFSMetaCache getMetaCache() {
+    return metaCache;
   }
 
   /**
-   * Get File meta info
+   * Get File meta info, served from the meta cache if possible
    *
    * @param path
    * @throws VolumeException
    */
   public VolumeFSFile getFileInfo(String path) throws VolumeException {
+    VolumeFSFile file = metaCache.getFile(path);
+    if (file != null) {
+      return file;
+    }
+    // A mutation during the load may have dropped what the load returns, don't cache it then
+    long generation = metaCache.getGeneration();
+    try {
+      file = loadFileInfo(path);
+    } catch (VolumeException e) {
+      metaCache.putMissing(path, e, generation);
+      throw e;
+    }
+    metaCache.putFile(path, file, generation);
+    return file;
+  }
+
+  private VolumeFSFile loadFileInfo(String path) throws VolumeException {
 
     return new VolumeFSJobRunnerProxy<VolumeFSFile>() {
 
@@ -158,6 +200,14 @@ public class VolumeFSClient {
    * @throws VolumeException
    */
   public boolean mkdirs(String path) throws VolumeException {
+    try {
+      return doMkdirs(path);
+    } finally {
+      metaCache.invalidate(path);
+    }
+  }
+
+  private boolean doMkdirs(String path) throws VolumeException {
     return new VolumeFSJobRunnerProxy<Boolean>() {
 
       @Override
@@ -268,7 +318,8 @@ public class VolumeFSClient {
         String.valueOf(replication));
     params.put("params", innerParams);
 
-    return new VolumeFSJobRunnerProxy<Boolean>() {
+    metaCache.invalidate(path);
+    boolean result = new VolumeFSJobRunnerProxy<Boolean>() {
 
       @SuppressWarnings("unchecked")
       @Override
@@ -293,16 +344,108 @@ public class VolumeFSClient {
             VolumeFSErrorMessageGenerator.noSuchFileOrDirectory(path));
       }
     }.run(path, params);
+    metaCache.invalidate(path);
+    return result;
 
   }
 
   /**
-   * List files (and directories) in specific path
+   * List files (and directories) in specific path, served from the meta cache if possible
    *
    * @param path
    * @throws VolumeException
    */
   public VolumeFSFile[] getFileInfosByPath(String path) throws VolumeException {
+    VolumeFSFile[] files = metaCache.getListing(path);
+    if (files != null) {
+      return files;
+    }
+    long generation = metaCache.getGeneration();
+    files = loadFileInfosByPath(path);
+    metaCache.putListing(path, files, generation);
+    return files;
+  }
+
+  /**
+   * List all files and directories under specific path. Sub directories are listed concurrently
+   *
+   * @param path
+   * @throws VolumeException
+   */
+  public VolumeFSFile[] getFileInfosRecursively(String path) throws VolumeException {
+    List<VolumeFSFile> result = new ArrayList<VolumeFSFile>();
+    Deque<Future<VolumeFSFile[]>> pending = new ArrayDeque<Future<VolumeFSFile[]>>();
+    pending.add(submitListing(path));
+    try {
+      while (!pending.isEmpty()) {
+        for (VolumeFSFile file : waitListing(pending.poll())) {
+          result.add(file);
+          if (Boolean.TRUE.equals(file.getIsdir())) {
+            pending.add(submitListing(file.getPath()));
+          }
+        }
+      }
+    } finally {
+      for (Future<VolumeFSFile[]> future : pending) {
+        future.cancel(true);
+      }
+    }
+    return result.toArray(new VolumeFSFile[0]);
+  }
+
+  private Future<VolumeFSFile[]> submitListing(final String path) {
+    return getListExecutor().submit(new Callable<VolumeFSFile[]>() {
+      @Override
+      public VolumeFSFile[] call() throws Exception {
+        return getFileInfosByPath(path);
+      }
+    });
+  }
+
+  private static VolumeFSFile[] waitListing(Future<VolumeFSFile[]> future)
+      throws VolumeException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new VolumeException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof VolumeException) {
+        throw (VolumeException) e.getCause();
+      }
+      throw new VolumeException(e.getCause());
+    }
+  }
+
+  /**
+   * Release the threads of concurrent listing
+   */
+  public synchronized void close() {
+    if (listExecutor != null) {
+      listExecutor.shutdownNow();
+      listExecutor = null;
+    }
+  }
+
+  private synchronized ExecutorService getListExecutor() {
+    if (listExecutor == null) {
+      int threads = conf.getInt(VolumeFileSystemConfigKeys.ODPS_VOLUME_LIST_THREADS,
+          VolumeFSConstants.DEFAULT_LIST_THREADS);
+      listExecutor = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+        private final AtomicInteger index = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread t = new Thread(r, "volumefs-list-" + index.getAndIncrement());
+          t.setDaemon(true);
+          return t;
+        }
+      });
+    }
+    return listExecutor;
+  }
+
+  private VolumeFSFile[] loadFileInfosByPath(String path) throws VolumeException {
 
     return new VolumeFSJobRunnerProxy<VolumeFSFile[]>() {
 
@@ -380,7 +523,9 @@ public class VolumeFSClient {
     String[] srcPair = VolumeFSUtil.getVolumeAndPath(src);
     String[] dstPair = VolumeFSUtil.getVolumeAndPath(dst);
     boolean isExternal = isExternalVolume(srcPair[0]);
-    return new VolumeFSJobRunnerProxy<Boolean>() {
+    metaCache.invalidate(src);
+    metaCache.invalidate(dst);
+    boolean result = new VolumeFSJobRunnerProxy<Boolean>() {
 
       @SuppressWarnings("unchecked")
       @Override
@@ -419,6 +564,9 @@ public class VolumeFSClient {
         }
       }
     }.run(src, params);
+    metaCache.invalidate(src);
+    metaCache.invalidate(dst);
+    return result;
 
   }
 
@@ -434,7 +582,8 @@ public class VolumeFSClient {
     Map<String, Object> params = new HashMap<String, Object>();
     params.put(VolumeFSFile.ParamKey.RECURSIVE.name().toLowerCase(), recursive);
 
-    return new VolumeFSJobRunnerProxy<Boolean>() {
+    metaCache.invalidate(path);
+    boolean result = new VolumeFSJobRunnerProxy<Boolean>() {
 
       @Override
       public Boolean doJob(String path, Map<String, Object> params) throws VolumeException {
@@ -480,6 +629,8 @@ public class VolumeFSClient {
       }
 
     }.run(path, params);
+    metaCache.invalidate(path);
+    return result;
 
   }
 
@@ -558,7 +709,11 @@ public class VolumeFSClient {
     String[] parts = path.split(VolumeFSConstants.SEPARATOR, 3);
     String volumeName =  parts[1];;
     String pathName = parts[2];
-    upload(odps.getDefaultProject(), volumeName, pathName, fileInputStream);
+    try {
+      upload(odps.getDefaultProject(), volumeName, pathName, fileInputStream);
+    } finally {
+      metaCache.invalidate(path);
+    }
   }
 
   /**
@@ -582,7 +737,7 @@ public class VolumeFSClient {
       throw new VolumeException(oe);
     }
     try {
-      file = getFileInfo(path);
+      file = loadFileInfo(path);
     } catch (VolumeException e) {
       if (!VolumeFSErrorCode.NoSuchPath.equalsIgnoreCase(e.getErrCode())) {
         throw e;
@@ -645,6 +800,8 @@ public class VolumeFSClient {
       tunnel.commit(odps.getDefaultProject(), path, sessionId);
     } catch (TunnelException e) {
       throw new VolumeException(e);
+    } finally {
+      metaCache.invalidate(path);
     }
   }
 
@@ -664,7 +821,7 @@ public class VolumeFSClient {
       String sessionId = VolumeFSTunnel.getUploadSessionId(out);
       VolumeFSFile file = null;
       try {
-        file = getFileInfo(path);
+        file = loadFileInfo(path);
       } catch (Exception e) {
       }
       if (file != null) {
@@ -688,6 +845,8 @@ public class VolumeFSClient {
       getVolumeTunnel().commit(odps.getDefaultProject(), path, sessionId);
     } catch (Exception e) {
       throw new VolumeException(e);
+    } finally {
+      metaCache.invalidate(path);
     }
   }
 
@@ -0,0 +1,283 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.aliyun.odps.volume;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.aliyun.odps.VolumeException;
+import com.aliyun.odps.VolumeFSFile;
+import com.aliyun.odps.tunnel.VolumeFSErrorCode;
+import com.aliyun.odps.volume.protocol.VolumeFSConstants;
+
+/**
+ * Short-lived cache of path meta and directory listings for {@link VolumeFSClient}
+ *
+ * Missing paths are cached as well. Entries expire after ttl milliseconds, and a mutation through
+ * the client drops the entries of the path, its descendants and its ancestors.
+ *
+ * Every invalidation bumps a generation. A loader reads {@link #getGeneration()} before loading
+ * and passes it to the put, which is skipped if any invalidation happened in between, so a value
+ * loaded before a concurrent mutation is not cached after it.
+ *
+ */
+public class VolumeFSMetaCache {
+
+  private static class Entry {
+
+    // VolumeFSFile, VolumeFSFile[], or the message of a missing path
+    final Object value;
+    final long expireTime;
+
+    Entry(Object value, long expireTime) {
+      this.value = value;
+      this.expireTime = expireTime;
+    }
+  }
+
+  private final long ttl;
+  private final LinkedHashMap<String, Entry> files;
+  private final LinkedHashMap<String, Entry> listings;
+  private long generation;
+
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong negativeHitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+  private final AtomicLong invalidationCount = new AtomicLong();
+
+  /**
+   * @param ttl
+   *     entry life in milliseconds, caching is disabled if ttl <= 0
+   * @param maxEntries
+   *     max entries of file meta and of listings, least recently used ones are evicted
+   */
+  public VolumeFSMetaCache(long ttl, final int maxEntries) {
+    this.ttl = ttl;
+    this.files = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > maxEntries;
+      }
+    };
+    this.listings = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  public boolean isEnabled() {
+    return ttl > 0;
+  }
+
+  /**
+   * Get cached file meta
+   *
+   * @param path
+   * @return null if not cached
+   * @throws VolumeException
+   *     if the path is cached as missing
+   */
+  public VolumeFSFile getFile(String path) throws VolumeException {
+    Object value = get(files, path);
+    if (value instanceof String) {
+      negativeHitCount.incrementAndGet();
+      throw new VolumeException(VolumeFSErrorCode.NoSuchPath, (String) value);
+    }
+    return (VolumeFSFile) value;
+  }
+
+  public void putFile(String path, VolumeFSFile file) {
+    put(files, path, file, -1);
+  }
+
+  /**
+   * Cache file meta unless an invalidation happened since the generation was read
+   *
+   * @param path
+   * @param file
+   * @param generation
+   *     {@link #getGeneration()} before loading the meta
+   */
+  public void putFile(String path, VolumeFSFile file, long generation) {
+    put(files, path, file, generation);
+  }
+
+  /**
+   * Cache the path as missing if e means no such path
+   *
+   * @param path
+   * @param e
+   */
+  public void putMissing(String path, VolumeException e) {
+    putMissing(path, e, -1);
+  }
+
+  public void putMissing(String path, VolumeException e, long generation) {
+    if (VolumeFSErrorCode.NoSuchPath.equalsIgnoreCase(e.getErrCode())) {
+      put(files, path, e.getErrMsg(), generation);
+    }
+  }
+
+  /**
+   * Get cached listing of a directory
+   *
+   * @param path
+   * @return null if not cached
+   */
+  public VolumeFSFile[] getListing(String path) {
+    VolumeFSFile[] listing = (VolumeFSFile[]) get(listings, path);
+    return listing == null ? null : listing.clone();
+  }
+
+  public void putListing(String path, VolumeFSFile[] listing) {
+    put(listings, path, listing.clone(), -1);
+  }
+
+  public void putListing(String path, VolumeFSFile[] listing, long generation) {
+    put(listings, path, listing.clone(), generation);
+  }
+
+  /**
+   * @return the current generation, bumped by every invalidation
+   */
+  public synchronized long getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Drop the entries of the path, all its descendants and all its ancestors
+   *
+   * @param path
+   */
+  public void invalidate(String path) {
+    if (!isEnabled()) {
+      return;
+    }
+    String key = normalize(path);
+    String prefix = key.endsWith(VolumeFSConstants.SEPARATOR) ? key
+                                                              : key + VolumeFSConstants.SEPARATOR;
+    synchronized (this) {
+      generation++;
+      invalidate(files, key, prefix);
+      invalidate(listings, key, prefix);
+    }
+    invalidationCount.incrementAndGet();
+  }
+
+  public synchronized void clear() {
+    generation++;
+    files.clear();
+    listings.clear();
+  }
+
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  /**
+   * @return hits on paths cached as missing, also counted in {@link #getHitCount()}
+   */
+  public long getNegativeHitCount() {
+    return negativeHitCount.get();
+  }
+
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  public long getInvalidationCount() {
+    return invalidationCount.get();
+  }
+
+  public synchronized int size() {
+    return files.size() + listings.size();
+  }
+
+  @Override
+  public String toString() {
+    return "VolumeFSMetaCache{hits=" + getHitCount() + ", negativeHits=" + getNegativeHitCount()
+           + ", misses=" + getMissCount() + ", invalidations=" + getInvalidationCount()
+           + ", size=" + size() + "}";
+  }
+
+  private Object get(LinkedHashMap<String, Entry> map, String path) {
+    if (!isEnabled()) {
+      return null;
+    }
+    String key = normalize(path);
+    Entry entry;
+    synchronized (this) {
+      entry = map.get(key);
+      if (entry != null && entry.expireTime <= System.currentTimeMillis()) {
+        map.remove(key);
+        entry = null;
+      }
+    }
+    if (entry == null) {
+      missCount.incrementAndGet();
+      return null;
+    }
+    hitCount.incrementAndGet();
+    return entry.value;
+  }
+
+  /**
+   * @param generation
+   *     negative to put unconditionally
+   */
+  private void put(LinkedHashMap<String, Entry> map, String path, Object value,
+                   long generation) {
+    if (!isEnabled()) {
+      return;
+    }
+    Entry entry = new Entry(value, System.currentTimeMillis() + ttl);
+    synchronized (this) {
+      if (generation >= 0 && generation != this.generation) {
+        return;
+      }
+      map.put(normalize(path), entry);
+    }
+  }
+
+  private static void invalidate(LinkedHashMap<String, Entry> map, String key, String prefix) {
+    Iterator<String> it = map.keySet().iterator();
+    while (it.hasNext()) {
+      String k = it.next();
+      if (k.equals(key) || k.startsWith(prefix) || isAncestor(k, key)) {
+        it.remove();
+      }
+    }
+  }
+
+  private static boolean isAncestor(String ancestor, String path) {
+    if (ancestor.equals(VolumeFSConstants.ROOT_PATH)) {
+      return true;
+    }
+    return path.startsWith(ancestor)
+           && path.startsWith(VolumeFSConstants.SEPARATOR, ancestor.length());
+  }
+
+  static String normalize(String path) {
+    String key = path.replaceAll("/{2,}", VolumeFSConstants.SEPARATOR);
+    if (key.length() > 1 && key.endsWith(VolumeFSConstants.SEPARATOR)) {
+      key = key.substring(0, key.length() - 1);
+    }
+    return key;
+  }
+}
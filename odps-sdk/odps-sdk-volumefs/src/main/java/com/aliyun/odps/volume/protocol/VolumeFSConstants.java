@@ -45,5 +45,8 @@ public class VolumeFSConstants {
   public static final String DEFAULT_HOME_VOLUME = "user";
   public static final String DEFAULT_VOLUME_BLOCK_BUFFER_DIR = "/tmp/volumefs/";
   public static final short DFS_REPLICATION_DEFAULT = 3;
+  public static final long DEFAULT_META_CACHE_TTL = 2000;
+  public static final int DEFAULT_META_CACHE_SIZE = 10000;
+  public static final int DEFAULT_LIST_THREADS = 8;
 
 }
@@ -0,0 +1,118 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.aliyun.odps.volume;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.aliyun.odps.Odps;
+import com.aliyun.odps.VolumeException;
+import com.aliyun.odps.VolumeFSFile;
+import com.aliyun.odps.account.AliyunAccount;
+import com.aliyun.odps.tunnel.VolumeFSErrorCode;
+
+public class VolumeFSMetaCacheTest {
+
+  private static final VolumeFSFile FILE =
+      VolumeFSFile.getRoot("project", new Odps(new AliyunAccount("id", "key")));
+
+  @Test
+  public void testHitAndExpire() throws Exception {
+    VolumeFSMetaCache cache = new VolumeFSMetaCache(200, 100);
+    Assert.assertNull(cache.getFile("/v/a"));
+    cache.putFile("/v/a/", FILE);
+    Assert.assertSame(FILE, cache.getFile("/v//a"));
+    Assert.assertEquals(1, cache.getHitCount());
+    Assert.assertEquals(1, cache.getMissCount());
+    Thread.sleep(300);
+    Assert.assertNull(cache.getFile("/v/a"));
+    Assert.assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testNegativeCaching() throws Exception {
+    VolumeFSMetaCache cache = new VolumeFSMetaCache(60000, 100);
+    cache.putMissing("/v/a", new VolumeException(VolumeFSErrorCode.NoSuchPath, "no such path"));
+    cache.putMissing("/v/b", new VolumeException("other error"));
+    try {
+      cache.getFile("/v/a");
+      Assert.fail();
+    } catch (VolumeException e) {
+      Assert.assertEquals(VolumeFSErrorCode.NoSuchPath, e.getErrCode());
+      Assert.assertEquals("no such path", e.getErrMsg());
+    }
+    Assert.assertNull(cache.getFile("/v/b"));
+    Assert.assertEquals(1, cache.getNegativeHitCount());
+  }
+
+  @Test
+  public void testInvalidate() throws Exception {
+    VolumeFSMetaCache cache = new VolumeFSMetaCache(60000, 100);
+    for (String path : new String[]{"/", "/v", "/v/a", "/v/a/b", "/v/ab", "/w"}) {
+      cache.putFile(path, FILE);
+      cache.putListing(path, new VolumeFSFile[]{FILE});
+    }
+    cache.invalidate("/v/a");
+    // the path, its descendants and its ancestors are dropped
+    for (String path : new String[]{"/", "/v", "/v/a", "/v/a/b"}) {
+      Assert.assertNull(cache.getFile(path));
+      Assert.assertNull(cache.getListing(path));
+    }
+    for (String path : new String[]{"/v/ab", "/w"}) {
+      Assert.assertSame(FILE, cache.getFile(path));
+      Assert.assertEquals(1, cache.getListing(path).length);
+    }
+    Assert.assertEquals(1, cache.getInvalidationCount());
+  }
+
+  @Test
+  public void testStalePutAfterInvalidation() throws Exception {
+    VolumeFSMetaCache cache = new VolumeFSMetaCache(60000, 100);
+    long generation = cache.getGeneration();
+    // a mutation of an unrelated path lands while /v/a is being loaded
+    cache.invalidate("/w");
+    cache.putFile("/v/a", FILE, generation);
+    cache.putListing("/v", new VolumeFSFile[]{FILE}, generation);
+    cache.putMissing("/v/b", new VolumeException(VolumeFSErrorCode.NoSuchPath, "no such path"),
+                     generation);
+    Assert.assertEquals(0, cache.size());
+
+    generation = cache.getGeneration();
+    cache.putFile("/v/a", FILE, generation);
+    cache.putListing("/v", new VolumeFSFile[]{FILE}, generation);
+    Assert.assertSame(FILE, cache.getFile("/v/a"));
+    Assert.assertEquals(1, cache.getListing("/v").length);
+
+    cache.clear();
+    cache.putFile("/v/a", FILE, generation);
+    Assert.assertNull(cache.getFile("/v/a"));
+  }
+
+  @Test
+  public void testDisabledAndBounded() throws Exception {
+    VolumeFSMetaCache disabled = new VolumeFSMetaCache(0, 100);
+    disabled.putFile("/v/a", FILE);
+    Assert.assertNull(disabled.getFile("/v/a"));
+
+    VolumeFSMetaCache cache = new VolumeFSMetaCache(60000, 2);
+    cache.putFile("/v/a", FILE);
+    cache.putFile("/v/b", FILE);
+    cache.getFile("/v/a");
+    cache.putFile("/v/c", FILE);
+    // the least recently used entry is evicted
+    Assert.assertNull(cache.getFile("/v/b"));
+    Assert.assertSame(FILE, cache.getFile("/v/a"));
+  }
+}